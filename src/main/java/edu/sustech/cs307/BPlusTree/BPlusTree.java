@@ -4,6 +4,7 @@ import edu.sustech.cs307.BPlusTree.Node.BPlusTreeLeafNode;
 import edu.sustech.cs307.BPlusTree.Node.BPlusTreeInternalNode;
 import edu.sustech.cs307.value.Value;
 import edu.sustech.cs307.record.RID;
+import org.pmw.tinylog.Logger;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -70,8 +71,7 @@ public class BPlusTree {
                 splitAndPropagate(leaf);
             }
         } catch (Exception e) {
-            System.err.println("Error during insert: " + e.getMessage());
-            e.printStackTrace();
+            Logger.error(e, "Error during insert");
         }
     }
     
@@ -122,11 +122,11 @@ public class BPlusTree {
                 BPlusTreeLeafNode leaf = (BPlusTreeLeafNode) node;
                 return leaf.search(key);
             } else {
-                System.err.println("Error: Expected leaf node but found internal node during search.");
+                Logger.error("Expected leaf node but found internal node during search.");
                 return new ArrayList<>();
             }
         } catch (Exception e) {
-            System.err.println("Error during search: " + e.getMessage());
+            Logger.error(e, "Error during search");
             return new ArrayList<>();
         }
     }
@@ -136,7 +136,7 @@ public class BPlusTree {
             BPlusTreeLeafNode leaf = (BPlusTreeLeafNode) findLeaf(key);
             return leaf.searchSingle(key);
         } catch (Exception e) {
-            System.err.println("Error during search: " + e.getMessage());
+            Logger.error(e, "Error during search");
             return null;
         }
     }
@@ -151,7 +151,7 @@ public class BPlusTree {
             BPlusTreeLeafNode startLeaf = (BPlusTreeLeafNode) findLeaf(startKey);
             return startLeaf.rangeSearch(startKey, endKey);
         } catch (Exception e) {
-            System.err.println("Error during range search: " + e.getMessage());
+            Logger.error(e, "Error during range search");
             return new ArrayList<>();
         }
     }
@@ -161,7 +161,7 @@ public class BPlusTree {
             BPlusTreeLeafNode leaf = (BPlusTreeLeafNode) findLeaf(key);
             return leaf.searchGreaterThanFromNode(key);
         } catch (Exception e) {
-            System.err.println("Error during searchGreater: " + e.getMessage());
+            Logger.error(e, "Error during searchGreater");
             return new ArrayList<>();
         }
     }
@@ -170,7 +170,7 @@ public class BPlusTree {
             BPlusTreeLeafNode leaf = (BPlusTreeLeafNode) findLeaf(key);
             return leaf.searchLessThanToNode(key);
         } catch (Exception e) {
-            System.err.println("Error during searchLess: " + e.getMessage());
+            Logger.error(e, "Error during searchLess");
             return new ArrayList<>();
         }
     }
@@ -179,7 +179,7 @@ public class BPlusTree {
             BPlusTreeLeafNode leaf = (BPlusTreeLeafNode) findLeaf(key);
             return leaf.searchGreaterThanOrEqualFromNode(key);
         } catch (Exception e) {
-            System.err.println("Error during searchGreaterEqual: " + e.getMessage());
+            Logger.error(e, "Error during searchGreaterEqual");
             return new ArrayList<>();
         }
     }
@@ -189,7 +189,7 @@ public class BPlusTree {
             BPlusTreeLeafNode leaf = (BPlusTreeLeafNode) findLeaf(key);
             return leaf.searchLessThanOrEqualToNode(key);
         } catch (Exception e) {
-            System.err.println("Error during searchLessEqual: " + e.getMessage());
+            Logger.error(e, "Error during searchLessEqual");
             return new ArrayList<>();
         }
     }
@@ -224,7 +224,7 @@ public class BPlusTree {
            return deleted;
             // return true;
         } catch (Exception e) {
-            System.err.println("Error during delete: " + e.getMessage());
+            Logger.error(e, "Error during delete");
             return false;
         }
     }
@@ -391,8 +391,7 @@ public class BPlusTree {
                 System.out.println();
             }
         } catch (Exception e) {
-            System.err.println("Error during printTree: " + e.getMessage());
-            e.printStackTrace();
+            Logger.error(e, "Error during printTree");
         }
     }
     
@@ -421,8 +420,7 @@ public class BPlusTree {
             }
             System.out.println();
         } catch (Exception e) {
-            System.err.println("Error during printLeafChain: " + e.getMessage());
-            e.printStackTrace();
+            Logger.error(e, "Error during printLeafChain");
         }
     }
     
@@ -635,8 +633,7 @@ public class BPlusTree {
 //            System.out.println("验证双精度树: " + doubleTree.validate());
 //
         } catch (Exception e) {
-            System.err.println("测试过程中发生错误: " + e.getMessage());
-            e.printStackTrace();
+            Logger.error(e, "测试过程中发生错误");
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package edu.sustech.cs307.BPlusTree;
+
+import edu.sustech.cs307.BPlusTree.Node.BPlusTreePage;
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.record.RID;
+import edu.sustech.cs307.value.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 自底向上批量构建 {@link DiskBPlusTree}：按 (键, RID) 升序逐个给出项，依次填满叶子，再由叶子的分隔项逐层填满内部节点。
+ *
+ * <p>
+ * 每一层只有最右侧的一个节点在填充，它被填到填充因子给出的项数后即写完，之后不再访问，
+ * 新节点接在它的右边，新节点的第一项作为分隔项追加到上一层。因此每个节点只写一次，不发生任何分裂，
+ * 构建期间只固定每层一个页面。填充因子小于 1 时节点留有空位，之后的插入在一段时间内不会引起分裂。
+ * 各层最右侧的节点可能不满，与删除留下的不满节点一样不影响查询。
+ * </p>
+ *
+ * <p>
+ * 只能用于空树，构建期间不能有其他会话访问这棵树；{@link #finish()} 把根节点写入文件头后树才包含这些项。
+ * 构建失败时调用 {@link #abort()}，树仍然为空。
+ * </p>
+ */
+public class BPlusTreeBulkLoader {
+    private final DiskBPlusTree tree;
+    private final double fillFactor;
+    // 每一层最右侧、仍在填充的节点，第 0 层是叶子，最后一层的节点在构建结束时成为根节点
+    private final List<BPlusTreePage> levels = new ArrayList<>();
+    // 上一个加入的项，用于检查输入有序
+    private Value lastKey;
+    private RID lastRid;
+    private int count = 0;
+
+    /**
+     * @param tree       要构建的空树
+     * @param fillFactor 每个节点填充的比例，在 (0, 1] 之间
+     */
+    BPlusTreeBulkLoader(DiskBPlusTree tree, double fillFactor) {
+        this.tree = tree;
+        this.fillFactor = fillFactor;
+    }
+
+    /**
+     * 追加一项，必须大于之前加入的所有项。
+     *
+     * @param key 键，类型必须与索引的键类型相同
+     * @param rid 键所在记录的 RID
+     * @throws DBException 如果键的类型不匹配或读写页面时发生错误
+     */
+    public void add(Value key, RID rid) throws DBException {
+        byte[] encoded = tree.encode(key);
+        if (lastKey != null) {
+            int cmp = key.compareTo(lastKey);
+            if (cmp < 0 || cmp == 0 && (rid.pageNum < lastRid.pageNum
+                    || rid.pageNum == lastRid.pageNum && rid.slotNum <= lastRid.slotNum)) {
+                throw new RuntimeException(String.format("%s: bulk load entries are not in ascending order",
+                        tree.getFilename()));
+            }
+        }
+        if (levels.isEmpty()) {
+            levels.add(tree.allocate(BPlusTreePage.LEAF));
+        }
+        BPlusTreePage leaf = levels.get(0);
+        if (leaf.getCount() >= limit(leaf)) {
+            // 叶子已填到填充因子，新叶子接在它的右边，新项作为分隔项追加到上一层
+            BPlusTreePage next = tree.allocate(BPlusTreePage.LEAF);
+            int leafId = leaf.getPageId();
+            int nextId = next.getPageId();
+            leaf.getPage().WLatch();
+            next.getPage().WLatch();
+            try {
+                leaf.setNext(nextId);
+                next.setPrev(leafId);
+            } finally {
+                next.getPage().WUnlatch();
+                leaf.getPage().WUnlatch();
+            }
+            replace(0, next);
+            append_separator(1, encoded, rid, leafId, nextId);
+            leaf = next;
+        }
+        leaf.getPage().WLatch();
+        try {
+            leaf.insert(leaf.getCount(), encoded, rid, BPlusTreePage.NO_PAGE);
+        } finally {
+            leaf.getPage().WUnlatch();
+        }
+        lastKey = key;
+        lastRid = rid;
+        count++;
+    }
+
+    /**
+     * 写完各层最右侧的节点，把最上层的节点设为根节点。之后不能再调用 {@link #add}。
+     *
+     * @return 加入的项数
+     * @throws DBException 如果写入文件头时发生错误
+     */
+    public int finish() throws DBException {
+        int rootId = BPlusTreePage.NO_PAGE;
+        for (BPlusTreePage node : levels) {
+            rootId = node.getPageId();
+            tree.release(node, true);
+        }
+        levels.clear();
+        tree.set_root(rootId);
+        return count;
+    }
+
+    /**
+     * 放弃构建：释放各层最右侧的节点，不设置根节点，树仍然为空。已写完的节点留在文件中，调用者应随后删除索引文件。
+     * 之后不能再调用 {@link #add}。
+     */
+    public void abort() {
+        for (BPlusTreePage node : levels) {
+            tree.release(node, false);
+        }
+        levels.clear();
+    }
+
+    /**
+     * 把分隔项 (key, rid) 追加到第 level 层，它右侧的子节点是 rightId。
+     * 该层还没有节点时新建一个，以 leftId 为第 0 个子节点；该层最右侧的节点已满时，新节点以 rightId 为第 0 个子节点，
+     * 分隔项继续上移到再上一层。
+     */
+    private void append_separator(int level, byte[] key, RID rid, int leftId, int rightId) throws DBException {
+        if (level == levels.size()) {
+            BPlusTreePage node = tree.allocate(BPlusTreePage.INTERNAL);
+            node.getPage().WLatch();
+            try {
+                node.setChild(0, leftId);
+                node.insert(0, key, rid, rightId);
+            } finally {
+                node.getPage().WUnlatch();
+            }
+            levels.add(node);
+            return;
+        }
+        BPlusTreePage node = levels.get(level);
+        if (node.getCount() < limit(node)) {
+            node.getPage().WLatch();
+            try {
+                node.insert(node.getCount(), key, rid, rightId);
+            } finally {
+                node.getPage().WUnlatch();
+            }
+            return;
+        }
+        BPlusTreePage sibling = tree.allocate(BPlusTreePage.INTERNAL);
+        int nodeId = node.getPageId();
+        int siblingId = sibling.getPageId();
+        sibling.getPage().WLatch();
+        try {
+            sibling.setChild(0, rightId);
+        } finally {
+            sibling.getPage().WUnlatch();
+        }
+        replace(level, sibling);
+        append_separator(level + 1, key, rid, nodeId, siblingId);
+    }
+
+    /**
+     * 第 level 层最右侧的节点写完，释放它并由 node 接替。
+     */
+    private void replace(int level, BPlusTreePage node) {
+        tree.release(levels.get(level), true);
+        levels.set(level, node);
+    }
+
+    /**
+     * @return 按填充因子，节点写完时包含的项数，至少为 1
+     */
+    private int limit(BPlusTreePage node) {
+        return Math.max(1, Math.min(node.capacity(), (int) (node.capacity() * fillFactor)));
+    }
+}
@@ -0,0 +1,240 @@
+package edu.sustech.cs307.BPlusTree;
+
+import edu.sustech.cs307.BPlusTree.Node.BPlusTreePage;
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.record.RID;
+import edu.sustech.cs307.value.Value;
+
+import java.util.Arrays;
+
+/**
+ * 沿叶子链表按需遍历 {@link DiskBPlusTree} 中一个键范围的游标，可以正向或反向遍历。
+ *
+ * <p>
+ * 游标每次进入一个叶子，在页面的读锁下一次取出该叶子中所有落在范围内的项，随即解除页面的固定并释放锁，
+ * 之后逐个返回；取完后才读入下一个叶子。因此只读取实际用到的叶子，提前结束的查询不必为整个范围付出代价，
+ * 游标也不会在两次调用之间固定任何页面，不需要关闭。
+ * </p>
+ *
+ * <p>
+ * 游标记住最后取出的项，进入下一个叶子时只取在遍历方向上位于它之后的项。两次读取之间其他会话插入或删除的项可能被看到，
+ * 也可能被跳过，但已经返回过的项不会重复返回。{@link #seek(Value)} 和 {@link #resume(Value, RID)} 把游标重新定位到树中任意位置，
+ * 后者用于从之前保存的项之后继续遍历。
+ * </p>
+ */
+public class BPlusTreeCursor {
+    private static final RID MIN_RID = new RID(Integer.MIN_VALUE, Integer.MIN_VALUE);
+    private static final RID MAX_RID = new RID(Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    private final DiskBPlusTree tree;
+    private final boolean forward;
+    // 范围的两端，都包含在内，为 null 时不设边界
+    private final Value low;
+    private final Value high;
+
+    // 游标在遍历方向上位于 (anchorKey, anchorRid) 之后；anchorKey 为 null 时从范围的起点开始
+    private Value anchorKey;
+    private RID anchorRid;
+    // 已经取出的叶子，为 NO_PAGE 时需要从根节点重新定位
+    private int leafId = BPlusTreePage.NO_PAGE;
+    // 已经越过范围的终点或走到叶子链表的尽头
+    private boolean exhausted = false;
+
+    // 从当前叶子取出的项，按遍历方向排列
+    private int[] pages;
+    private int[] slots;
+    private byte[] keys;
+    private int size = 0;
+    private int index = -1;
+
+    /**
+     * @param tree    要遍历的树
+     * @param low     范围的起始键，为 null 时不设下界
+     * @param high    范围的结束键，为 null 时不设上界
+     * @param forward 为 true 时按键从小到大遍历，否则从大到小
+     */
+    BPlusTreeCursor(DiskBPlusTree tree, Value low, Value high, boolean forward) {
+        this.tree = tree;
+        this.low = low;
+        this.high = high;
+        this.forward = forward;
+        reset(forward ? low : high, forward ? MIN_RID : MAX_RID);
+    }
+
+    /**
+     * 移到下一项，需要时读入遍历方向上的下一个非空叶子。
+     *
+     * @return 还有项时返回 true；遍历结束时返回 false
+     * @throws DBException 如果读取页面时发生错误
+     */
+    public boolean next() throws DBException {
+        if (index + 1 < size) {
+            index++;
+            return true;
+        }
+        size = 0;
+        index = -1;
+        if (exhausted) {
+            return false;
+        }
+        fill();
+        if (size == 0) {
+            return false;
+        }
+        index = 0;
+        return true;
+    }
+
+    /**
+     * @return 当前项的 RID，只在 {@link #next()} 返回 true 之后有效
+     */
+    public RID getRID() {
+        return new RID(pages[index], slots[index]);
+    }
+
+    /**
+     * @return 当前项的键，只在 {@link #next()} 返回 true 之后有效
+     */
+    public Value getKey() {
+        int keySize = tree.getKeySize();
+        return tree.decode(Arrays.copyOfRange(keys, index * keySize, (index + 1) * keySize));
+    }
+
+    /**
+     * 重新定位游标：之后的 {@link #next()} 正向遍历时返回第一个不小于 key 的项，反向遍历时返回最后一个不大于 key 的项，
+     * 仍然限制在游标的范围内。
+     *
+     * @param key 目标键
+     * @throws DBException 如果键的类型不匹配
+     */
+    public void seek(Value key) throws DBException {
+        tree.check_type(key);
+        // 范围起点之前的键等同于起点
+        if (forward && low != null && key.compareTo(low) < 0) {
+            key = low;
+        } else if (!forward && high != null && key.compareTo(high) > 0) {
+            key = high;
+        }
+        reset(key, forward ? MIN_RID : MAX_RID);
+    }
+
+    /**
+     * 从之前取出的项 (key, rid) 之后继续遍历，该项本身不会再次返回。该项此后被删除也不影响定位。
+     *
+     * @param key 之前取出的项的键，通常来自 {@link #getKey()}
+     * @param rid 之前取出的项的 RID，通常来自 {@link #getRID()}
+     * @throws DBException 如果键的类型不匹配
+     */
+    public void resume(Value key, RID rid) throws DBException {
+        tree.check_type(key);
+        reset(key, rid);
+    }
+
+    private void reset(Value key, RID rid) {
+        anchorKey = key;
+        anchorRid = rid;
+        leafId = BPlusTreePage.NO_PAGE;
+        exhausted = false;
+        size = 0;
+        index = -1;
+    }
+
+    /**
+     * 从下一个叶子开始取出项，直到取到至少一项或遍历结束。
+     */
+    private void fill() throws DBException {
+        BPlusTreePage leaf;
+        if (leafId != BPlusTreePage.NO_PAGE) {
+            leaf = sibling(leafId);
+        } else if (anchorKey == null) {
+            leaf = tree.descend(forward ? DiskBPlusTree.LEFTMOST : DiskBPlusTree.RIGHTMOST, null, null, false);
+        } else {
+            leaf = tree.descend(DiskBPlusTree.BY_KEY, anchorKey, anchorRid, false);
+        }
+        while (leaf != null) {
+            try {
+                collect(leaf);
+                leafId = leaf.getPageId();
+            } finally {
+                tree.unlatch(leaf, false, false);
+            }
+            if (size > 0 || exhausted) {
+                return;
+            }
+            leaf = sibling(leafId);
+        }
+        exhausted = true;
+    }
+
+    /**
+     * 锁住遍历方向上与 pageId 相邻的叶子。每次都从页面读出兄弟指针，上次读取之后叶子可能已经分裂。
+     *
+     * @return 已固定并加读锁的叶子；pageId 已经是叶子链表的尽头时返回 null
+     */
+    private BPlusTreePage sibling(int pageId) throws DBException {
+        while (true) {
+            BPlusTreePage leaf = tree.fetch(pageId);
+            leaf.getPage().RLatch();
+            int target;
+            try {
+                target = forward ? leaf.getNext() : leaf.getPrev();
+            } finally {
+                tree.unlatch(leaf, false, false);
+            }
+            if (target == BPlusTreePage.NO_PAGE) {
+                return null;
+            }
+            BPlusTreePage next = tree.fetch(target);
+            next.getPage().RLatch();
+            // 插入从左到右锁住相邻的叶子，反向移动时只能先释放右侧叶子再锁住左侧叶子。
+            // 左侧叶子在此期间分裂时，分出的新叶子才是 pageId 的左邻居，重新读取
+            if (forward || next.getNext() == pageId) {
+                return next;
+            }
+            tree.unlatch(next, false, false);
+        }
+    }
+
+    /**
+     * 按遍历方向取出叶子中位于锚点之后、范围之内的项，并把锚点移到最后取出的项。
+     */
+    private void collect(BPlusTreePage leaf) {
+        int count = leaf.getCount();
+        int keySize = tree.getKeySize();
+        if (pages == null || pages.length < leaf.capacity()) {
+            pages = new int[leaf.capacity()];
+            slots = new int[leaf.capacity()];
+            keys = new byte[leaf.capacity() * keySize];
+        }
+        int last = -1;
+        for (int n = 0; n < count; n++) {
+            int i = forward ? n : count - 1 - n;
+            if (anchorKey != null) {
+                int cmp = tree.compare(leaf, i, anchorKey, anchorRid);
+                if (forward ? cmp <= 0 : cmp >= 0) {
+                    continue;
+                }
+            }
+            // 越过终点后不再有满足条件的项；未到起点的项只可能出现在 resume 到范围之外的位置
+            if (forward ? high != null && tree.compare(leaf, i, high, null) > 0
+                    : low != null && tree.compare(leaf, i, low, null) < 0) {
+                exhausted = true;
+                break;
+            }
+            if (forward ? low != null && tree.compare(leaf, i, low, null) < 0
+                    : high != null && tree.compare(leaf, i, high, null) > 0) {
+                continue;
+            }
+            RID rid = leaf.getRID(i);
+            pages[size] = rid.pageNum;
+            slots[size] = rid.slotNum;
+            leaf.getData().getBytes(leaf.keyOffset(i), keys, size * keySize, keySize);
+            size++;
+            last = i;
+        }
+        if (last >= 0) {
+            anchorKey = tree.decode(leaf.getKey(last));
+            anchorRid = leaf.getRID(last);
+        }
+    }
+}
@@ -0,0 +1,649 @@
+package edu.sustech.cs307.BPlusTree;
+
+import edu.sustech.cs307.BPlusTree.Node.BPlusTreePage;
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.exception.ExceptionTypes;
+import edu.sustech.cs307.record.RID;
+import edu.sustech.cs307.storage.BufferPool;
+import edu.sustech.cs307.storage.DiskManager;
+import edu.sustech.cs307.storage.Page;
+import edu.sustech.cs307.storage.PagePosition;
+import edu.sustech.cs307.value.Value;
+import edu.sustech.cs307.value.ValueType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 保存在磁盘上的 B+ 树索引，节点是索引文件中的页面，通过缓冲池读写。
+ *
+ * <p>
+ * 索引文件第 0 页是文件头，依次存放键的类型、键的字节数和根节点页号，树为空时根节点页号为 {@link BPlusTreePage#NO_PAGE}。
+ * 其余每页是一个节点，布局见 {@link BPlusTreePage}。节点的扇出由页大小和键长决定，4KB 页面中 INTEGER 键的叶子可以容纳 255 项，
+ * 内部节点可以容纳 203 项，百万个键的索引只有三层。节点内用二分查找定位。
+ * 节点页面与数据页一样由替换器管理、写入重做日志并延迟写回，因此索引可以远大于缓冲池，重启后也不需要重建。
+ * 为已有的数据建立索引时用 {@link BPlusTreeBulkLoader} 自底向上构建，不必逐项插入。
+ * </p>
+ *
+ * <p>
+ * 树中的每一项是 (键, RID)，先按键、再按 RID 排序，因此允许重复的键，删除时用 RID 确定要删除的项。
+ * 删除只从叶子中移除项，不合并节点，变空的叶子留在叶子链表中，扫描时直接跳过。
+ * </p>
+ *
+ * <p>
+ * 并发访问用页面锁自上而下逐层加锁（latch crabbing）：先锁住子节点再释放父节点，任何时候只锁住一小段路径，
+ * 不同会话在树的不同部分的查询和修改可以并行。查询沿路径只加读锁。插入和删除先乐观地下降，内部节点只加读锁、叶子加写锁，
+ * 叶子不会分裂时（绝大多数情况）直接完成；叶子已满时释放后重新下降，沿路径加写锁，遇到插入后不会分裂的节点就释放它的所有祖先，
+ * 分裂因此只锁住真正受影响的那段路径。根节点页号另由一把读写锁保护，只有根节点可能分裂的插入才独占它。
+ * 同一层的叶子总是从左到右加锁，反向遍历叶子链表的游标先释放右侧叶子再锁住左侧叶子，因此不会死锁。
+ * </p>
+ */
+public class DiskBPlusTree {
+    // 小于所有 RID 的哨兵，用于按键定位
+    private static final RID MIN_RID = new RID(Integer.MIN_VALUE, Integer.MIN_VALUE);
+    // 下降的目标：最左侧的叶子、(键, RID) 所在的叶子或最右侧的叶子
+    static final int LEFTMOST = -1;
+    static final int BY_KEY = 0;
+    static final int RIGHTMOST = 1;
+
+    private final BufferPool bufferPool;
+    private final String filename;
+    private final int pageSize;
+    private final ValueType keyType;
+    private final int keySize;
+    // 保护根节点页号：读取根节点页号直到锁住根节点期间持有读锁，可能改变根节点的插入持有写锁
+    private final ReentrantReadWriteLock rootLatch = new ReentrantReadWriteLock();
+    private volatile int root;
+
+    /**
+     * 打开一个已经存在的索引文件。
+     *
+     * @param diskManager 磁盘管理器
+     * @param bufferPool  缓冲池
+     * @param filename    索引文件名
+     * @throws DBException 如果读取文件头时发生错误
+     */
+    public DiskBPlusTree(DiskManager diskManager, BufferPool bufferPool, String filename) throws DBException {
+        this.bufferPool = bufferPool;
+        this.filename = filename;
+        this.pageSize = diskManager.GetPageSize(filename);
+        PagePosition position = new PagePosition(filename, 0);
+        Page header = bufferPool.FetchPage(position);
+        if (header == null) {
+            throw new RuntimeException(String.format("%s: unable to fetch the file header", filename));
+        }
+        header.RLatch();
+        try {
+            this.keyType = ValueType.values()[header.data.getInt(0)];
+            this.keySize = header.data.getInt(4);
+            this.root = header.data.getInt(8);
+        } finally {
+            header.RUnlatch();
+            bufferPool.unpin_page(position, false);
+        }
+    }
+
+    /**
+     * 创建一个空的索引文件。文件头直接写入磁盘，与数据文件的文件头一样不依赖重做日志。
+     *
+     * @param diskManager 磁盘管理器
+     * @param filename    索引文件名
+     * @param key_type    键的类型
+     * @param key_size    键的字节数，即列的长度
+     * @throws DBException 如果创建或写入文件时发生错误
+     */
+    public static void Create(DiskManager diskManager, String filename, ValueType key_type, int key_size)
+            throws DBException {
+        diskManager.CreateFile(filename);
+        Page page = new Page();
+        page.position = new PagePosition(filename, 0);
+        page.data.setInt(0, key_type.ordinal());
+        page.data.setInt(4, key_size);
+        page.data.setInt(8, BPlusTreePage.NO_PAGE);
+        diskManager.FlushPage(page);
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public ValueType getKeyType() {
+        return keyType;
+    }
+
+    public int getKeySize() {
+        return keySize;
+    }
+
+    /**
+     * 插入一项。
+     *
+     * @param key 键，类型必须与索引的键类型相同
+     * @param rid 键所在记录的 RID
+     * @return 插入成功返回 true；同样的 (键, RID) 已经存在时不插入，返回 false
+     * @throws DBException 如果键的类型不匹配或读写页面时发生错误
+     */
+    public boolean insert(Value key, RID rid) throws DBException {
+        byte[] encoded = encode(key);
+        // 乐观插入：叶子不满时不会分裂，上层节点不受影响，只需锁住叶子
+        BPlusTreePage leaf = descend(BY_KEY, key, rid, true);
+        if (leaf != null) {
+            boolean dirty = false;
+            try {
+                int pos = lower_bound(leaf, key, rid);
+                if (pos < leaf.getCount() && compare(leaf, pos, key, rid) == 0) {
+                    return false;
+                }
+                if (leaf.getCount() < leaf.capacity()) {
+                    leaf.insert(pos, encoded, rid, BPlusTreePage.NO_PAGE);
+                    dirty = true;
+                    return true;
+                }
+            } finally {
+                unlatch(leaf, true, dirty);
+            }
+        }
+        return insert_with_split(key, encoded, rid);
+    }
+
+    /**
+     * 叶子可能分裂时的插入：沿路径加写锁下降，遇到插入后不会分裂的节点时释放它的所有祖先。
+     */
+    private boolean insert_with_split(Value key, byte[] encoded, RID rid) throws DBException {
+        rootLatch.writeLock().lock();
+        boolean rootLatched = true;
+        // 从上到下锁住的节点，分裂会向上传播到其中每一个
+        ArrayDeque<BPlusTreePage> path = new ArrayDeque<>();
+        try {
+            if (root == BPlusTreePage.NO_PAGE) {
+                BPlusTreePage leaf = allocate(BPlusTreePage.LEAF);
+                set_root(leaf.getPageId());
+                release(leaf, true);
+            }
+            BPlusTreePage node = fetch(root);
+            node.getPage().WLatch();
+            path.addLast(node);
+            while (true) {
+                if (node.getCount() < node.capacity()) {
+                    while (path.size() > 1) {
+                        unlatch(path.removeFirst(), true, false);
+                    }
+                    if (rootLatched) {
+                        rootLatch.writeLock().unlock();
+                        rootLatched = false;
+                    }
+                }
+                if (node.isLeaf()) {
+                    break;
+                }
+                node = fetch(node.getChild(upper_bound(node, key, rid)));
+                node.getPage().WLatch();
+                path.addLast(node);
+            }
+
+            BPlusTreePage leaf = path.removeLast();
+            int leafId = leaf.getPageId();
+            byte[] separator;
+            RID separatorRid;
+            int rightId;
+            boolean dirty = false;
+            try {
+                int pos = lower_bound(leaf, key, rid);
+                if (pos < leaf.getCount() && compare(leaf, pos, key, rid) == 0) {
+                    return false;
+                }
+                dirty = true;
+                if (leaf.getCount() < leaf.capacity()) {
+                    // 两次下降之间其他会话可能已经分裂了这个叶子
+                    leaf.insert(pos, encoded, rid, BPlusTreePage.NO_PAGE);
+                    return true;
+                }
+                // 叶子已满：后一半移到新叶子，新叶子接在它的右边
+                BPlusTreePage right = allocate(BPlusTreePage.LEAF);
+                right.getPage().WLatch();
+                try {
+                    int mid = leaf.getCount() / 2;
+                    leaf.moveTo(mid, right);
+                    right.setPrev(leafId);
+                    right.setNext(leaf.getNext());
+                    if (leaf.getNext() != BPlusTreePage.NO_PAGE) {
+                        set_prev(leaf.getNext(), right.getPageId());
+                    }
+                    leaf.setNext(right.getPageId());
+                    if (pos <= mid) {
+                        leaf.insert(pos, encoded, rid, BPlusTreePage.NO_PAGE);
+                    } else {
+                        right.insert(pos - mid, encoded, rid, BPlusTreePage.NO_PAGE);
+                    }
+                    separator = right.getKey(0);
+                    separatorRid = right.getRID(0);
+                    rightId = right.getPageId();
+                } finally {
+                    unlatch(right, true, true);
+                }
+            } finally {
+                unlatch(leaf, true, dirty);
+            }
+            // 叶子分裂时仍被锁住的祖先正是需要插入分隔项的节点；path 为空说明叶子是根节点，此时仍持有根节点的写锁
+            insert_into_parent(path, leafId, separator, separatorRid, rightId);
+            return true;
+        } finally {
+            while (!path.isEmpty()) {
+                unlatch(path.removeLast(), true, false);
+            }
+            if (rootLatched) {
+                rootLatch.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * 删除一项。
+     *
+     * @param key 键
+     * @param rid 键所在记录的 RID
+     * @return 找到并删除时返回 true
+     * @throws DBException 如果键的类型不匹配或读写页面时发生错误
+     */
+    public boolean delete(Value key, RID rid) throws DBException {
+        check_type(key);
+        // 删除不合并节点，只需锁住叶子
+        BPlusTreePage leaf = descend(BY_KEY, key, rid, true);
+        if (leaf == null) {
+            return false;
+        }
+        boolean deleted = false;
+        try {
+            int pos = lower_bound(leaf, key, rid);
+            if (pos < leaf.getCount() && compare(leaf, pos, key, rid) == 0) {
+                leaf.remove(pos);
+                deleted = true;
+            }
+        } finally {
+            unlatch(leaf, true, deleted);
+        }
+        return deleted;
+    }
+
+    /**
+     * 记录被移动后（例如 VACUUM 压缩表），把键 key 指向的记录 ID 从 oldRid 改为 newRid。
+     * 删除旧项和插入新项是两步操作，其间并发的查询可能暂时看不到该记录，调用者需要像 VACUUM 一样持有表级的锁。
+     *
+     * @return 找到 (key, oldRid) 并修改时返回 true
+     * @throws DBException 如果键的类型不匹配或读写页面时发生错误
+     */
+    public boolean replaceRid(Value key, RID oldRid, RID newRid) throws DBException {
+        return delete(key, oldRid) && insert(key, newRid);
+    }
+
+    /**
+     * @param key 键
+     * @return 键等于 key 的所有项的 RID，按 RID 排序
+     * @throws DBException 如果键的类型不匹配或读取页面时发生错误
+     */
+    public List<RID> search(Value key) throws DBException {
+        return rangeSearch(key, key);
+    }
+
+    /**
+     * 范围查询，两端都包含在内。
+     *
+     * @param startKey 起始键，为 null 时从最小的键开始
+     * @param endKey   结束键，为 null 时到最大的键为止
+     * @return 范围内所有项的 RID，按 (键, RID) 排序
+     * @throws DBException 如果键的类型不匹配或读取页面时发生错误
+     */
+    public List<RID> rangeSearch(Value startKey, Value endKey) throws DBException {
+        List<RID> result = new ArrayList<>();
+        BPlusTreeCursor cursor = cursor(startKey, endKey, true);
+        while (cursor.next()) {
+            result.add(cursor.getRID());
+        }
+        return result;
+    }
+
+    /**
+     * 创建遍历一个键范围的游标，两端都包含在内。游标按需逐个读取叶子，适合只需要前几项或可能提前结束的查询。
+     *
+     * @param startKey 起始键，为 null 时从最小的键开始
+     * @param endKey   结束键，为 null 时到最大的键为止
+     * @param forward  为 true 时按 (键, RID) 从小到大遍历，否则从大到小
+     * @return 位于范围之前的游标，第一次调用 {@link BPlusTreeCursor#next()} 时移到第一项
+     * @throws DBException 如果键的类型不匹配
+     */
+    public BPlusTreeCursor cursor(Value startKey, Value endKey, boolean forward) throws DBException {
+        if (startKey != null) {
+            check_type(startKey);
+        }
+        if (endKey != null) {
+            check_type(endKey);
+        }
+        return new BPlusTreeCursor(this, startKey, endKey, forward);
+    }
+
+    /**
+     * 创建自底向上批量构建这棵树的构建器，用于为已有数据建立索引，比逐项插入快得多，且节点按填充因子填充。
+     *
+     * @param fillFactor 每个节点填充的比例，在 (0, 1] 之间
+     * @return 构建器，按 (键, RID) 升序加入所有项后调用 {@link BPlusTreeBulkLoader#finish()}
+     * @throws DBException 如果填充因子不在 (0, 1] 之间
+     */
+    public BPlusTreeBulkLoader bulkLoader(double fillFactor) throws DBException {
+        if (!(fillFactor > 0 && fillFactor <= 1)) {
+            throw new DBException(ExceptionTypes.InvalidParameter("fill_factor",
+                    String.format("%s is not in (0, 1]", fillFactor)));
+        }
+        if (root != BPlusTreePage.NO_PAGE) {
+            throw new RuntimeException(String.format("%s: bulk load requires an empty index", filename));
+        }
+        return new BPlusTreeBulkLoader(this, fillFactor);
+    }
+
+    /**
+     * 检查树的结构：每个节点中的项有序并落在父节点分隔项给出的范围内，所有叶子深度相同，叶子链表的双向指针一致。
+     * 不加页面锁，只能在没有并发修改时调用。
+     *
+     * @return 结构正确时返回 true
+     * @throws DBException 如果读取页面时发生错误
+     */
+    public boolean validate() throws DBException {
+        if (root == BPlusTreePage.NO_PAGE) {
+            return true;
+        }
+        int[] leafDepth = { -1 };
+        if (!validate_node(root, null, null, null, null, 0, leafDepth)) {
+            return false;
+        }
+        int prev = BPlusTreePage.NO_PAGE;
+        BPlusTreePage leaf = descend(LEFTMOST, null, null, false);
+        int pageId = leaf.getPageId();
+        unlatch(leaf, false, false);
+        while (pageId != BPlusTreePage.NO_PAGE) {
+            leaf = fetch(pageId);
+            try {
+                if (leaf.getPrev() != prev) {
+                    return false;
+                }
+                prev = pageId;
+                pageId = leaf.getNext();
+            } finally {
+                release(leaf, false);
+            }
+        }
+        return true;
+    }
+
+    private boolean validate_node(int pageId, Value low, RID lowRid, Value high, RID highRid, int depth,
+            int[] leafDepth) throws DBException {
+        BPlusTreePage node = fetch(pageId);
+        try {
+            int count = node.getCount();
+            for (int i = 0; i < count; i++) {
+                if (i > 0 && compare(node, i, decode(node.getKey(i - 1)), node.getRID(i - 1)) <= 0) {
+                    return false;
+                }
+                if (low != null && compare(node, i, low, lowRid) < 0) {
+                    return false;
+                }
+                if (high != null && compare(node, i, high, highRid) >= 0) {
+                    return false;
+                }
+            }
+            if (node.isLeaf()) {
+                if (leafDepth[0] < 0) {
+                    leafDepth[0] = depth;
+                }
+                return leafDepth[0] == depth;
+            }
+            for (int i = 0; i <= count; i++) {
+                Value childLow = i == 0 ? low : decode(node.getKey(i - 1));
+                RID childLowRid = i == 0 ? lowRid : node.getRID(i - 1);
+                Value childHigh = i == count ? high : decode(node.getKey(i));
+                RID childHighRid = i == count ? highRid : node.getRID(i);
+                if (!validate_node(node.getChild(i), childLow, childLowRid, childHigh, childHighRid, depth + 1,
+                        leafDepth)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            release(node, false);
+        }
+    }
+
+    /**
+     * 把分隔项插入父节点，父节点已满时分裂并继续向上插入，根节点分裂时树长高一层。
+     *
+     * @param path 从上到下已加写锁的祖先节点，处理完的节点从中取出并释放
+     */
+    private void insert_into_parent(ArrayDeque<BPlusTreePage> path, int leftId, byte[] key, RID rid, int rightId)
+            throws DBException {
+        while (true) {
+            if (path.isEmpty()) {
+                BPlusTreePage newRoot = allocate(BPlusTreePage.INTERNAL);
+                newRoot.getPage().WLatch();
+                try {
+                    newRoot.setChild(0, leftId);
+                    newRoot.insert(0, key, rid, rightId);
+                } finally {
+                    newRoot.getPage().WUnlatch();
+                }
+                set_root(newRoot.getPageId());
+                release(newRoot, true);
+                return;
+            }
+            BPlusTreePage parent = path.removeLast();
+            try {
+                int pos = upper_bound(parent, decode(key), rid);
+                if (parent.getCount() < parent.capacity()) {
+                    parent.insert(pos, key, rid, rightId);
+                    return;
+                }
+                // 内部节点已满：中间项上移，它右侧的子节点成为新节点的第 0 个子节点
+                BPlusTreePage sibling = allocate(BPlusTreePage.INTERNAL);
+                sibling.getPage().WLatch();
+                try {
+                    int mid = parent.getCount() / 2;
+                    byte[] upKey = parent.getKey(mid);
+                    RID upRid = parent.getRID(mid);
+                    sibling.setChild(0, parent.getChild(mid + 1));
+                    parent.moveTo(mid + 1, sibling);
+                    parent.setCount(mid);
+                    if (pos <= mid) {
+                        parent.insert(pos, key, rid, rightId);
+                    } else {
+                        sibling.insert(pos - mid - 1, key, rid, rightId);
+                    }
+                    leftId = parent.getPageId();
+                    key = upKey;
+                    rid = upRid;
+                    rightId = sibling.getPageId();
+                } finally {
+                    unlatch(sibling, true, true);
+                }
+            } finally {
+                unlatch(parent, true, true);
+            }
+        }
+    }
+
+    /**
+     * 从根节点下降到叶子，先锁住子节点再释放父节点。内部节点只加读锁。
+     *
+     * @param target    {@link #LEFTMOST}、{@link #BY_KEY} 或 {@link #RIGHTMOST}
+     * @param key       target 为 BY_KEY 时要定位的键
+     * @param rid       target 为 BY_KEY 时要定位的 RID
+     * @param exclusive 为 true 时叶子加写锁，否则加读锁
+     * @return 已固定并加锁的叶子，调用者用 {@link #unlatch} 释放；树为空时返回 null
+     */
+    BPlusTreePage descend(int target, Value key, RID rid, boolean exclusive) throws DBException {
+        BPlusTreePage node;
+        rootLatch.readLock().lock();
+        try {
+            if (root == BPlusTreePage.NO_PAGE) {
+                return null;
+            }
+            node = fetch(root);
+            // 节点的类型在初始化后不再改变，加锁前可以读取
+            latch(node, exclusive && node.isLeaf());
+        } finally {
+            rootLatch.readLock().unlock();
+        }
+        while (!node.isLeaf()) {
+            int child = switch (target) {
+                case LEFTMOST -> 0;
+                case RIGHTMOST -> node.getCount();
+                default -> upper_bound(node, key, rid);
+            };
+            BPlusTreePage parent = node;
+            try {
+                node = fetch(parent.getChild(child));
+                latch(node, exclusive && node.isLeaf());
+            } finally {
+                unlatch(parent, false, false);
+            }
+        }
+        return node;
+    }
+
+    private void latch(BPlusTreePage node, boolean exclusive) {
+        if (exclusive) {
+            node.getPage().WLatch();
+        } else {
+            node.getPage().RLatch();
+        }
+    }
+
+    /**
+     * 释放节点的页面锁并解除固定。
+     */
+    void unlatch(BPlusTreePage node, boolean exclusive, boolean dirty) {
+        if (exclusive) {
+            node.getPage().WUnlatch();
+        } else {
+            node.getPage().RUnlatch();
+        }
+        release(node, dirty);
+    }
+
+    /**
+     * @return 第一个不小于 (key, rid) 的项的序号，没有时返回项数
+     */
+    private int lower_bound(BPlusTreePage node, Value key, RID rid) {
+        int low = 0;
+        int high = node.getCount();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(node, mid, key, rid) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return 第一个大于 (key, rid) 的项的序号，没有时返回项数；在内部节点中即应进入的子节点序号
+     */
+    private int upper_bound(BPlusTreePage node, Value key, RID rid) {
+        int low = 0;
+        int high = node.getCount();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(node, mid, key, rid) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 比较第 i 项与 (key, rid)，rid 为 null 时只比较键。INTEGER 和 FLOAT 键直接从页面读出比较，不解码也不分配对象。
+     */
+    int compare(BPlusTreePage node, int i, Value key, RID rid) {
+        int result = switch (keyType) {
+            case INTEGER -> Long.compare(node.getLongKey(i), (long) key.value);
+            case FLOAT -> Double.compare(node.getDoubleKey(i), (double) key.value);
+            default -> decode(node.getKey(i)).compareTo(key);
+        };
+        if (result != 0 || rid == null) {
+            return result;
+        }
+        return node.compareRID(i, rid);
+    }
+
+    Value decode(byte[] key) {
+        return Value.FromByte(key, keyType);
+    }
+
+    byte[] encode(Value key) throws DBException {
+        check_type(key);
+        return Arrays.copyOf(key.ToByte(), keySize);
+    }
+
+    void check_type(Value key) throws DBException {
+        if (key.type != keyType) {
+            throw new DBException(ExceptionTypes.WrongComparisonError(key.type, keyType));
+        }
+    }
+
+    BPlusTreePage fetch(int pageId) throws DBException {
+        Page page = bufferPool.FetchPage(new PagePosition(filename, pageId * pageSize));
+        if (page == null) {
+            throw new RuntimeException(String.format("%s: unable to fetch page %d", filename, pageId));
+        }
+        return new BPlusTreePage(page, keySize);
+    }
+
+    BPlusTreePage allocate(int type) throws DBException {
+        Page page = bufferPool.NewPage(filename);
+        if (page == null) {
+            throw new RuntimeException(String.format("%s: unable to allocate a page", filename));
+        }
+        BPlusTreePage node = new BPlusTreePage(page, keySize);
+        page.WLatch();
+        try {
+            node.init(type);
+        } finally {
+            page.WUnlatch();
+        }
+        return node;
+    }
+
+    void release(BPlusTreePage node, boolean dirty) {
+        bufferPool.unpin_page(node.getPage().position, dirty);
+    }
+
+    private void set_prev(int pageId, int prev) throws DBException {
+        BPlusTreePage node = fetch(pageId);
+        node.getPage().WLatch();
+        try {
+            node.setPrev(prev);
+        } finally {
+            node.getPage().WUnlatch();
+            release(node, true);
+        }
+    }
+
+    void set_root(int pageId) throws DBException {
+        PagePosition position = new PagePosition(filename, 0);
+        Page header = bufferPool.FetchPage(position);
+        if (header == null) {
+            throw new RuntimeException(String.format("%s: unable to fetch the file header", filename));
+        }
+        header.WLatch();
+        try {
+            header.data.setInt(8, pageId);
+        } finally {
+            header.WUnlatch();
+            bufferPool.unpin_page(position, true);
+        }
+        root = pageId;
+    }
+}
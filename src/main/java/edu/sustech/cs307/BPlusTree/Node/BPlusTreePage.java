@@ -0,0 +1,237 @@
+package edu.sustech.cs307.BPlusTree.Node;
+
+import edu.sustech.cs307.record.RID;
+import edu.sustech.cs307.storage.Page;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * 磁盘 B+ 树的节点，是缓冲池中一个页面的视图，不复制页面内容。
+ *
+ * <p>
+ * 页头 16 字节依次为节点类型（{@link #LEAF} 或 {@link #INTERNAL}）、项数、右兄弟页号和左兄弟页号，
+ * 兄弟页号只在叶子中使用，{@link #NO_PAGE} 表示没有。全零的新页面就是一个空叶子。
+ * </p>
+ *
+ * <p>
+ * 页头之后是按容量分配的几个平行数组：所有项的定长键连续存放，之后是各项的 RID，内部节点最后是容量加一个子节点的页号，
+ * 第 i 项右侧的子节点是第 i + 1 个。二分查找只访问键数组，INTEGER 和 FLOAT 键可以直接按 long 或 double 读取比较，
+ * 不必解码成 {@link edu.sustech.cs307.value.Value}。第 i 项右侧子树中的项都不小于该项的 (键, RID)，
+ * 分隔项带上 RID，重复的键因此也有确定的位置。
+ * </p>
+ *
+ * <p>
+ * 调用者必须固定页面，并在读写期间持有相应的页面锁。
+ * </p>
+ */
+public class BPlusTreePage {
+    public static final int LEAF = 0;
+    public static final int INTERNAL = 1;
+    // 第 0 页是索引文件的文件头，不会是节点
+    public static final int NO_PAGE = 0;
+    public static final int HEADER_SIZE = 16;
+    private static final int RID_SIZE = 8;
+    private static final int CHILD_SIZE = 4;
+
+    private final Page page;
+    private final ByteBuf data;
+    private final int keySize;
+
+    /**
+     * @param page    已固定的页面
+     * @param keySize 键的字节数
+     */
+    public BPlusTreePage(Page page, int keySize) {
+        this.page = page;
+        this.data = page.data;
+        this.keySize = keySize;
+    }
+
+    public Page getPage() {
+        return page;
+    }
+
+    public int getPageId() {
+        return page.getPageID();
+    }
+
+    /**
+     * 把页面初始化为空节点。
+     *
+     * @param type {@link #LEAF} 或 {@link #INTERNAL}
+     */
+    public void init(int type) {
+        data.setZero(0, HEADER_SIZE);
+        data.setInt(0, type);
+    }
+
+    public boolean isLeaf() {
+        return data.getInt(0) == LEAF;
+    }
+
+    public int getCount() {
+        return data.getInt(4);
+    }
+
+    public void setCount(int count) {
+        data.setInt(4, count);
+    }
+
+    public int getNext() {
+        return data.getInt(8);
+    }
+
+    public void setNext(int page_id) {
+        data.setInt(8, page_id);
+    }
+
+    public int getPrev() {
+        return data.getInt(12);
+    }
+
+    public void setPrev(int page_id) {
+        data.setInt(12, page_id);
+    }
+
+    /**
+     * @return 节点最多能容纳的项数，由页大小决定
+     */
+    public int capacity() {
+        if (isLeaf()) {
+            return (data.capacity() - HEADER_SIZE) / (keySize + RID_SIZE);
+        }
+        return (data.capacity() - HEADER_SIZE - CHILD_SIZE) / (keySize + RID_SIZE + CHILD_SIZE);
+    }
+
+    /**
+     * @param i 项号
+     * @return 第 i 项的键在页面中的偏移量，键的内容通过 {@link #getData()} 读取
+     */
+    public int keyOffset(int i) {
+        return HEADER_SIZE + i * keySize;
+    }
+
+    public ByteBuf getData() {
+        return data;
+    }
+
+    /**
+     * @param i 项号
+     * @return 第 i 项的键的副本
+     */
+    public byte[] getKey(int i) {
+        byte[] key = new byte[keySize];
+        data.getBytes(keyOffset(i), key);
+        return key;
+    }
+
+    /**
+     * @return 第 i 项的 INTEGER 键
+     */
+    public long getLongKey(int i) {
+        return data.getLong(keyOffset(i));
+    }
+
+    /**
+     * @return 第 i 项的 FLOAT 键
+     */
+    public double getDoubleKey(int i) {
+        return data.getDouble(keyOffset(i));
+    }
+
+    public RID getRID(int i) {
+        int offset = rid_offset(i);
+        return new RID(data.getInt(offset), data.getInt(offset + 4));
+    }
+
+    /**
+     * 比较第 i 项的 RID 与 rid，键相等时用它决定项的顺序。
+     *
+     * @return 第 i 项的 RID 小于、等于或大于 rid 时分别返回负数、0 或正数
+     */
+    public int compareRID(int i, RID rid) {
+        int offset = rid_offset(i);
+        int result = Integer.compare(data.getInt(offset), rid.pageNum);
+        return result != 0 ? result : Integer.compare(data.getInt(offset + 4), rid.slotNum);
+    }
+
+    /**
+     * @param i 子节点序号，范围为 [0, 项数]
+     * @return 内部节点第 i 个子节点的页号，第 i 个子节点位于第 i - 1 项的右侧
+     */
+    public int getChild(int i) {
+        return data.getInt(child_offset(i));
+    }
+
+    public void setChild(int i, int page_id) {
+        data.setInt(child_offset(i), page_id);
+    }
+
+    /**
+     * 在第 i 项之前插入一项，之后的项后移。内部节点中新项右侧的子节点是 child，叶子忽略 child。
+     */
+    public void insert(int i, byte[] key, RID rid, int child) {
+        int count = getCount();
+        int moved = count - i;
+        if (moved > 0) {
+            shift(keyOffset(i), keySize, moved, 1);
+            shift(rid_offset(i), RID_SIZE, moved, 1);
+        }
+        data.setBytes(keyOffset(i), key);
+        data.setInt(rid_offset(i), rid.pageNum);
+        data.setInt(rid_offset(i) + 4, rid.slotNum);
+        if (!isLeaf()) {
+            if (moved > 0) {
+                shift(child_offset(i + 1), CHILD_SIZE, moved, 1);
+            }
+            data.setInt(child_offset(i + 1), child);
+        }
+        setCount(count + 1);
+    }
+
+    /**
+     * 删除第 i 项，之后的项前移。内部节点中同时删除该项右侧的子节点。
+     */
+    public void remove(int i) {
+        int count = getCount();
+        int moved = count - 1 - i;
+        if (moved > 0) {
+            shift(keyOffset(i + 1), keySize, moved, -1);
+            shift(rid_offset(i + 1), RID_SIZE, moved, -1);
+            if (!isLeaf()) {
+                shift(child_offset(i + 2), CHILD_SIZE, moved, -1);
+            }
+        }
+        setCount(count - 1);
+    }
+
+    /**
+     * 把第 from 项及之后的所有项移到同类型的空节点 dst 的开头，内部节点连同各项右侧的子节点一起移动。
+     */
+    public void moveTo(int from, BPlusTreePage dst) {
+        int count = getCount();
+        int moved = count - from;
+        ByteBuf target = dst.getData();
+        target.setBytes(dst.keyOffset(0), data, keyOffset(from), moved * keySize);
+        target.setBytes(dst.rid_offset(0), data, rid_offset(from), moved * RID_SIZE);
+        if (!isLeaf()) {
+            target.setBytes(dst.child_offset(1), data, child_offset(from + 1), moved * CHILD_SIZE);
+        }
+        dst.setCount(moved);
+        setCount(from);
+    }
+
+    /**
+     * 把从 offset 开始的 n 个长为 width 的元素整体移动 step 个位置。
+     */
+    private void shift(int offset, int width, int n, int step) {
+        data.setBytes(offset + step * width, data, offset, n * width);
+    }
+
+    private int rid_offset(int i) {
+        return HEADER_SIZE + capacity() * keySize + i * RID_SIZE;
+    }
+
+    private int child_offset(int i) {
+        return HEADER_SIZE + capacity() * (keySize + RID_SIZE) + i * CHILD_SIZE;
+    }
+}
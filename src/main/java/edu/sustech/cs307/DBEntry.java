@@ -11,6 +11,8 @@ import edu.sustech.cs307.physicalOperator.InsertOperator;
 import edu.sustech.cs307.physicalOperator.PhysicalOperator;
 import edu.sustech.cs307.storage.BufferPool;
 import edu.sustech.cs307.storage.DiskManager;
+import edu.sustech.cs307.storage.LogManager;
+import edu.sustech.cs307.storage.Replacer;
 import edu.sustech.cs307.system.DBManager;
 import edu.sustech.cs307.system.RecordManager;
 import edu.sustech.cs307.tuple.Tuple;
@@ -31,12 +33,22 @@ import java.util.Map;
 // click the <icon src="AllIcons.Actions.Execute"/> icon in the gutter.
 public class DBEntry {
     public static final String DB_NAME = "CS307-DB";
-    // for now, we use 256 * 512 * 4096 bytes = 512MB as the pool size
+    // for now, we use 256 * 512 * 4096 bytes = 512MB as the pool size; frames are allocated on demand
     public static final int POOL_SIZE = 256 * 512;
+    // upper bound of SET buffer_pool_size, 1GB
+    public static final int MAX_POOL_SIZE = 2 * POOL_SIZE;
+    // page replacement policy: lru, clock, lru-k or arc, chosen with -Dcs307.replacer=...
+    public static final String REPLACER = System.getProperty("cs307.replacer", "lru");
+    // sequential read-ahead for table scans, disabled with -Dcs307.readahead=false
+    public static final boolean READ_AHEAD = Boolean.parseBoolean(System.getProperty("cs307.readahead", "true"));
+    // background page cleaner, disabled with -Dcs307.cleaner=false
+    public static final boolean PAGE_CLEANER = Boolean.parseBoolean(System.getProperty("cs307.cleaner", "true"));
 
     public static void printHelp() {
         Logger.info("Type 'exit' to exit the program.");
         Logger.info("Type 'help' to see this message again.");
+        Logger.info("Type 'SET buffer_pool_size = <pages>' to resize the buffer pool.");
+        Logger.info("Type 'SHOW BUFFER_POOL' to see buffer pool statistics.");
     }
 
     public static void main(String[] args) throws DBException {
@@ -48,10 +60,21 @@ public class DBEntry {
         try {
             Map<String, Integer> disk_manager_meta = new HashMap<>(DiskManager.read_disk_manager_meta());
             DiskManager diskManager = new DiskManager(DB_NAME, disk_manager_meta);
-            BufferPool bufferPool = new BufferPool(POOL_SIZE, diskManager);
+            LogManager logManager = new LogManager(DB_NAME);
+            logManager.Recover(diskManager);
+            BufferPool bufferPool = new BufferPool(POOL_SIZE, MAX_POOL_SIZE, diskManager, logManager,
+                    Replacer.Create(REPLACER, MAX_POOL_SIZE));
+            if (READ_AHEAD) {
+                bufferPool.EnableReadAhead();
+            }
+            if (PAGE_CLEANER) {
+                bufferPool.StartPageCleaner();
+            }
             RecordManager recordManager = new RecordManager(diskManager, bufferPool);
             MetaManager metaManager = new MetaManager(DB_NAME + "/meta");
             dbManager = new DBManager(diskManager, bufferPool, recordManager, metaManager);
+            // 缺少索引文件的表（例如索引存放到磁盘之前创建的表）在这里批量构建索引
+            dbManager.rebuildMissingIndexes();
         } catch (DBException e) {
             Logger.error(e.getMessage());
             Logger.error("An error occurred during initializing. Exiting....");
@@ -74,6 +97,7 @@ public class DBEntry {
                     sql = scanner.readLine();
                     if (sql.equalsIgnoreCase("exit")) {
                         running = false;
+                        dbManager.closeDBManager();
                         continue;
                     } else if (sql.equalsIgnoreCase("help")) {
                         printHelp();
@@ -106,7 +130,7 @@ public class DBEntry {
                         }
                     }
                     physicalOperator.Close();
-                    dbManager.getBufferPool().FlushAllPages("");
+                    dbManager.getBufferPool().Commit();
                 } catch (DBException e) {
                     Logger.error(e.getMessage());
                     Logger.error("An error occurred. Please try again.");
@@ -116,7 +140,7 @@ public class DBEntry {
         } catch (Exception e) {
             e.printStackTrace();
             // persist the disk manager
-            dbManager.getBufferPool().FlushAllPages("");
+            dbManager.getBufferPool().Checkpoint();
             Logger.error("Some error occurred. Exiting after persistdata...");
         }
     }
@@ -21,7 +21,8 @@ public enum ExceptionTypes {
     INSERT_COLUMN_NAME_NOT_MATCH,
     INSERT_COLUMN_TYPE_NOT_MATCH,
     GET_VALUE_FROM_TEMP_TUPLE,
-    NOT_SUPPORTED_OPERATION
+    NOT_SUPPORTED_OPERATION,
+    INVALID_PARAMETER
     ;
 
     private String error_result;
@@ -155,4 +156,10 @@ public enum ExceptionTypes {
         );
         return NOT_SUPPORTED_OPERATION;
     }
+
+    static public ExceptionTypes InvalidParameter(String name, String reason) {
+        INVALID_PARAMETER.SetErrorResult(
+                String.format("Invalid value for parameter %s, the reason is: %s", name, reason));
+        return INVALID_PARAMETER;
+    }
 }
@@ -0,0 +1,34 @@
+package edu.sustech.cs307.logicalOperator.dml;
+
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.exception.ExceptionTypes;
+import edu.sustech.cs307.system.DBManager;
+import net.sf.jsqlparser.statement.create.index.CreateIndex;
+
+import java.util.List;
+
+/**
+ * 执行 CREATE INDEX 语句，例如 {@code CREATE INDEX idx ON t (id)}。索引总是建立在单独一列上，索引名被忽略；
+ * 该列已有索引时重新批量构建它，节点按 {@code SET index_fill_factor} 给出的比例填充。
+ */
+public class CreateIndexExecutor implements DMLExecutor {
+
+    private final CreateIndex createIndexStmt;
+    private final DBManager dbManager;
+
+    public CreateIndexExecutor(CreateIndex createIndex, DBManager dbManager) {
+        this.createIndexStmt = createIndex;
+        this.dbManager = dbManager;
+    }
+
+    @Override
+    public void execute() throws DBException {
+        String table = createIndexStmt.getTable().getName();
+        List<String> columns = createIndexStmt.getIndex().getColumnsNames();
+        if (columns.size() != 1) {
+            throw new DBException(ExceptionTypes.UnsupportedCommand(
+                    String.format("CREATE INDEX on %d columns of %s", columns.size(), table)));
+        }
+        dbManager.createIndex(table, columns.get(0));
+    }
+}
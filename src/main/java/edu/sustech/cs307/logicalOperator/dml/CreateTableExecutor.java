@@ -3,6 +3,7 @@ package edu.sustech.cs307.logicalOperator.dml;
 import edu.sustech.cs307.exception.DBException;
 import edu.sustech.cs307.exception.ExceptionTypes;
 import edu.sustech.cs307.meta.ColumnMeta;
+import edu.sustech.cs307.storage.Page;
 import edu.sustech.cs307.system.DBManager;
 import edu.sustech.cs307.value.Value;
 import edu.sustech.cs307.value.ValueType;
@@ -11,6 +12,7 @@ import net.sf.jsqlparser.statement.create.table.ColDataType;
 import org.pmw.tinylog.Logger;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class CreateTableExecutor implements DMLExecutor {
     // Logger Logger = LoggerFactory.getLogger(CreateTableExecutor.class); //
@@ -56,8 +58,37 @@ public class CreateTableExecutor implements DMLExecutor {
                 throw new DBException(ExceptionTypes.UnsupportedCommand(String.format("CREATE TABLE %s", table)));
             }
         }
-        dbManager.createTable(table, colMapping);
+        dbManager.createTable(table, colMapping, parse_page_size());
         Logger.info("Successfully created table: {}", table); // Modified to Tinylog format
     }
 
+    /**
+     * 从表选项中读取页大小，例如 {@code CREATE TABLE t (...) PAGE_SIZE = 16384}。
+     * 其他表选项被忽略。
+     *
+     * @return 页大小，没有指定时返回默认页大小
+     * @throws DBException 如果页大小不是整数
+     */
+    private int parse_page_size() throws DBException {
+        List<String> options = createTableStmt.getTableOptionsStrings();
+        if (options == null) {
+            return Page.DEFAULT_PAGE_SIZE;
+        }
+        for (int i = 0; i < options.size(); i++) {
+            if (!options.get(i).equalsIgnoreCase("page_size")) {
+                continue;
+            }
+            int value = i + 1;
+            if (value < options.size() && options.get(value).equals("=")) {
+                value++;
+            }
+            try {
+                return Integer.parseInt(options.get(value));
+            } catch (IndexOutOfBoundsException | NumberFormatException e) {
+                throw new DBException(ExceptionTypes.InvalidSQL(sql, "INVALID PAGE_SIZE"));
+            }
+        }
+        return Page.DEFAULT_PAGE_SIZE;
+    }
+
 }
@@ -0,0 +1,102 @@
+package edu.sustech.cs307.logicalOperator.dml;
+
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.exception.ExceptionTypes;
+import edu.sustech.cs307.storage.BufferPool;
+import edu.sustech.cs307.system.DBManager;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.statement.SetStatement;
+import org.pmw.tinylog.Logger;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 执行 SET 语句，修改运行时参数。目前支持：
+ * <ul>
+ * <li>buffer_pool_size：缓冲池的帧数（页数）上限</li>
+ * <li>mmap_tables：以逗号分隔的表名，这些表通过内存映射读取，其余表使用定位读；空串表示全部使用定位读</li>
+ * <li>index_fill_factor：之后批量构建索引（CREATE INDEX、启动时补建索引）时节点的填充百分比</li>
+ * </ul>
+ */
+public class SetExecutor implements DMLExecutor {
+
+    private final SetStatement setStatement;
+    private final DBManager dbManager;
+
+    public SetExecutor(SetStatement setStatement, DBManager dbManager) {
+        this.setStatement = setStatement;
+        this.dbManager = dbManager;
+    }
+
+    @Override
+    public void execute() throws DBException {
+        for (int i = 0; i < setStatement.getCount(); i++) {
+            String name = setStatement.getName(i).toString();
+            List<Expression> expressions = setStatement.getExpressions(i);
+            if (name.equalsIgnoreCase("buffer_pool_size")) {
+                setBufferPoolSize(expressions);
+            } else if (name.equalsIgnoreCase("mmap_tables")) {
+                setMemoryMappedTables(expressions);
+            } else if (name.equalsIgnoreCase("index_fill_factor")) {
+                setIndexFillFactor(expressions);
+            } else {
+                throw new DBException(ExceptionTypes.UnsupportedCommand(String.format("SET %s", name)));
+            }
+        }
+    }
+
+    private void setBufferPoolSize(List<Expression> expressions) throws DBException {
+        if (expressions.size() != 1 || !(expressions.get(0) instanceof LongValue value)) {
+            throw new DBException(ExceptionTypes.InvalidParameter("buffer_pool_size",
+                    "the value must be an integer number of pages"));
+        }
+        long pages = value.getValue();
+        BufferPool bufferPool = dbManager.getBufferPool();
+        if (pages < 1 || pages > bufferPool.getMaxPoolSize()) {
+            throw new DBException(ExceptionTypes.InvalidParameter("buffer_pool_size",
+                    String.format("%d is not in [1, %d]", pages, bufferPool.getMaxPoolSize())));
+        }
+        int frames = bufferPool.SetPoolSize((int) pages);
+        Logger.info("buffer_pool_size set to {} pages, {} frames in use", pages, frames);
+    }
+
+    private void setMemoryMappedTables(List<Expression> expressions) throws DBException {
+        if (expressions.size() != 1 || !(expressions.get(0) instanceof StringValue value)) {
+            throw new DBException(ExceptionTypes.InvalidParameter("mmap_tables",
+                    "the value must be a quoted, comma separated list of tables"));
+        }
+        Set<String> tables = new HashSet<>();
+        for (String table : value.getValue().split(",")) {
+            if (!table.isBlank()) {
+                tables.add(table.trim());
+            }
+        }
+        for (String table : tables) {
+            if (!dbManager.isTableExists(table)) {
+                throw new DBException(ExceptionTypes.TableDoseNotExist(table));
+            }
+        }
+        for (String table : dbManager.getMetaManager().getTableNames()) {
+            dbManager.setMemoryMapped(table, tables.contains(table));
+        }
+        Logger.info("mmap_tables set to {}", tables);
+    }
+
+    private void setIndexFillFactor(List<Expression> expressions) throws DBException {
+        if (expressions.size() != 1 || !(expressions.get(0) instanceof LongValue value)) {
+            throw new DBException(ExceptionTypes.InvalidParameter("index_fill_factor",
+                    "the value must be an integer percentage"));
+        }
+        long percent = value.getValue();
+        if (percent < 1 || percent > 100) {
+            throw new DBException(ExceptionTypes.InvalidParameter("index_fill_factor",
+                    String.format("%d is not in [1, 100]", percent)));
+        }
+        dbManager.getIndexManager().SetFillPercent((int) percent);
+        Logger.info("index_fill_factor set to {}%", percent);
+    }
+}
@@ -2,14 +2,19 @@ package edu.sustech.cs307.logicalOperator.dml;
 
 import edu.sustech.cs307.exception.DBException;
 import edu.sustech.cs307.exception.ExceptionTypes;
+import edu.sustech.cs307.storage.BufferPool;
+import edu.sustech.cs307.storage.ReadAhead;
+import edu.sustech.cs307.system.DBManager;
 import net.sf.jsqlparser.statement.ShowStatement;
 import org.pmw.tinylog.Logger;
 
 public class ShowDatabaseExecutor implements DMLExecutor {
 
     ShowStatement showStatement;
-    public ShowDatabaseExecutor(ShowStatement showStatement) {
+    DBManager dbManager;
+    public ShowDatabaseExecutor(ShowStatement showStatement, DBManager dbManager) {
         this.showStatement = showStatement;
+        this.dbManager = dbManager;
     }
     @Override
     public void execute() throws DBException {
@@ -21,6 +26,15 @@ public class ShowDatabaseExecutor implements DMLExecutor {
             Logger.info("|-----------|");
             Logger.info("|   CS307   |");
             Logger.info("|-----------|");
+        } else if (command.equalsIgnoreCase("BUFFER_POOL")) {
+            BufferPool bufferPool = dbManager.getBufferPool();
+            ReadAhead readAhead = bufferPool.getReadAhead();
+            Logger.info("buffer_pool_size:  {} pages (max {})", bufferPool.getPoolSize(), bufferPool.getMaxPoolSize());
+            Logger.info("frames in use:     {}", bufferPool.getFrameCount());
+            Logger.info("dirty pages:       {}", bufferPool.getDirtyPageCount());
+            Logger.info("foreground writes: {}", bufferPool.getForegroundWrites());
+            Logger.info("cleaner writes:    {}", bufferPool.getCleanerWrites());
+            Logger.info("prefetched pages:  {}", readAhead == null ? 0 : readAhead.getPrefetchedPages());
         } else {
             throw new DBException(ExceptionTypes.UnsupportedCommand(String.format("SHOW %s", command)));
         }
@@ -0,0 +1,22 @@
+package edu.sustech.cs307.logicalOperator.dml;
+
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.system.DBManager;
+import org.pmw.tinylog.Logger;
+
+public class VacuumExecutor implements DMLExecutor {
+
+    private final String tableName;
+    private final DBManager dbManager;
+
+    public VacuumExecutor(String tableName, DBManager dbManager) {
+        this.tableName = tableName;
+        this.dbManager = dbManager;
+    }
+
+    @Override
+    public void execute() throws DBException {
+        dbManager.vacuumTable(tableName);
+        Logger.info("Successfully vacuumed table: {}", tableName);
+    }
+}
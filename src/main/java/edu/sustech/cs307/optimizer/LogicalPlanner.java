@@ -6,9 +6,12 @@ import edu.sustech.cs307.aggregate.AggregateParser;
 import edu.sustech.cs307.exception.DBException;
 import edu.sustech.cs307.exception.ExceptionTypes;
 import edu.sustech.cs307.logicalOperator.*;
+import edu.sustech.cs307.logicalOperator.dml.CreateIndexExecutor;
 import edu.sustech.cs307.logicalOperator.dml.CreateTableExecutor;
 import edu.sustech.cs307.logicalOperator.dml.ExplainExecutor;
+import edu.sustech.cs307.logicalOperator.dml.SetExecutor;
 import edu.sustech.cs307.logicalOperator.dml.ShowDatabaseExecutor;
+import edu.sustech.cs307.logicalOperator.dml.VacuumExecutor;
 import edu.sustech.cs307.physicalOperator.PhysicalOperator;
 import edu.sustech.cs307.system.DBManager;
 import edu.sustech.cs307.tuple.Tuple;
@@ -17,6 +20,8 @@ import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.expression.Expression;
@@ -27,9 +32,11 @@ import net.sf.jsqlparser.parser.CCJSqlParserManager;
 import net.sf.jsqlparser.parser.JSqlParser;
 import net.sf.jsqlparser.statement.DescribeStatement;
 import net.sf.jsqlparser.statement.ExplainStatement;
+import net.sf.jsqlparser.statement.SetStatement;
 import net.sf.jsqlparser.statement.ShowStatement;
 import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.alter.Alter;
+import net.sf.jsqlparser.statement.create.index.CreateIndex;
 import net.sf.jsqlparser.statement.create.table.CreateTable;
 import net.sf.jsqlparser.statement.delete.Delete;
 import net.sf.jsqlparser.statement.drop.Drop;
@@ -39,10 +46,18 @@ import net.sf.jsqlparser.statement.show.ShowTablesStatement;
 import net.sf.jsqlparser.statement.update.Update;
 
 public class LogicalPlanner {
+    // JSqlParser 不支持 VACUUM，在解析之前单独识别
+    private static final Pattern VACUUM = Pattern.compile("(?i)^\\s*VACUUM\\s+(\\w+)\\s*;?\\s*$");
+
 
     public static LogicalOperator resolveAndPlan(
             DBManager dbManager,
             String sql) throws DBException {
+        Matcher vacuum = VACUUM.matcher(sql);
+        if (vacuum.matches()) {
+            new VacuumExecutor(vacuum.group(1), dbManager).execute();
+            return null;
+        }
         JSqlParser parser = new CCJSqlParserManager();
         Statement stmt = null;
         try {
@@ -76,6 +91,9 @@ public class LogicalPlanner {
                     sql);
             createTable.execute();
             return null;
+        } else if (stmt instanceof CreateIndex createIndexStmt) {
+            new CreateIndexExecutor(createIndexStmt, dbManager).execute();
+            return null;
         } else if (stmt instanceof ExplainStatement explainStatement) {
             ExplainExecutor explainExecutor = new ExplainExecutor(
                     explainStatement,
@@ -89,9 +107,13 @@ public class LogicalPlanner {
             dbManager.descTable(describeStatement.getTable().getName());
             return null;
         } else if (stmt instanceof ShowStatement showStatement) {
-            ShowDatabaseExecutor showDatabaseExecutor = new ShowDatabaseExecutor(showStatement);
+            ShowDatabaseExecutor showDatabaseExecutor = new ShowDatabaseExecutor(showStatement, dbManager);
             showDatabaseExecutor.execute();
             return null;
+        } else if (stmt instanceof SetStatement setStatement) {
+            SetExecutor setExecutor = new SetExecutor(setStatement, dbManager);
+            setExecutor.execute();
+            return null;
         } 
         else if(stmt instanceof Alter alter){
             // TODO
@@ -143,7 +165,7 @@ public class LogicalPlanner {
                     subPhysicalOperator.Begin();
                     while (subPhysicalOperator.hasNext()) {
                         subPhysicalOperator.Next();
-                        subOutput.add(subPhysicalOperator.Current());
+                        subOutput.add(subPhysicalOperator.Current().materialize());
                     }
                     if (subOutput.iterator().next().getValues().length != 1) {
                         throw new DBException(
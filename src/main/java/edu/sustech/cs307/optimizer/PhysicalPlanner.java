@@ -10,13 +10,17 @@ import edu.sustech.cs307.value.ValueType;
 import edu.sustech.cs307.meta.ColumnMeta;
 import edu.sustech.cs307.meta.TableMeta;
 import edu.sustech.cs307.meta.TabCol;
+import edu.sustech.cs307.record.ZoneMap;
+import edu.sustech.cs307.storage.BufferAccessStrategy;
 import edu.sustech.cs307.aggregate.AggregateExpression;
 import edu.sustech.cs307.aggregate.AggregateFunction;
 
+import net.sf.jsqlparser.expression.BinaryExpression;
 import net.sf.jsqlparser.expression.DoubleValue;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.LongValue;
 import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
 import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
 import net.sf.jsqlparser.expression.operators.relational.ParenthesedExpressionList;
 import net.sf.jsqlparser.schema.Column;
@@ -55,7 +59,8 @@ public class PhysicalPlanner {
         }
     }
 
-    private static PhysicalOperator handleTableScan(DBManager dbManager, LogicalTableScanOperator logicalTableScanOp) {
+    private static PhysicalOperator handleTableScan(DBManager dbManager, LogicalTableScanOperator logicalTableScanOp)
+            throws DBException {
         String tableName = logicalTableScanOp.getTableName();
         TableMeta tableMeta;
         try {
@@ -70,7 +75,11 @@ public class PhysicalPlanner {
         if (tableMeta.getIndexes() != null && !tableMeta.getIndexes().isEmpty()) {
             throw new RuntimeException("unimplement");
         } else {
-            return new SeqScanOperator(tableName, dbManager);
+            // 大表使用环形缓冲区扫描，避免把缓冲池中的热点页面挤出
+            int pages = dbManager.getRecordManager().GetNumberOfPages(tableName);
+            int page_size = dbManager.getRecordManager().GetPageSize(tableName);
+            return new SeqScanOperator(tableName, dbManager,
+                    BufferAccessStrategy.ForScan(dbManager.getBufferPool(), pages, page_size));
         }
     }
 
@@ -83,10 +92,65 @@ public class PhysicalPlanner {
                     logicalFilterOp.isNot());
 
         } else {
+            if (inputOp instanceof SeqScanOperator seqScanOp
+                    && logicalFilterOp.getChild() instanceof LogicalTableScanOperator tableScanOp) {
+                // 条件仍由 FilterOperator 逐条检查，扫描只用它跳过不可能满足条件的页面
+                seqScanOp.setPredicates(extractPagePredicates(dbManager, tableScanOp.getTableName(),
+                        logicalFilterOp.getWhereExpr()));
+            }
             return new FilterOperator(inputOp, logicalFilterOp.getWhereExpr());
         }
     }
 
+    /**
+     * 从 where 条件中取出可以按区间映射检查的合取项，即左边是表中的列、右边是同类型常量的比较。
+     * OR、子查询、列在右边或类型不同的比较不参与跳过页面。
+     */
+    private static List<ZoneMap.Predicate> extractPagePredicates(DBManager dbManager, String tableName,
+            Expression whereExpr) throws DBException {
+        List<ZoneMap.Predicate> predicates = new ArrayList<>();
+        if (whereExpr != null && dbManager.isTableExists(tableName)) {
+            collectPagePredicates(dbManager.getMetaManager().getTable(tableName), whereExpr, predicates);
+        }
+        return predicates;
+    }
+
+    private static void collectPagePredicates(TableMeta tableMeta, Expression expr,
+            List<ZoneMap.Predicate> predicates) {
+        if (expr instanceof AndExpression andExpr) {
+            collectPagePredicates(tableMeta, andExpr.getLeftExpression(), predicates);
+            collectPagePredicates(tableMeta, andExpr.getRightExpression(), predicates);
+            return;
+        }
+        if (!(expr instanceof BinaryExpression binaryExpr)
+                || !(binaryExpr.getLeftExpression() instanceof Column column)) {
+            return;
+        }
+        ZoneMap.Comparison op = switch (binaryExpr.getStringExpression()) {
+            case "=" -> ZoneMap.Comparison.EQ;
+            case "<" -> ZoneMap.Comparison.LT;
+            case "<=" -> ZoneMap.Comparison.LE;
+            case ">" -> ZoneMap.Comparison.GT;
+            case ">=" -> ZoneMap.Comparison.GE;
+            default -> null;
+        };
+        Expression right = binaryExpr.getRightExpression();
+        Value constant = null;
+        if (right instanceof LongValue longValue) {
+            constant = new Value(longValue.getValue());
+        } else if (right instanceof DoubleValue doubleValue) {
+            constant = new Value(doubleValue.getValue());
+        } else if (right instanceof StringValue stringValue) {
+            constant = new Value(stringValue.getValue());
+        }
+        ColumnMeta columnMeta = tableMeta.getColumnMeta(column.getColumnName());
+        if (op == null || constant == null || columnMeta == null || columnMeta.type != constant.type
+                || !ZoneMap.Predicate.IsSupported(constant)) {
+            return;
+        }
+        predicates.add(new ZoneMap.Predicate(columnMeta.type, columnMeta.offset, op, constant));
+    }
+
     private static PhysicalOperator handleJoin(DBManager dbManager, LogicalJoinOperator logicalJoinOp)
             throws DBException {
         PhysicalOperator leftOp = generateOperator(dbManager, logicalJoinOp.getLeftInput());
@@ -259,11 +323,15 @@ public class PhysicalPlanner {
             throws DBException {
         // TODO: Implement handleUpdate
         PhysicalOperator scanner = generateOperator(dbManager, logicalUpdateOp.getChild());
+        if (scanner instanceof SeqScanOperator seqScanOp) {
+            seqScanOp.setPredicates(extractPagePredicates(dbManager, logicalUpdateOp.getTableName(),
+                    logicalUpdateOp.getExpression()));
+        }
         if (logicalUpdateOp.getColumns().size() != 1) {
             throw new DBException(ExceptionTypes.InvalidSQL("INSERT", "Unsupported expression list"));
         }
         return new UpdateOperator(scanner, logicalUpdateOp.getTableName(), logicalUpdateOp.getColumns().get(0),
-                logicalUpdateOp.getExpression());
+                logicalUpdateOp.getExpression(), dbManager);
     }
 
     private static PhysicalOperator handleOrderBy(DBManager dbManager, LogicalOrderByOperator logicalOrderByOp)
@@ -61,7 +61,7 @@ public class AggregateOperator implements PhysicalOperator {
                     key.add(t.getValue(idx));
                 }
 
-                groupMap.computeIfAbsent(key, k -> new ArrayList<>()).add(t);
+                groupMap.computeIfAbsent(key, k -> new ArrayList<>()).add(t.materialize());
             }
 
             // Calculate aggregates for each group
@@ -1,8 +1,8 @@
 package edu.sustech.cs307.physicalOperator;
 
-import edu.sustech.cs307.BPlusTree.BPlusTree;
+import edu.sustech.cs307.BPlusTree.BPlusTreeCursor;
+import edu.sustech.cs307.BPlusTree.DiskBPlusTree;
 import edu.sustech.cs307.exception.DBException;
-import edu.sustech.cs307.index.BPlusTreeIndexManager;
 import edu.sustech.cs307.meta.ColumnMeta;
 import edu.sustech.cs307.meta.TableMeta;
 import edu.sustech.cs307.record.RID;
@@ -14,8 +14,6 @@ import edu.sustech.cs307.tuple.Tuple;
 import edu.sustech.cs307.value.Value;
 
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
 
 public class BPlusTreeIndexScanOperator implements PhysicalOperator {
     private final String tableName;
@@ -28,7 +26,10 @@ public class BPlusTreeIndexScanOperator implements PhysicalOperator {
     
     private TableMeta tableMeta;
     private RecordFileHandle fileHandle;
-    private Iterator<RID> ridIterator;
+    // 按需沿叶子链表读取索引项，不预先取出整个范围
+    private BPlusTreeCursor cursor;
+    // 游标是否已经移到下一个尚未返回的项
+    private boolean hasMore = false;
     private Tuple currentTuple;
     private boolean isOpen = false;
     private boolean isRangeQuery = false;
@@ -69,23 +70,22 @@ public class BPlusTreeIndexScanOperator implements PhysicalOperator {
         }
         fileHandle = dbManager.getRecordManager().OpenFile(tableName);
     
-        List<RID> rids;
-        BPlusTree tree = table.getBTreeIndex(columnName);
+        DiskBPlusTree tree = dbManager.getIndexManager().OpenIndex(tableName, columnName);
+        if (tree == null) {
+            throw new DBException("Index does not exist for column: " + columnName);
+        }
         if (isRangeQuery) {
-            // BPlusTree tree = table.getBTreeIndex(columnName);
-            // 调用 B+ 树索引管理器的范围查询方法
-            rids = tree.rangeSearch(startKey, endKey);
+            cursor = tree.cursor(startKey, endKey, true);
         } else {
-            // 调用 B+ 树索引管理器的精确查询方法
-            rids = tree.search(searchKey);
+            cursor = tree.cursor(searchKey, searchKey, true);
         }
-        ridIterator = rids.iterator(); // 初始化 RID 迭代器
+        hasMore = cursor.next();
         isOpen = true;
     }
     
     @Override
     public boolean hasNext() throws DBException {
-        return isOpen && ridIterator != null && ridIterator.hasNext();
+        return isOpen && hasMore;
     }
     
     @Override
@@ -95,9 +95,10 @@ public class BPlusTreeIndexScanOperator implements PhysicalOperator {
             return;
         }
         
-        RID rid = ridIterator.next();
+        RID rid = cursor.getRID();
         Record record = fileHandle.GetRecord(rid);
         currentTuple = new TableTuple(tableName, tableMeta, record, rid);
+        hasMore = cursor.next();
     }
         
     
@@ -115,9 +116,11 @@ public class BPlusTreeIndexScanOperator implements PhysicalOperator {
                 // Log error but don't throw
                 e.printStackTrace();
             }
+            fileHandle = null;
         }
         isOpen = false;
-        ridIterator = null;
+        cursor = null;
+        hasMore = false;
         currentTuple = null;
     }
     
@@ -6,7 +6,6 @@ import java.beans.Expression;
 //import java.lang.foreign.ValueLayout;
 import java.util.ArrayList;
 
-import edu.sustech.cs307.BPlusTree.BPlusTree;
 import edu.sustech.cs307.exception.DBException;
 import edu.sustech.cs307.meta.ColumnMeta;
 import edu.sustech.cs307.meta.TableMeta;
@@ -70,35 +69,8 @@ public class DeleteOperator implements PhysicalOperator {
                 TableMeta tableMeta = dbManager.getMetaManager().getTable(data_file);
                 if (tableMeta != null) {
                     Record record = fileHandle.GetRecord(rid);
-                    // 创建 TableTuple 实例（复用其反序列化逻辑）
-                    TableTuple tableTuple = new TableTuple(data_file, tableMeta, record, rid);
-                    // 调用 getValues() 获取所有列的 Value 列表
-                    Value[] valuesArray = tableTuple.getValues();
-                    List<Value> values = new ArrayList<>(List.of(valuesArray)); // 转换为 List<Value>
-                    // System.out.println(values);
-                    // 现在 values 已存储该记录的所有列值（用于索引删除）
-                    int tmp = values.size() - 1; // 从最后一个开始删除
-                    for (String indexName : tableMeta.getColumns().keySet()) {
-                        if (tmp < 0) {
-                            break;
-                        }
-                        // System.out.println("indexName: " + indexName);
-                        BPlusTree tree = tableMeta.getBTreeIndex(indexName);
-                        // 注意：删除操作应调用 tree.delete 而非 insert（根据实际需求调整）
-                        if(values.get(tmp).getType() == ValueType.CHAR) {
-                            // 对于 CHAR 类型的值，可能需要转换为合适的格式
-                            String valueStr = values.get(tmp).toString();
-                            System.out.println("the result of delete: " + tree.delete(new Value(valueStr, ValueType.CHAR)));
-                            // System.out.println("Deleting from index " + indexName + " with value: " + valueStr);
-                        } else {
-                            // System.out.println("Deleting from index " + indexName + " with value: " + values.get(tmp));
-                            System.out.println("the result of delete: " + tree.delete(values.get(tmp)));
-                        }
-                        // System.out.println("fsfsfsssssssssssssssssssssssssssssssssssssss " + values.get(tmp));
-                        System.out.println(tree);
-                        tree.printTree();
-                        tmp--;
-                    }
+                    // 删除记录前从各个索引中删除它的索引项
+                    dbManager.getIndexManager().DeleteEntries(tableMeta, record.getReadOnlyData(), rid);
                 }
                 fileHandle.DeleteRecord(rid); // 使用获取的 rid 删除记录
                 rowCount++;
@@ -111,6 +83,14 @@ public class DeleteOperator implements PhysicalOperator {
     @Override
     public void Close() {
         child.Close();
+        if (fileHandle != null) {
+            try {
+                dbManager.getRecordManager().CloseFile(fileHandle);
+            } catch (DBException e) {
+                e.printStackTrace();
+            }
+            fileHandle = null;
+        }
     }
 
     @Override
@@ -49,7 +49,7 @@ public class GroupByOperator implements PhysicalOperator {
                     key.add(t.getValue(idx));
                 }
 
-                groupMap.computeIfAbsent(key, k -> new ArrayList<>()).add(t);
+                groupMap.computeIfAbsent(key, k -> new ArrayList<>()).add(t.materialize());
             }
             groupIterator = groupMap.entrySet().iterator();
             if (!groupIterator.hasNext()) {
@@ -1,10 +1,9 @@
 package edu.sustech.cs307.physicalOperator;
 
-import edu.sustech.cs307.BPlusTree.BPlusTree;
-// import edu.sustech.cs307.BPlusTree.bplustree;
 import edu.sustech.cs307.exception.DBException;
 import edu.sustech.cs307.meta.ColumnMeta;
 import edu.sustech.cs307.meta.TableMeta;
+import edu.sustech.cs307.storage.BufferAccessStrategy;
 import edu.sustech.cs307.system.DBManager;
 import edu.sustech.cs307.tuple.TableTuple;
 import edu.sustech.cs307.tuple.TempTuple;
@@ -14,6 +13,7 @@ import edu.sustech.cs307.value.ValueType;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import edu.sustech.cs307.record.RID;
+import edu.sustech.cs307.record.RecordFileHandle;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -41,58 +41,37 @@ public class InsertOperator implements PhysicalOperator {
 
         @Override
     public void Begin() throws DBException {
+        RecordFileHandle fileHandle = null;
         try {
-            var fileHandle = dbManager.getRecordManager().OpenFile(data_file);
+            fileHandle = dbManager.getRecordManager().OpenFile(data_file);
+            // 批量插入超过缓冲池四分之一的页面时使用写入环
+            int pages = values.size() / columnSize / fileHandle.getFileHeader().getNumberOfRecordsPrePage();
+            BufferAccessStrategy strategy = BufferAccessStrategy.ForBulkWrite(dbManager.getBufferPool(), pages,
+                    fileHandle.getFileHeader().getPageSize());
+            if (strategy != null) {
+                // 批量插入一次性按区预分配文件空间
+                fileHandle.ReservePages(pages);
+            }
+            TableMeta tableMeta = dbManager.getMetaManager().getTable(data_file);
             // Serialize values to ByteBuf
             ByteBuf buffer = Unpooled.buffer();
             for (int i = 0; i < values.size(); i++) {
                 buffer.writeBytes(values.get(i).ToByte());
                 if (i != 0 && (i + 1) % columnSize == 0) {
-                    RID rid = fileHandle.InsertRecord(buffer);
+                    RID rid = fileHandle.InsertRecord(buffer, strategy);
+                    // 在表的各个索引中插入新记录的索引项
+                    dbManager.getIndexManager().InsertEntries(tableMeta, buffer, rid);
                     buffer.clear();
-
-                    // 获取表元数据
-                    TableMeta tableMeta = dbManager.getMetaManager().getTable(data_file);
-                    // System.out.println(tableMeta);
-//                     System.out.println("0000000000000000000000000000000000");
-                    if (tableMeta != null) {
-                        // 遍历所有索引
-                        // System.out.println("------------"+tableMeta.getIndexTrees().keySet()+"-----------------");
-//                         System.out.println("111111111111111111111111111111");
-                        // tableMeta.printColumns();
-                        int tmp = values.size() - 1;
-//                         System.out.println("!!!!!!!!!!!!!!!!!!!!!!!!!!!!!");
-                        // System.out.println(values.size());
-                        for (String indexName : tableMeta.getColumns().keySet()) {
-                            if (tmp < 0) {
-                                break;
-                            }
-//                            System.out.println("2222222222222222222222222222222");
-                            // System.out.println("indexName: "+indexName);
-                            BPlusTree tree = tableMeta.getBTreeIndex(indexName);
-                            // System.out.println(rid);
-                            // if (tree == null) {
-                            //     System.out.println("Index " + indexName + " not found.");
-                            //     continue;
-                            // }
-                            // System.out.println(rid);
-                            // System.out.println(values.get(tmp));
-                            tree.insert(values.get(tmp), rid);
-                            // System.out.println(tree);
-                            // System.out.println(values);
-                            // System.out.println("344444444444444444444444444444444443333");
-                            tree.printTree();
-                            // System.out.println(rid);
-                            tmp--;
-                            // System.out.println(rid);
-                        }
-                    }
                 }
             }
             this.rowCount = values.size() / columnSize;
         } catch (Exception e) {
             throw new RuntimeException(
                     "Failed to insert record: " + e.getMessage() + "\n");
+        } finally {
+            if (fileHandle != null) {
+                dbManager.getRecordManager().CloseFile(fileHandle);
+            }
         }
     }
 
@@ -8,29 +8,41 @@ import edu.sustech.cs307.tuple.Tuple;
 import edu.sustech.cs307.meta.TableMeta;
 import edu.sustech.cs307.exception.DBException;
 import edu.sustech.cs307.record.RID;
-import edu.sustech.cs307.record.RecordPageHandle;
-import edu.sustech.cs307.record.BitMap;
 import edu.sustech.cs307.record.Record;
 import edu.sustech.cs307.record.RecordFileHandle;
+import edu.sustech.cs307.record.RecordPageCursor;
+import edu.sustech.cs307.record.ZoneMap;
+import edu.sustech.cs307.storage.BufferAccessStrategy;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class SeqScanOperator implements PhysicalOperator {
     private String tableName;
     private DBManager dbManager;
     private TableMeta tableMeta;
     private RecordFileHandle fileHandle;
+    // 大表扫描使用的环形缓冲区，小表为 null
+    private final BufferAccessStrategy strategy;
     private Record currentRecord;
 
-    private int currentPageNum;
-    private int currentSlotNum;
-    private int totalPages;
-    private int recordsPerPage;
+    private RID currentRID;
+
+    private RecordPageCursor cursor;
+    // 上层过滤条件中可以按区间映射检查的部分，只用于跳过页面，记录仍由上层逐条过滤
+    private List<ZoneMap.Predicate> predicates;
+    // hasNext 已经把游标移到了一条还没有被 Next 返回的记录上
+    private boolean pending;
     private boolean isOpen = false;
 
     public SeqScanOperator(String tableName, DBManager dbManager) {
+        this(tableName, dbManager, null);
+    }
+
+    public SeqScanOperator(String tableName, DBManager dbManager, BufferAccessStrategy strategy) {
         this.tableName = tableName;
         this.dbManager = dbManager;
+        this.strategy = strategy;
         try {
             this.tableMeta = dbManager.getMetaManager().getTable(tableName);
         } catch (DBException e) {
@@ -44,20 +56,11 @@ public class SeqScanOperator implements PhysicalOperator {
         if (!isOpen)
             return false;
         try {
-            // Check if current page and slot are valid, and if there are more records
-            if (currentPageNum <= totalPages) {
-                while (currentPageNum <= totalPages) {
-                    RecordPageHandle pageHandle = fileHandle.FetchPageHandle(currentPageNum);
-                    while (currentSlotNum < recordsPerPage) {
-                        if (BitMap.isSet(pageHandle.bitmap, currentSlotNum)) {
-                            return true; // Found next record
-                        }
-                        currentSlotNum++;
-                    }
-                    currentPageNum++;
-                    currentSlotNum = 0; // Reset slot num for new page
-                }
+            if (!pending) {
+                // 游标在这里前进，上一条记录的视图此后可能失效
+                pending = cursor.Next();
             }
+            return pending;
         } catch (DBException e) {
             e.printStackTrace(); // Handle exception properly
         }
@@ -68,10 +71,8 @@ public class SeqScanOperator implements PhysicalOperator {
     public void Begin() throws DBException {
         try {
             fileHandle = dbManager.getRecordManager().OpenFile(tableName);
-            totalPages = fileHandle.getFileHeader().getNumberOfPages();
-            recordsPerPage = fileHandle.getFileHeader().getNumberOfRecordsPrePage();
-            currentPageNum = 1; // Start from first page
-            currentSlotNum = 0; // Start from first slot
+            cursor = new RecordPageCursor(fileHandle, strategy, predicates);
+            pending = false;
             isOpen = true;
         } catch (DBException e) {
             e.printStackTrace(); // Handle exception properly
@@ -83,22 +84,12 @@ public class SeqScanOperator implements PhysicalOperator {
     public void Next() {
         if (!isOpen)
             return;
-        try {
-            if (hasNext()) { // Advance to the next record
-                RID rid = new RID(currentPageNum, currentSlotNum);
-                currentRecord = fileHandle.GetRecord(rid);
-                currentSlotNum++;
-                if (currentSlotNum >= recordsPerPage) {
-                    currentPageNum++;
-                    currentSlotNum = 0;
-                }
-                // readonly
-                fileHandle.UnpinPageHandle(currentPageNum, false);
-            } else {
-                currentRecord = null;
-            }
-        } catch (DBException e) {
-            e.printStackTrace(); // Handle exception properly
+        if (hasNext()) { // Advance to the next record
+            // 记录直接引用页面帧，字段在 TableTuple 中按需解码
+            currentRID = cursor.GetRID();
+            currentRecord = cursor.GetRecord();
+            pending = false;
+        } else {
             currentRecord = null;
         }
     }
@@ -108,8 +99,7 @@ public class SeqScanOperator implements PhysicalOperator {
         if (!isOpen || currentRecord == null) {
             return null;
         }
-        return new TableTuple(tableName, tableMeta, currentRecord,
-                new RID(this.currentPageNum, this.currentSlotNum - 1));
+        return new TableTuple(tableName, tableMeta, currentRecord, currentRID);
     }
 
     @Override
@@ -117,12 +107,14 @@ public class SeqScanOperator implements PhysicalOperator {
         if (!isOpen)
             return;
         try {
+            cursor.Close();
             dbManager.getRecordManager().CloseFile(fileHandle);
         } catch (DBException e) {
             e.printStackTrace(); // Handle exception properly
         }
         fileHandle = null;
         currentRecord = null;
+        cursor = null;
         isOpen = false;
     }
 
@@ -131,6 +123,10 @@ public class SeqScanOperator implements PhysicalOperator {
         return tableMeta.columns_list;
     }
 
+    public void setPredicates(List<ZoneMap.Predicate> predicates) {
+        this.predicates = predicates;
+    }
+
     public RecordFileHandle getFileHandle() {
         return fileHandle;
     }
@@ -58,7 +58,7 @@ public class SortOperator implements PhysicalOperator {
             child.Next();
             Tuple tuple = child.Current();
             if (tuple != null) {
-                sortedTuples.add(tuple);
+                sortedTuples.add(tuple.materialize());
             }
         }
         
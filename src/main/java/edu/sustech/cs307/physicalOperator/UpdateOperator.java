@@ -4,7 +4,9 @@ import edu.sustech.cs307.exception.DBException;
 import edu.sustech.cs307.exception.ExceptionTypes;
 import edu.sustech.cs307.meta.ColumnMeta;
 import edu.sustech.cs307.meta.TabCol;
+import edu.sustech.cs307.meta.TableMeta;
 import edu.sustech.cs307.record.RecordFileHandle;
+import edu.sustech.cs307.system.DBManager;
 import edu.sustech.cs307.tuple.TableTuple;
 import edu.sustech.cs307.tuple.TempTuple;
 import edu.sustech.cs307.tuple.Tuple;
@@ -26,12 +28,13 @@ public class UpdateOperator implements PhysicalOperator {
     private final String tableName;
     private final UpdateSet updateSet;
     private final Expression whereExpr;
+    private final DBManager dbManager;
 
     private int updateCount;
     private boolean isDone;
 
     public UpdateOperator(PhysicalOperator inputOperator, String tableName, UpdateSet updateSet,
-            Expression whereExpr) {
+            Expression whereExpr, DBManager dbManager) {
         if (!(inputOperator instanceof SeqScanOperator seqScanOperator)) {
             throw new RuntimeException("The delete operator only accepts SeqScanOperator as input");
         }
@@ -39,6 +42,7 @@ public class UpdateOperator implements PhysicalOperator {
         this.tableName = tableName;
         this.updateSet = updateSet;
         this.whereExpr = whereExpr;
+        this.dbManager = dbManager;
         this.updateCount = 0;
         this.isDone = false;
     }
@@ -52,6 +56,7 @@ public class UpdateOperator implements PhysicalOperator {
     public void Begin() throws DBException {
         seqScanOperator.Begin();
         RecordFileHandle fileHandle = seqScanOperator.getFileHandle();
+        TableMeta tableMeta = dbManager.getMetaManager().getTable(tableName);
 
         while (seqScanOperator.hasNext()) {
             seqScanOperator.Next();
@@ -94,6 +99,9 @@ public class UpdateOperator implements PhysicalOperator {
                         buffer.writeBytes(v.ToByte());
                 }
 
+                // 记录可能直接引用数据页，先按旧值修改索引再更新记录
+                dbManager.getIndexManager().UpdateEntries(tableMeta, tuple.getRecord().getReadOnlyData(), buffer,
+                        tuple.getRID());
                 fileHandle.UpdateRecord(tuple.getRID(), buffer);
                 updateCount++;
             }
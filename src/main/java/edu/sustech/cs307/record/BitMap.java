@@ -9,6 +9,8 @@ import io.netty.buffer.ByteBuf;
 public class BitMap {
     private static final int BITMAP_WIDTH = 8;
     private static final int BITMAP_HIGHEST_BIT = 0x80;
+    // 查找时一次比较的位数
+    private static final int WORD_WIDTH = Long.SIZE;
 
     // 从地址bm开始的size个字节全部置0
     public static void init(ByteBuf bm) {
@@ -48,7 +50,7 @@ public class BitMap {
     }
 
     /**
-     * 查找在位图中下一个与给定值相同的位。
+     * 查找在位图中下一个与给定值相同的位。每次比较 64 位，跳过整字的不匹配位。
      *
      * @param bit  要查找的位值（true 或 false）。
      * @param bm   位图的 ByteBuf 对象。
@@ -57,12 +59,25 @@ public class BitMap {
      * @return 返回下一个与给定位值相同的索引，如果未找到则返回 maxN。
      */
     public static int nextBit(boolean bit, ByteBuf bm, int maxN, int curr) {
-        for (int i = curr + 1; i < maxN; i++) {
-            if (isSet(bm, i) == bit) {
-                return i;
+        int pos = curr + 1;
+        if (pos >= maxN) {
+            return maxN;
+        }
+        if (isSet(bm, pos) == bit) {
+            // 密集的位图中下一位通常就匹配，不必读取整个字
+            return pos;
+        }
+        int word = pos / WORD_WIDTH;
+        // 清除 pos 之前的位
+        long bits = (bit ? getWord(bm, word) : ~getWord(bm, word)) & (-1L >>> (pos % WORD_WIDTH));
+        while (bits == 0) {
+            word++;
+            if (word * WORD_WIDTH >= maxN) {
+                return maxN;
             }
+            bits = bit ? getWord(bm, word) : ~getWord(bm, word);
         }
-        return maxN;
+        return Math.min(word * WORD_WIDTH + Long.numberOfLeadingZeros(bits), maxN);
     }
 
     /**
@@ -71,12 +86,77 @@ public class BitMap {
      * @param bit  要查找的位值（true 或 false）。
      * @param bm   位图的 ByteBuf 对象。
      * @param maxN 搜索的最大索引值。
-     * @return 第一个匹配的位的索引，如果未找到则返回 -1。
+     * @return 第一个匹配的位的索引，如果未找到则返回 maxN。
      */
     public static int firstBit(boolean bit, ByteBuf bm, int maxN) {
         return nextBit(bit, bm, maxN, -1);
     }
 
+    /**
+     * 统计位图前 maxN 位中被设置的位数。
+     *
+     * @param bm   位图的 ByteBuf 对象。
+     * @param maxN 位图的最大索引。
+     * @return 被设置的位数
+     */
+    public static int count(ByteBuf bm, int maxN) {
+        int count = 0;
+        for (int word = 0; word * WORD_WIDTH < maxN; word++) {
+            count += Long.bitCount(getWord(bm, word) & wordMask(word, maxN));
+        }
+        return count;
+    }
+
+    /**
+     * 按升序返回位图前 maxN 位中所有被设置的位的索引，例如页面中所有有效记录的槽号。
+     *
+     * @param bm   位图的 ByteBuf 对象。
+     * @param maxN 位图的最大索引。
+     * @return 被设置的位的索引
+     */
+    public static int[] setBits(ByteBuf bm, int maxN) {
+        int[] result = new int[count(bm, maxN)];
+        int n = 0;
+        for (int word = 0; n < result.length; word++) {
+            long bits = getWord(bm, word) & wordMask(word, maxN);
+            while (bits != 0) {
+                int offset = Long.numberOfLeadingZeros(bits);
+                result[n++] = word * WORD_WIDTH + offset;
+                bits &= ~(Long.MIN_VALUE >>> offset);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 读取从第 word * 64 位开始的 64 位。位图在字节内从最高位开始编号，按大端序读取后，
+     * 位 pos 对应返回值从最高位数起的第 pos % 64 位，因此用 numberOfLeadingZeros 定位。
+     * 超出位图末尾的部分为 0。
+     *
+     * @param bm   位图的 ByteBuf 对象。
+     * @param word 字号
+     * @return 该字的 64 位
+     */
+    private static long getWord(ByteBuf bm, int word) {
+        int index = word * Long.BYTES;
+        if (index + Long.BYTES <= bm.capacity()) {
+            return bm.getLong(index);
+        }
+        long value = 0;
+        for (int i = index; i < index + Long.BYTES; i++) {
+            value = (value << BITMAP_WIDTH) | (i < bm.capacity() ? bm.getUnsignedByte(i) : 0);
+        }
+        return value;
+    }
+
+    /**
+     * @return 第 word 个字中索引小于 maxN 的位的掩码
+     */
+    private static long wordMask(int word, int maxN) {
+        int bits = maxN - word * WORD_WIDTH;
+        return bits >= WORD_WIDTH ? -1L : ~(-1L >>> bits);
+    }
+
     /**
      * 根据给定的位置计算对应的桶索引。
      *
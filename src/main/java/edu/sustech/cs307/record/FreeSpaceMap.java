@@ -0,0 +1,150 @@
+package edu.sustech.cs307.record;
+
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.storage.BufferPool;
+import edu.sustech.cs307.storage.DiskManager;
+import edu.sustech.cs307.storage.Page;
+import edu.sustech.cs307.storage.PagePosition;
+
+/**
+ * 空闲空间映射：记录数据文件中每个数据页的填充程度。
+ *
+ * <p>
+ * 映射保存在数据文件旁的 {@code <数据文件>.fsm} 中，每个数据页占一个字节：{@link #EMPTY} 表示页中没有记录，
+ * {@link #FULL} 表示页已满，其余值按已用槽位的比例取 1 到 254。第 k 个数据页的字节位于映射文件第
+ * {@code 1 + k / 4096} 页的 {@code k % 4096} 处，第 0 页与数据文件的文件头页一样保留不用。
+ * 映射页通过缓冲池读写，与数据页一样被写入重做日志并延迟写回。
+ * </p>
+ *
+ * <p>
+ * 插入时要找的页面由文件头中的空闲页链表给出（取表头即可），映射负责维护链表的成员：
+ * 页面变满时离开链表，删除记录使其不再满时重新加入，因此删除后空出的槽位会被之后的插入复用。
+ * 顺序扫描根据映射跳过空页面，不必读入它们。
+ * </p>
+ *
+ * <p>
+ * 修改映射的调用者必须持有数据文件头页的写锁，与插入、删除串行化。
+ * </p>
+ */
+public class FreeSpaceMap {
+    public static final int EMPTY = 0;
+    public static final int FULL = 255;
+    // 映射文件的页大小，与数据文件无关
+    private static final int MAP_PAGE_SIZE = Page.DEFAULT_PAGE_SIZE;
+
+    private final BufferPool bufferPool;
+    private final DiskManager diskManager;
+    private final String filename;
+
+    public FreeSpaceMap(DiskManager diskManager, BufferPool bufferPool, String data_file) {
+        this.diskManager = diskManager;
+        this.bufferPool = bufferPool;
+        this.filename = FileName(data_file);
+    }
+
+    /**
+     * @param data_file 数据文件名
+     * @return 数据文件对应的空闲空间映射文件名
+     */
+    public static String FileName(String data_file) {
+        return data_file + ".fsm";
+    }
+
+    /**
+     * 根据页中的记录数计算填充程度。
+     *
+     * @param records          页中的记录数
+     * @param records_per_page 每页的槽位数
+     * @return 填充程度，范围为 [EMPTY, FULL]
+     */
+    public static int FillLevel(int records, int records_per_page) {
+        if (records <= 0) {
+            return EMPTY;
+        }
+        if (records >= records_per_page) {
+            return FULL;
+        }
+        return (records * (FULL - 1) + records_per_page - 1) / records_per_page;
+    }
+
+    /**
+     * 创建映射文件，所有页面的填充程度为 EMPTY。
+     *
+     * @throws DBException 如果创建文件时发生错误
+     */
+    public void Create() throws DBException {
+        diskManager.CreateFile(filename);
+    }
+
+    /**
+     * @return 映射文件是否存在，旧版本创建的表没有映射文件
+     */
+    public boolean Exists() {
+        return diskManager.IsFileExists(filename);
+    }
+
+    /**
+     * 读取数据页的填充程度。
+     *
+     * @param page_id 数据页号
+     * @return 填充程度；映射中还没有该页时返回 EMPTY
+     * @throws DBException 如果读取映射页时发生错误
+     */
+    public int GetFillLevel(int page_id) throws DBException {
+        int map_page = 1 + page_id / MAP_PAGE_SIZE;
+        if (map_page >= diskManager.GetPageCount(filename)) {
+            return EMPTY;
+        }
+        PagePosition position = new PagePosition(filename, map_page * MAP_PAGE_SIZE);
+        Page page = bufferPool.FetchPage(position);
+        if (page == null) {
+            throw new RuntimeException(String.format("%s: unable to fetch page %d", filename, map_page));
+        }
+        page.RLatch();
+        try {
+            return page.data.getUnsignedByte(page_id % MAP_PAGE_SIZE);
+        } finally {
+            page.RUnlatch();
+            bufferPool.unpin_page(position, false);
+        }
+    }
+
+    /**
+     * 设置数据页的填充程度，需要时扩展映射文件。
+     *
+     * @param page_id 数据页号
+     * @param level   填充程度
+     * @throws DBException 如果读写映射页时发生错误
+     */
+    public void SetFillLevel(int page_id, int level) throws DBException {
+        int map_page = 1 + page_id / MAP_PAGE_SIZE;
+        if (diskManager.GetPageCount(filename) == 0) {
+            // 直接构造的文件句柄可能还没有映射文件
+            Create();
+        }
+        while (diskManager.GetPageCount(filename) <= map_page) {
+            // 新的映射页全为零，即 EMPTY
+            Page page = bufferPool.NewPage(filename);
+            if (page == null) {
+                throw new RuntimeException(String.format("%s: unable to allocate a page", filename));
+            }
+            bufferPool.unpin_page(page.position, false);
+        }
+        PagePosition position = new PagePosition(filename, map_page * MAP_PAGE_SIZE);
+        Page page = bufferPool.FetchPage(position);
+        if (page == null) {
+            throw new RuntimeException(String.format("%s: unable to fetch page %d", filename, map_page));
+        }
+        boolean changed;
+        page.WLatch();
+        try {
+            changed = page.data.getUnsignedByte(page_id % MAP_PAGE_SIZE) != level;
+            if (changed) {
+                page.data.setByte(page_id % MAP_PAGE_SIZE, level);
+            }
+        } finally {
+            page.WUnlatch();
+        }
+        bufferPool.unpin_page(position, changed);
+    }
+}
@@ -59,7 +59,8 @@ public class Record {
      * @param data 字节缓冲区
      */
     public Record(ByteBuf data) {
-        this.data = data.copy();
+        // 页面帧位于堆外内存，记录总是复制为堆内缓冲区，使其生命周期与帧无关
+        this.data = Unpooled.copiedBuffer(data);
         this.size = data.capacity();
     }
 
@@ -69,7 +70,7 @@ public class Record {
      * @param data 新的字节缓冲区数据
      */
     public void SetData(ByteBuf data) {
-        this.data = data.copy();
+        this.data = Unpooled.copiedBuffer(data);
     }
 
     /**
@@ -78,7 +79,7 @@ public class Record {
      * @param data 字节缓冲区
      */
     public void Deserialize(ByteBuf data) {
-        this.data = data.copy();
+        this.data = Unpooled.copiedBuffer(data);
         this.size = data.capacity();
     }
 
@@ -88,7 +89,7 @@ public class Record {
      * @return 序列化后的字节缓冲区
      */
     public ByteBuf Serialize() {
-        return this.data.copy();
+        return Unpooled.copiedBuffer(this.data);
     }
 
     /**
@@ -1,12 +1,15 @@
 package edu.sustech.cs307.record;
 
 import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.storage.BufferAccessStrategy;
 import edu.sustech.cs307.storage.BufferPool;
 import edu.sustech.cs307.storage.DiskManager;
 import edu.sustech.cs307.storage.Page;
 import edu.sustech.cs307.storage.PagePosition;
 import io.netty.buffer.ByteBuf;
 
+import java.util.List;
+
 /**
  * 记录文件处理类，负责管理记录文件的读取、插入、删除和更新操作。
  * 
@@ -33,6 +36,21 @@ public class RecordFileHandle {
     BufferPool bufferPool;
     String filename;
     RecordFileHeader fileHeader;
+    FreeSpaceMap freeSpaceMap;
+    ZoneMap zoneMap;
+
+    /**
+     * 压缩文件时，每移动一条记录调用一次，用于更新引用该记录的索引。
+     */
+    public interface MoveListener {
+        /**
+         * @param from   记录原来的 RID
+         * @param to     记录新的 RID
+         * @param record 记录内容
+         * @throws DBException 如果更新索引时发生错误
+         */
+        void Moved(RID from, RID to, Record record) throws DBException;
+    }
 
     public RecordFileHandle(DiskManager diskManager, BufferPool bufferPool, String filename, RecordFileHeader header)
             throws DBException {
@@ -40,6 +58,8 @@ public class RecordFileHandle {
         this.bufferPool = bufferPool;
         this.filename = filename;
         this.fileHeader = header;
+        this.freeSpaceMap = new FreeSpaceMap(diskManager, bufferPool, filename);
+        this.zoneMap = new ZoneMap(diskManager, bufferPool, filename);
     }
 
     /**
@@ -68,8 +88,14 @@ public class RecordFileHandle {
      * @throws DBException 如果在获取页面句柄时发生数据库异常。
      */
     public boolean IsRecord(RID rid) throws DBException {
-        RecordPageHandle page_handle = FetchPageHandle(rid.pageNum);
-        return BitMap.isSet(page_handle.bitmap, rid.slotNum);
+        RecordPageHandle page_handle = ReadPageHandle(rid.pageNum, null);
+        page_handle.page.RLatch();
+        try {
+            return BitMap.isSet(page_handle.bitmap, rid.slotNum);
+        } finally {
+            page_handle.page.RUnlatch();
+            bufferPool.unpin_page(page_handle.page, false);
+        }
     }
 
     /**
@@ -80,9 +106,15 @@ public class RecordFileHandle {
      * @throws DBException 如果在获取记录过程中发生数据库异常。
      */
     public Record GetRecord(RID rid) throws DBException {
-        RecordPageHandle handle = FetchPageHandle(rid.pageNum);
-        Record record = new Record(handle.getSlot(rid.slotNum));
-        bufferPool.unpin_page(handle.page.position, false);
+        RecordPageHandle handle = ReadPageHandle(rid.pageNum, null);
+        Record record;
+        handle.page.RLatch();
+        try {
+            record = new Record(handle.getSlot(rid.slotNum));
+        } finally {
+            handle.page.RUnlatch();
+        }
+        bufferPool.unpin_page(handle.page, false);
         return record;
     }
 
@@ -98,25 +130,82 @@ public class RecordFileHandle {
      *                          并更新位图和页面头信息。如果页面已满，更新文件头以指向下一个空闲页面。最后，解除页面的固定状态并返回新插入记录的RID。
      */
     public RID InsertRecord(ByteBuf buf) throws DBException {
-        RecordPageHandle pageHandle = create_page_handle();
-        int slotNum = BitMap.firstBit(false, pageHandle.bitmap, fileHeader.getNumberOfRecordsPrePage());
-        // array must less than the number of records per page
-        if (slotNum == fileHeader.getNumberOfRecordsPrePage()) {
-            throw new RuntimeException("THE FILE IS DAMAGED, PLEASE DELETE THE DIR AND RUN IT AGAIN");
+        return InsertRecord(buf, null);
+    }
+
+    /**
+     * 使用给定的访问策略插入一条记录，用于批量写入。新分配或读入的数据页装入策略的环形缓冲区，文件头页仍使用共享缓冲池。
+     *
+     * @param buf      包含要插入记录的字节缓冲区
+     * @param strategy 访问策略，为 null 时与 {@link #InsertRecord(ByteBuf)} 相同
+     * @return 插入记录的 RID
+     * @throws DBException 数据库异常
+     */
+    public RID InsertRecord(ByteBuf buf, BufferAccessStrategy strategy) throws DBException {
+        // 文件头页的写锁串行化同一文件上的插入，保护空闲页链表与页数
+        PagePosition headerPosition = new PagePosition(filename, 0);
+        Page headerPage = bufferPool.FetchPage(headerPosition);
+        if (headerPage == null) {
+            throw new RuntimeException(String.format("%s: unable to fetch the file header", filename));
         }
+        headerPage.WLatch();
+        try {
+            RecordPageHandle pageHandle = create_page_handle(strategy);
+            int slotNum;
+            pageHandle.page.WLatch();
+            try {
+                slotNum = BitMap.firstBit(false, pageHandle.bitmap, fileHeader.getNumberOfRecordsPrePage());
+                // array must less than the number of records per page
+                if (slotNum == fileHeader.getNumberOfRecordsPrePage()) {
+                    throw new RuntimeException("THE FILE IS DAMAGED, PLEASE DELETE THE DIR AND RUN IT AGAIN");
+                }
 
-        ByteBuf slot = pageHandle.getSlot(slotNum).clear();
-        slot.writeBytes(buf, 0, fileHeader.getRecordSize());
-        BitMap.set(pageHandle.bitmap, slotNum);
-        pageHandle.pageHdr.setNumberOfRecords(pageHandle.pageHdr.getNumberOfRecords() + 1);
+                ByteBuf slot = pageHandle.getSlot(slotNum).clear();
+                slot.writeBytes(buf, 0, fileHeader.getRecordSize());
+                BitMap.set(pageHandle.bitmap, slotNum);
+                pageHandle.pageHdr.setNumberOfRecords(pageHandle.pageHdr.getNumberOfRecords() + 1);
 
-        if (pageHandle.pageHdr.getNumberOfRecords() == fileHeader.getNumberOfRecordsPrePage()) {
-            fileHeader.setFirstFreePage(pageHandle.pageHdr.getNextFreePageNo());
-        }
+                if (pageHandle.pageHdr.getNumberOfRecords() == fileHeader.getNumberOfRecordsPrePage()) {
+                    fileHeader.setFirstFreePage(pageHandle.pageHdr.getNextFreePageNo());
+                    mark_header_dirty();
+                }
+                freeSpaceMap.SetFillLevel(pageHandle.page.getPageID(), FreeSpaceMap.FillLevel(
+                        pageHandle.pageHdr.getNumberOfRecords(), fileHeader.getNumberOfRecordsPrePage()));
+                zoneMap.Extend(pageHandle.page.getPageID(), slot);
+            } finally {
+                pageHandle.page.WUnlatch();
+            }
 
-        bufferPool.unpin_page(pageHandle.page.position, true);
+            bufferPool.unpin_page(pageHandle.page.position, true);
 
-        return new RID(pageHandle.page.getPageID(), slotNum);
+            return new RID(pageHandle.page.getPageID(), slotNum);
+        } finally {
+            headerPage.WUnlatch();
+            bufferPool.unpin_page(headerPosition, false);
+        }
+    }
+
+    /**
+     * 为批量插入预先扩展文件：之后新分配的 pages 个数据页已经在文件中，文件只需一次连续写就增长到位。
+     *
+     * @param pages 预计新分配的数据页数
+     * @throws DBException 如果扩展文件时发生错误
+     */
+    public void ReservePages(int pages) throws DBException {
+        PagePosition headerPosition = new PagePosition(filename, 0);
+        Page headerPage = bufferPool.FetchPage(headerPosition);
+        if (headerPage == null) {
+            throw new RuntimeException(String.format("%s: unable to fetch the file header", filename));
+        }
+        headerPage.WLatch();
+        try {
+            diskManager.ReservePages(filename, pages);
+            fileHeader.setReservedPages(diskManager.GetReservedPages(filename));
+            mark_header_dirty();
+        } finally {
+            headerPage.WUnlatch();
+            bufferPool.unpin_page(headerPosition, false);
+        }
     }
 
     /**
@@ -126,11 +215,220 @@ public class RecordFileHandle {
      * @throws DBException 如果在删除过程中发生数据库异常
      */
     public void DeleteRecord(RID rid) throws DBException {
+        // 页面可能重新加入空闲页链表，与插入一样先获取文件头页的写锁
+        PagePosition headerPosition = new PagePosition(filename, 0);
+        Page headerPage = bufferPool.FetchPage(headerPosition);
+        if (headerPage == null) {
+            throw new RuntimeException(String.format("%s: unable to fetch the file header", filename));
+        }
+        headerPage.WLatch();
+        try {
+            RecordPageHandle pageHandle = FetchPageHandle(rid.pageNum);
+            boolean deleted = false;
+            pageHandle.page.WLatch();
+            try {
+                if (BitMap.isSet(pageHandle.bitmap, rid.slotNum)) {
+                    int records = pageHandle.pageHdr.getNumberOfRecords();
+                    BitMap.reset(pageHandle.bitmap, rid.slotNum);
+                    pageHandle.pageHdr.setNumberOfRecords(records - 1);
+                    if (records == fileHeader.getNumberOfRecordsPrePage()) {
+                        // 满页空出了槽位，放回空闲页链表供之后的插入复用
+                        deletePageHandle(pageHandle);
+                    }
+                    freeSpaceMap.SetFillLevel(rid.pageNum,
+                            FreeSpaceMap.FillLevel(records - 1, fileHeader.getNumberOfRecordsPrePage()));
+                    if (records == 1) {
+                        // 区间只在页面变空时清除，删除其他记录不缩小区间
+                        zoneMap.Clear(rid.pageNum);
+                    }
+                    deleted = true;
+                }
+            } finally {
+                pageHandle.page.WUnlatch();
+            }
+            bufferPool.unpin_page(pageHandle.page.position, deleted);
+        } finally {
+            headerPage.WUnlatch();
+            bufferPool.unpin_page(headerPosition, false);
+        }
+    }
 
-        RecordPageHandle pageHandle = FetchPageHandle(rid.pageNum);
-        BitMap.reset(pageHandle.bitmap, rid.slotNum);
-        pageHandle.pageHdr.setNumberOfRecords(pageHandle.pageHdr.getNumberOfRecords() - 1);
-        bufferPool.unpin_page(pageHandle.page.position, true);
+    /**
+     * 检查数据页中是否没有记录。只读取空闲空间映射，不读取数据页本身。
+     *
+     * @param pageId 数据页号
+     * @return 页中没有记录时返回 true
+     * @throws DBException 如果读取空闲空间映射时发生错误
+     */
+    public boolean IsPageEmpty(int pageId) throws DBException {
+        return freeSpaceMap.GetFillLevel(pageId) == FreeSpaceMap.EMPTY;
+    }
+
+    /**
+     * 根据区间映射判断数据页中是否可能有满足条件的记录，不读取数据页本身。
+     *
+     * @param pageId     数据页号
+     * @param predicates 彼此为合取关系的条件
+     * @return 页面中一定没有满足条件的记录时返回 false
+     * @throws DBException 如果读取区间映射时发生错误
+     */
+    public boolean PageMayMatch(int pageId, List<ZoneMap.Predicate> predicates) throws DBException {
+        return zoneMap.MayMatch(pageId, predicates);
+    }
+
+    /**
+     * 为没有空闲空间映射的旧表建立映射：逐页读取记录数写入映射，并把所有未满的页面按页号顺序重新串成空闲页链表，
+     * 旧版本中删除记录后未回到链表的页面因此可以重新被插入使用。
+     *
+     * @throws DBException 如果读写页面时发生错误
+     */
+    public void RebuildFreeSpaceMap() throws DBException {
+        PagePosition headerPosition = new PagePosition(filename, 0);
+        Page headerPage = bufferPool.FetchPage(headerPosition);
+        if (headerPage == null) {
+            throw new RuntimeException(String.format("%s: unable to fetch the file header", filename));
+        }
+        headerPage.WLatch();
+        try {
+            if (!freeSpaceMap.Exists()) {
+                freeSpaceMap.Create();
+            }
+            int recordsPerPage = fileHeader.getNumberOfRecordsPrePage();
+            int firstFreePage = RecordPageHeader.NO_NEXT_FREE_PAGE;
+            // 从后向前串链，使链表按页号升序，插入优先填充靠前的页面
+            for (int pageId = fileHeader.getNumberOfPages(); pageId >= 1; pageId--) {
+                RecordPageHandle pageHandle = FetchPageHandle(pageId);
+                pageHandle.page.WLatch();
+                try {
+                    int records = pageHandle.pageHdr.getNumberOfRecords();
+                    if (records < recordsPerPage) {
+                        pageHandle.pageHdr.setNextFreePageNo(firstFreePage);
+                        firstFreePage = pageId;
+                    }
+                    freeSpaceMap.SetFillLevel(pageId, FreeSpaceMap.FillLevel(records, recordsPerPage));
+                } finally {
+                    pageHandle.page.WUnlatch();
+                }
+                bufferPool.unpin_page(pageHandle.page.position, true);
+            }
+            fileHeader.setFirstFreePage(firstFreePage);
+            mark_header_dirty();
+        } finally {
+            headerPage.WUnlatch();
+            bufferPool.unpin_page(headerPosition, false);
+        }
+    }
+
+    /**
+     * 按页号升序重新串起所有未满的页面，使空闲页链表的表头是页号最小的未满页面。
+     * 压缩文件之前调用，之后 {@link #CompactPages} 总是把记录移入最靠前的空位。
+     *
+     * @throws DBException 如果读写页面时发生错误
+     */
+    public void RelinkFreePages() throws DBException {
+        PagePosition headerPosition = new PagePosition(filename, 0);
+        Page headerPage = bufferPool.FetchPage(headerPosition);
+        if (headerPage == null) {
+            throw new RuntimeException(String.format("%s: unable to fetch the file header", filename));
+        }
+        headerPage.WLatch();
+        try {
+            relink_free_pages(fileHeader.getNumberOfPages());
+        } finally {
+            headerPage.WUnlatch();
+            bufferPool.unpin_page(headerPosition, false);
+        }
+    }
+
+    /**
+     * 压缩文件的一批：把文件末尾的记录移入空闲页链表表头的页面，最多清空 batch_pages 个末尾页面。
+     *
+     * <p>
+     * 一个指针从文件末尾向前寻找非空页面作为源页面，另一个指针即空闲页链表表头，从前向后给出目标页面，
+     * 两个指针相遇时压缩结束。调用前应先调用 {@link #RelinkFreePages}，使链表按页号升序。
+     * 每批只在执行期间持有文件头页的写锁，批与批之间插入和删除可以继续进行；
+     * 每移动一条记录都会调用 listener，由调用者在同一批内更新索引中的 RID。
+     * </p>
+     *
+     * @param batch_pages 本批最多处理的源页面数
+     * @param strategy    访问策略，可以为 null
+     * @param listener    记录被移动时的回调
+     * @return 本批移动的记录数，为 0 时表示压缩已完成
+     * @throws DBException 如果读写页面或更新索引时发生错误
+     */
+    public int CompactPages(int batch_pages, BufferAccessStrategy strategy, MoveListener listener)
+            throws DBException {
+        PagePosition headerPosition = new PagePosition(filename, 0);
+        Page headerPage = bufferPool.FetchPage(headerPosition);
+        if (headerPage == null) {
+            throw new RuntimeException(String.format("%s: unable to fetch the file header", filename));
+        }
+        headerPage.WLatch();
+        try {
+            int moved = 0;
+            int source = fileHeader.getNumberOfPages();
+            for (int batch = 0; batch < batch_pages; batch++) {
+                while (source >= 1 && IsPageEmpty(source)) {
+                    source--;
+                }
+                int target = fileHeader.getFirstFreePage();
+                if (target == RecordPageHeader.NO_NEXT_FREE_PAGE || target >= source) {
+                    break;
+                }
+                moved += move_records(source, strategy, listener);
+                if (!IsPageEmpty(source)) {
+                    // 源页面之前已没有空位
+                    break;
+                }
+            }
+            return moved;
+        } finally {
+            headerPage.WUnlatch();
+            bufferPool.unpin_page(headerPosition, false);
+        }
+    }
+
+    /**
+     * 截掉文件末尾的空页面，释放它们占用的磁盘空间，并重新串起空闲页链表。
+     * 仍被固定在缓冲池中的页面（例如正被扫描的页面）及其之前的页面被保留。
+     *
+     * @return 截掉的页面数
+     * @throws DBException 如果读写页面或截断文件时发生错误
+     */
+    public int Truncate() throws DBException {
+        PagePosition headerPosition = new PagePosition(filename, 0);
+        Page headerPage = bufferPool.FetchPage(headerPosition);
+        if (headerPage == null) {
+            throw new RuntimeException(String.format("%s: unable to fetch the file header", filename));
+        }
+        headerPage.WLatch();
+        try {
+            int numberOfPages = fileHeader.getNumberOfPages();
+            int last = numberOfPages;
+            while (last >= 1 && IsPageEmpty(last)) {
+                last--;
+            }
+            // 被截掉的页面不能留在缓冲池中，否则之后会被写回到文件末尾之外；此前读到它们的预读也不能再装入
+            bufferPool.InvalidatePrefetches(filename);
+            int keep = last;
+            for (int pageId = numberOfPages; pageId > last; pageId--) {
+                PagePosition position = new PagePosition(filename, pageId * fileHeader.getPageSize());
+                bufferPool.DeletePage(position);
+                if (bufferPool.IsResident(position)) {
+                    keep = pageId;
+                    break;
+                }
+            }
+            fileHeader.setNumberOfPages(keep);
+            relink_free_pages(keep);
+            diskManager.TruncateFile(filename, keep + 1);
+            fileHeader.setReservedPages(diskManager.GetReservedPages(filename));
+            mark_header_dirty();
+            return numberOfPages - keep;
+        } finally {
+            headerPage.WUnlatch();
+            bufferPool.unpin_page(headerPosition, false);
+        }
     }
 
     /**
@@ -142,9 +440,15 @@ public class RecordFileHandle {
      */
     public void UpdateRecord(RID rid, ByteBuf buf) throws DBException {
         RecordPageHandle pageHandle = FetchPageHandle(rid.pageNum);
-        ByteBuf slot = pageHandle.getSlot(rid.slotNum);
-        slot.clear();
-        slot.writeBytes(buf);
+        pageHandle.page.WLatch();
+        try {
+            ByteBuf slot = pageHandle.getSlot(rid.slotNum);
+            slot.clear();
+            slot.writeBytes(buf);
+            zoneMap.Extend(rid.pageNum, slot);
+        } finally {
+            pageHandle.page.WUnlatch();
+        }
         bufferPool.unpin_page(pageHandle.page.position, true);
     }
 
@@ -156,11 +460,44 @@ public class RecordFileHandle {
      * @throws DBException 如果页面 ID 超出范围或页面无法从缓冲池中获取。
      */
     public RecordPageHandle FetchPageHandle(int pageId) throws DBException {
+        return FetchPageHandle(pageId, null);
+    }
+
+    /**
+     * 使用给定的访问策略获取指定页面的页面句柄，用于大表的顺序扫描。
+     *
+     * @param pageId   要获取的页面的 ID。
+     * @param strategy 访问策略，可以为 null
+     * @return 返回对应页面的 RecordPageHandle。
+     * @throws DBException 如果页面 ID 超出范围或页面无法从缓冲池中获取。
+     */
+    public RecordPageHandle FetchPageHandle(int pageId, BufferAccessStrategy strategy) throws DBException {
         if (pageId > fileHeader.getNumberOfPages()) {
             throw new RuntimeException(String.format("%s: pageId %d is out of range", filename, pageId));
         }
-        PagePosition pagePosition = new PagePosition(filename, pageId * Page.DEFAULT_PAGE_SIZE);
-        Page page = bufferPool.FetchPage(pagePosition);
+        PagePosition pagePosition = new PagePosition(filename, pageId * fileHeader.getPageSize());
+        Page page = bufferPool.FetchPage(pagePosition, strategy);
+        if (page == null) {
+            throw new RuntimeException(String.format("%s: pageId %d is out of range", filename, pageId));
+        }
+        return new RecordPageHandle(fileHeader, page);
+    }
+
+    /**
+     * 获取只用于读取的页面句柄。表以内存映射方式读取时，不在缓冲池中的页面直接从映射中读取，不占用帧。
+     * 用完后调用 {@link BufferPool#unpin_page(Page, boolean)} 归还页面，按位置取消固定对映射中的页面不起作用。
+     *
+     * @param pageId   要获取的页面的 ID。
+     * @param strategy 访问策略，可以为 null
+     * @return 返回对应页面的 RecordPageHandle，调用者不能修改它。
+     * @throws DBException 如果页面 ID 超出范围或页面无法从缓冲池中获取。
+     */
+    public RecordPageHandle ReadPageHandle(int pageId, BufferAccessStrategy strategy) throws DBException {
+        if (pageId > fileHeader.getNumberOfPages()) {
+            throw new RuntimeException(String.format("%s: pageId %d is out of range", filename, pageId));
+        }
+        PagePosition pagePosition = new PagePosition(filename, pageId * fileHeader.getPageSize());
+        Page page = bufferPool.FetchPageForRead(pagePosition, strategy);
         if (page == null) {
             throw new RuntimeException(String.format("%s: pageId %d is out of range", filename, pageId));
         }
@@ -181,7 +518,11 @@ public class RecordFileHandle {
      * @throws DBException 如果在创建新页面时发生数据库异常
      */
     public RecordPageHandle CreateNewPageHandle() throws DBException {
-        Page newPage = bufferPool.NewPage(filename);
+        return create_new_page_handle(null);
+    }
+
+    private RecordPageHandle create_new_page_handle(BufferAccessStrategy strategy) throws DBException {
+        Page newPage = bufferPool.NewPage(filename, strategy);
         RecordPageHandle pageHandle = new RecordPageHandle(fileHeader, newPage);
 
         // Initialize the page
@@ -192,6 +533,9 @@ public class RecordFileHandle {
         // Update the file header
         fileHeader.setNumberOfPages(fileHeader.getNumberOfPages() + 1);
         fileHeader.setFirstFreePage(newPage.getPageID());
+        // 分配新页面时文件可能扩展了一个区
+        fileHeader.setReservedPages(diskManager.GetReservedPages(filename));
+        mark_header_dirty();
 
         return pageHandle;
     }
@@ -200,14 +544,15 @@ public class RecordFileHandle {
      * 创建一个记录页面句柄。如果没有可用的空闲页面，则创建一个新页面句柄；
      * 否则，返回第一个空闲页面的句柄。
      *
+     * @param strategy 访问策略，可以为 null
      * @return 返回一个记录页面句柄
      * @throws DBException 如果在创建或获取页面句柄时发生数据库异常
      */
-    private RecordPageHandle create_page_handle() throws DBException {
+    private RecordPageHandle create_page_handle(BufferAccessStrategy strategy) throws DBException {
         if (fileHeader.getFirstFreePage() == RecordPageHeader.NO_NEXT_FREE_PAGE) {
-            return CreateNewPageHandle();
+            return create_new_page_handle(strategy);
         } else {
-            return FetchPageHandle(fileHeader.getFirstFreePage());
+            return FetchPageHandle(fileHeader.getFirstFreePage(), strategy);
         }
     }
 
@@ -219,5 +564,106 @@ public class RecordFileHandle {
     private void deletePageHandle(RecordPageHandle handle) {
         handle.pageHdr.setNextFreePageNo(fileHeader.getFirstFreePage());
         fileHeader.setFirstFreePage(handle.page.getPageID());
+        mark_header_dirty();
+    }
+
+    /**
+     * 从后向前把前 last_page 个页面中未满的页面串成空闲页链表。调用者必须持有文件头页的写锁。
+     *
+     * @param last_page 最后一个数据页的页号
+     * @throws DBException 如果读写页面时发生错误
+     */
+    private void relink_free_pages(int last_page) throws DBException {
+        int firstFreePage = RecordPageHeader.NO_NEXT_FREE_PAGE;
+        for (int pageId = last_page; pageId >= 1; pageId--) {
+            if (freeSpaceMap.GetFillLevel(pageId) == FreeSpaceMap.FULL) {
+                continue;
+            }
+            RecordPageHandle pageHandle = FetchPageHandle(pageId);
+            pageHandle.page.WLatch();
+            try {
+                pageHandle.pageHdr.setNextFreePageNo(firstFreePage);
+            } finally {
+                pageHandle.page.WUnlatch();
+            }
+            bufferPool.unpin_page(pageHandle.page.position, true);
+            firstFreePage = pageId;
+        }
+        fileHeader.setFirstFreePage(firstFreePage);
+        mark_header_dirty();
+    }
+
+    /**
+     * 把源页面中的记录依次移入空闲页链表表头的页面，直到源页面为空或表头不在源页面之前。
+     * 加锁顺序为文件头页、源页面、目标页面。
+     *
+     * @return 移动的记录数
+     */
+    private int move_records(int source_id, BufferAccessStrategy strategy, MoveListener listener)
+            throws DBException {
+        int recordsPerPage = fileHeader.getNumberOfRecordsPrePage();
+        RecordPageHandle source = FetchPageHandle(source_id, strategy);
+        int moved = 0;
+        source.page.WLatch();
+        try {
+            boolean wasFull = source.pageHdr.getNumberOfRecords() == recordsPerPage;
+            for (int slot = BitMap.firstBit(true, source.bitmap, recordsPerPage); slot < recordsPerPage;
+                    slot = BitMap.nextBit(true, source.bitmap, recordsPerPage, slot)) {
+                int targetId = fileHeader.getFirstFreePage();
+                if (targetId == RecordPageHeader.NO_NEXT_FREE_PAGE || targetId >= source_id) {
+                    break;
+                }
+                RecordPageHandle target = FetchPageHandle(targetId, strategy);
+                RID to;
+                Record record;
+                target.page.WLatch();
+                try {
+                    int targetSlot = BitMap.firstBit(false, target.bitmap, recordsPerPage);
+                    if (targetSlot == recordsPerPage) {
+                        throw new RuntimeException("THE FILE IS DAMAGED, PLEASE DELETE THE DIR AND RUN IT AGAIN");
+                    }
+                    target.getSlot(targetSlot).clear().writeBytes(source.getSlot(slot), 0, fileHeader.getRecordSize());
+                    BitMap.set(target.bitmap, targetSlot);
+                    int records = target.pageHdr.getNumberOfRecords() + 1;
+                    target.pageHdr.setNumberOfRecords(records);
+                    if (records == recordsPerPage) {
+                        fileHeader.setFirstFreePage(target.pageHdr.getNextFreePageNo());
+                        mark_header_dirty();
+                    }
+                    freeSpaceMap.SetFillLevel(targetId, FreeSpaceMap.FillLevel(records, recordsPerPage));
+                    zoneMap.Extend(targetId, target.getSlot(targetSlot));
+                    to = new RID(targetId, targetSlot);
+                    record = new Record(target.getSlot(targetSlot));
+                } finally {
+                    target.page.WUnlatch();
+                }
+                bufferPool.unpin_page(target.page.position, true);
+
+                BitMap.reset(source.bitmap, slot);
+                source.pageHdr.setNumberOfRecords(source.pageHdr.getNumberOfRecords() - 1);
+                moved++;
+                listener.Moved(new RID(source_id, slot), to, record);
+            }
+            int records = source.pageHdr.getNumberOfRecords();
+            if (wasFull && moved > 0 && records > 0) {
+                // 没有清空的满页面有了空位，放回链表；清空的页面留给 Truncate 截掉或重新串链
+                deletePageHandle(source);
+            }
+            freeSpaceMap.SetFillLevel(source_id, FreeSpaceMap.FillLevel(records, recordsPerPage));
+            if (records == 0) {
+                zoneMap.Clear(source_id);
+            }
+        } finally {
+            source.page.WUnlatch();
+        }
+        bufferPool.unpin_page(source.page.position, moved > 0);
+        return moved;
+    }
+
+    /**
+     * 文件头保存在第 0 页，修改文件头后需要将该页标记为脏页，使其能被写入日志并写回。
+     */
+    private void mark_header_dirty() {
+        bufferPool.MarkPageDirty(new PagePosition(filename, 0));
     }
 }
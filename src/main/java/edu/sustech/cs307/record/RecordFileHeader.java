@@ -1,17 +1,18 @@
 package edu.sustech.cs307.record;
 
+import edu.sustech.cs307.storage.Page;
 import io.netty.buffer.ByteBuf;
 
 /**
  * 记录文件头部类，用于管理记录文件的元数据。
- * 包含记录大小、页面数量、每页记录数量、首个空闲页面和位图大小等信息。
+ * 包含记录大小、页面数量、每页记录数量、首个空闲页面、位图大小、页大小和区等信息。
  * 
  * <p>
  * 该类提供了对这些属性的获取和设置方法，所有数据均存储在 ByteBuf 中。
  * </p>
  */
 public class RecordFileHeader {
-    public final static int SIZE = 20;
+    public final static int SIZE = 32;
     ByteBuf header;
 
     public RecordFileHeader(ByteBuf header) {
@@ -106,4 +107,59 @@ public class RecordFileHeader {
     public void setBitMapSize(int bitMapSize) {
         header.setInt(16, bitMapSize);
     }
+
+    /**
+     * 获取文件的页大小。旧版本创建的文件没有记录页大小，使用默认页大小。
+     *
+     * @return 页大小，以字节为单位。
+     */
+    public int getPageSize() {
+        int pageSize = header.getInt(20);
+        return pageSize == 0 ? Page.DEFAULT_PAGE_SIZE : pageSize;
+    }
+
+    /**
+     * 设置文件的页大小，只能在创建文件时设置。
+     *
+     * @param pageSize 页大小，单位为字节。
+     */
+    public void setPageSize(int pageSize) {
+        header.setInt(20, pageSize);
+    }
+
+    /**
+     * 获取每个区的页面数，文件每次扩展一个区。旧版本创建的文件返回 0，使用默认区大小。
+     *
+     * @return 每个区的页面数
+     */
+    public int getExtentPages() {
+        return header.getInt(24);
+    }
+
+    /**
+     * 设置每个区的页面数，只能在创建文件时设置。
+     *
+     * @param extentPages 每个区的页面数
+     */
+    public void setExtentPages(int extentPages) {
+        header.setInt(24, extentPages);
+    }
+
+    /**
+     * 获取文件中已经预分配的页面数（包括文件头页和尚未使用的页面）。
+     *
+     * @return 已预分配的页面数
+     */
+    public int getReservedPages() {
+        return header.getInt(28);
+    }
+
+    /**
+     * 设置文件中已经预分配的页面数。
+     *
+     * @param reservedPages 已预分配的页面数
+     */
+    public void setReservedPages(int reservedPages) {
+        header.setInt(28, reservedPages);
+    }
 }
@@ -0,0 +1,129 @@
+package edu.sustech.cs307.record;
+
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.storage.BufferAccessStrategy;
+
+import java.util.List;
+
+/**
+ * 按页遍历记录文件中所有记录的游标。
+ *
+ * <p>
+ * 每个数据页只固定一次：进入页面时从位图中一次取出所有有效槽位，之后逐个返回，
+ * 离开页面（进入下一页、遍历结束或关闭游标）时解除固定。空闲空间映射表明没有记录的页面不会被读入。
+ * 给出条件时，区间映射表明没有满足条件的记录的页面也不会被读入，其余页面中的记录仍需调用者逐条检查。
+ * </p>
+ *
+ * <p>
+ * {@link #GetRecord()} 返回的记录直接引用页面帧中的槽位，不复制数据，只在游标停留在该页期间有效。
+ * 需要在游标前进之后继续保留记录的调用者必须复制它，例如 {@code new Record(record)}。
+ * </p>
+ */
+public class RecordPageCursor {
+    private final RecordFileHandle fileHandle;
+    // 访问策略，可以为 null
+    private final BufferAccessStrategy strategy;
+    private final int lastPage;
+    private final int recordsPerPage;
+    private final int recordSize;
+    // 下推的条件，为 null 时不按区间映射跳过页面
+    private final List<ZoneMap.Predicate> predicates;
+    private int skippedPages;
+
+    // 当前固定的页面，不在任何页面上时为 null
+    private RecordPageHandle pageHandle;
+    private int pageId = 0;
+    // 当前页面中有效记录的槽号
+    private int[] liveSlots;
+    private int index;
+
+    public RecordPageCursor(RecordFileHandle fileHandle, BufferAccessStrategy strategy) {
+        this(fileHandle, strategy, null);
+    }
+
+    /**
+     * @param fileHandle 记录文件句柄
+     * @param strategy   访问策略，可以为 null
+     * @param predicates 彼此为合取关系的条件，可以为 null
+     */
+    public RecordPageCursor(RecordFileHandle fileHandle, BufferAccessStrategy strategy,
+            List<ZoneMap.Predicate> predicates) {
+        this.fileHandle = fileHandle;
+        this.strategy = strategy;
+        this.predicates = predicates == null || predicates.isEmpty() ? null : predicates;
+        this.lastPage = fileHandle.getFileHeader().getNumberOfPages();
+        this.recordsPerPage = fileHandle.getFileHeader().getNumberOfRecordsPrePage();
+        this.recordSize = fileHandle.getFileHeader().getRecordSize();
+    }
+
+    /**
+     * 移到下一条记录，需要时解除当前页面的固定并固定下一个非空页面。
+     *
+     * @return 还有记录时返回 true；遍历结束时返回 false，此时不再固定任何页面
+     * @throws DBException 如果读取页面时发生错误
+     */
+    public boolean Next() throws DBException {
+        if (pageHandle != null && ++index < liveSlots.length) {
+            return true;
+        }
+        release();
+        while (pageId < lastPage) {
+            pageId++;
+            if (fileHandle.IsPageEmpty(pageId)) {
+                // 空闲空间映射表明页中没有记录，不必读入
+                continue;
+            }
+            if (predicates != null && !fileHandle.PageMayMatch(pageId, predicates)) {
+                skippedPages++;
+                continue;
+            }
+            pageHandle = fileHandle.ReadPageHandle(pageId, strategy);
+            liveSlots = BitMap.setBits(pageHandle.bitmap, recordsPerPage);
+            index = 0;
+            if (liveSlots.length > 0) {
+                return true;
+            }
+            release();
+        }
+        return false;
+    }
+
+    /**
+     * @return 当前记录的 RID
+     */
+    public RID GetRID() {
+        return new RID(pageId, liveSlots[index]);
+    }
+
+    /**
+     * @return 当前记录，直接引用页面帧中的槽位，游标离开当前页面后失效
+     */
+    public Record GetRecord() {
+        return new Record(pageHandle.getSlot(liveSlots[index]), recordSize);
+    }
+
+    /**
+     * @return 因区间映射而没有读入的非空页面数
+     */
+    public int GetSkippedPages() {
+        return skippedPages;
+    }
+
+    /**
+     * 解除当前页面的固定。关闭后游标不能再使用。
+     *
+     * @throws DBException 如果解除固定时发生错误
+     */
+    public void Close() throws DBException {
+        release();
+        pageId = lastPage;
+    }
+
+    private void release() throws DBException {
+        if (pageHandle != null) {
+            fileHandle.bufferPool.unpin_page(pageHandle.page, false);
+            pageHandle = null;
+            liveSlots = null;
+        }
+    }
+}
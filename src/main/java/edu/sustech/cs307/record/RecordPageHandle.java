@@ -23,7 +23,7 @@ public class RecordPageHandle {
         this.pageHdr = new RecordPageHeader(page.data.slice(0, RecordPageHeader.SIZE));
         this.bitmap = page.data.slice(RecordPageHeader.SIZE, fileHdr.getBitMapSize());
         this.slots = page.data.slice(RecordPageHeader.SIZE + fileHdr.getBitMapSize(),
-                Page.DEFAULT_PAGE_SIZE - (RecordPageHeader.SIZE + fileHdr.getBitMapSize()));
+                page.size() - (RecordPageHeader.SIZE + fileHdr.getBitMapSize()));
     }
 
     public ByteBuf getSlot(int slotNo) {
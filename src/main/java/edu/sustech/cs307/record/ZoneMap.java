@@ -0,0 +1,384 @@
+package edu.sustech.cs307.record;
+
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.meta.ColumnMeta;
+import edu.sustech.cs307.storage.BufferPool;
+import edu.sustech.cs307.storage.DiskManager;
+import edu.sustech.cs307.storage.Page;
+import edu.sustech.cs307.storage.PagePosition;
+import edu.sustech.cs307.value.Value;
+import edu.sustech.cs307.value.ValueType;
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 区间映射：记录数据文件中每个数据页上各列的最小值与最大值，顺序扫描据此跳过不可能满足条件的页面。
+ *
+ * <p>
+ * 映射保存在数据文件旁的 {@code <数据文件>.zm} 中。第 0 页保存列描述：列数，以及每列的类型与在记录中的偏移量。
+ * 之后每个数据页占一项：8 字节的标志（0 表示还没有记录值）和每列的最小值、最大值各 8 字节，第 k 个数据页的项位于映射文件第
+ * {@code 1 + k / 每页项数} 页。映射页与空闲空间映射一样通过缓冲池读写，被写入重做日志并延迟写回。
+ * </p>
+ *
+ * <p>
+ * 每个值被换算为一个保序的 long：INTEGER 取原值；FLOAT 把 IEEE 754 位模式变换为与 {@link Double#compare} 同序的整数；
+ * CHAR 取内容的前 8 个字节按无符号数比较，只保证不降序，因此对 CHAR 列只按非严格的比较裁剪。
+ * 内容前 8 个字节中含有非 ASCII 字节的 CHAR 值无法可靠比较，所在页面的该列区间被放宽为全部取值。
+ * </p>
+ *
+ * <p>
+ * 插入与更新只会扩大页面的区间，删除记录不缩小区间，只有页面变空时才清除该项，因此区间总是包含页中所有记录的值。
+ * 映射页的写锁保证同一项的读改写是原子的，调用者不需要持有数据文件头页的锁。
+ * </p>
+ */
+public class ZoneMap {
+    // 映射文件的页大小，与数据文件无关
+    private static final int MAP_PAGE_SIZE = Page.DEFAULT_PAGE_SIZE;
+    // 每个 CHAR 值在记录中先存放 4 字节的长度，之后才是内容
+    private static final int CHAR_CONTENT_OFFSET = 4;
+
+    /**
+     * 可以下推到页面的比较运算。
+     */
+    public enum Comparison {
+        EQ, LT, LE, GT, GE
+    }
+
+    /**
+     * 形如 {@code 列 运算 常量} 的条件，用于判断页面是否可能包含满足条件的记录。
+     */
+    public static final class Predicate {
+        final ValueType type;
+        final int offset;
+        final Comparison op;
+        final long key;
+
+        /**
+         * @param type     列的类型，必须与常量的类型相同
+         * @param offset   列在记录中的偏移量
+         * @param op       比较运算
+         * @param constant 常量
+         */
+        public Predicate(ValueType type, int offset, Comparison op, Value constant) {
+            this.type = type;
+            this.offset = offset;
+            this.op = op;
+            this.key = Key(constant);
+        }
+
+        /**
+         * @param constant 常量
+         * @return 常量能否用于裁剪页面：类型受支持，CHAR 常量只能包含 ASCII 字符
+         */
+        public static boolean IsSupported(Value constant) {
+            return switch (constant.type) {
+                case INTEGER, FLOAT -> true;
+                case CHAR -> ((String) constant.value).chars().allMatch(c -> c < 0x80);
+                default -> false;
+            };
+        }
+    }
+
+    /**
+     * 映射文件第 0 页中的列描述，读入后不再改变。
+     */
+    private static final class Layout {
+        final ValueType[] types;
+        final int[] offsets;
+        final int entrySize;
+        final int entriesPerPage;
+
+        Layout(ValueType[] types, int[] offsets) {
+            this.types = types;
+            this.offsets = offsets;
+            this.entrySize = 8 + 16 * types.length;
+            this.entriesPerPage = MAP_PAGE_SIZE / entrySize;
+        }
+
+        int column(ValueType type, int offset) {
+            for (int i = 0; i < types.length; i++) {
+                if (types[i] == type && offsets[i] == offset) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private final BufferPool bufferPool;
+    private final DiskManager diskManager;
+    private final String filename;
+    // 映射文件还不存在时为 null，每次使用时重新检查
+    private volatile Layout layout;
+
+    public ZoneMap(DiskManager diskManager, BufferPool bufferPool, String data_file) {
+        this.diskManager = diskManager;
+        this.bufferPool = bufferPool;
+        this.filename = FileName(data_file);
+    }
+
+    /**
+     * @param data_file 数据文件名
+     * @return 数据文件对应的区间映射文件名
+     */
+    public static String FileName(String data_file) {
+        return data_file + ".zm";
+    }
+
+    /**
+     * 创建映射文件并写入列描述，所有数据页都还没有记录值。一项放不进一个映射页的宽表不建立映射。
+     *
+     * @param columns 表的列
+     * @throws DBException 如果创建或写入文件时发生错误
+     */
+    public void Create(List<ColumnMeta> columns) throws DBException {
+        if (8 + 16 * columns.size() > MAP_PAGE_SIZE) {
+            return;
+        }
+        diskManager.CreateFile(filename);
+        Page page = new Page();
+        page.position = new PagePosition(filename, 0);
+        page.data.setInt(0, columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            page.data.setInt(4 + i * 8, columns.get(i).type.ordinal());
+            page.data.setInt(8 + i * 8, columns.get(i).offset);
+        }
+        diskManager.FlushPage(page);
+    }
+
+    /**
+     * 把一条记录的值并入数据页的区间。
+     *
+     * @param page_id 数据页号
+     * @param record  记录内容
+     * @throws DBException 如果读写映射页时发生错误
+     */
+    public void Extend(int page_id, ByteBuf record) throws DBException {
+        Layout layout = layout();
+        if (layout == null) {
+            return;
+        }
+        int n = layout.types.length;
+        long[] lows = new long[n];
+        long[] highs = new long[n];
+        for (int i = 0; i < n; i++) {
+            lows[i] = low_key(layout.types[i], record, layout.offsets[i]);
+            highs[i] = high_key(layout.types[i], record, layout.offsets[i]);
+        }
+        int map_page = 1 + page_id / layout.entriesPerPage;
+        while (diskManager.GetPageCount(filename) <= map_page) {
+            Page page = bufferPool.NewPage(filename);
+            if (page == null) {
+                throw new RuntimeException(String.format("%s: unable to allocate a page", filename));
+            }
+            bufferPool.unpin_page(page.position, false);
+        }
+        PagePosition position = new PagePosition(filename, map_page * MAP_PAGE_SIZE);
+        Page page = bufferPool.FetchPage(position);
+        if (page == null) {
+            throw new RuntimeException(String.format("%s: unable to fetch page %d", filename, map_page));
+        }
+        int entry = (page_id % layout.entriesPerPage) * layout.entrySize;
+        boolean changed = false;
+        page.WLatch();
+        try {
+            boolean valid = page.data.getLong(entry) != 0;
+            for (int i = 0; i < n; i++) {
+                int min = entry + 8 + i * 16;
+                if (!valid || lows[i] < page.data.getLong(min)) {
+                    page.data.setLong(min, lows[i]);
+                    changed = true;
+                }
+                if (!valid || highs[i] > page.data.getLong(min + 8)) {
+                    page.data.setLong(min + 8, highs[i]);
+                    changed = true;
+                }
+            }
+            if (!valid) {
+                page.data.setLong(entry, 1);
+                changed = true;
+            }
+        } finally {
+            page.WUnlatch();
+        }
+        bufferPool.unpin_page(position, changed);
+    }
+
+    /**
+     * 清除数据页的区间，在页面变空时调用，之后插入的记录重新从空区间开始扩大。
+     *
+     * @param page_id 数据页号
+     * @throws DBException 如果读写映射页时发生错误
+     */
+    public void Clear(int page_id) throws DBException {
+        Layout layout = layout();
+        if (layout == null) {
+            return;
+        }
+        int map_page = 1 + page_id / layout.entriesPerPage;
+        if (map_page >= diskManager.GetPageCount(filename)) {
+            return;
+        }
+        PagePosition position = new PagePosition(filename, map_page * MAP_PAGE_SIZE);
+        Page page = bufferPool.FetchPage(position);
+        if (page == null) {
+            throw new RuntimeException(String.format("%s: unable to fetch page %d", filename, map_page));
+        }
+        int entry = (page_id % layout.entriesPerPage) * layout.entrySize;
+        boolean changed;
+        page.WLatch();
+        try {
+            changed = page.data.getLong(entry) != 0;
+            if (changed) {
+                page.data.setLong(entry, 0);
+            }
+        } finally {
+            page.WUnlatch();
+        }
+        bufferPool.unpin_page(position, changed);
+    }
+
+    /**
+     * 判断数据页中是否可能有满足所有条件的记录。没有映射文件、页面还没有区间或条件涉及映射中没有的列时保守地返回 true。
+     *
+     * @param page_id    数据页号
+     * @param predicates 条件，彼此为合取关系
+     * @return 页面中一定没有满足条件的记录时返回 false
+     * @throws DBException 如果读取映射页时发生错误
+     */
+    public boolean MayMatch(int page_id, List<Predicate> predicates) throws DBException {
+        Layout layout = layout();
+        if (layout == null || predicates.isEmpty()) {
+            return true;
+        }
+        int map_page = 1 + page_id / layout.entriesPerPage;
+        if (map_page >= diskManager.GetPageCount(filename)) {
+            return true;
+        }
+        PagePosition position = new PagePosition(filename, map_page * MAP_PAGE_SIZE);
+        Page page = bufferPool.FetchPage(position);
+        if (page == null) {
+            throw new RuntimeException(String.format("%s: unable to fetch page %d", filename, map_page));
+        }
+        int entry = (page_id % layout.entriesPerPage) * layout.entrySize;
+        page.RLatch();
+        try {
+            if (page.data.getLong(entry) == 0) {
+                return true;
+            }
+            for (Predicate predicate : predicates) {
+                int column = layout.column(predicate.type, predicate.offset);
+                if (column < 0) {
+                    continue;
+                }
+                long min = page.data.getLong(entry + 8 + column * 16);
+                long max = page.data.getLong(entry + 16 + column * 16);
+                if (!may_match(predicate, min, max)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            page.RUnlatch();
+            bufferPool.unpin_page(position, false);
+        }
+    }
+
+    /**
+     * 把常量换算为保序的 long，与记录中的值使用同一种换算。
+     *
+     * @param value INTEGER、FLOAT 或 CHAR 类型的值
+     * @return 换算后的键
+     */
+    static long Key(Value value) {
+        return switch (value.type) {
+            case INTEGER -> (Long) value.value;
+            case FLOAT -> float_key((Double) value.value);
+            case CHAR -> {
+                byte[] bytes = ((String) value.value).getBytes(StandardCharsets.UTF_8);
+                long key = 0;
+                for (int i = 0; i < 8; i++) {
+                    key = (key << 8) | (i < bytes.length ? bytes[i] & 0xff : 0);
+                }
+                yield key ^ Long.MIN_VALUE;
+            }
+            default -> throw new IllegalArgumentException("Unsupported value type: " + value.type);
+        };
+    }
+
+    private static boolean may_match(Predicate predicate, long min, long max) {
+        // CHAR 的键只取前缀，键相等不代表值相等，严格比较也按非严格处理
+        boolean exact = predicate.type != ValueType.CHAR;
+        long key = predicate.key;
+        return switch (predicate.op) {
+            case EQ -> min <= key && key <= max;
+            case LT -> exact ? min < key : min <= key;
+            case LE -> min <= key;
+            case GT -> exact ? max > key : max >= key;
+            case GE -> max >= key;
+        };
+    }
+
+    private static long float_key(double value) {
+        long bits = Double.doubleToLongBits(value);
+        // 负数的位模式按数值反序，翻转除符号位以外的位
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    private static long low_key(ValueType type, ByteBuf record, int offset) {
+        return switch (type) {
+            case INTEGER -> record.getLong(offset);
+            case FLOAT -> float_key(record.getDouble(offset));
+            case CHAR -> is_ascii(record, offset) ? char_key(record, offset) : Long.MIN_VALUE;
+            default -> Long.MIN_VALUE;
+        };
+    }
+
+    private static long high_key(ValueType type, ByteBuf record, int offset) {
+        return switch (type) {
+            case INTEGER -> record.getLong(offset);
+            case FLOAT -> float_key(record.getDouble(offset));
+            case CHAR -> is_ascii(record, offset) ? char_key(record, offset) : Long.MAX_VALUE;
+            default -> Long.MAX_VALUE;
+        };
+    }
+
+    private static long char_key(ByteBuf record, int offset) {
+        return record.getLong(offset + CHAR_CONTENT_OFFSET) ^ Long.MIN_VALUE;
+    }
+
+    private static boolean is_ascii(ByteBuf record, int offset) {
+        return (record.getLong(offset + CHAR_CONTENT_OFFSET) & 0x8080808080808080L) == 0;
+    }
+
+    private Layout layout() throws DBException {
+        Layout current = layout;
+        if (current != null || diskManager.GetPageCount(filename) == 0) {
+            // 旧版本创建的表没有映射文件，不做裁剪
+            return current;
+        }
+        PagePosition position = new PagePosition(filename, 0);
+        Page page = bufferPool.FetchPage(position);
+        if (page == null) {
+            throw new RuntimeException(String.format("%s: unable to fetch the column descriptors", filename));
+        }
+        page.RLatch();
+        try {
+            int n = page.data.getInt(0);
+            ValueType[] types = new ValueType[n];
+            int[] offsets = new int[n];
+            for (int i = 0; i < n; i++) {
+                types[i] = ValueType.values()[page.data.getInt(4 + i * 8)];
+                offsets[i] = page.data.getInt(8 + i * 8);
+            }
+            current = new Layout(types, offsets);
+        } finally {
+            page.RUnlatch();
+            bufferPool.unpin_page(position, false);
+        }
+        layout = current;
+        return current;
+    }
+}
@@ -0,0 +1,214 @@
+package edu.sustech.cs307.storage;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * ARC（Adaptive Replacement Cache）替换策略。
+ *
+ * <p>
+ * 常驻帧分为 T1（只被访问过一次的页面）和 T2（被访问过至少两次的页面）两个 LRU 列表，
+ * 另外用幽灵列表 B1、B2 记录最近从 T1、T2 中被替换出去的页面位置。缺页时若命中 B1，说明 T1 偏小，
+ * 增大目标值 p；命中 B2 则减小 p。替换时根据 |T1| 与 p 的关系决定从 T1 还是 T2 的 LRU 端选择帧。
+ * </p>
+ *
+ * <p>
+ * 被固定的帧不在 LRU 列表中，只记录其所属列表，取消固定时再放回对应列表的 MRU 端，因此所有操作均为 O(1)。
+ * 幽灵列表依赖 BufferPool 在缺页时调用 {@link #Load(int, PagePosition)}；未调用时页面视为首次访问。
+ * 帧号必须在 [0, numPages) 范围内。
+ * </p>
+ */
+public class ARCReplacer implements Replacer {
+    private final int maxSize;
+    // 可替换的帧，队首为 LRU 端
+    private final LinkedHashSet<Integer> t1 = new LinkedHashSet<>();
+    private final LinkedHashSet<Integer> t2 = new LinkedHashSet<>();
+    // 幽灵列表，只保存页面位置
+    private final LinkedHashSet<PagePosition> b1 = new LinkedHashSet<>();
+    private final LinkedHashSet<PagePosition> b2 = new LinkedHashSet<>();
+    private final boolean[] tracked;
+    private final boolean[] pinned;
+    private final boolean[] inT2;
+    // 刚通过 Load 装入、尚未被 Pin 过的帧，其第一次 Pin 不算作再次访问
+    private final boolean[] fresh;
+    private final PagePosition[] positions;
+    // 包括被固定的帧在内，属于 T1、T2 的帧数
+    private int t1Size = 0;
+    private int t2Size = 0;
+    private int pinnedCount = 0;
+    // T1 的目标大小
+    private int p = 0;
+
+    public ARCReplacer(int numPages) {
+        this.maxSize = numPages;
+        this.tracked = new boolean[numPages];
+        this.pinned = new boolean[numPages];
+        this.inT2 = new boolean[numPages];
+        this.fresh = new boolean[numPages];
+        this.positions = new PagePosition[numPages];
+    }
+
+    @Override
+    public void Load(int frameId, PagePosition position) {
+        if (tracked[frameId]) {
+            Remove(frameId);
+        }
+        PagePosition key = new PagePosition(position.filename, position.offset);
+        positions[frameId] = key;
+        fresh[frameId] = true;
+        if (b1.remove(key)) {
+            p = Math.min(maxSize, p + Math.max(b2.size() / Math.max(b1.size(), 1), 1));
+            inT2[frameId] = true;
+        } else if (b2.remove(key)) {
+            p = Math.max(0, p - Math.max(b1.size() / Math.max(b2.size(), 1), 1));
+            inT2[frameId] = true;
+        } else {
+            inT2[frameId] = false;
+        }
+    }
+
+    @Override
+    public int Victim() {
+        int victim;
+        boolean fromT1 = !t1.isEmpty() && (t1Size > p || t2.isEmpty());
+        if (fromT1) {
+            victim = poll(t1);
+            t1Size--;
+            remember(b1, positions[victim]);
+        } else if (!t2.isEmpty()) {
+            victim = poll(t2);
+            t2Size--;
+            remember(b2, positions[victim]);
+        } else {
+            return -1;
+        }
+        tracked[victim] = false;
+        positions[victim] = null;
+        return victim;
+    }
+
+    @Override
+    public void Pin(int frameId) {
+        if (frameId < maxSize && tracked[frameId] && pinned[frameId]) {
+            return;
+        }
+        if ((frameId >= maxSize || !tracked[frameId]) && this.size() >= maxSize) {
+            throw new RuntimeException("REPLACER IS FULL");
+        }
+        if (tracked[frameId]) {
+            // 命中常驻页面：从可替换列表中取出，并晋升到 T2
+            if (inT2[frameId]) {
+                t2.remove(frameId);
+            } else {
+                t1.remove(frameId);
+                t1Size--;
+                t2Size++;
+                inT2[frameId] = true;
+            }
+        } else {
+            tracked[frameId] = true;
+            if (inT2[frameId] && fresh[frameId]) {
+                t2Size++;
+            } else {
+                inT2[frameId] = false;
+                t1Size++;
+            }
+        }
+        fresh[frameId] = false;
+        pinned[frameId] = true;
+        pinnedCount++;
+    }
+
+    @Override
+    public void Unpin(int frameId) {
+        if (!tracked[frameId]) {
+            throw new RuntimeException("UNPIN PAGE NOT FOUND");
+        }
+        if (!pinned[frameId]) {
+            return;
+        }
+        pinned[frameId] = false;
+        pinnedCount--;
+        if (inT2[frameId]) {
+            t2.add(frameId);
+        } else {
+            t1.add(frameId);
+        }
+    }
+
+    @Override
+    public void Remove(int frameId) {
+        if (!tracked[frameId]) {
+            fresh[frameId] = false;
+            return;
+        }
+        if (pinned[frameId]) {
+            pinnedCount--;
+        } else if (inT2[frameId]) {
+            t2.remove(frameId);
+        } else {
+            t1.remove(frameId);
+        }
+        if (inT2[frameId]) {
+            t2Size--;
+        } else {
+            t1Size--;
+        }
+        tracked[frameId] = false;
+        pinned[frameId] = false;
+        fresh[frameId] = false;
+        positions[frameId] = null;
+    }
+
+    /**
+     * 按当前的目标值 p 先列出会被优先替换的列表，再列出另一个列表；p 在替换过程中不变时顺序是准确的。
+     */
+    @Override
+    public int[] Candidates(int limit) {
+        int[] candidates = new int[Math.min(limit, t1.size() + t2.size())];
+        boolean t1First = !t1.isEmpty() && (t1Size > p || t2.isEmpty());
+        int count = 0;
+        for (LinkedHashSet<Integer> list : t1First ? List.of(t1, t2) : List.of(t2, t1)) {
+            Iterator<Integer> it = list.iterator();
+            while (count < candidates.length && it.hasNext()) {
+                candidates[count++] = it.next();
+            }
+        }
+        return candidates;
+    }
+
+    @Override
+    public int size() {
+        return t1.size() + t2.size() + pinnedCount;
+    }
+
+    private static int poll(LinkedHashSet<Integer> list) {
+        Iterator<Integer> it = list.iterator();
+        int frameId = it.next();
+        it.remove();
+        return frameId;
+    }
+
+    /**
+     * 把被替换的页面加入幽灵列表，并保持 |T1| + |B1| <= c、|T1| + |T2| + |B1| + |B2| <= 2c。
+     */
+    private void remember(LinkedHashSet<PagePosition> ghost, PagePosition position) {
+        if (position == null) {
+            return;
+        }
+        ghost.add(position);
+        while (t1Size + b1.size() > maxSize && !b1.isEmpty()) {
+            poll_ghost(b1);
+        }
+        while (t1Size + t2Size + b1.size() + b2.size() > 2 * maxSize && !b2.isEmpty()) {
+            poll_ghost(b2);
+        }
+    }
+
+    private static void poll_ghost(LinkedHashSet<PagePosition> ghost) {
+        Iterator<PagePosition> it = ghost.iterator();
+        it.next();
+        it.remove();
+    }
+}
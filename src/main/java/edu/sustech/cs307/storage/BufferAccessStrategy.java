@@ -0,0 +1,133 @@
+package edu.sustech.cs307.storage;
+
+import java.util.Arrays;
+
+/**
+ * 缓冲区访问策略：用一个私有的小环形缓冲区承载大表的顺序扫描或批量写入。
+ *
+ * <p>
+ * 使用策略的缺页不会从共享缓冲池中不断替换页面，而是循环复用环中的帧：环中下一个槽位上的帧若仍装着
+ * 该环之前读入的页面且未被固定，就直接回收它（脏页先写回）；否则才从共享缓冲池获取新帧并放入环中。
+ * 因此一次大表扫描最多占用环大小的帧，不会把其他查询的热点页面挤出缓冲池。
+ * 已经在缓冲池中的页面照常命中，不受策略影响。
+ * </p>
+ *
+ * <p>
+ * 一个策略对象属于一次扫描或一次批量写入，可以被该扫描的查询线程与预读线程同时使用。
+ * </p>
+ */
+public class BufferAccessStrategy {
+    // 顺序扫描的环大小，256KB
+    public static final int SCAN_RING_SIZE = 64;
+    // 批量写入的环大小，16MB；脏页在回收前必须写回，环更大可以让写回更连续
+    public static final int BULK_WRITE_RING_SIZE = 4096;
+
+    // 每个槽位上的帧号与该环在这个帧中装入的页面位置，帧号为 -1 表示空槽位
+    final int[] frames;
+    final PagePosition[] positions;
+    private int current = -1;
+
+    public BufferAccessStrategy(int ring_size) {
+        this.frames = new int[ring_size];
+        this.positions = new PagePosition[ring_size];
+        Arrays.fill(frames, -1);
+    }
+
+    /**
+     * 为顺序扫描选择访问策略：表的页面数超过缓冲池的四分之一时使用环形缓冲区。
+     *
+     * @param bufferPool 缓冲池
+     * @param table_pages 表的页面数
+     * @return 访问策略，小表返回 null，即直接使用共享缓冲池
+     */
+    public static BufferAccessStrategy ForScan(BufferPool bufferPool, int table_pages) {
+        return ForScan(bufferPool, table_pages, Page.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * 为页大小为 page_size 的表选择顺序扫描的访问策略。缓冲池的大小以默认页大小计，
+     * 因此表的大小与环的大小都按页大小换算。
+     *
+     * @param bufferPool  缓冲池
+     * @param table_pages 表的页面数
+     * @param page_size   表的页大小
+     * @return 访问策略，小表返回 null，即直接使用共享缓冲池
+     */
+    public static BufferAccessStrategy ForScan(BufferPool bufferPool, int table_pages, int page_size) {
+        return for_size(bufferPool, table_pages, page_size, SCAN_RING_SIZE);
+    }
+
+    /**
+     * 为批量写入选择访问策略：写入的页面数超过缓冲池的四分之一时使用环形缓冲区。
+     *
+     * @param bufferPool 缓冲池
+     * @param pages      预计写入的页面数
+     * @return 访问策略，写入量较小时返回 null
+     */
+    public static BufferAccessStrategy ForBulkWrite(BufferPool bufferPool, int pages) {
+        return ForBulkWrite(bufferPool, pages, Page.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * 为页大小为 page_size 的文件选择批量写入的访问策略，大小的换算与 ForScan 相同。
+     *
+     * @param bufferPool 缓冲池
+     * @param pages      预计写入的页面数
+     * @param page_size  文件的页大小
+     * @return 访问策略，写入量较小时返回 null
+     */
+    public static BufferAccessStrategy ForBulkWrite(BufferPool bufferPool, int pages, int page_size) {
+        return for_size(bufferPool, pages, page_size, BULK_WRITE_RING_SIZE);
+    }
+
+    private static BufferAccessStrategy for_size(BufferPool bufferPool, int pages, int page_size, int ring_size) {
+        int pool_size = bufferPool.getPoolSize();
+        int units = page_size / Page.DEFAULT_PAGE_SIZE;
+        if ((long) pages * units <= pool_size / 4) {
+            return null;
+        }
+        // 环最多占用缓冲池的八分之一
+        return new BufferAccessStrategy(Math.max(1, Math.min(ring_size, pool_size / 8) / units));
+    }
+
+    public int size() {
+        return frames.length;
+    }
+
+    /**
+     * 前进到下一个槽位。
+     *
+     * @return 槽位下标
+     */
+    synchronized int next_slot() {
+        current = (current + 1) % frames.length;
+        return current;
+    }
+
+    /**
+     * 取出槽位中记录的帧并清空该槽位。
+     *
+     * @param slot 槽位下标
+     * @return 帧号与页面位置，空槽位返回 null
+     */
+    synchronized Entry take(int slot) {
+        if (frames[slot] == -1) {
+            return null;
+        }
+        Entry entry = new Entry(frames[slot], positions[slot]);
+        frames[slot] = -1;
+        positions[slot] = null;
+        return entry;
+    }
+
+    /**
+     * 记录该环在槽位 slot 上的帧中装入了 position 处的页面。
+     */
+    synchronized void put(int slot, int frame_id, PagePosition position) {
+        frames[slot] = frame_id;
+        positions[slot] = position;
+    }
+
+    record Entry(int frameId, PagePosition position) {
+    }
+}
@@ -1,8 +1,16 @@
 package edu.sustech.cs307.storage;
 
 import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.exception.ExceptionTypes;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * BufferPool 类实现了一个缓冲池，用于管理页面的缓存。
@@ -16,46 +24,286 @@ import java.util.*;
  * - 删除页面（DeletePage）
  * - 刷新所有页面（FlushAllPages）
  * - 删除指定文件的所有页面（DeleteAllPages）
+ * - 提交语句（Commit）与检查点（Checkpoint）
+ *
+ * 若构造时提供了 LogManager，则启用预写日志：提交时只把脏页镜像写入重做日志并 fsync 一次，
+ * 数据页在被替换或检查点时才延迟写回。写回任何数据页之前，都会先保证其最新镜像已经持久化在日志中。
+ *
+ * 并发控制：
+ * - 页表为 ConcurrentHashMap，对同一页面位置的固定、取消固定、装入与替换由按位置散列的条带锁串行化；
+ * - 替换器与帧的认领序号由替换器自身的监视器保护，临界区只包含 O(1) 的操作；
+ * - 引脚计数为原子变量，页面内容由每个帧的读写锁保护，写回与写日志时持有读锁。
+ * 获取条带锁后才会获取替换器监视器，从不反向获取，也不会同时持有两个条带锁。
+ *
+ * 帧内容位于 {@link PageArena} 分配的堆外内存中，不占用 Java 堆。
+ * 帧在第一次需要时才创建，数量不超过当前的帧数上限；上限可以通过 SetPoolSize 在运行时调整，
+ * 缩小时会驱逐未固定的页面并回收其帧。
+ *
+ * 不同文件的页大小可以不同（见 {@link DiskManager#GetPageSize(String)}），每个帧的大小等于其中页面的大小。
+ * 帧数上限以默认页大小计：一个 16KB 的帧占 4 个单位。默认大小的帧位于 PageArena 中，更大的帧单独分配堆外内存。
+ * 缺页时优先复用大小相同的帧，否则回收大小不同的空闲帧或受害者帧，腾出空间后按需要的大小创建新帧。
+ *
+ * 启用预读（EnableReadAhead）后，每次获取页面都会通知 {@link ReadAhead}，由其在检测到顺序访问时
+ * 通过 PrefetchPages 异步地把后续页面读入缓冲池。
+ *
+ * 启用后台写回（StartPageCleaner）后，{@link PageCleaner} 线程会提前写回替换器尾部的脏页，
+ * 使缺页时选中的受害者通常已经是干净的，查询线程不必等待写盘。
+ *
+ * 缓冲池按文件记录每个文件装在哪些帧中，按文件刷新与删除页面只访问该文件的帧。
+ * 缓冲池另外记录所有脏页所在的帧。提交与检查点只检查这些帧；刷新时把脏页按 (文件, 偏移量) 排序，
+ * 连续的页面合并为一次聚集写，每个文件只 fsync 一次。
+ *
+ * 以内存映射方式读取的文件，FetchPageForRead 直接返回映射中的只读页面，不占用帧；修改仍然通过 FetchPage 进行。
+ *
+ * FetchPage、NewPage 与 PrefetchPages 可以传入 {@link BufferAccessStrategy}，使大表扫描与批量写入
+ * 循环复用一个私有的小环形缓冲区，而不会替换掉共享缓冲池中的其他页面。
  */
 public class BufferPool {
-    private final int poolSize;
-    // frames
-    private final ArrayList<Page> pages;
+    private static final int LATCH_STRIPE_BITS = 6;
+
+    // 帧数上限的最大值，决定帧号的范围
+    private final int maxPoolSize;
+    // 当前的帧数上限
+    private volatile int poolSize;
+    // frames，尚未创建或已回收的帧为 null
+    private final Page[] pages;
+    // 帧内容所在的堆外内存
+    private final PageArena arena;
+    // 已创建的帧号、已创建的帧数、帧占用的单位数（以默认页大小计）以及第一个未使用帧号的下界，由替换器监视器保护
+    private final BitSet allocatedFrames;
+    private int frameCount = 0;
+    private int frameUnits = 0;
+    private int firstFreeFrameId = 0;
 
     // PagePosition -> frame_id
-    private final HashMap<PagePosition, Integer> pageMap;
-    private final LinkedList<Integer> freeList;
+    private final ConcurrentHashMap<PagePosition, Integer> pageMap;
+    // 文件号 -> 该文件装在缓冲池中的帧号，与 pageMap 同时在页面的条带锁下修改
+    private final ConcurrentHashMap<Integer, Set<Integer>> fileFrames;
+    private final ConcurrentLinkedDeque<Integer> freeList;
+    // 页表条带锁，按页面位置散列
+    private final ReentrantLock[] pageTableLatches;
     private final DiskManager diskManager;
-    private final LRUReplacer lruReplacer;
+    // 同时作为替换器与 claims 的监视器
+    private final Replacer replacer;
+    // 帧被 Victim 选中时记录的认领序号；被重新固定或删除时清零，使过期的认领失效
+    private final long[] claims;
+    private long claimSequence = 0;
+    // 为 null 时不使用预写日志，页面写回时直接 fsync
+    private final LogManager logManager;
+    // 自上次检查点以来写过但尚未 fsync 的数据文件
+    private final Set<String> unsyncedFiles;
+    // 装着脏页的帧号。页面被标记为脏页后一定在其中，反之不一定（写回后才移除）
+    private final Set<Integer> dirtyFrames;
+    // 写回数据页的次数，预读据此判断读到的页面是否可能已经过期
+    private final AtomicLong writeBackCount = new AtomicLong();
+    // 文件号 -> 文件的页面被删除或截断的次数，预读据此丢弃在此之前读到的页面。条目不删除，使计数不会回到旧值
+    private final ConcurrentHashMap<Integer, Long> fileGenerations = new ConcurrentHashMap<>();
+    // 为 null 时不预读
+    private volatile ReadAhead readAhead;
+    // 为 null 时不进行后台写回
+    private volatile PageCleaner pageCleaner;
+    // 替换时由查询线程同步写回的脏页数，以及后台写回的脏页数
+    private final AtomicLong foregroundWrites = new AtomicLong();
+    private final AtomicLong cleanerWrites = new AtomicLong();
+    // 预读线程读取连续页面时使用的缓冲区
+    private static final ThreadLocal<ByteBuffer> PREFETCH_BUFFER = new ThreadLocal<>();
+    // 刷新时一批最多固定的脏页数，256 页即 1MB
+    private static final int FLUSH_BATCH_PAGES = 256;
 
     /**
-     * 构造一个 BufferPool 实例。
+     * 构造一个不使用预写日志的 BufferPool 实例。
      *
      * @param pool_size   缓冲池的大小
      * @param diskManager 磁盘管理器，用于管理磁盘操作
      */
     public BufferPool(int pool_size, DiskManager diskManager) {
-        this.poolSize = pool_size;
-        this.lruReplacer = new LRUReplacer(pool_size);
-        this.freeList = new LinkedList<>();
-        for (int i = 0; i < pool_size; i++) {
-            freeList.add(i);
-        }
-        this.pageMap = new HashMap<>();
-        this.pages = new ArrayList<>();
-        for (int i = 0; i < pool_size; i++) {
-            Page page = new Page();
-            pages.add(page);
+        this(pool_size, diskManager, null);
+    }
+
+    /**
+     * 构造一个 BufferPool 实例。
+     *
+     * @param pool_size   缓冲池的大小
+     * @param diskManager 磁盘管理器，用于管理磁盘操作
+     * @param logManager  重做日志管理器，为 null 时不使用预写日志
+     */
+    public BufferPool(int pool_size, DiskManager diskManager, LogManager logManager) {
+        this(pool_size, diskManager, logManager, new LRUReplacer(pool_size));
+    }
+
+    /**
+     * 构造一个使用指定替换策略的 BufferPool 实例。
+     *
+     * @param pool_size   缓冲池的大小
+     * @param diskManager 磁盘管理器，用于管理磁盘操作
+     * @param logManager  重做日志管理器，为 null 时不使用预写日志
+     * @param replacer    页面替换策略，帧数应与 pool_size 相同
+     */
+    public BufferPool(int pool_size, DiskManager diskManager, LogManager logManager, Replacer replacer) {
+        this(pool_size, pool_size, diskManager, logManager, replacer);
+    }
+
+    /**
+     * 构造一个可以在运行时调整大小的 BufferPool 实例。构造时不创建任何帧。
+     *
+     * @param pool_size     初始的帧数上限
+     * @param max_pool_size 通过 SetPoolSize 可以设置的最大帧数
+     * @param diskManager   磁盘管理器，用于管理磁盘操作
+     * @param logManager    重做日志管理器，为 null 时不使用预写日志
+     * @param replacer      页面替换策略，帧数应与 max_pool_size 相同
+     */
+    public BufferPool(int pool_size, int max_pool_size, DiskManager diskManager, LogManager logManager,
+            Replacer replacer) {
+        this.maxPoolSize = max_pool_size;
+        this.poolSize = Math.min(pool_size, max_pool_size);
+        this.replacer = replacer;
+        this.claims = new long[max_pool_size];
+        this.freeList = new ConcurrentLinkedDeque<>();
+        this.pageMap = new ConcurrentHashMap<>();
+        this.fileFrames = new ConcurrentHashMap<>();
+        this.pageTableLatches = new ReentrantLock[1 << LATCH_STRIPE_BITS];
+        for (int i = 0; i < pageTableLatches.length; i++) {
+            pageTableLatches[i] = new ReentrantLock();
         }
+        this.arena = new PageArena(max_pool_size);
+        this.pages = new Page[max_pool_size];
+        this.allocatedFrames = new BitSet(max_pool_size);
         this.diskManager = diskManager;
+        this.logManager = logManager;
+        this.unsyncedFiles = ConcurrentHashMap.newKeySet();
+        this.dirtyFrames = ConcurrentHashMap.newKeySet();
     }
 
     public int getPoolSize() {
         return poolSize;
     }
 
+    /**
+     * 启用顺序预读。
+     */
+    public void EnableReadAhead() {
+        if (readAhead == null) {
+            readAhead = new ReadAhead(this, diskManager);
+        }
+    }
+
+    public ReadAhead getReadAhead() {
+        return readAhead;
+    }
+
+    /**
+     * 启动后台写回线程。
+     */
+    public void StartPageCleaner() {
+        if (pageCleaner == null) {
+            pageCleaner = new PageCleaner(this);
+            pageCleaner.Start();
+        }
+    }
+
+    public PageCleaner getPageCleaner() {
+        return pageCleaner;
+    }
+
+    /**
+     * @return 替换页面时由查询线程同步写回的脏页数
+     */
+    public long getForegroundWrites() {
+        return foregroundWrites.get();
+    }
+
+    /**
+     * @return 由后台写回写出的脏页数
+     */
+    public long getCleanerWrites() {
+        return cleanerWrites.get();
+    }
+
+    /**
+     * @return 当前的脏页数
+     */
+    public int getDirtyPageCount() {
+        int count = 0;
+        for (int frame_id : dirtyFrames) {
+            Page page = pages[frame_id];
+            if (page != null && page.dirty) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    /**
+     * @return 当前已经创建的帧数
+     */
+    public int getFrameCount() {
+        synchronized (replacer) {
+            return frameCount;
+        }
+    }
+
+    /**
+     * 调整缓冲池的帧数上限。
+     *
+     * 扩大时不立即分配内存，新帧在需要时才创建；缩小时先回收空闲帧，再按替换策略驱逐未固定的页面
+     * （脏页先写回）并回收其帧，直到帧数不超过新的上限。被固定的页面不能立即驱逐，
+     * 它们的帧会在之后被替换时回收。
+     *
+     * @param pool_size 新的帧数上限，范围为 [1, max_pool_size]
+     * @return 调整后实际持有的帧数
+     * @throws DBException 如果上限超出范围或写回页面时发生错误
+     */
+    public int SetPoolSize(int pool_size) throws DBException {
+        if (pool_size < 1 || pool_size > maxPoolSize) {
+            throw new DBException(ExceptionTypes.InvalidParameter("buffer_pool_size",
+                    String.format("%d is not in [1, %d]", pool_size, maxPoolSize)));
+        }
+        this.poolSize = pool_size;
+        while (over_capacity()) {
+            Integer free = freeList.poll();
+            int frame_id = free != null ? free : evict_victim();
+            if (frame_id == -1) {
+                break;
+            }
+            retire_frame(frame_id);
+        }
+        return getFrameCount();
+    }
+
+    /**
+     * 只设置页面的脏标志，不会把页面加入缓冲池的脏页列表。
+     * 缓冲池中的页面应通过 unpin_page 或 {@link #MarkPageDirty(PagePosition)} 标记，否则提交与刷新时不会写出它。
+     *
+     * @param page 页面
+     */
     public static void MarkPageDirty(Page page) {
         page.dirty = true;
+        page.logged = false;
+    }
+
+    /**
+     * 将缓冲池中指定位置的页面标记为脏页，不改变其引脚计数。
+     *
+     * @param position 页面位置
+     * @return 页面在缓冲池中则返回 true，否则返回 false
+     */
+    public boolean MarkPageDirty(PagePosition position) {
+        ReentrantLock latch = latch_for(position);
+        latch.lock();
+        try {
+            Integer frame_id = pageMap.get(position);
+            if (frame_id == null || pages[frame_id].discarded) {
+                return false;
+            }
+            mark_dirty(frame_id);
+            return true;
+        } finally {
+            latch.unlock();
+        }
     }
 
     /**
@@ -67,28 +315,121 @@ public class BufferPool {
      * @throws DBException 如果在获取页面过程中发生数据库异常
      */
     public Page FetchPage(PagePosition position) throws DBException {
-        if (pageMap.containsKey(position)) {
+        return FetchPage(position, null);
+    }
+
+    /**
+     * 使用指定的访问策略获取页面。缺页时从策略的环形缓冲区中获取帧，命中时与 FetchPage 相同。
+     *
+     * @param position 页面在磁盘上的位置，包括文件名和偏移量
+     * @param strategy 访问策略，为 null 时使用共享缓冲池
+     * @return 返回请求的页面，如果没有可用页面则返回 null
+     * @throws DBException 如果在获取页面过程中发生数据库异常
+     */
+    public Page FetchPage(PagePosition position, BufferAccessStrategy strategy) throws DBException {
+        Page page = fetch_page(position, strategy);
+        ReadAhead prefetcher = readAhead;
+        if (page != null && prefetcher != null) {
+            prefetcher.OnAccess(page.position, strategy);
+        }
+        return page;
+    }
+
+    /**
+     * 为只读访问获取页面。
+     *
+     * 文件以内存映射方式读取（见 {@link DiskManager#SetMemoryMapped(String, boolean)}）且页面不在缓冲池中时，
+     * 直接返回内存映射中的只读页面：它不占用帧、不进入页表。用完后必须通过 {@link #unpin_page(Page, boolean)}
+     * 归还，按位置取消固定会作用于之后装入缓冲池的同一页面。
+     * 页面在缓冲池中时（可能有尚未写回的修改）照常固定并返回缓冲池中的页面。
+     * 不在缓冲池中的页面在磁盘上的内容总是最新的，因为替换页面前会先写回。
+     * 其他情况与 {@link #FetchPage(PagePosition, BufferAccessStrategy)} 相同。
+     *
+     * @param position 页面在磁盘上的位置，包括文件名和偏移量
+     * @param strategy 访问策略，为 null 时使用共享缓冲池
+     * @return 返回请求的页面，调用者不能修改它
+     * @throws DBException 如果在获取页面过程中发生数据库异常
+     */
+    public Page FetchPageForRead(PagePosition position, BufferAccessStrategy strategy) throws DBException {
+        if (diskManager.IsMemoryMapped(position.filename)) {
+            ReentrantLock latch = latch_for(position);
+            latch.lock();
+            try {
+                Integer frame_id = pageMap.get(position);
+                if (frame_id != null) {
+                    return pin(frame_id);
+                }
+            } finally {
+                latch.unlock();
+            }
+            ByteBuffer mapped = diskManager.MapPage(position.filename, position.offset);
+            if (mapped != null) {
+                Page page = new Page(Unpooled.wrappedBuffer(mapped));
+                page.position = new PagePosition(position.filename, position.offset);
+                page.mapped = true;
+                return page;
+            }
+        }
+        return FetchPage(position, strategy);
+    }
+
+    private Page fetch_page(PagePosition position, BufferAccessStrategy strategy) throws DBException {
+        ReentrantLock latch = latch_for(position);
+        latch.lock();
+        try {
             Integer frame_id = pageMap.get(position);
-            Page page = pages.get(frame_id);
-            page.pin_count++;
-            if (page.pin_count == 1) {
-                lruReplacer.Pin(frame_id);
-            }
-            return page;
-        } else {
-            int frame_id = find_victim_page();
-            if (frame_id == -1) {
-                return null;
+            if (frame_id != null) {
+                return pin(frame_id);
             }
-            Page page = pages.get(frame_id);
-            update_page(page, position, frame_id);
-            diskManager.ReadPage(page, position.filename, position.offset, Page.DEFAULT_PAGE_SIZE);
-            page.pin_count++;
-            if (page.pin_count == 1) {
-                lruReplacer.Pin(frame_id);
+        } finally {
+            latch.unlock();
+        }
+        // 替换受害者时需要获取受害者页面的条带锁，因此不能持有当前条带锁
+        int slot = strategy == null ? -1 : strategy.next_slot();
+        int frame_id = acquire_frame(strategy, slot, diskManager.GetPageSize(position.filename));
+        if (frame_id == -1) {
+            return null;
+        }
+        latch.lock();
+        try {
+            Integer loaded = pageMap.get(position);
+            if (loaded != null) {
+                // 其他线程已经装入了该页面
+                freeList.add(frame_id);
+                return pin(loaded);
             }
-            return page;
+            Page page = install(frame_id, position);
+            try {
+                diskManager.ReadPage(page, page.position.filename, page.position.offset, page.size());
+            } catch (DBException e) {
+                unmap_page(page.position, frame_id);
+                freeList.add(frame_id);
+                throw e;
+            }
+            if (strategy != null) {
+                strategy.put(slot, frame_id, page.position);
+            }
+            return pin(frame_id);
+        } finally {
+            latch.unlock();
+        }
+    }
+
+    /**
+     * 取消固定 FetchPage 或 FetchPageForRead 返回的页面。内存映射中的只读页面不在缓冲池中，
+     * 只把它归还给 DiskManager，不影响缓冲池中同一位置的页面。
+     *
+     * @param page     要取消固定的页面
+     * @param is_dirty 页面是否被修改，内存映射中的页面不能被修改
+     * @return 缓冲池中的页面被取消固定时返回 true，内存映射中的页面返回 false
+     * @throws DBException 如果归还映射页面时执行被推迟的截断失败
+     */
+    public boolean unpin_page(Page page, boolean is_dirty) throws DBException {
+        if (page.mapped) {
+            diskManager.ReleaseMappedPage(page.position.filename);
+            return false;
         }
+        return unpin_page(page.position, is_dirty);
     }
 
     /**
@@ -98,20 +439,38 @@ public class BufferPool {
      * @param {bool}     is_dirty 若目标page应该被标记为dirty则为true，否则为false
      */
     public boolean unpin_page(PagePosition position, boolean is_dirty) {
-        Integer frame_id = pageMap.get(position);
-        if (frame_id != null) {
-            Page page = pages.get(frame_id);
-            if (page.pin_count == 0) {
+        ReentrantLock latch = latch_for(position);
+        latch.lock();
+        try {
+            Integer frame_id = pageMap.get(position);
+            if (frame_id == null) {
                 return false;
             }
-            page.pin_count--;
+            Page page = pages[frame_id];
             if (page.pin_count == 0) {
-                lruReplacer.Unpin(frame_id);
+                return false;
+            }
+            if (is_dirty && !page.discarded) {
+                mark_dirty(frame_id);
+            }
+            if (page.unpin() == 0) {
+                if (page.discarded) {
+                    // 文件已被删除，最后一个持有者取消固定时回收帧
+                    unmap_page(position, frame_id);
+                    synchronized (replacer) {
+                        replacer.Remove(frame_id);
+                        claims[frame_id] = 0;
+                    }
+                    freeList.add(frame_id);
+                } else {
+                    synchronized (replacer) {
+                        replacer.Unpin(frame_id);
+                    }
+                }
             }
-            page.dirty |= is_dirty;
             return true;
-        } else {
-            return false;
+        } finally {
+            latch.unlock();
         }
     }
 
@@ -121,14 +480,18 @@ public class BufferPool {
      * @param {PageId} page_id 目标页的page_id，不能为INVALID_PAGE_ID
      */
     public boolean FlushPage(PagePosition position) throws DBException {
-        Integer frame_id = pageMap.get(position);
-        if (frame_id != null) {
-            Page page = pages.get(frame_id);
-            diskManager.FlushPage(page);
-            page.dirty = false;
-            return true;
-        } else {
-            return false;
+        ReentrantLock latch = latch_for(position);
+        latch.lock();
+        try {
+            Integer frame_id = pageMap.get(position);
+            if (frame_id != null) {
+                flush_page(frame_id);
+                return true;
+            } else {
+                return false;
+            }
+        } finally {
+            latch.unlock();
         }
     }
 
@@ -140,23 +503,60 @@ public class BufferPool {
      * @throws DBException 如果在分配页面时发生错误
      */
     public Page NewPage(String filename) throws DBException {
-        int frame_id = find_victim_page();
+        return NewPage(filename, null);
+    }
+
+    /**
+     * 使用指定的访问策略创建新页面，新页面的帧从策略的环形缓冲区中获取。
+     *
+     * @param filename 要分配页面的文件名
+     * @param strategy 访问策略，为 null 时使用共享缓冲池
+     * @return 新创建的页面，如果没有可用的页面则返回 null
+     * @throws DBException 如果在分配页面时发生错误
+     */
+    public Page NewPage(String filename, BufferAccessStrategy strategy) throws DBException {
+        int page_size = diskManager.GetPageSize(filename);
+        int slot = strategy == null ? -1 : strategy.next_slot();
+        int frame_id = acquire_frame(strategy, slot, page_size);
         if (frame_id == -1) {
             return null;
         }
-        int new_page_offset = diskManager.AllocatePage(filename) * Page.DEFAULT_PAGE_SIZE;
-        Page page = pages.get(frame_id);
-
+        int new_page_offset = diskManager.AllocatePage(filename) * page_size;
         PagePosition position = new PagePosition(filename, new_page_offset);
-        update_page(page, position, frame_id);
-
-        diskManager.FlushPage(page);
-        page.pin_count++;
-
-        if (page.pin_count == 1) {
-            lruReplacer.Pin(frame_id);
+        ReentrantLock latch = latch_for(position);
+        latch.lock();
+        try {
+            Integer stale = pageMap.get(position);
+            if (stale != null) {
+                // 截断或删除之前读入的页面不会被写回，但仍然占着这个位置；新页面的内容全为零，丢弃旧页面
+                if (pages[stale].pin_count > 0) {
+                    freeList.add(frame_id);
+                    throw new RuntimeException(String.format("%s: page %d is allocated again while still pinned",
+                            filename, new_page_offset / page_size));
+                }
+                free_frame(position, stale);
+            }
+            Page page = install(frame_id, position);
+            // AllocatePage 已经按区预分配了文件中的页面，全零的新页面不必立即写出，
+            // 修改后的内容随脏页写回；启用预写日志时在检查点同步扩展后的文件
+            if (logManager != null) {
+                unsyncedFiles.add(filename);
+            }
+            if (strategy != null) {
+                strategy.put(slot, frame_id, page.position);
+            }
+            return pin(frame_id);
+        } finally {
+            latch.unlock();
         }
-        return page;
+    }
+
+    /**
+     * @param position 页面位置
+     * @return 页面当前是否在缓冲池中
+     */
+    public boolean IsResident(PagePosition position) {
+        return pageMap.containsKey(position);
     }
 
     /**
@@ -167,108 +567,845 @@ public class BufferPool {
      * @throws DBException 如果在删除过程中发生数据库异常。
      */
     public boolean DeletePage(PagePosition position) throws DBException {
-        Integer frame_id = pageMap.get(position);
-        if (frame_id != null) {
-            Page page = pages.get(frame_id);
+        ReentrantLock latch = latch_for(position);
+        latch.lock();
+        try {
+            Integer frame_id = pageMap.get(position);
+            if (frame_id == null) {
+                return false;
+            }
+            Page page = pages[frame_id];
             if (page.pin_count > 0) {
                 return false;
             }
             if (page.dirty) {
-                diskManager.FlushPage(page);
-                page.dirty = false;
+                write_back(frame_id);
+            }
+            unmap_page(position, frame_id);
+            synchronized (replacer) {
+                replacer.Remove(frame_id);
+                claims[frame_id] = 0;
             }
-            pages.remove(frame_id);
-            pageMap.remove(position);
             freeList.add(frame_id);
             // pin count must be 0
             return true;
-        } else {
-            return false;
+        } finally {
+            latch.unlock();
         }
+    }
 
+    /**
+     * 把文件中从 first_page 开始的连续 count 个页面读入缓冲池，但不固定它们。
+     * 已在缓冲池中的页面被跳过，其余连续缺失的页面各用一次定位读读入；没有可用的帧时提前停止。
+     *
+     * @param filename   文件名
+     * @param first_page 第一个页面的页号
+     * @param count      页面数
+     * @return 实际读入的页面数
+     * @throws DBException 如果读取页面或写回被替换的页面时发生错误
+     */
+    public int PrefetchPages(String filename, int first_page, int count) throws DBException {
+        return PrefetchPages(filename, first_page, count, null);
+    }
+
+    /**
+     * 使用指定的访问策略预读页面，预读的页面装入策略的环形缓冲区。
+     *
+     * @param filename   文件名
+     * @param first_page 第一个页面的页号
+     * @param count      页面数
+     * @param strategy   访问策略，为 null 时使用共享缓冲池
+     * @return 实际读入的页面数
+     * @throws DBException 如果读取页面或写回被替换的页面时发生错误
+     */
+    public int PrefetchPages(String filename, int first_page, int count, BufferAccessStrategy strategy)
+            throws DBException {
+        int page_size = diskManager.GetPageSize(filename);
+        int loaded = 0;
+        int page_no = first_page;
+        int end = first_page + count;
+        while (page_no < end) {
+            if (pageMap.containsKey(new PagePosition(filename, page_no * page_size))) {
+                page_no++;
+                continue;
+            }
+            int run_end = page_no + 1;
+            while (run_end < end && !pageMap.containsKey(new PagePosition(filename, run_end * page_size))) {
+                run_end++;
+            }
+            int run = prefetch_run(filename, page_no, run_end - page_no, strategy);
+            loaded += run;
+            if (run < run_end - page_no) {
+                break;
+            }
+            page_no = run_end;
+        }
+        return loaded;
     }
 
     /**
-     * 将指定文件的所有页面刷新到磁盘。
+     * 执行一轮后台写回：按替换顺序检查最先会被替换的 target 个帧，写回其中未被固定的脏页，
+     * 最多写回 max_writes 个。空闲帧与尚未创建的帧足够多时不需要写回。
      *
-     * @param filename 要刷新的文件名
+     * @param target     希望保持干净的可替换帧数
+     * @param max_writes 本轮最多写回的页面数
+     * @return 写回的页面数
+     * @throws DBException 如果写日志或写页面时发生错误
+     */
+    public int CleanPages(int target, int max_writes) throws DBException {
+        int[] candidates;
+        synchronized (replacer) {
+            int available = freeList.size() + Math.max(0, poolSize - frameUnits);
+            if (available >= target) {
+                return 0;
+            }
+            candidates = replacer.Candidates(target - available);
+        }
+        int written = 0;
+        for (int frame_id : candidates) {
+            if (written >= max_writes) {
+                break;
+            }
+            Page page = pages[frame_id];
+            if (page == null || !page.dirty) {
+                continue;
+            }
+            PagePosition position = page.position;
+            ReentrantLock latch = latch_for(position);
+            latch.lock();
+            try {
+                // 列出候选之后该帧可能已被重新固定或替换
+                if (Objects.equals(pageMap.get(position), frame_id) && page.pin_count == 0 && page.dirty) {
+                    write_back(frame_id);
+                    written++;
+                }
+            } finally {
+                latch.unlock();
+            }
+        }
+        cleanerWrites.addAndGet(written);
+        return written;
+    }
+
+    /**
+     * 将指定文件的所有脏页刷新到磁盘。脏页按偏移量排序，连续的页面合并写出，每个文件只 fsync 一次。
+     *
+     * @param filename 要刷新的文件名，为 null 或空串时刷新所有文件
      * @throws DBException 如果在刷新过程中发生数据库异常
      */
     public void FlushAllPages(String filename) throws DBException {
-        for (Map.Entry<PagePosition, Integer> entry : this.pageMap.entrySet()) {
-            PagePosition position = entry.getKey();
-            Integer frame_id = entry.getValue();
-            if (filename.equals("") || position.filename.equals(filename)) {
-                Page page = pages.get(frame_id);
-                diskManager.FlushPage(page);
-                page.dirty = false;
+        for (String written : flush_dirty_pages(filename)) {
+            // 已被删除的表不需要同步
+            if (diskManager.IsFileExists(written)) {
+                diskManager.SyncFile(written);
+            }
+        }
+    }
+
+    /**
+     * 提交当前语句的修改。
+     *
+     * 启用预写日志时，把脏页列表中尚未记录的脏页镜像追加到重做日志，并通过一次日志 fsync 持久化，
+     * 数据页保留在缓冲池中延迟写回；日志过大时顺带执行检查点。未启用时退化为刷新所有页面。
+     *
+     * @throws DBException 如果写日志或写回页面时发生错误
+     */
+    public void Commit() throws DBException {
+        if (logManager == null) {
+            FlushAllPages("");
+            return;
+        }
+        for (int frame_id : dirtyFrames) {
+            Page page = pages[frame_id];
+            if (page == null) {
+                continue;
+            }
+            PagePosition position = page.position;
+            ReentrantLock latch = latch_for(position);
+            latch.lock();
+            try {
+                if (!Objects.equals(pageMap.get(position), frame_id)) {
+                    continue;
+                }
+                if (page.dirty && !page.logged && !page.discarded) {
+                    page.RLatch();
+                    try {
+                        logManager.AppendPage(page);
+                    } finally {
+                        page.RUnlatch();
+                    }
+                }
+            } finally {
+                latch.unlock();
             }
         }
+        logManager.Commit();
+        if (logManager.NeedCheckpoint()) {
+            Checkpoint();
+        }
     }
 
     /**
-     * 删除指定文件名的所有页面。
+     * 执行检查点：合并写回所有脏页，对写过的数据文件各 fsync 一次，持久化各文件已分配的页面数，
+     * 然后截断重做日志中检查点开始之前的记录。被截断的页面镜像不能再在恢复时修复页面数，因此页面数必须先落盘。
+     * 检查点期间其他线程追加的记录保留在日志中。未启用预写日志时退化为刷新所有页面。
+     *
+     * @throws DBException 如果写回页面或截断日志时发生错误
+     */
+    public void Checkpoint() throws DBException {
+        if (logManager == null) {
+            FlushAllPages("");
+            return;
+        }
+        // 在此之前追加的记录涉及的页面或者仍是脏页，或者已写回而所在文件尚未同步，都由下面的写回与同步覆盖
+        long lsn = logManager.getAppendLsn();
+        flush_dirty_pages(null);
+        for (String filename : unsyncedFiles) {
+            // 已被删除的表不需要同步
+            if (diskManager.IsFileExists(filename)) {
+                diskManager.SyncFile(filename);
+            }
+            unsyncedFiles.remove(filename);
+        }
+        DiskManager.dump_disk_manager_meta(diskManager);
+        logManager.Truncate(lsn);
+    }
+
+    /**
+     * 丢弃指定文件在缓冲池中的所有页面，用于删除文件之前：脏页不写回，只访问该文件的帧。
+     *
+     * 未固定页面的帧回到空闲列表。仍被固定的页面留在页表中，使持有者的 unpin_page 仍然作用于它，
+     * 但被标记为已丢弃：不再被标记为脏页或写回，最后一次取消固定时帧被回收。在此之前再次获取该位置
+     * 得到的仍是这个页面，因此调用者应保证文件删除之后不再有新的访问。
+     * 该文件已提交的预读随之失效，见 {@link #InvalidatePrefetches(String)}。
      *
      * @param filename 要删除页面的文件名
      * @throws DBException 如果在删除过程中发生数据库异常
      */
     public void DeleteAllPages(String filename) throws DBException {
-        ArrayList<PagePosition> positions = new ArrayList<>();
-        for (Map.Entry<PagePosition, Integer> entry : this.pageMap.entrySet()) {
-            if (entry.getKey().filename.equals(filename)) {
-                positions.add(entry.getKey());
+        InvalidatePrefetches(filename);
+        for (int frame_id : file_frames(filename)) {
+            Page page = pages[frame_id];
+            if (page == null) {
+                continue;
             }
+            PagePosition position = page.position;
+            ReentrantLock latch = latch_for(position);
+            latch.lock();
+            try {
+                if (!Objects.equals(pageMap.get(position), frame_id)) {
+                    continue;
+                }
+                page.dirty = false;
+                dirtyFrames.remove(frame_id);
+                if (page.pin_count > 0) {
+                    page.discarded = true;
+                    continue;
+                }
+                free_frame(position, frame_id);
+            } finally {
+                latch.unlock();
+            }
+        }
+    }
+
+    /**
+     * 使指定文件已经提交的预读失效：此后预读线程只装入在调用之后才读盘的页面，之前读到的内容被丢弃。
+     * 删除或截断文件的页面之前调用，否则在此之前读到的旧内容可能在删除之后才装入缓冲池，
+     * 被重新创建的同名文件或重新分配的页面读到。
+     *
+     * @param filename 文件名
+     */
+    public void InvalidatePrefetches(String filename) {
+        fileGenerations.merge(FileId.of(filename).id, 1L, Long::sum);
+        ReadAhead prefetcher = readAhead;
+        if (prefetcher != null) {
+            prefetcher.Forget(filename);
         }
-        for (PagePosition position : positions) {
-            DeletePage(position);
+    }
+
+    /**
+     * @param filename 文件名
+     * @return 该文件在缓冲池中的页面数
+     */
+    public int getResidentPageCount(String filename) {
+        return file_frames(filename).size();
+    }
+
+    /**
+     * 返回页面位置对应的页表条带锁。
+     * 页面偏移量都是页大小的整数倍，因此先乘以黄金分割常数打散再取高位。
+     */
+    private ReentrantLock latch_for(PagePosition position) {
+        int stripe = (position.hashCode() * 0x9E3779B9) >>> (32 - LATCH_STRIPE_BITS);
+        return pageTableLatches[stripe];
+    }
+
+    /**
+     * 固定一个已在页表中的帧。调用者必须持有该页面的条带锁。
+     */
+    private Page pin(int frame_id) {
+        Page page = pages[frame_id];
+        if (page.pin() == 1) {
+            synchronized (replacer) {
+                // 重新固定使正在进行的替换认领失效
+                claims[frame_id] = 0;
+                replacer.Pin(frame_id);
+            }
         }
+        return page;
     }
 
     /**
-     * 查找一个受害者页面以进行替换。
+     * 获取一个大小为 page_size 的空闲帧。
      * 
-     * 如果自由列表不为空，则从中移除并返回一个页面ID。
-     * 否则，使用LRU替换算法选择一个页面ID。如果选择的页面是脏页，
-     * 则将其刷新到磁盘。返回找到的页面ID。
+     * 如果自由列表不为空，则从中移除并返回一个大小相同的帧；否则在帧占用的单位数允许时创建新帧；
+     * 再否则驱逐一个受害者页面。大小不同的空闲帧与受害者帧被回收，腾出空间后再创建新帧。
+     * 返回的帧不在页表与替换器中，由调用者独占。
      * 
-     * @return 被替换的页面ID，如果没有可替换的页面则返回-1。
-     * @throws DBException 如果在查找或刷新页面时发生错误。
-     */
-    private int find_victim_page() throws DBException {
-        if (!freeList.isEmpty()) {
-            return freeList.removeFirst();
-        } else {
-            int frame_id = lruReplacer.Victim();
-            if (frame_id != -1) {
-                Page page = pages.get(frame_id);
+     * @param page_size 帧的大小
+     * @return 获得的帧号，如果没有可替换的页面则返回-1。
+     * @throws DBException 如果在写回页面时发生错误。
+     */
+    private int acquire_frame(int page_size) throws DBException {
+        Integer free;
+        while ((free = freeList.poll()) != null) {
+            if (pages[free].size() == page_size && !over_capacity()) {
+                return free;
+            }
+            retire_frame(free);
+        }
+        while (true) {
+            int created = create_frame(page_size);
+            if (created != -1) {
+                return created;
+            }
+            int frame_id = evict_victim();
+            if (frame_id == -1) {
+                return -1;
+            }
+            if (pages[frame_id].size() == page_size && !over_capacity()) {
+                return frame_id;
+            }
+            // 大小不同的帧，或缩小上限时未能驱逐的帧，在被替换时回收
+            retire_frame(frame_id);
+        }
+    }
+
+    /**
+     * 为使用访问策略的缺页获取帧：优先回收环中 slot 槽位上的帧，无法回收时再从共享缓冲池获取。
+     * 调用者装入页面后应调用 strategy.put 把帧记录到该槽位。
+     *
+     * @param strategy  访问策略，为 null 时等同于 acquire_frame(page_size)
+     * @param slot      strategy.next_slot() 返回的槽位
+     * @param page_size 帧的大小
+     * @return 获得的帧号，如果没有可替换的页面则返回-1
+     * @throws DBException 如果在写回页面时发生错误
+     */
+    private int acquire_frame(BufferAccessStrategy strategy, int slot, int page_size) throws DBException {
+        if (strategy != null) {
+            BufferAccessStrategy.Entry entry = strategy.take(slot);
+            if (entry != null && reclaim(entry.frameId(), entry.position())) {
+                if (pages[entry.frameId()].size() == page_size) {
+                    return entry.frameId();
+                }
+                retire_frame(entry.frameId());
+            }
+        }
+        return acquire_frame(page_size);
+    }
+
+    /**
+     * 回收环形缓冲区中的一个帧：只有该帧仍装着环之前读入的页面且未被固定时才回收，
+     * 脏页先写回，然后将其从页表与替换器中移除。
+     *
+     * @param frame_id 帧号
+     * @param position 环在该帧中装入的页面位置
+     * @return 回收成功返回 true，此时帧由调用者独占
+     * @throws DBException 如果在写回页面时发生错误
+     */
+    private boolean reclaim(int frame_id, PagePosition position) throws DBException {
+        ReentrantLock latch = latch_for(position);
+        latch.lock();
+        try {
+            Page page = pages[frame_id];
+            // 帧已被共享缓冲池替换给其他页面，或正在被使用
+            if (!Objects.equals(pageMap.get(position), frame_id) || page.pin_count > 0) {
+                return false;
+            }
+            synchronized (replacer) {
+                replacer.Remove(frame_id);
+                // 使其他线程对该帧正在进行的替换认领失效
+                claims[frame_id] = 0;
+            }
+            if (page.dirty) {
+                write_back(frame_id);
+                foregroundWrites.incrementAndGet();
+            }
+            unmap_page(position, frame_id);
+            return true;
+        } finally {
+            latch.unlock();
+        }
+    }
+
+    /**
+     * 帧占用的单位数未达到上限时创建一个大小为 page_size 的新帧。
+     * 默认大小的帧从 PageArena 中切出，更大的帧单独分配堆外内存；
+     * 缓冲池为空时总能创建一个帧，即使它比上限更大。
+     *
+     * @param page_size 帧的大小
+     * @return 新帧的帧号，已达到上限时返回 -1
+     */
+    private int create_frame(int page_size) {
+        int units = page_size / Page.DEFAULT_PAGE_SIZE;
+        int frame_id;
+        synchronized (replacer) {
+            if (frameUnits > 0 && frameUnits + units > poolSize) {
+                return -1;
+            }
+            // 优先复用最小的帧号，使帧集中在少数 slab 中
+            frame_id = allocatedFrames.nextClearBit(firstFreeFrameId);
+            allocatedFrames.set(frame_id);
+            firstFreeFrameId = frame_id + 1;
+            frameCount++;
+            frameUnits += units;
+        }
+        ByteBuf data = units == 1
+                ? arena.slice(frame_id)
+                : Unpooled.wrappedBuffer(ByteBuffer.allocateDirect(page_size)).clear();
+        pages[frame_id] = new Page(data);
+        return frame_id;
+    }
+
+    /**
+     * 回收一个独占的帧（不在页表、替换器与空闲列表中），释放其内存。
+     *
+     * @param frame_id 帧号
+     */
+    private void retire_frame(int frame_id) {
+        int units = pages[frame_id].size() / Page.DEFAULT_PAGE_SIZE;
+        pages[frame_id] = null;
+        if (units == 1) {
+            arena.release(frame_id);
+        }
+        synchronized (replacer) {
+            allocatedFrames.clear(frame_id);
+            firstFreeFrameId = Math.min(firstFreeFrameId, frame_id);
+            frameCount--;
+            frameUnits -= units;
+        }
+    }
+
+    private boolean over_capacity() {
+        synchronized (replacer) {
+            return frameUnits > poolSize;
+        }
+    }
+
+    /**
+     * 使用替换策略选择一个帧并驱逐其中的页面：在受害者页面的条带锁下确认认领仍然有效
+     * （期间没有被其他线程重新固定），若是脏页则先写回，然后将其从页表中移除。
+     *
+     * @return 被驱逐的帧号，它不在页表与替换器中，由调用者独占；没有可替换的页面则返回 -1
+     * @throws DBException 如果在写回页面时发生错误
+     */
+    private int evict_victim() throws DBException {
+        while (true) {
+            int frame_id;
+            long claim;
+            synchronized (replacer) {
+                frame_id = replacer.Victim();
+                if (frame_id == -1) {
+                    return -1;
+                }
+                claim = ++claimSequence;
+                claims[frame_id] = claim;
+            }
+            Page page = pages[frame_id];
+            if (page == null) {
+                // 认领期间该帧被重新固定，随后又被其他线程替换并回收
+                continue;
+            }
+            PagePosition old_position = page.position;
+            ReentrantLock latch = latch_for(old_position);
+            latch.lock();
+            try {
+                synchronized (replacer) {
+                    if (claims[frame_id] != claim) {
+                        // 认领期间该帧被重新固定或删除
+                        continue;
+                    }
+                }
+                if (!Objects.equals(pageMap.get(old_position), frame_id)) {
+                    // 帧从未装入页面（例如装入时读盘失败）
+                    continue;
+                }
                 if (page.dirty) {
-                    diskManager.FlushPage(page);
+                    write_back(frame_id);
+                    foregroundWrites.incrementAndGet();
+                    PageCleaner cleaner = pageCleaner;
+                    if (cleaner != null) {
+                        // 后台写回没有跟上，提前唤醒
+                        cleaner.Wakeup();
+                    }
                 }
+                unmap_page(old_position, frame_id);
+                return frame_id;
+            } finally {
+                latch.unlock();
             }
-            return frame_id;
         }
     }
 
     /**
-     * 更新指定页面的位置和状态。如果页面是脏页，则将其刷新到磁盘。
-     * 
-     * @param page         要更新的页面对象
-     * @param new_position 新的位置
-     * @param frame_id     帧的标识符
-     * @throws DBException 如果在更新过程中发生数据库异常
+     * 用一次定位读读取连续的页面，再逐个装入空闲帧。
+     *
+     * 读盘与装入之间，其他线程可能装入、修改并写回了其中的页面，此时读到的内容已经过期。
+     * 写回总是在页面的条带锁下进行，因此在装入时（持有条带锁）若发现读盘之后发生过写回，
+     * 就改为单独重新读取该页面。若读盘之后文件的页面被删除或截断过，剩下的页面都不再装入。
+     *
+     * @return 实际装入的页面数
      */
-    private void update_page(Page page, PagePosition new_position, int frame_id) throws DBException {
-        if (page.dirty) {
-            diskManager.FlushPage(page);
+    private int prefetch_run(String filename, int first_page, int count, BufferAccessStrategy strategy)
+            throws DBException {
+        int page_size = diskManager.GetPageSize(filename);
+        ByteBuffer buffer = PREFETCH_BUFFER.get();
+        if (buffer == null || buffer.capacity() < count * page_size) {
+            buffer = ByteBuffer.allocateDirect(Math.max(count * page_size, ReadAhead.MAX_WINDOW * Page.DEFAULT_PAGE_SIZE));
+            PREFETCH_BUFFER.set(buffer);
         }
-        // remove old one
-        pageMap.remove(page.position);
-        // add new one
-        pageMap.put(new_position, frame_id);
-        Arrays.fill(page.data.array(), (byte) 0);
+        buffer.clear().limit(count * page_size);
+        long version = writeBackCount.get();
+        int file_id = FileId.of(filename).id;
+        long generation = fileGenerations.getOrDefault(file_id, 0L);
+        diskManager.ReadPages(filename, (long) first_page * page_size, buffer);
+        for (int i = 0; i < count; i++) {
+            int slot = strategy == null ? -1 : strategy.next_slot();
+            int frame_id = acquire_frame(strategy, slot, page_size);
+            if (frame_id == -1) {
+                return i;
+            }
+            PagePosition position = new PagePosition(filename, (first_page + i) * page_size);
+            ReentrantLock latch = latch_for(position);
+            latch.lock();
+            try {
+                if (fileGenerations.getOrDefault(file_id, 0L) != generation) {
+                    freeList.add(frame_id);
+                    return i;
+                }
+                if (pageMap.containsKey(position)) {
+                    freeList.add(frame_id);
+                    continue;
+                }
+                Page page = install(frame_id, position);
+                if (writeBackCount.get() == version) {
+                    page.data.setBytes(0, buffer.slice(i * page_size, page_size));
+                } else {
+                    try {
+                        diskManager.ReadPage(page, filename, position.offset, page_size);
+                    } catch (DBException e) {
+                        unmap_page(page.position, frame_id);
+                        freeList.add(frame_id);
+                        throw e;
+                    }
+                }
+                if (strategy != null) {
+                    strategy.put(slot, frame_id, page.position);
+                }
+                // 固定后立即取消固定，使页面进入替换器成为可替换的
+                pin(frame_id);
+                if (page.unpin() == 0) {
+                    synchronized (replacer) {
+                        replacer.Unpin(frame_id);
+                    }
+                }
+            } finally {
+                latch.unlock();
+            }
+        }
+        return count;
+    }
 
-        page.position = new_position;
+    /**
+     * 把独占的帧装入指定位置：清空内容、重置状态并加入页表与替换器。
+     * 调用者必须持有新位置的条带锁，返回后再调用 pin 固定该帧。
+     * 
+     * @param frame_id 帧号
+     * @param position 新的位置
+     * @return 帧对应的页面
+     */
+    private Page install(int frame_id, PagePosition position) {
+        Page page = pages[frame_id];
+        page.data.setZero(0, page.size());
+        // 复制位置，避免调用者之后修改其传入的对象
+        page.position = new PagePosition(position.filename, position.offset);
         page.pin_count = 0;
         page.dirty = false;
+        page.lsn = 0;
+        page.logged = false;
+        page.discarded = false;
+        dirtyFrames.remove(frame_id);
+        map_page(page.position, frame_id);
+        synchronized (replacer) {
+            claims[frame_id] = 0;
+            replacer.Load(frame_id, page.position);
+        }
+        return page;
+    }
+
+    /**
+     * 将页面写回数据文件并清除脏标志。调用者必须持有该页面的条带锁。
+     *
+     * 启用预写日志时遵循 WAL 规则：若页面的当前内容尚未写入日志则先追加其镜像，页面内容尚未提交时再追加撤销镜像，
+     * 并保证日志持久化到这些记录之后再写数据页；数据文件的 fsync 推迟到检查点。
+     * 未启用时直接写回并 fsync。
+     *
+     * @param frame_id 要写回的页面所在的帧
+     * @throws DBException 如果写日志或写页面时发生错误
+     */
+    private void write_back(int frame_id) throws DBException {
+        Page page = pages[frame_id];
+        page.RLatch();
+        try {
+            if (page.discarded) {
+                // 所属文件已被删除，写回会重新创建文件
+                mark_clean(frame_id, page);
+                return;
+            }
+            if (logManager == null) {
+                diskManager.FlushPage(page);
+            } else {
+                if (page.dirty && !page.logged) {
+                    logManager.AppendPage(page);
+                }
+                logManager.Flush(Math.max(page.lsn, log_undo(page)));
+                diskManager.WritePage(page);
+                unsyncedFiles.add(page.position.filename);
+            }
+            writeBackCount.incrementAndGet();
+            mark_clean(frame_id, page);
+        } finally {
+            page.RUnlatch();
+        }
+    }
+
+    /**
+     * 页面的内容尚未提交时，把它在数据文件中原来的内容作为撤销镜像追加到日志，崩溃恢复时用它撤销这次写回。
+     * 调用者必须持有页面的读锁，并在写出页面之前把日志持久化到返回的 LSN。
+     *
+     * @return 撤销镜像的末尾 LSN，页面内容已经提交时返回 0
+     */
+    private long log_undo(Page page) throws DBException {
+        if (page.lsn <= logManager.getCommittedLsn()) {
+            return 0;
+        }
+        Page before = new Page(page.size());
+        diskManager.ReadPage(before, page.position.filename, page.position.offset, page.size());
+        return logManager.AppendUndo(before);
+    }
+
+    /**
+     * 将页面写回并保证其持久化到磁盘。
+     *
+     * @param frame_id 要刷新的页面所在的帧
+     * @throws DBException 如果写回页面时发生错误
+     */
+    private void flush_page(int frame_id) throws DBException {
+        write_back(frame_id);
+        if (logManager != null) {
+            diskManager.SyncFile(pages[frame_id].position.filename);
+        }
+    }
+
+    /**
+     * 把页面加入页表与所属文件的帧集合。调用者必须持有该页面的条带锁。
+     */
+    private void map_page(PagePosition position, int frame_id) {
+        pageMap.put(position, frame_id);
+        fileFrames.compute(position.getFileId(), (file_id, frames) -> {
+            if (frames == null) {
+                frames = new HashSet<>();
+            }
+            frames.add(frame_id);
+            return frames;
+        });
+    }
+
+    /**
+     * 把页面从页表与所属文件的帧集合中移除，文件不再有页面时删除其集合。调用者必须持有该页面的条带锁。
+     */
+    private void unmap_page(PagePosition position, int frame_id) {
+        if (pageMap.remove(position, frame_id)) {
+            fileFrames.computeIfPresent(position.getFileId(), (file_id, frames) -> {
+                frames.remove(frame_id);
+                return frames.isEmpty() ? null : frames;
+            });
+        }
+    }
+
+    /**
+     * 把未固定的页面移出页表与替换器，帧回到空闲列表，脏页不写回。调用者必须持有该页面的条带锁。
+     */
+    private void free_frame(PagePosition position, int frame_id) {
+        dirtyFrames.remove(frame_id);
+        unmap_page(position, frame_id);
+        synchronized (replacer) {
+            claims[frame_id] = 0;
+            replacer.Remove(frame_id);
+        }
+        freeList.add(frame_id);
+    }
+
+    /**
+     * @return 指定文件在缓冲池中的帧号的快照
+     */
+    private List<Integer> file_frames(String filename) {
+        List<Integer> snapshot = new ArrayList<>();
+        fileFrames.computeIfPresent(FileId.of(filename).id, (file_id, frames) -> {
+            snapshot.addAll(frames);
+            return frames;
+        });
+        return snapshot;
+    }
+
+    /**
+     * 把帧中的页面标记为脏页并加入脏页列表。调用者必须持有该页面的条带锁。
+     */
+    private void mark_dirty(int frame_id) {
+        MarkPageDirty(pages[frame_id]);
+        dirtyFrames.add(frame_id);
+    }
+
+    /**
+     * 清除写回后的页面的脏标志。调用者必须持有页面的读锁。
+     *
+     * 标记脏页的线程先设置标志再加入列表，这里先清除标志、移出列表后再检查一次标志，
+     * 因此与并发的标记交错时，页面只会多留在列表中，不会成为不在列表中的脏页。
+     */
+    private void mark_clean(int frame_id, Page page) {
+        page.dirty = false;
+        dirtyFrames.remove(frame_id);
+        if (page.dirty) {
+            dirtyFrames.add(frame_id);
+        }
+    }
+
+    /**
+     * 写出 filename 的脏页（filename 为 null 或空串时写出脏页列表中的全部页面），不 fsync。
+     *
+     * 脏页按 (文件, 偏移量) 排序后分批固定，使其在写出期间不会被替换；每批中偏移量连续的页面
+     * 在各自的读锁下合并为一次聚集写。已经持有读锁时只尝试获取下一个页面的读锁，失败则先写出
+     * 已经合并的部分，因此刷新线程不会在持有读锁时等待另一个读锁。
+     *
+     * @param filename 文件名
+     * @return 写过的文件
+     * @throws DBException 如果写日志或写页面时发生错误
+     */
+    private Set<String> flush_dirty_pages(String filename) throws DBException {
+        boolean all = filename == null || filename.isEmpty();
+        List<DirtyPage> dirty = new ArrayList<>();
+        // 刷新单个文件时只检查该文件的帧
+        for (int frame_id : all ? dirtyFrames : file_frames(filename)) {
+            Page page = pages[frame_id];
+            if (page != null && page.dirty && !page.discarded) {
+                dirty.add(new DirtyPage(frame_id, page.position));
+            }
+        }
+        dirty.sort(Comparator.comparing((DirtyPage d) -> d.position().filename)
+                .thenComparingInt(d -> d.position().offset));
+
+        Set<String> written = new HashSet<>();
+        int batch_size = Math.max(1, Math.min(FLUSH_BATCH_PAGES, poolSize / 4));
+        for (int start = 0; start < dirty.size(); start += batch_size) {
+            List<DirtyPage> batch = dirty.subList(start, Math.min(dirty.size(), start + batch_size));
+            List<Page> pinned = new ArrayList<>(batch.size());
+            try {
+                for (DirtyPage d : batch) {
+                    ReentrantLock latch = latch_for(d.position());
+                    latch.lock();
+                    try {
+                        // 列出脏页之后该帧可能已被写回或替换
+                        if (Objects.equals(pageMap.get(d.position()), d.frameId()) && pages[d.frameId()].dirty
+                                && !pages[d.frameId()].discarded) {
+                            pinned.add(pin(d.frameId()));
+                        }
+                    } finally {
+                        latch.unlock();
+                    }
+                }
+                write_runs(pinned, written);
+            } finally {
+                for (Page page : pinned) {
+                    unpin_page(page.position, false);
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * 把已按位置排序并固定的页面中连续的部分合并写出。
+     */
+    private void write_runs(List<Page> sorted, Set<String> written) throws DBException {
+        List<Page> run = new ArrayList<>();
+        try {
+            for (Page page : sorted) {
+                if (!run.isEmpty()) {
+                    Page last = run.get(run.size() - 1);
+                    boolean contiguous = last.position.filename.equals(page.position.filename)
+                            && last.position.offset + last.size() == page.position.offset;
+                    if (contiguous && page.TryRLatch()) {
+                        run.add(page);
+                        continue;
+                    }
+                    write_run(run, written);
+                }
+                page.RLatch();
+                run.add(page);
+            }
+            if (!run.isEmpty()) {
+                write_run(run, written);
+            }
+        } finally {
+            for (Page page : run) {
+                page.RUnlatch();
+            }
+        }
+    }
+
+    /**
+     * 用一次聚集写写出持有读锁的一段连续页面，清除它们的脏标志后释放读锁并清空 run。
+     */
+    private void write_run(List<Page> run, Set<String> written) throws DBException {
+        String filename = run.get(0).position.filename;
+        ByteBuffer[] buffers = new ByteBuffer[run.size()];
+        long lsn = 0;
+        for (int i = 0; i < run.size(); i++) {
+            Page page = run.get(i);
+            if (logManager != null) {
+                if (page.dirty && !page.logged) {
+                    logManager.AppendPage(page);
+                }
+                lsn = Math.max(lsn, Math.max(page.lsn, log_undo(page)));
+            }
+            buffers[i] = page.data.nioBuffer(0, page.size());
+        }
+        if (logManager != null) {
+            logManager.Flush(lsn);
+            unsyncedFiles.add(filename);
+        }
+        diskManager.WritePages(filename, run.get(0).position.offset, buffers);
+        writeBackCount.addAndGet(run.size());
+        written.add(filename);
+        for (Page page : run) {
+            // 页面已固定，帧号不会改变
+            mark_clean(pageMap.get(page.position), page);
+            page.RUnlatch();
+        }
+        run.clear();
+    }
+
+    private record DirtyPage(int frameId, PagePosition position) {
     }
 }
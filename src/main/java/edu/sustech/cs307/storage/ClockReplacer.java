@@ -0,0 +1,142 @@
+package edu.sustech.cs307.storage;
+
+/**
+ * CLOCK（二次机会）替换策略。
+ *
+ * <p>
+ * 每个帧带有一个引用位，访问时置位。可替换的帧排成一个紧凑的环，时钟指针在环上循环扫描：引用位为 1 的帧清零后跳过
+ * （给第二次机会），遇到引用位为 0 的帧即将其替换。被固定的帧不在环中，因此 Victim 与 Candidates
+ * 只扫描可替换的帧，不随帧号的上限增长。每次 Victim 最多扫描两圈，均摊为 O(1)；Pin/Unpin 为 O(1)。
+ * 帧号必须在 [0, numPages) 范围内。
+ * </p>
+ */
+public class ClockReplacer implements Replacer {
+    private final int maxSize;
+    // 帧是否在替换器中
+    private final boolean[] tracked;
+    private final boolean[] pinned;
+    private final boolean[] referenced;
+    // 可替换的帧组成的环，有效部分为 ring[0, evictableCount)
+    private final int[] ring;
+    // 帧在环中的下标
+    private final int[] slot;
+    private int hand = 0;
+    private int evictableCount = 0;
+    private int pinnedCount = 0;
+
+    public ClockReplacer(int numPages) {
+        this.maxSize = numPages;
+        this.tracked = new boolean[numPages];
+        this.pinned = new boolean[numPages];
+        this.referenced = new boolean[numPages];
+        this.ring = new int[numPages];
+        this.slot = new int[numPages];
+    }
+
+    @Override
+    public int Victim() {
+        if (evictableCount == 0) {
+            return -1;
+        }
+        while (true) {
+            if (hand >= evictableCount) {
+                hand = 0;
+            }
+            int frameId = ring[hand];
+            if (referenced[frameId]) {
+                referenced[frameId] = false;
+                hand++;
+            } else {
+                // 环中最后一个帧移到指针处，下一次从它开始扫描
+                leave_ring(frameId);
+                tracked[frameId] = false;
+                return frameId;
+            }
+        }
+    }
+
+    @Override
+    public void Pin(int frameId) {
+        if (frameId >= 0 && frameId < maxSize && tracked[frameId] && pinned[frameId]) {
+            return;
+        }
+        if ((frameId < 0 || frameId >= maxSize || !tracked[frameId]) && this.size() >= maxSize) {
+            throw new RuntimeException("REPLACER IS FULL");
+        }
+        if (frameId < 0 || frameId >= maxSize) {
+            throw new RuntimeException(String.format("FRAME %d IS OUT OF RANGE [0, %d)", frameId, maxSize));
+        }
+        if (tracked[frameId]) {
+            leave_ring(frameId);
+        }
+        tracked[frameId] = true;
+        pinned[frameId] = true;
+        referenced[frameId] = true;
+        pinnedCount++;
+    }
+
+    @Override
+    public void Unpin(int frameId) {
+        if (!tracked[frameId]) {
+            throw new RuntimeException("UNPIN PAGE NOT FOUND");
+        }
+        if (!pinned[frameId]) {
+            return;
+        }
+        pinned[frameId] = false;
+        pinnedCount--;
+        // 新加入的帧放在环的末尾
+        slot[frameId] = evictableCount;
+        ring[evictableCount++] = frameId;
+    }
+
+    @Override
+    public void Remove(int frameId) {
+        if (!tracked[frameId]) {
+            return;
+        }
+        if (pinned[frameId]) {
+            pinnedCount--;
+        } else {
+            leave_ring(frameId);
+        }
+        tracked[frameId] = false;
+        pinned[frameId] = false;
+        referenced[frameId] = false;
+    }
+
+    /**
+     * 从时钟指针开始，先列出引用位为 0 的帧，再列出引用位为 1 的帧（它们要在下一圈才会被替换）。
+     */
+    @Override
+    public int[] Candidates(int limit) {
+        int[] candidates = new int[Math.min(limit, evictableCount)];
+        int count = 0;
+        int start = hand < evictableCount ? hand : 0;
+        for (int pass = 0; pass < 2 && count < candidates.length; pass++) {
+            boolean wantReferenced = pass == 1;
+            for (int i = 0; i < evictableCount && count < candidates.length; i++) {
+                int frameId = ring[(start + i) % evictableCount];
+                if (referenced[frameId] == wantReferenced) {
+                    candidates[count++] = frameId;
+                }
+            }
+        }
+        return candidates;
+    }
+
+    @Override
+    public int size() {
+        return evictableCount + pinnedCount;
+    }
+
+    /**
+     * 把可替换的帧移出环：环中最后一个帧填入它的位置。
+     */
+    private void leave_ring(int frameId) {
+        int index = slot[frameId];
+        int last = ring[--evictableCount];
+        ring[index] = last;
+        slot[last] = index;
+    }
+}
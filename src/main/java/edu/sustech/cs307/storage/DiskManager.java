@@ -8,10 +8,19 @@ import edu.sustech.cs307.exception.ExceptionTypes;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.pmw.tinylog.Logger;
 
@@ -22,6 +31,26 @@ import org.pmw.tinylog.Logger;
  * <p>
  * 该类支持从磁盘读取和写入文件，并维护文件的页面信息。
  * </p>
+ *
+ * <p>
+ * 文件可以通过 {@link #SetMemoryMapped(String, boolean)} 切换为内存映射读取：{@link #MapPage(String, int)}
+ * 直接返回映射中的页面视图，不需要把页面复制到帧中。文件按 16MB 一块映射，
+ * 文件增长后再映射（或重新映射末尾不完整的块）。写入仍然使用定位写，映射与定位读写共享操作系统的页缓存，
+ * 因此映射总能看到已经写入文件的内容。映射中的页面用完后通过 {@link #ReleaseMappedPage(String)} 归还，
+ * 仍有页面未归还时 {@link #TruncateFile(String, int)} 推迟物理截断，避免访问这些页面时越过文件末尾。
+ * </p>
+ *
+ * <p>
+ * 每个文件有自己的页大小（见 {@link #SetPageSize(String, int)}），表文件的页大小保存在其文件头中，
+ * 打开表时登记到这里。页面的读写长度取 page.data 的容量。
+ * </p>
+ *
+ * <p>
+ * 文件按区增长：{@link #AllocatePage(String)} 用完已预分配的页面后，一次写零扩展一个区的连续页面，
+ * 之后分配的页面已经存在于文件中，不必再逐页扩展文件。文件较小时区从 {@link #MIN_EXTENT_PAGES} 页开始，
+ * 每次扩展为当前页数，直到达到文件的区大小（见 {@link #SetExtentPages(String, int)}），
+ * 使小表不会占用整个区。
+ * </p>
  */
 public class DiskManager {
     private final String currentDir;
@@ -29,8 +58,47 @@ public class DiskManager {
 
     private static final String DISK_MANAGER_META = "disk_manager_meta.json";
 
+    // 缓存的文件句柄上限，超过后移出最久未使用的句柄，句柄在最后一个使用者归还后关闭
+    public static final int MAX_OPEN_FILES = 1024;
+
+    // filename -> 已打开的文件句柄，按访问顺序排列，所有访问都在 channelCache 上同步
+    private final LinkedHashMap<String, Channel> channelCache;
+
+    // 每块映射 16MB
+    private static final long MAP_CHUNK_SIZE = 16L << 20;
+
+    // 文件名 -> 页大小，未登记的文件使用 Page.DEFAULT_PAGE_SIZE
+    private final ConcurrentHashMap<String, Integer> pageSizes = new ConcurrentHashMap<>();
+
+    // 默认的区大小，1MB
+    public static final int EXTENT_SIZE = 1 << 20;
+    // 文件较小时每次至少扩展的页面数
+    public static final int MIN_EXTENT_PAGES = 8;
+    // 预分配时写出的全零缓冲区，写出时使用其副本
+    private static final ByteBuffer ZEROS = ByteBuffer.allocateDirect(EXTENT_SIZE);
+
+    // 文件名 -> 每个区的页面数，未登记的文件使用 DefaultExtentPages
+    private final ConcurrentHashMap<String, Integer> extentPages = new ConcurrentHashMap<>();
+
+    // 文件名 -> 文件中已经存在的页面数（包括预分配但尚未分配出去的页面），由 this 的监视器保护
+    private final HashMap<String, Integer> reservedPages = new HashMap<>();
+
+    // 以内存映射方式读取的文件 -> 已映射的块
+    private final ConcurrentHashMap<String, MappedFile> mappedFiles = new ConcurrentHashMap<>();
+
     public static Map<String, Integer> read_disk_manager_meta() throws DBException {
-        Path path = Path.of(String.format("%s/%s", DBEntry.DB_NAME, DISK_MANAGER_META));
+        return read_disk_manager_meta(DBEntry.DB_NAME);
+    }
+
+    /**
+     * 读取数据库目录 path 下的 DiskManager 元数据，元文件不存在时返回空映射。
+     *
+     * @param path_name 数据库目录
+     * @return 文件名 -> 已分配的页面数
+     * @throws DBException 如果读取元数据时发生错误
+     */
+    public static Map<String, Integer> read_disk_manager_meta(String path_name) throws DBException {
+        Path path = Path.of(String.format("%s/%s", path_name, DISK_MANAGER_META));
         // read the meta file
         File META_FILE = new File(path.toString());
         if (!META_FILE.exists()) {
@@ -53,19 +121,31 @@ public class DiskManager {
     };
 
     /**
-     * 将 DiskManager 的元数据转储到指定的元文件中。
+     * 将 DiskManager 的元数据转储到其目录下的元文件中。
+     * 先写入临时文件并 fsync，再原子地替换元文件，因此崩溃后元文件总是完整的某一个版本。
+     * 检查点截断重做日志之前调用它，使截断后的日志不再需要为之前分配的页面修复页面数。
      *
      * @param disk_manager 要转储元数据的 DiskManager 实例
      * @throws DBException 如果在写入元数据时发生错误
      */
     public static void dump_disk_manager_meta(DiskManager disk_manager) throws DBException {
-        Map<String, Integer> filePages = disk_manager.filePages;
-        Path path = Path.of(String.format("%s/%s", DBEntry.DB_NAME, DISK_MANAGER_META));
+        Map<String, Integer> filePages;
+        synchronized (disk_manager) {
+            filePages = new HashMap<>(disk_manager.filePages);
+        }
+        Path path = Path.of(disk_manager.currentDir, DISK_MANAGER_META);
+        Path tmp = path.resolveSibling(DISK_MANAGER_META + ".tmp");
         // write the meta file
-        File META_FILE = new File(path.toString());
-        try (Writer writer = new FileWriter(META_FILE)) {
-            ObjectMapper objectMapper = new ObjectMapper();
-            objectMapper.writeValue(writer, filePages);
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(new ObjectMapper().writeValueAsBytes(filePages));
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(true);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (Exception e) {
             throw new DBException(ExceptionTypes.UnableLoadMetadata(e.getMessage()));
         }
@@ -74,6 +154,16 @@ public class DiskManager {
     public DiskManager(String path, Map<String, Integer> filePages) {
         this.currentDir = path;
         this.filePages = filePages;
+        this.channelCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Channel> eldest) {
+                if (size() > MAX_OPEN_FILES) {
+                    eldest.getValue().retire();
+                    return true;
+                }
+                return false;
+            }
+        };
     }
 
     public String getCurrentDir() {
@@ -90,24 +180,49 @@ public class DiskManager {
      * @throws DBException 如果在读取过程中发生 I/O 错误或偏移量超出范围。
      */
     public void ReadPage(Page page, String filename, int offset, long length) throws DBException {
-        // 拼接实际文件路径
-        String real_path = currentDir + "/" + filename;
-        try (FileInputStream fis = new FileInputStream(real_path)) {
-            long seeked = fis.skip(offset);
-            if (seeked < offset) {
-                throw new DBException(ExceptionTypes.BadIOError(
-                        String.format("Seek out of range, offset: %d, length: %d", seeked, length)));
+        with_channel(filename, false, channel -> {
+            // 使用定位读直接将文件中一个页面大小的数据读取到 page.data 中，不移动文件指针
+            ByteBuffer buffer = page.data.nioBuffer(0, page.size());
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    // 文件末尾不足一页，剩余部分保持原样
+                    break;
+                }
+                position += read;
             }
-            // 直接将文件中一个页面大小的数据读取到 page.data 中
-            if (fis.read(page.data.array()) != Page.DEFAULT_PAGE_SIZE) {
-                // throw new DBException(ExceptionTypes.BadIOError(
-                // String.format("Bad file at offset: %d, length: %d", seeked, length)));
+            return null;
+        });
+        page.position.offset = offset;
+        page.position.filename = filename;
+    }
+
+    /**
+     * 用一次定位读从文件中读取连续的若干页面到 buffer 中，buffer 的剩余空间决定读取的长度。
+     * 文件末尾之后的部分保持原样。
+     *
+     * @param filename 要读取的文件名。
+     * @param offset   从文件中读取的起始偏移量。
+     * @param buffer   目标缓冲区，从其 position 开始填充。
+     * @return 实际读取的字节数。
+     * @throws DBException 如果在读取过程中发生 I/O 错误。
+     */
+    public int ReadPages(String filename, long offset, ByteBuffer buffer) throws DBException {
+        int start = buffer.position();
+        return with_channel(filename, false, channel -> {
+            // 重试时从头读起
+            buffer.position(start);
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
             }
-            page.position.offset = offset;
-            page.position.filename = filename;
-        } catch (IOException e) {
-            throw new DBException(ExceptionTypes.BadIOError(e.getMessage()));
-        }
+            return (int) (position - offset);
+        });
     }
 
     /**
@@ -117,26 +232,235 @@ public class DiskManager {
      * @throws DBException 如果在写入过程中发生输入输出错误。
      */
     public void FlushPage(Page page) throws DBException {
-        // 拼接实际文件路径
-        String real_path = currentDir + "/" + page.position.filename;
-
-        // 使用 RandomAccessFile 和 FileChannel 来定位并写入数据
-        try (RandomAccessFile raf = new RandomAccessFile(real_path, "rw");
-                FileChannel channel = raf.getChannel()) {
-            // 定位到对应的文件偏移位置
-            channel.position(page.position.offset);
-            // 使用 ByteBuffer.wrap 避免额外的数据拷贝
-            ByteBuffer buffer = ByteBuffer.wrap(page.data.array());
+        WritePage(page);
+        // 强制刷新到磁盘
+        SyncFile(page.position.filename);
+    }
+
+    /**
+     * 将指定页面的数据写入文件，但不强制刷新到磁盘。
+     * 调用者需要在合适的时机通过 SyncFile 保证持久化。
+     *
+     * @param page 要写入的页面对象，包含数据和位置信息。
+     * @throws DBException 如果在写入过程中发生输入输出错误。
+     */
+    public void WritePage(Page page) throws DBException {
+        with_channel(page.position.filename, true, channel -> {
+            // 定位写，直接写出 page.data 对应的内存，避免额外的数据拷贝
+            ByteBuffer buffer = page.data.nioBuffer(0, page.size());
+            long position = page.position.offset;
             while (buffer.hasRemaining()) {
-                channel.write(buffer);
+                position += channel.write(buffer, position);
             }
-            // 强制刷新到磁盘
+            return null;
+        });
+    }
+
+    /**
+     * 用一次聚集写把若干缓冲区依次写入文件中从 offset 开始的连续区域，但不强制刷新到磁盘。
+     *
+     * @param filename 要写入的文件名。
+     * @param offset   写入的起始偏移量。
+     * @param buffers  按顺序写出的缓冲区，写出从各自的 position 到 limit 的内容。
+     * @throws DBException 如果在写入过程中发生输入输出错误。
+     */
+    public void WritePages(String filename, long offset, ByteBuffer[] buffers) throws DBException {
+        int[] starts = new int[buffers.length];
+        for (int i = 0; i < buffers.length; i++) {
+            starts[i] = buffers[i].position();
+        }
+        with_channel(filename, true, channel -> {
+            long remaining = 0;
+            for (int i = 0; i < buffers.length; i++) {
+                // 重试时从头写起
+                buffers[i].position(starts[i]);
+                remaining += buffers[i].remaining();
+            }
+            // 聚集写使用并修改通道的当前位置，同一文件上的聚集写必须串行；定位读写不受影响
+            synchronized (channel) {
+                channel.position(offset);
+                while (remaining > 0) {
+                    remaining -= channel.write(buffers);
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 将指定文件已写入的数据强制刷新到磁盘。
+     *
+     * @param filename 文件名
+     * @throws DBException 如果在刷新过程中发生输入输出错误。
+     */
+    public void SyncFile(String filename) throws DBException {
+        with_channel(filename, true, channel -> {
             channel.force(true);
-        } catch (IOException e) {
-            throw new DBException(ExceptionTypes.BadIOError(e.getMessage()));
+            return null;
+        });
+    }
+
+    /**
+     * 设置文件是否以内存映射方式读取。关闭时释放该文件已映射的块。
+     *
+     * @param filename 文件名
+     * @param mapped   是否使用内存映射
+     */
+    public void SetMemoryMapped(String filename, boolean mapped) {
+        MappedFile mappedFile = mappedFiles.computeIfAbsent(filename, name -> new MappedFile());
+        synchronized (mappedFile) {
+            // 已经借出的页面仍然需要归还，因此保留记录
+            mappedFile.enabled = mapped;
+            if (!mapped) {
+                mappedFile.chunks.clear();
+            }
         }
     }
 
+    public boolean IsMemoryMapped(String filename) {
+        MappedFile mappedFile = mappedFiles.get(filename);
+        return mappedFile != null && mappedFile.enabled;
+    }
+
+    /**
+     * 返回文件中 offset 处页面在内存映射中的只读视图。页面所在的块尚未映射，或文件增长后超出了已映射的范围时，
+     * 先映射（或重新映射）该块。返回的页面用完后必须调用 {@link #ReleaseMappedPage(String)} 归还。
+     *
+     * @param filename 文件名
+     * @param offset   页面的偏移量
+     * @return 页面大小的只读缓冲区；文件未以内存映射方式读取，或页面超出文件末尾时返回 null
+     * @throws DBException 如果映射文件时发生 I/O 错误
+     */
+    public ByteBuffer MapPage(String filename, int offset) throws DBException {
+        MappedFile mappedFile = mappedFiles.get(filename);
+        if (mappedFile == null || !mappedFile.enabled) {
+            return null;
+        }
+        int page_size = GetPageSize(filename);
+        int index = (int) (offset / MAP_CHUNK_SIZE);
+        int offset_in_chunk = (int) (offset % MAP_CHUNK_SIZE);
+        MappedByteBuffer chunk;
+        synchronized (mappedFile) {
+            chunk = mappedFile.chunks.get(index);
+            if (chunk == null || chunk.capacity() < offset_in_chunk + page_size) {
+                long chunk_start = index * MAP_CHUNK_SIZE;
+                // 映射在通道关闭后仍然有效
+                chunk = with_channel(filename, false, channel -> {
+                    long size = channel.size();
+                    if (size < (long) offset + page_size) {
+                        return null;
+                    }
+                    // 映射不能超出文件末尾，末尾的块在文件增长后重新映射
+                    return channel.map(FileChannel.MapMode.READ_ONLY, chunk_start,
+                            Math.min(MAP_CHUNK_SIZE, size - chunk_start));
+                });
+                if (chunk == null) {
+                    return null;
+                }
+                mappedFile.chunks.put(index, chunk);
+            }
+            mappedFile.readers++;
+        }
+        return chunk.slice(offset_in_chunk, page_size);
+    }
+
+    /**
+     * 归还 {@link #MapPage(String, int)} 返回的页面。最后一个页面归还时执行被推迟的截断。
+     *
+     * @param filename 文件名
+     * @throws DBException 如果执行被推迟的截断时发生 I/O 错误
+     */
+    public void ReleaseMappedPage(String filename) throws DBException {
+        MappedFile mappedFile = mappedFiles.get(filename);
+        if (mappedFile == null) {
+            // 文件已被删除，映射在文件删除后仍然有效
+            return;
+        }
+        boolean truncate;
+        synchronized (mappedFile) {
+            if (mappedFile.readers == 0) {
+                // 页面属于同名的已删除文件
+                return;
+            }
+            truncate = --mappedFile.readers == 0 && mappedFile.truncatePending;
+        }
+        if (truncate) {
+            synchronized (this) {
+                synchronized (mappedFile) {
+                    if (mappedFile.readers == 0 && mappedFile.truncatePending
+                            && mappedFiles.get(filename) == mappedFile) {
+                        mappedFile.truncatePending = false;
+                        // 推迟期间可能重新映射了将被截断的部分
+                        mappedFile.chunks.clear();
+                        // 截断之后文件可能又分配了页面
+                        truncate(filename, (long) reserved_pages(filename) * GetPageSize(filename));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 登记文件的页大小。
+     *
+     * @param filename 文件名
+     * @param size     页大小，必须满足 {@link Page#IsValidPageSize(int)}
+     */
+    public void SetPageSize(String filename, int size) {
+        if (size == Page.DEFAULT_PAGE_SIZE) {
+            pageSizes.remove(filename);
+        } else {
+            pageSizes.put(filename, size);
+        }
+    }
+
+    /**
+     * @param filename 文件名
+     * @return 文件的页大小，未登记的文件返回 Page.DEFAULT_PAGE_SIZE
+     */
+    public int GetPageSize(String filename) {
+        return pageSizes.getOrDefault(filename, Page.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * @param page_size 页大小
+     * @return 默认区大小对应的页面数
+     */
+    public static int DefaultExtentPages(int page_size) {
+        return Math.max(1, EXTENT_SIZE / page_size);
+    }
+
+    /**
+     * 登记文件每个区的页面数，表文件的区大小保存在其文件头中。
+     *
+     * @param filename 文件名
+     * @param pages    每个区的页面数，至少为 1
+     */
+    public void SetExtentPages(String filename, int pages) {
+        extentPages.put(filename, Math.max(1, pages));
+    }
+
+    /**
+     * @param filename 文件名
+     * @return 文件每个区的页面数
+     */
+    public int GetExtentPages(String filename) {
+        Integer pages = extentPages.get(filename);
+        return pages != null ? pages : DefaultExtentPages(GetPageSize(filename));
+    }
+
+    /**
+     * @param filename 文件名
+     * @return 文件中已经存在的页面数，包括预分配但尚未分配出去的页面
+     */
+    public synchronized int GetReservedPages(String filename) {
+        return reserved_pages(filename);
+    }
+
+    public boolean IsFileExists(String filename) {
+        return new File(currentDir + "/" + filename).isFile();
+    }
+
     public long GetFileSize(String filename) {
         String real_path = currentDir + "/" + filename;
         File file = new File(real_path);
@@ -152,7 +476,7 @@ public class DiskManager {
      *                     该方法会检查指定路径下是否已存在同名文件。如果不存在，则会尝试创建该文件及其上级目录。
      *                     如果创建过程中发生任何异常，将抛出DBException。
      */
-    public void CreateFile(String filename) throws DBException {
+    public synchronized void CreateFile(String filename) throws DBException {
         String real_path = currentDir + "/" + filename;
         File file = new File(real_path);
         if (!file.exists()) {
@@ -170,22 +494,111 @@ public class DiskManager {
             } catch (IOException e) {
                 throw new DBException(ExceptionTypes.BadIOError(e.getMessage()));
             }
+        } else {
+            allocated_pages(filename);
         }
     }
 
-    // return file start;
-    public Integer AllocatePage(String filename) throws DBException {
-        Integer offset = this.filePages.get(filename);
+    /**
+     * 分配一个新页面。预分配的页面用完时先扩展一个区。
+     *
+     * @param filename 文件名
+     * @return 新页面的页号
+     * @throws DBException 如果文件不存在或扩展文件失败
+     */
+    public synchronized Integer AllocatePage(String filename) throws DBException {
+        Integer offset = allocated_pages(filename);
         if (offset == null) {
             throw new DBException(ExceptionTypes.BadIOError(String.format("File not exists, %s", filename)));
         }
+        int reserved = reserved_pages(filename);
+        if (offset >= reserved) {
+            // 重做日志可能在文件末尾之后写入过页面，从两者中较大的位置开始扩展
+            int start = Math.max(reserved, offset);
+            int pages = Math.min(GetExtentPages(filename), Math.max(MIN_EXTENT_PAGES, start));
+            grow(filename, start, pages);
+            reservedPages.put(filename, start + pages);
+        }
         this.filePages.put(filename, offset + 1);
         return offset;
     }
 
-    public void DeleteFile(String filename) throws DBException {
+    /**
+     * 为即将分配的 count 个页面一次性预分配文件空间，用于批量写入：按区向上取整，用一次连续写扩展文件。
+     *
+     * @param filename 文件名
+     * @param count    预计分配的页面数
+     * @throws DBException 如果文件不存在或扩展文件失败
+     */
+    public synchronized void ReservePages(String filename, int count) throws DBException {
+        Integer allocated = allocated_pages(filename);
+        if (allocated == null) {
+            throw new DBException(ExceptionTypes.BadIOError(String.format("File not exists, %s", filename)));
+        }
+        int reserved = reserved_pages(filename);
+        int start = Math.max(reserved, allocated);
+        int needed = allocated + count - start;
+        if (needed <= 0) {
+            return;
+        }
+        int extent = GetExtentPages(filename);
+        int pages = (needed + extent - 1) / extent * extent;
+        grow(filename, start, pages);
+        reservedPages.put(filename, start + pages);
+    }
+
+    /**
+     * 把文件截断为前 pages 个页面，之后的页面与预分配的空间一并释放。
+     * 调用者必须保证缓冲池中没有被截断的页面。仍有映射中的页面未归还时，文件的页面数立即减少，
+     * 物理截断推迟到这些页面都被归还之后。
+     *
+     * @param filename 文件名
+     * @param pages    保留的页面数
+     * @throws DBException 如果文件不存在或截断失败
+     */
+    public synchronized void TruncateFile(String filename, int pages) throws DBException {
+        if (allocated_pages(filename) == null) {
+            throw new DBException(ExceptionTypes.BadIOError(String.format("File not exists, %s", filename)));
+        }
+        long size = (long) pages * GetPageSize(filename);
+        MappedFile mappedFile = mappedFiles.get(filename);
+        if (mappedFile != null) {
+            // 映射超出文件末尾的部分在访问时会出错：丢弃已映射的块，已借出的页面仍指向原来的映射，
+            // 因此它们都被归还之前不能截断
+            synchronized (mappedFile) {
+                mappedFile.chunks.clear();
+                if (mappedFile.readers > 0) {
+                    mappedFile.truncatePending = true;
+                } else {
+                    truncate(filename, size);
+                }
+            }
+        } else {
+            truncate(filename, size);
+        }
+        this.filePages.put(filename, pages);
+        reservedPages.put(filename, pages);
+    }
+
+    /**
+     * @param filename 文件名
+     * @return 文件已分配的页面数，文件不存在时返回 0
+     */
+    public synchronized int GetPageCount(String filename) {
+        Integer allocated = allocated_pages(filename);
+        return allocated == null ? 0 : allocated;
+    }
+
+    public synchronized void DeleteFile(String filename) throws DBException {
         String real_path = currentDir + "/" + filename;
         File file = new File(real_path);
+        // 先关闭该文件（或该目录下所有文件）的句柄，再删除
+        CloseFile(filename);
+        String prefix = filename + "/";
+        mappedFiles.keySet().removeIf(name -> name.equals(filename) || name.startsWith(prefix));
+        pageSizes.keySet().removeIf(name -> name.equals(filename) || name.startsWith(prefix));
+        extentPages.keySet().removeIf(name -> name.equals(filename) || name.startsWith(prefix));
+        reservedPages.keySet().removeIf(name -> name.equals(filename) || name.startsWith(prefix));
         if (file.exists()) {
             if (file.isDirectory()) {
                 for (File f : file.listFiles()) {
@@ -198,4 +611,228 @@ public class DiskManager {
             this.filePages.remove(filename);
         }
     }
+
+    /**
+     * 关闭指定文件的缓存句柄。若 filename 是一个目录，则关闭该目录下所有文件的句柄。
+     *
+     * @param filename 文件名或目录名
+     */
+    public void CloseFile(String filename) {
+        String prefix = filename + "/";
+        // 映射不依赖于通道，但文件可能随后被删除或截断，因此一并丢弃已映射的块
+        for (Map.Entry<String, MappedFile> entry : mappedFiles.entrySet()) {
+            if (entry.getKey().equals(filename) || entry.getKey().startsWith(prefix)) {
+                synchronized (entry.getValue()) {
+                    entry.getValue().chunks.clear();
+                }
+            }
+        }
+        synchronized (channelCache) {
+            Iterator<Map.Entry<String, Channel>> it = channelCache.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Channel> entry = it.next();
+                if (entry.getKey().equals(filename) || entry.getKey().startsWith(prefix)) {
+                    entry.getValue().retire();
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * 关闭所有缓存的文件句柄，正在使用的句柄在使用者归还后关闭。
+     */
+    public void CloseAllFiles() {
+        synchronized (channelCache) {
+            for (Channel channel : channelCache.values()) {
+                channel.retire();
+            }
+            channelCache.clear();
+        }
+    }
+
+    /**
+     * 文件中已经存在的页面数，第一次使用时由文件长度得到。调用者必须持有 this 的监视器。
+     */
+    /**
+     * 文件已分配的页面数，文件不存在时返回 null。已存在的文件没有登记时（它在元数据最后一次落盘之后创建，
+     * 之后发生了崩溃），按最小的页大小由文件大小估计并登记：估计值不会少于实际分配的页面数，
+     * 多出的只是预分配的空页面，因此不会把正在使用的页面再次分配出去。
+     */
+    private Integer allocated_pages(String filename) {
+        Integer allocated = this.filePages.get(filename);
+        if (allocated == null && IsFileExists(filename)) {
+            long pages = (GetFileSize(filename) + Page.DEFAULT_PAGE_SIZE - 1) / Page.DEFAULT_PAGE_SIZE;
+            allocated = (int) Math.max(1, pages);
+            this.filePages.put(filename, allocated);
+        }
+        return allocated;
+    }
+
+    private int reserved_pages(String filename) {
+        Integer reserved = reservedPages.get(filename);
+        if (reserved == null) {
+            int page_size = GetPageSize(filename);
+            reserved = (int) ((GetFileSize(filename) + page_size - 1) / page_size);
+            reservedPages.put(filename, reserved);
+        }
+        return reserved;
+    }
+
+    private void truncate(String filename, long size) throws DBException {
+        with_channel(filename, false, channel -> channel.truncate(size));
+    }
+
+    /**
+     * 用连续的定位写把文件中从 first_page 开始的 pages 个页面写为零，使这些页面在文件中实际分配。
+     */
+    private void grow(String filename, int first_page, int pages) throws DBException {
+        int page_size = GetPageSize(filename);
+        with_channel(filename, true, channel -> {
+            long position = (long) first_page * page_size;
+            long end = position + (long) pages * page_size;
+            while (position < end) {
+                ByteBuffer zeros = ZEROS.duplicate();
+                zeros.limit((int) Math.min(zeros.capacity(), end - position));
+                position += channel.write(zeros, position);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 借出文件的句柄执行 operation，结束后归还。句柄被移出缓存时不会立即关闭，而是在最后一个使用者归还后关闭，
+     * 因此淘汰或 {@link #CloseFile(String)} 不会关闭其他线程正在使用的句柄。
+     *
+     * <p>
+     * 线程在通道上阻塞时被中断会关闭这个共享的通道，同时使用它的其他线程得到 {@link ClosedChannelException}。
+     * 这些线程重新打开文件后重试 operation，只有被中断的线程本身失败。operation 必须可以重复执行。
+     * </p>
+     *
+     * @param filename  文件名
+     * @param create    文件不存在时是否创建
+     * @param operation 在句柄上执行的操作
+     * @return operation 的结果
+     * @throws DBException 如果文件无法打开或操作时发生 I/O 错误
+     */
+    private <T> T with_channel(String filename, boolean create, ChannelOperation<T> operation) throws DBException {
+        while (true) {
+            Channel channel;
+            try {
+                channel = lease(filename, create);
+            } catch (IOException e) {
+                throw new DBException(ExceptionTypes.BadIOError(e.getMessage()));
+            }
+            try {
+                return operation.apply(channel.channel);
+            } catch (ClosedByInterruptException e) {
+                throw new DBException(ExceptionTypes.BadIOError(
+                        String.format("%s: interrupted during I/O", filename)));
+            } catch (ClosedChannelException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new DBException(ExceptionTypes.BadIOError(
+                            String.format("%s: interrupted during I/O", filename)));
+                }
+                // 通道被其他线程的中断关闭，下一次借出时重新打开
+            } catch (IOException e) {
+                throw new DBException(ExceptionTypes.BadIOError(e.getMessage()));
+            } finally {
+                release(channel);
+            }
+        }
+    }
+
+    /**
+     * 借出指定文件的句柄。若缓存中不存在或已被关闭则打开并放入缓存，
+     * 缓存超过 MAX_OPEN_FILES 时移出最久未使用的句柄。借出的句柄必须通过 {@link #release(Channel)} 归还。
+     *
+     * @param filename 文件名
+     * @param create   文件不存在时是否创建
+     * @return 可读写的句柄
+     * @throws IOException 如果文件无法打开
+     */
+    private Channel lease(String filename, boolean create) throws IOException {
+        synchronized (channelCache) {
+            Channel channel = channelCache.get(filename);
+            if (channel == null || !channel.channel.isOpen()) {
+                if (channel != null) {
+                    channel.retire();
+                }
+                Path real_path = Path.of(currentDir, filename);
+                channel = new Channel(filename, create
+                        ? FileChannel.open(real_path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                StandardOpenOption.CREATE)
+                        : FileChannel.open(real_path, StandardOpenOption.READ, StandardOpenOption.WRITE));
+                channelCache.put(filename, channel);
+            }
+            channel.leases++;
+            return channel;
+        }
+    }
+
+    /**
+     * 归还借出的句柄，已移出缓存的句柄在最后一个使用者归还后关闭。
+     */
+    private void release(Channel channel) {
+        synchronized (channelCache) {
+            channel.leases--;
+            if (channel.retired && channel.leases == 0) {
+                channel.close();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChannelOperation<T> {
+        T apply(FileChannel channel) throws IOException;
+    }
+
+    /**
+     * 一个缓存的文件句柄及其借出次数，由 channelCache 的监视器保护。
+     */
+    private static class Channel {
+        final String filename;
+        final FileChannel channel;
+        // 尚未归还的次数
+        int leases = 0;
+        // 已移出缓存，最后一个使用者归还后关闭
+        boolean retired = false;
+
+        Channel(String filename, FileChannel channel) {
+            this.filename = filename;
+            this.channel = channel;
+        }
+
+        /**
+         * 移出缓存时调用，没有使用者时立即关闭。
+         */
+        void retire() {
+            retired = true;
+            if (leases == 0) {
+                close();
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Logger.warn("Failed to close file {}: {}", filename, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 一个以内存映射方式读取的文件已映射的块与借出的页面数，由自身的监视器保护。
+     */
+    private static class MappedFile {
+        // 块号 -> 映射
+        final HashMap<Integer, MappedByteBuffer> chunks = new HashMap<>();
+        // 是否以内存映射方式读取
+        volatile boolean enabled = true;
+        // 尚未归还的页面数
+        int readers = 0;
+        // 截断因仍有页面未归还而被推迟
+        boolean truncatePending = false;
+    }
 }
@@ -0,0 +1,37 @@
+package edu.sustech.cs307.storage;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 文件名到整数文件号的驻留表。
+ *
+ * <p>
+ * 同名文件总是得到同一个文件号，{@link PagePosition} 用文件号计算散列值与比较相等，
+ * 页表查找时不必再散列、逐字符比较文件名。文件号在进程内有效，不会写入磁盘。
+ * </p>
+ */
+final class FileId {
+    private static final ConcurrentHashMap<String, FileId> IDS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    final String name;
+    final int id;
+
+    private FileId(String name, int id) {
+        this.name = name;
+        this.id = id;
+    }
+
+    /**
+     * @param filename 文件名
+     * @return 该文件名对应的文件号
+     */
+    static FileId of(String filename) {
+        FileId fileId = IDS.get(filename);
+        if (fileId == null) {
+            fileId = IDS.computeIfAbsent(filename, name -> new FileId(name, NEXT_ID.getAndIncrement()));
+        }
+        return fileId;
+    }
+}
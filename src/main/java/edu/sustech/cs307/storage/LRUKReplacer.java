@@ -0,0 +1,151 @@
+package edu.sustech.cs307.storage;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.TreeMap;
+
+/**
+ * LRU-K 替换策略。
+ *
+ * <p>
+ * 每个帧记录当前页面最近 K 次访问（Pin）的时间戳，替换时选择后向 K 距离最大的帧：
+ * 访问次数不足 K 次的帧距离视为无穷大，优先按取消固定的先后顺序替换（O(1)）；
+ * 其余帧按第 K 近一次访问的时间排序，保存在 TreeMap 中（O(log n)）。
+ * 一次性的顺序扫描页面只被访问一次，因此会先于被反复访问的热点页面被替换。
+ * 帧号必须在 [0, numPages) 范围内。
+ * </p>
+ */
+public class LRUKReplacer implements Replacer {
+    public static final int DEFAULT_K = 2;
+
+    private final int maxSize;
+    private final int k;
+    // 每个帧最近 k 次访问的时间戳（环形数组）及访问次数
+    private final long[][] history;
+    private final int[] accessCount;
+    private final boolean[] tracked;
+    private final boolean[] pinned;
+    // 帧在 cacheQueue 中的键，即第 k 近一次访问的时间戳
+    private final long[] queueKey;
+    // 访问次数不足 k 次的可替换帧
+    private final LinkedHashSet<Integer> historyQueue = new LinkedHashSet<>();
+    // 访问次数达到 k 次的可替换帧，按第 k 近一次访问的时间排序
+    private final TreeMap<Long, Integer> cacheQueue = new TreeMap<>();
+    private long currentTimestamp = 0;
+    private int pinnedCount = 0;
+
+    public LRUKReplacer(int numPages, int k) {
+        this.maxSize = numPages;
+        this.k = k;
+        this.history = new long[numPages][k];
+        this.accessCount = new int[numPages];
+        this.tracked = new boolean[numPages];
+        this.pinned = new boolean[numPages];
+        this.queueKey = new long[numPages];
+    }
+
+    @Override
+    public int Victim() {
+        int victim;
+        if (!historyQueue.isEmpty()) {
+            Iterator<Integer> it = historyQueue.iterator();
+            victim = it.next();
+            it.remove();
+        } else if (!cacheQueue.isEmpty()) {
+            victim = cacheQueue.pollFirstEntry().getValue();
+        } else {
+            return -1;
+        }
+        reset(victim);
+        return victim;
+    }
+
+    @Override
+    public void Pin(int frameId) {
+        if (frameId < maxSize && tracked[frameId] && pinned[frameId]) {
+            record_access(frameId);
+            return;
+        }
+        if ((frameId >= maxSize || !tracked[frameId]) && this.size() >= maxSize) {
+            throw new RuntimeException("REPLACER IS FULL");
+        }
+        if (tracked[frameId]) {
+            remove_evictable(frameId);
+        }
+        tracked[frameId] = true;
+        pinned[frameId] = true;
+        pinnedCount++;
+        record_access(frameId);
+    }
+
+    @Override
+    public void Unpin(int frameId) {
+        if (!tracked[frameId]) {
+            throw new RuntimeException("UNPIN PAGE NOT FOUND");
+        }
+        if (!pinned[frameId]) {
+            return;
+        }
+        pinned[frameId] = false;
+        pinnedCount--;
+        if (accessCount[frameId] < k) {
+            historyQueue.add(frameId);
+        } else {
+            // 环形数组中下一个要被覆盖的位置就是第 k 近的访问
+            queueKey[frameId] = history[frameId][accessCount[frameId] % k];
+            cacheQueue.put(queueKey[frameId], frameId);
+        }
+    }
+
+    @Override
+    public void Remove(int frameId) {
+        if (!tracked[frameId]) {
+            return;
+        }
+        if (pinned[frameId]) {
+            pinnedCount--;
+        } else {
+            remove_evictable(frameId);
+        }
+        reset(frameId);
+    }
+
+    @Override
+    public int[] Candidates(int limit) {
+        int[] candidates = new int[Math.min(limit, historyQueue.size() + cacheQueue.size())];
+        int count = 0;
+        Iterator<Integer> it = historyQueue.iterator();
+        while (count < candidates.length && it.hasNext()) {
+            candidates[count++] = it.next();
+        }
+        it = cacheQueue.values().iterator();
+        while (count < candidates.length && it.hasNext()) {
+            candidates[count++] = it.next();
+        }
+        return candidates;
+    }
+
+    @Override
+    public int size() {
+        return historyQueue.size() + cacheQueue.size() + pinnedCount;
+    }
+
+    private void record_access(int frameId) {
+        history[frameId][accessCount[frameId] % k] = ++currentTimestamp;
+        accessCount[frameId]++;
+    }
+
+    private void remove_evictable(int frameId) {
+        if (accessCount[frameId] < k) {
+            historyQueue.remove(frameId);
+        } else {
+            cacheQueue.remove(queueKey[frameId]);
+        }
+    }
+
+    private void reset(int frameId) {
+        tracked[frameId] = false;
+        pinned[frameId] = false;
+        accessCount[frameId] = 0;
+    }
+}
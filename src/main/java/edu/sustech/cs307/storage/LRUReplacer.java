@@ -2,58 +2,71 @@ package edu.sustech.cs307.storage;
 
 import java.util.*;
 
-public class LRUReplacer {
+public class LRUReplacer implements Replacer {
 
     private final int maxSize;
     private final Set<Integer> pinnedFrames = new HashSet<>();
-    private final Set<Integer> LRUHash = new HashSet<>();
-    private final LinkedList<Integer> LRUList = new LinkedList<>();
+    // 按取消固定的先后顺序排列，队首为最久未使用的帧；LinkedHashSet 的查找与删除均为 O(1)
+    private final LinkedHashSet<Integer> LRUList = new LinkedHashSet<>();
 
     public LRUReplacer(int numPages) {
         this.maxSize = numPages;
     }
 
+    @Override
     public int Victim() {
         if (LRUList.isEmpty()) {
             return -1;
         }
-        int victim = LRUList.remove();
-        LRUHash.remove(victim);
+        Iterator<Integer> it = LRUList.iterator();
+        int victim = it.next();
+        it.remove();
         return victim;
     }
 
+    @Override
     public void Pin(int frameId) {
         if (pinnedFrames.contains(frameId)) {
             return;
         }
-        if (this.size()>= maxSize) {
+        if (!LRUList.contains(frameId) && this.size() >= maxSize) {
             throw new RuntimeException("REPLACER IS FULL");
         }
         pinnedFrames.add(frameId);
-        if (LRUHash.contains(frameId)) {
-            LRUHash.remove(frameId);
-        }
-        if (LRUList.contains(frameId)) {
-            LRUList.remove(LRUList.indexOf(frameId));
-        }
+        LRUList.remove(frameId);
     }
 
-
+    @Override
     public void Unpin(int frameId) {
-        if (LRUHash.contains(frameId)) {
+        if (LRUList.contains(frameId)) {
             return;
         }
         if (pinnedFrames.contains(frameId)) {
             pinnedFrames.remove(frameId);
-            LRUHash.add(frameId);
             LRUList.add(frameId);
-        }else {
+        } else {
             throw new RuntimeException("UNPIN PAGE NOT FOUND");
         }
     }
 
+    @Override
+    public void Remove(int frameId) {
+        pinnedFrames.remove(frameId);
+        LRUList.remove(frameId);
+    }
+
+    @Override
+    public int[] Candidates(int limit) {
+        int[] candidates = new int[Math.min(limit, LRUList.size())];
+        Iterator<Integer> it = LRUList.iterator();
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = it.next();
+        }
+        return candidates;
+    }
 
+    @Override
     public int size() {
         return LRUList.size() + pinnedFrames.size();
     }
-}
\ No newline at end of file
+}
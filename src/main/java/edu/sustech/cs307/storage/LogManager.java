@@ -0,0 +1,471 @@
+package edu.sustech.cs307.storage;
+
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.exception.ExceptionTypes;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.pmw.tinylog.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * 重做日志管理器，负责顺序追加写入页面镜像与提交记录，并在启动时重放日志。
+ *
+ * <p>
+ * 日志记录格式：[int 长度][long CRC32][记录体]，记录体的第一个字节为记录类型：
+ * </p>
+ * <ul>
+ * <li>PAGE_IMAGE：[int 文件名长度][文件名][int 偏移量][页面数据]</li>
+ * <li>COMMIT：无其他内容</li>
+ * <li>UNDO_IMAGE：与 PAGE_IMAGE 相同，页面数据是数据文件中被未提交的内容覆盖之前的内容</li>
+ * </ul>
+ *
+ * <p>
+ * 缓冲池可以在语句提交之前写回它修改的页面。写回之前页面在数据文件中原来的内容被记为撤销镜像，
+ * 重放时用最后一条提交记录之后每个页面的第一条撤销镜像撤销这些写入（见 {@link #Recover(DiskManager)}）。
+ * </p>
+ *
+ * <p>
+ * 提交时只需要一次日志 fsync 即可持久化；多个线程同时提交时，由第一个进入的线程（leader）
+ * 负责把所有已追加的记录一次性写出并 fsync，其他线程等待该批次完成（组提交）。
+ * 数据页面本身由 BufferPool 延迟写回，直到检查点时才统一刷盘并截断日志。
+ * </p>
+ *
+ * <p>
+ * 检查点期间其他线程仍可能追加记录，截断只丢弃检查点开始之前的记录（见 {@link #Truncate(long)}），
+ * 之后的记录保留在新的日志文件中。
+ * </p>
+ */
+public class LogManager {
+    public static final String LOG_FILE = "redo.log";
+
+    // 日志超过该大小后，下一次提交会触发检查点
+    public static final long CHECKPOINT_SIZE = 64L * 1024 * 1024;
+    // 内存中的日志缓冲超过该大小时提前写出
+    private static final int LOG_BUFFER_SIZE = 1024 * 1024;
+
+    private static final byte PAGE_IMAGE = 1;
+    private static final byte COMMIT = 2;
+    private static final byte UNDO_IMAGE = 3;
+    private static final int RECORD_HEADER_SIZE = 4 + 8;
+
+    private final Path path;
+    // 截断时可能被替换为新的日志文件，由 this 的监视器保护
+    private FileChannel channel;
+
+    // 尚未写出的日志记录
+    private ByteBuf logBuffer;
+    // 已追加记录的末尾 LSN
+    private long appendLsn;
+    // 已持久化记录的末尾 LSN
+    private long flushedLsn;
+    // 已持久化的最后一条提交记录的末尾 LSN，LSN 不超过它的页面镜像属于已提交的语句
+    private long committedLsn;
+    // 日志文件开头对应的 LSN，截断后前移，保证 LSN 单调递增
+    private long fileStartLsn;
+    // 是否有线程正在执行写出
+    private boolean flushing;
+
+    /**
+     * 打开（或创建）指定目录下的重做日志文件。
+     *
+     * @param dir 日志所在目录
+     * @throws DBException 如果日志文件无法打开
+     */
+    public LogManager(String dir) throws DBException {
+        this.path = Path.of(dir, LOG_FILE);
+        try {
+            path.toFile().getParentFile().mkdirs();
+            this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE);
+            this.appendLsn = channel.size();
+        } catch (IOException e) {
+            throw new DBException(ExceptionTypes.BadIOError(e.getMessage()));
+        }
+        this.flushedLsn = appendLsn;
+        this.fileStartLsn = 0;
+        this.logBuffer = Unpooled.buffer(LOG_BUFFER_SIZE);
+    }
+
+    /**
+     * 追加一条页面镜像记录，并把页面的 lsn 更新为该记录的末尾位置。
+     *
+     * @param page 要记录的页面
+     * @return 该记录的末尾 LSN
+     * @throws DBException 如果提前写出日志时发生 I/O 错误
+     */
+    public long AppendPage(Page page) throws DBException {
+        long lsn = append_image(PAGE_IMAGE, page);
+        page.lsn = lsn;
+        page.logged = true;
+        return lsn;
+    }
+
+    /**
+     * 追加一条撤销镜像记录。调用者必须在用未提交的内容覆盖数据文件中的页面之前，保证该记录已经持久化。
+     *
+     * @param before 数据文件中该页面当前的内容，其 lsn 不会被修改
+     * @return 该记录的末尾 LSN
+     * @throws DBException 如果提前写出日志时发生 I/O 错误
+     */
+    public long AppendUndo(Page before) throws DBException {
+        return append_image(UNDO_IMAGE, before);
+    }
+
+    /**
+     * 追加一条提交记录，并等待该记录持久化。
+     *
+     * @return 提交记录的末尾 LSN
+     * @throws DBException 如果写出日志时发生 I/O 错误
+     */
+    public long Commit() throws DBException {
+        ByteBuf body = Unpooled.buffer(1);
+        body.writeByte(COMMIT);
+        long lsn;
+        synchronized (this) {
+            lsn = append(body);
+        }
+        Flush(lsn);
+        synchronized (this) {
+            committedLsn = Math.max(committedLsn, lsn);
+        }
+        return lsn;
+    }
+
+    /**
+     * 保证 LSN 不超过 lsn 的日志记录都已持久化。
+     * 若已有线程在写出，则等待其完成后再判断，从而把并发提交合并为一次 fsync。
+     *
+     * @param lsn 需要持久化到的 LSN
+     * @throws DBException 如果写出日志时发生 I/O 错误
+     */
+    public void Flush(long lsn) throws DBException {
+        ByteBuf batch;
+        long batchStart;
+        long batchEnd;
+        FileChannel out;
+        long outStartLsn;
+        synchronized (this) {
+            while (flushedLsn < lsn && flushing) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DBException(ExceptionTypes.BadIOError("Interrupted while waiting for log flush"));
+                }
+            }
+            if (flushedLsn >= lsn) {
+                return;
+            }
+            // 成为 leader，带走目前为止追加的所有记录
+            flushing = true;
+            batch = logBuffer;
+            batchStart = flushedLsn;
+            batchEnd = appendLsn;
+            logBuffer = Unpooled.buffer(LOG_BUFFER_SIZE);
+            // 写出期间不会截断，日志文件及其起始 LSN 不变
+            out = channel;
+            outStartLsn = fileStartLsn;
+        }
+        boolean success = false;
+        try {
+            ByteBuffer buffer = batch.nioBuffer();
+            long position = batchStart - outStartLsn;
+            while (buffer.hasRemaining()) {
+                position += out.write(buffer, position);
+            }
+            out.force(false);
+            success = true;
+        } catch (IOException e) {
+            throw new DBException(ExceptionTypes.BadIOError(e.getMessage()));
+        } finally {
+            synchronized (this) {
+                if (success) {
+                    flushedLsn = batchEnd;
+                }
+                flushing = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return 当前日志文件的大小是否已经超过检查点阈值
+     */
+    public synchronized boolean NeedCheckpoint() {
+        return appendLsn - fileStartLsn >= CHECKPOINT_SIZE;
+    }
+
+    /**
+     * @return 已追加记录的末尾 LSN
+     */
+    public synchronized long getAppendLsn() {
+        return appendLsn;
+    }
+
+    /**
+     * @return 已持久化的最后一条提交记录的末尾 LSN。页面的 lsn 超过它时，页面的内容尚未提交
+     */
+    public synchronized long getCommittedLsn() {
+        return committedLsn;
+    }
+
+    /**
+     * @return 已持久化记录的末尾 LSN
+     */
+    public synchronized long getFlushedLsn() {
+        return flushedLsn;
+    }
+
+    /**
+     * 丢弃日志中 LSN 不超过 lsn 的记录。调用者必须保证这些记录涉及的页面都已写回并同步到数据文件，
+     * 检查点在写回脏页之前通过 {@link #getAppendLsn()} 取得 lsn。
+     *
+     * <p>
+     * 之后追加的记录保留：尚未写出的仍留在日志缓冲中，已经写出的被复制到新的日志文件，
+     * 新文件同步后原子地替换原文件。lsn 之前尚未写出的记录不再写出。
+     * </p>
+     *
+     * @param lsn 检查点覆盖的末尾 LSN
+     * @throws DBException 如果截断日志时发生 I/O 错误
+     */
+    public void Truncate(long lsn) throws DBException {
+        synchronized (this) {
+            // 等待正在进行的写出完成，持有监视器期间不会开始新的写出
+            while (flushing) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DBException(ExceptionTypes.BadIOError("Interrupted while waiting for log flush"));
+                }
+            }
+            long start = Math.max(Math.min(lsn, appendLsn), fileStartLsn);
+            if (start > flushedLsn) {
+                logBuffer.skipBytes((int) (start - flushedLsn));
+                flushedLsn = start;
+            }
+            try {
+                if (start == flushedLsn) {
+                    channel.truncate(0);
+                    channel.force(true);
+                } else {
+                    keep_tail(start);
+                }
+            } catch (IOException e) {
+                throw new DBException(ExceptionTypes.BadIOError(e.getMessage()));
+            }
+            fileStartLsn = start;
+            notifyAll();
+        }
+    }
+
+    /**
+     * 重放日志：把最后一条提交记录之前的所有页面镜像写回数据文件；之后的记录属于未完成的语句，
+     * 对其中有撤销镜像、而提交之前没有页面镜像的页面，写回第一条撤销镜像，即页面被未提交的内容覆盖之前的内容。
+     * 提交之前有页面镜像的页面已经由重做恢复到提交时的内容。同步数据文件后截断日志。
+     * 数据文件已被删除的页面镜像会被忽略。必须在 BufferPool 开始使用之前调用。
+     *
+     * @param diskManager 磁盘管理器
+     * @throws DBException 如果读取日志或写回页面时发生 I/O 错误
+     */
+    public void Recover(DiskManager diskManager) throws DBException {
+        // 第一遍：找到最后一条完整提交记录的位置，其后的记录属于未完成的语句
+        long committedEnd = scan(null);
+        if (getAppendLsn() > 0) {
+            Set<String> files = new HashSet<>();
+            RedoTarget target = new RedoTarget(diskManager, committedEnd, files);
+            scan(target);
+            for (String file : files) {
+                diskManager.SyncFile(file);
+            }
+            Logger.info("Redo log replayed up to {}, {} page(s) undone, {} file(s) recovered", committedEnd,
+                    target.undone, files.size());
+        }
+        Truncate(getAppendLsn());
+    }
+
+    public synchronized void Close() throws DBException {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new DBException(ExceptionTypes.BadIOError(e.getMessage()));
+        }
+    }
+
+    /**
+     * 把日志文件中从 start 到 flushedLsn 的记录写入新文件，同步后替换原文件。调用者必须持有 this 的监视器，
+     * 且没有正在进行的写出。
+     */
+    private void keep_tail(long start) throws IOException {
+        ByteBuffer tail = ByteBuffer.allocate((int) (flushedLsn - start));
+        long position = start - fileStartLsn;
+        while (tail.hasRemaining()) {
+            int read = channel.read(tail, position);
+            if (read < 0) {
+                throw new EOFException(String.format("%s: log ends before %d", path, flushedLsn));
+            }
+            position += read;
+        }
+        tail.flip();
+        Path tmp = path.resolveSibling(LOG_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (tail.hasRemaining()) {
+                out.write(tail);
+            }
+            out.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel.close();
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private long append_image(byte type, Page page) throws DBException {
+        byte[] filename = page.position.filename.getBytes(StandardCharsets.UTF_8);
+        ByteBuf body = Unpooled.buffer(1 + 4 + filename.length + 4 + page.size());
+        body.writeByte(type);
+        body.writeInt(filename.length);
+        body.writeBytes(filename);
+        body.writeInt(page.position.offset);
+        body.writeBytes(page.data, 0, page.size());
+        long lsn;
+        boolean full;
+        synchronized (this) {
+            lsn = append(body);
+            full = logBuffer.readableBytes() >= LOG_BUFFER_SIZE;
+        }
+        if (full) {
+            Flush(lsn);
+        }
+        return lsn;
+    }
+
+    private long append(ByteBuf body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.nioBuffer());
+        logBuffer.writeInt(body.readableBytes());
+        logBuffer.writeLong(crc.getValue());
+        logBuffer.writeBytes(body);
+        appendLsn += RECORD_HEADER_SIZE + body.writerIndex();
+        return appendLsn;
+    }
+
+    /**
+     * 顺序扫描日志中的完整记录，遇到截断或校验失败的记录时停止。
+     *
+     * @param target 若不为 null，则重放提交点之前的页面镜像，撤销提交点之后的写入
+     * @return 最后一条提交记录的末尾位置，没有提交记录时返回 0
+     */
+    private long scan(RedoTarget target) throws DBException {
+        long committedEnd = 0;
+        long position = 0;
+        try {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Channels.newInputStream(channel.position(0)), LOG_BUFFER_SIZE));
+            while (true) {
+                int length;
+                long checksum;
+                byte[] body;
+                try {
+                    length = in.readInt();
+                    checksum = in.readLong();
+                    if (length <= 0 || length > Page.MAX_PAGE_SIZE + 4096) {
+                        break;
+                    }
+                    body = new byte[length];
+                    in.readFully(body);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                if (crc.getValue() != checksum) {
+                    break;
+                }
+                position += RECORD_HEADER_SIZE + length;
+                if (body[0] == COMMIT) {
+                    committedEnd = position;
+                } else if (target != null && position <= target.committedEnd) {
+                    if (body[0] == PAGE_IMAGE) {
+                        target.redo(ByteBuffer.wrap(body, 1, length - 1));
+                    }
+                } else if (target != null && body[0] == UNDO_IMAGE) {
+                    target.undo(ByteBuffer.wrap(body, 1, length - 1));
+                }
+            }
+        } catch (IOException e) {
+            throw new DBException(ExceptionTypes.BadIOError(e.getMessage()));
+        }
+        return committedEnd;
+    }
+
+    private static class RedoTarget {
+        private final DiskManager diskManager;
+        private final long committedEnd;
+        private final Set<String> files;
+        // 已经重做或撤销过的页面，之后的撤销镜像不再写回
+        private final Set<PagePosition> restored = new HashSet<>();
+        private int undone = 0;
+
+        RedoTarget(DiskManager diskManager, long committedEnd, Set<String> files) {
+            this.diskManager = diskManager;
+            this.committedEnd = committedEnd;
+            this.files = files;
+        }
+
+        void redo(ByteBuffer body) throws DBException {
+            Page page = write(body);
+            if (page != null) {
+                restored.add(page.position);
+                // 日志中出现的页面可能是在元数据落盘之前分配的
+                diskManager.filePages.merge(page.position.filename, page.position.offset / page.size() + 1,
+                        Math::max);
+            }
+        }
+
+        void undo(ByteBuffer body) throws DBException {
+            ByteBuffer header = body.duplicate();
+            byte[] filename = new byte[header.getInt()];
+            header.get(filename);
+            PagePosition position = new PagePosition(new String(filename, StandardCharsets.UTF_8), header.getInt());
+            if (restored.add(position) && write(body) != null) {
+                undone++;
+            }
+        }
+
+        /**
+         * 把页面镜像写回数据文件，数据文件已被删除时返回 null。
+         */
+        private Page write(ByteBuffer body) throws DBException {
+            byte[] filename = new byte[body.getInt()];
+            body.get(filename);
+            int offset = body.getInt();
+            String file = new String(filename, StandardCharsets.UTF_8);
+            if (!diskManager.IsFileExists(file)) {
+                return null;
+            }
+            // 页面镜像的长度就是该文件的页大小
+            Page page = new Page(body.remaining());
+            page.data.setBytes(0, body);
+            page.position = new PagePosition(file, offset);
+            diskManager.WritePage(page);
+            files.add(file);
+            return page;
+        }
+    }
+}
@@ -4,21 +4,115 @@ package edu.sustech.cs307.storage;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
 public class Page {
     public final static int DEFAULT_PAGE_SIZE = 4 * 1024;
+    // 表文件可选的最大页大小；页大小必须是 DEFAULT_PAGE_SIZE 到 MAX_PAGE_SIZE 之间的 2 的幂
+    public final static int MAX_PAGE_SIZE = 64 * 1024;
 
     public final static int PAGE_HEADER_SIZE = 8;
 
+    private static final AtomicIntegerFieldUpdater<Page> PIN_COUNT =
+            AtomicIntegerFieldUpdater.newUpdater(Page.class, "pin_count");
+
     public ByteBuf data;
     public PagePosition position = new PagePosition("null", 0);
-    public boolean dirty;
-    public int pin_count = 0;
+    public volatile boolean dirty;
+    public volatile int pin_count = 0;
+    // 最近一次写入重做日志的页面镜像对应的 LSN
+    public long lsn = 0;
+    // 自上次被标记为脏页以来，当前内容是否已写入重做日志
+    public boolean logged = false;
+    // 所属文件已被删除，但页面仍被固定而留在页表中；不再写回，最后一次取消固定时帧被回收
+    public volatile boolean discarded = false;
+    // 内存映射中的只读页面，不在缓冲池中，用完后通过 BufferPool.unpin_page(Page, boolean) 归还
+    public boolean mapped = false;
+    // 保护页面内容的读写锁，只能在页面被固定期间持有
+    private final ReentrantReadWriteLock latch = new ReentrantReadWriteLock();
 
     public int getPageID() {
-        return position.offset / DEFAULT_PAGE_SIZE;
+        return position.offset / size();
     }
 
     public Page() {
-        data = Unpooled.buffer(DEFAULT_PAGE_SIZE);
+        this(DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * 创建一个指定大小的堆内页面。
+     *
+     * @param size 页大小
+     */
+    public Page(int size) {
+        data = Unpooled.buffer(size, size);
+    }
+
+    /**
+     * 使用给定的缓冲区作为页面内容，缓冲池用它把帧放在堆外内存中。
+     *
+     * @param data 页面大小的缓冲区
+     */
+    Page(ByteBuf data) {
+        this.data = data;
+    }
+
+    /**
+     * @return 页大小，即 data 的容量
+     */
+    public int size() {
+        return data.capacity();
+    }
+
+    /**
+     * @param size 页大小
+     * @return size 是否是合法的页大小
+     */
+    public static boolean IsValidPageSize(int size) {
+        return size >= DEFAULT_PAGE_SIZE && size <= MAX_PAGE_SIZE && Integer.bitCount(size) == 1;
+    }
+
+    /**
+     * 原子地增加引脚计数。
+     *
+     * @return 增加后的引脚计数
+     */
+    public int pin() {
+        return PIN_COUNT.incrementAndGet(this);
+    }
+
+    /**
+     * 原子地减少引脚计数。
+     *
+     * @return 减少后的引脚计数
+     */
+    public int unpin() {
+        return PIN_COUNT.decrementAndGet(this);
+    }
+
+    public void RLatch() {
+        latch.readLock().lock();
+    }
+
+    /**
+     * 尝试获取读锁，不等待。
+     *
+     * @return 获取成功返回 true
+     */
+    public boolean TryRLatch() {
+        return latch.readLock().tryLock();
+    }
+
+    public void RUnlatch() {
+        latch.readLock().unlock();
+    }
+
+    public void WLatch() {
+        latch.writeLock().lock();
+    }
+
+    public void WUnlatch() {
+        latch.writeLock().unlock();
     }
 }
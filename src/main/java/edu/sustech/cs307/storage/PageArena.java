@@ -0,0 +1,83 @@
+package edu.sustech.cs307.storage;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 页面帧的堆外内存区域。
+ *
+ * <p>
+ * 内存按固定大小的 slab 通过 {@link ByteBuffer#allocateDirect(int)} 分配，每个 slab 被切分为若干个页面大小的切片。
+ * 帧内容因此不占用 Java 堆，也不会被 GC 复制或扫描；DiskManager 对堆外缓冲区的读写可以直接交给操作系统，
+ * 无需经过中间的堆内拷贝。
+ * </p>
+ *
+ * <p>
+ * slab 在其中第一个帧被创建时才分配，当其中所有帧都被释放后丢弃，内存随 slab 对象一起被回收。
+ * 因此进程占用的内存跟随缓冲池实际使用的帧数，而不是配置的上限。
+ * </p>
+ */
+class PageArena {
+    // 每个 slab 包含的页面数（4MB）
+    static final int SLAB_PAGES = 1024;
+
+    private final int maxFrames;
+    private final ByteBuffer[] slabs;
+    // 每个 slab 中已创建且尚未释放的帧数
+    private final int[] liveFrames;
+
+    /**
+     * 创建一个最多容纳 maxFrames 个帧的内存区域，此时不分配任何内存。
+     *
+     * @param maxFrames 帧数上限
+     */
+    PageArena(int maxFrames) {
+        this.maxFrames = maxFrames;
+        this.slabs = new ByteBuffer[(maxFrames + SLAB_PAGES - 1) / SLAB_PAGES];
+        this.liveFrames = new int[slabs.length];
+    }
+
+    /**
+     * 返回帧对应的页面大小的切片，读写索引均为 0。所在的 slab 尚未分配时先分配。
+     *
+     * @param frame_id 帧号
+     * @return 与 slab 共享内存的 ByteBuf
+     */
+    synchronized ByteBuf slice(int frame_id) {
+        int index = frame_id / SLAB_PAGES;
+        if (slabs[index] == null) {
+            int pages = Math.min(SLAB_PAGES, maxFrames - index * SLAB_PAGES);
+            slabs[index] = ByteBuffer.allocateDirect(pages * Page.DEFAULT_PAGE_SIZE);
+        }
+        liveFrames[index]++;
+        int offset = (frame_id % SLAB_PAGES) * Page.DEFAULT_PAGE_SIZE;
+        return Unpooled.wrappedBuffer(slabs[index].slice(offset, Page.DEFAULT_PAGE_SIZE)).clear();
+    }
+
+    /**
+     * 释放帧对应的切片，调用者之后不能再使用该切片。slab 中的帧全部释放后丢弃该 slab。
+     *
+     * @param frame_id 帧号
+     */
+    synchronized void release(int frame_id) {
+        int index = frame_id / SLAB_PAGES;
+        if (--liveFrames[index] == 0) {
+            slabs[index] = null;
+        }
+    }
+
+    /**
+     * @return 当前已分配的堆外内存字节数
+     */
+    synchronized long allocatedBytes() {
+        long bytes = 0;
+        for (ByteBuffer slab : slabs) {
+            if (slab != null) {
+                bytes += slab.capacity();
+            }
+        }
+        return bytes;
+    }
+}
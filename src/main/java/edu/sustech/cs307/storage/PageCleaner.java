@@ -0,0 +1,95 @@
+package edu.sustech.cs307.storage;
+
+import edu.sustech.cs307.exception.DBException;
+import org.pmw.tinylog.Logger;
+
+/**
+ * 后台写回线程。
+ *
+ * <p>
+ * 每隔 {@link #INTERVAL_MS} 毫秒调用一次 {@link BufferPool#CleanPages(int, int)}，
+ * 使替换器尾部（即最先会被替换的）若干个帧保持干净。这样缺页时选中的受害者通常不需要写回，
+ * 查询线程只需一次读盘。查询线程不得不同步写回脏页时会提前唤醒本线程。
+ * </p>
+ *
+ * <p>
+ * 写回速率由令牌桶限制为每秒 {@link #MAX_WRITES_PER_SECOND} 个页面，避免后台写回占满磁盘带宽。
+ * </p>
+ */
+public class PageCleaner {
+    public static final int INTERVAL_MS = 10;
+    // 4096 页，即每秒最多写 16MB
+    public static final int MAX_WRITES_PER_SECOND = 4096;
+    // 至少保持干净的可替换帧数，缓冲池较大时为帧数的 1/64
+    public static final int MIN_CLEAN_TARGET = 16;
+
+    private final BufferPool bufferPool;
+    private final Thread thread;
+    private volatile boolean running = false;
+    private boolean wakeup = false;
+    // 令牌桶：当前可用的写回次数，最多积累一秒
+    private double tokens = 0;
+    private long lastRefill;
+
+    public PageCleaner(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+        this.thread = new Thread(this::run, "page-cleaner");
+        this.thread.setDaemon(true);
+    }
+
+    public void Start() {
+        running = true;
+        lastRefill = System.nanoTime();
+        thread.start();
+    }
+
+    /**
+     * 停止写回线程并等待其退出。
+     */
+    public void Shutdown() {
+        running = false;
+        Wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 立即开始下一轮写回。
+     */
+    public synchronized void Wakeup() {
+        wakeup = true;
+        notifyAll();
+    }
+
+    private int clean_target() {
+        return Math.max(MIN_CLEAN_TARGET, bufferPool.getPoolSize() / 64);
+    }
+
+    private void run() {
+        while (running) {
+            long now = System.nanoTime();
+            tokens = Math.min(MAX_WRITES_PER_SECOND, tokens + (now - lastRefill) / 1e9 * MAX_WRITES_PER_SECOND);
+            lastRefill = now;
+            if (tokens >= 1) {
+                try {
+                    tokens -= bufferPool.CleanPages(clean_target(), (int) tokens);
+                } catch (DBException e) {
+                    Logger.warn("Page cleaner failed: {}", e.getMessage());
+                }
+            }
+            synchronized (this) {
+                if (!wakeup && running) {
+                    try {
+                        wait(INTERVAL_MS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                wakeup = false;
+            }
+        }
+    }
+}
@@ -3,21 +3,43 @@ package edu.sustech.cs307.storage;
 public class PagePosition {
     public String filename;
     public int offset;
+    // filename 对应的驻留文件号；filename 被重新赋值后在下次使用时重新查找
+    private FileId fileId;
 
     public PagePosition(String filename, int offset){
         this.filename = filename;
         this.offset = offset;
     }
 
+    /**
+     * @return 文件名对应的整数文件号，同名文件的文件号相同
+     */
+    public int getFileId() {
+        return file_id().id;
+    }
+
+    private FileId file_id() {
+        FileId cached = fileId;
+        // 查找后 filename 被替换为驻留表中的同一个字符串对象，之后只需比较引用
+        if (cached == null || cached.name != filename) {
+            cached = FileId.of(filename);
+            filename = cached.name;
+            fileId = cached;
+        }
+        return cached;
+    }
+
     @Override
     public int hashCode() {
-        return (filename.hashCode() << 16) ^ offset;
+        // 偏移量是页大小的整数倍，右移使页号进入低位
+        int h = (file_id().id * 0x9E3779B9) ^ offset;
+        return h ^ (h >>> 12);
     }
 
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof PagePosition other) {
-            return filename.equals(other.filename) && offset == other.offset;
+            return offset == other.offset && file_id().id == other.file_id().id;
         }
         return false;
     }
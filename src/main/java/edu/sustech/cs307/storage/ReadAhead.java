@@ -0,0 +1,186 @@
+package edu.sustech.cs307.storage;
+
+import edu.sustech.cs307.exception.DBException;
+import org.pmw.tinylog.Logger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 顺序预读引擎。
+ *
+ * <p>
+ * BufferPool 在每次获取页面后调用 {@link #OnAccess(PagePosition)}。引擎为每个文件维护一个访问流：
+ * 连续访问相邻页面达到 {@link #SEQUENTIAL_THRESHOLD} 次后，认为该文件正在被顺序扫描，
+ * 由后台线程把之后的一个窗口的页面异步读入缓冲池，连续的缺失页面只需一次定位读。
+ * </p>
+ *
+ * <p>
+ * 每个窗口中间的页面是异步标记：扫描到达标记时提交下一个窗口，使 I/O 与扫描重叠。
+ * 若到达标记时上一个窗口仍未读完，说明扫描快于 I/O，窗口翻倍（不超过 {@link #MAX_WINDOW} 与缓冲池的四分之一），
+ * 以更大的读请求换取带宽；访问不再连续时窗口回到 {@link #MIN_WINDOW}。
+ * </p>
+ *
+ * <p>
+ * 使用环形缓冲区的扫描，其预读的页面也装入同一个环，窗口不超过环大小的一半，
+ * 以免预读的页面在被扫描到之前就被环回收。
+ * </p>
+ */
+public class ReadAhead {
+    // 连续访问多少个相邻页面后开始预读
+    public static final int SEQUENTIAL_THRESHOLD = 2;
+    public static final int MIN_WINDOW = 8;
+    // 256 页，即一次最多读 1MB
+    public static final int MAX_WINDOW = 256;
+    private static final int THREADS = 2;
+
+    private final BufferPool bufferPool;
+    private final DiskManager diskManager;
+    private final ExecutorService executor;
+    // filename -> 访问流
+    private final ConcurrentHashMap<String, Stream> streams = new ConcurrentHashMap<>();
+    private final AtomicLong prefetchedPages = new AtomicLong();
+
+    public ReadAhead(BufferPool bufferPool, DiskManager diskManager) {
+        this.bufferPool = bufferPool;
+        this.diskManager = diskManager;
+        this.executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "read-ahead");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 记录一次页面访问，必要时提交异步预读。
+     *
+     * @param position 被访问的页面位置
+     * @param strategy 本次访问使用的访问策略，可以为 null
+     */
+    public void OnAccess(PagePosition position, BufferAccessStrategy strategy) {
+        String filename = position.filename;
+        int page_no = position.offset / diskManager.GetPageSize(filename);
+        Stream stream = streams.computeIfAbsent(filename, name -> new Stream());
+        synchronized (stream) {
+            if (page_no == stream.lastPage) {
+                return;
+            }
+            if (page_no == stream.lastPage + 1) {
+                stream.run++;
+            } else {
+                stream.reset();
+            }
+            stream.lastPage = page_no;
+            stream.strategy = strategy;
+            if (stream.run < SEQUENTIAL_THRESHOLD) {
+                return;
+            }
+            if (stream.prefetchEnd <= page_no) {
+                // 尚未开始预读，或扫描已经越过了预读的范围
+                submit(filename, stream, page_no + 1);
+            } else if (page_no == stream.marker) {
+                if (stream.inflight != null && !stream.inflight.isDone()) {
+                    stream.window = Math.min(stream.window * 2, max_window(filename, strategy));
+                }
+                submit(filename, stream, stream.prefetchEnd);
+            }
+        }
+    }
+
+    /**
+     * 丢弃文件的访问流并取消尚未开始的预读，文件的页面即将被删除或截断。已经开始的预读由缓冲池在装入时丢弃。
+     *
+     * @param filename 文件名
+     */
+    public void Forget(String filename) {
+        Stream stream = streams.remove(filename);
+        if (stream != null) {
+            synchronized (stream) {
+                if (stream.inflight != null) {
+                    // 不中断正在执行的预读，中断会关闭其正在使用的文件通道
+                    stream.inflight.cancel(false);
+                }
+                stream.reset();
+            }
+        }
+    }
+
+    /**
+     * @return 已经预读进缓冲池的页面总数
+     */
+    public long getPrefetchedPages() {
+        return prefetchedPages.get();
+    }
+
+    /**
+     * 停止接受新的预读请求，并等待已提交的预读完成。
+     */
+    public void Shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int max_window(String filename, BufferAccessStrategy strategy) {
+        if (strategy != null) {
+            return Math.max(1, strategy.size() / 2);
+        }
+        // 上限以默认大小的页计，页更大的文件按比例缩小窗口，使一次读取的字节数不变
+        int units = diskManager.GetPageSize(filename) / Page.DEFAULT_PAGE_SIZE;
+        return Math.max(1, Math.max(MIN_WINDOW, Math.min(MAX_WINDOW, bufferPool.getPoolSize() / 4)) / units);
+    }
+
+    /**
+     * 提交从 first_page 开始的一个窗口。调用者必须持有 stream 的监视器。
+     */
+    private void submit(String filename, Stream stream, int first_page) {
+        BufferAccessStrategy strategy = stream.strategy;
+        int window = Math.min(stream.window, max_window(filename, strategy));
+        int count = Math.min(window, diskManager.GetPageCount(filename) - first_page);
+        if (count <= 0 || executor.isShutdown()) {
+            return;
+        }
+        stream.marker = first_page + count / 2;
+        stream.prefetchEnd = first_page + count;
+        try {
+            stream.inflight = executor.submit(() -> {
+                try {
+                    prefetchedPages.addAndGet(bufferPool.PrefetchPages(filename, first_page, count, strategy));
+                } catch (DBException e) {
+                    Logger.warn("Read-ahead of {} failed: {}", filename, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 已经关闭
+        }
+    }
+
+    private static class Stream {
+        int lastPage = -2;
+        // 以 lastPage 结尾的连续访问长度
+        int run = 0;
+        int window = MIN_WINDOW;
+        // 已提交预读的范围的末尾（不含）与异步标记
+        int prefetchEnd = 0;
+        int marker = -1;
+        Future<?> inflight;
+        // 最近一次访问使用的访问策略
+        BufferAccessStrategy strategy;
+
+        void reset() {
+            run = 1;
+            window = MIN_WINDOW;
+            prefetchEnd = 0;
+            marker = -1;
+            inflight = null;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package edu.sustech.cs307.storage;
+
+/**
+ * 页面替换策略接口。BufferPool 通过该接口选择被替换的帧。
+ *
+ * <p>
+ * 替换器只跟踪帧号：被 Pin 的帧不可被替换，Unpin 后变为可替换，Victim 从可替换帧中按策略选出一个并将其移出。
+ * 所有实现的各项操作都应为 O(1)（LRU-K 为 O(log n)），以免在大缓冲池中成为瓶颈。
+ * </p>
+ */
+public interface Replacer {
+    /**
+     * 选出一个可替换的帧并将其从替换器中移除。
+     *
+     * @return 被替换的帧号，没有可替换的帧时返回 -1
+     */
+    int Victim();
+
+    /**
+     * 固定一个帧（一次访问），固定后该帧不可被替换。
+     *
+     * @param frameId 帧号
+     */
+    void Pin(int frameId);
+
+    /**
+     * 取消固定一个帧，使其可以被替换。
+     *
+     * @param frameId 帧号
+     */
+    void Unpin(int frameId);
+
+    /**
+     * @return 替换器中跟踪的帧数（已固定与可替换之和）
+     */
+    int size();
+
+    /**
+     * 通知替换器 frameId 即将装入 position 处的页面（缺页时调用，随后会调用 Pin）。
+     * 需要按页面记录历史的策略（如 ARC 的幽灵列表）依赖该调用，其他策略可以忽略。
+     *
+     * @param frameId  帧号
+     * @param position 装入的页面位置
+     */
+    default void Load(int frameId, PagePosition position) {
+    }
+
+    /**
+     * 将帧从替换器中移除且不记录历史，用于页面被删除、帧回到空闲列表的情况。
+     *
+     * @param frameId 帧号
+     */
+    void Remove(int frameId);
+
+    /**
+     * 按替换顺序列出最先会被替换的若干个可替换帧，不改变替换器的状态。
+     * 后台写回线程据此提前写回即将被替换的脏页；顺序可以是近似的。
+     *
+     * @param limit 最多返回的帧数
+     * @return 帧号，越靠前越早被替换
+     */
+    int[] Candidates(int limit);
+
+    /**
+     * 根据名称创建替换器。
+     *
+     * @param name     策略名称：lru、clock、lru-k、arc（忽略大小写）
+     * @param numPages 缓冲池帧数
+     * @return 对应的替换器
+     */
+    static Replacer Create(String name, int numPages) {
+        return switch (name.toLowerCase()) {
+            case "lru" -> new LRUReplacer(numPages);
+            case "clock" -> new ClockReplacer(numPages);
+            case "lru-k", "lru2", "lru-2" -> new LRUKReplacer(numPages, LRUKReplacer.DEFAULT_K);
+            case "arc" -> new ARCReplacer(numPages);
+            default -> throw new IllegalArgumentException("Unknown replacer: " + name);
+        };
+    }
+}
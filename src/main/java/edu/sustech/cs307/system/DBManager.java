@@ -5,8 +5,13 @@ import edu.sustech.cs307.exception.ExceptionTypes;
 import edu.sustech.cs307.meta.ColumnMeta;
 import edu.sustech.cs307.meta.MetaManager;
 import edu.sustech.cs307.meta.TableMeta;
+import edu.sustech.cs307.record.FreeSpaceMap;
+import edu.sustech.cs307.record.ZoneMap;
+import edu.sustech.cs307.record.RecordFileHandle;
+import edu.sustech.cs307.storage.BufferAccessStrategy;
 import edu.sustech.cs307.storage.BufferPool;
 import edu.sustech.cs307.storage.DiskManager;
+import edu.sustech.cs307.storage.Page;
 import org.apache.commons.lang3.StringUtils;
 import org.jline.utils.Log;
 import org.pmw.tinylog.Logger;
@@ -21,6 +26,9 @@ public class DBManager {
     private final DiskManager diskManager;
     private final BufferPool bufferPool;
     private final RecordManager recordManager;
+    private final IndexManager indexManager;
+    // VACUUM 每批最多清空的页面数
+    private static final int VACUUM_BATCH_PAGES = 64;
 
     public DBManager(DiskManager diskManager, BufferPool bufferPool, RecordManager recordManager,
             MetaManager metaManager) {
@@ -28,6 +36,7 @@ public class DBManager {
         this.bufferPool = bufferPool;
         this.recordManager = recordManager;
         this.metaManager = metaManager;
+        this.indexManager = new IndexManager(diskManager, bufferPool);
     }
 
     public BufferPool getBufferPool() {
@@ -38,6 +47,10 @@ public class DBManager {
         return recordManager;
     }
 
+    public IndexManager getIndexManager() {
+        return indexManager;
+    }
+
     public DiskManager getDiskManager() {
         return diskManager;
     }
@@ -100,6 +113,26 @@ public class DBManager {
      * @throws DBException If there is an error during table creation
      */
     public void createTable(String table_name, ArrayList<ColumnMeta> columns) throws DBException {
+        createTable(table_name, columns, Page.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Creates a new table whose data file uses the given page size. The page size
+     * is stored in the file header and cannot be changed afterwards.
+     *
+     * @param table_name The name of the table to be created
+     * @param columns    List of column metadata defining the table structure
+     * @param page_size  Page size of the data file, a power of two in [4KB, 64KB]
+     * @throws DBException If the page size is invalid or there is an error during
+     *                     table creation
+     */
+    public void createTable(String table_name, ArrayList<ColumnMeta> columns, int page_size) throws DBException {
+        // check before the metadata is written, so that an invalid page size leaves nothing behind
+        if (!Page.IsValidPageSize(page_size)) {
+            throw new DBException(ExceptionTypes.InvalidParameter("page_size",
+                    String.format("%d is not a power of two in [%d, %d]", page_size,
+                            Page.DEFAULT_PAGE_SIZE, Page.MAX_PAGE_SIZE)));
+        }
         TableMeta tableMeta = new TableMeta(
                 table_name, columns);
         metaManager.createTable(tableMeta);
@@ -113,7 +146,13 @@ public class DBManager {
             record_size += col.len;
         }
         String data_file = String.format("%s/%s", table_name, "data");
-        recordManager.CreateFile(data_file, record_size);
+        recordManager.CreateFile(data_file, record_size, page_size);
+        // 每页各列的取值区间，顺序扫描据此跳过不可能满足条件的页面
+        new ZoneMap(diskManager, bufferPool, data_file).Create(columns);
+        // 每一列建立一个磁盘 B+ 树索引
+        for (var col : columns) {
+            indexManager.CreateIndex(table_name, col);
+        }
     }
 
     /**
@@ -127,10 +166,112 @@ public class DBManager {
     public void dropTable(String table_name) throws DBException {
         // todo: finish drop table method
         Logger.info("Drop table: " + table_name);
+        // 删除文件前先做检查点，保证重做日志中不再残留该表的页面
+        bufferPool.Checkpoint();
+        // 先丢弃缓冲池中该表的页面，避免删除文件后它们被写回而重新创建文件
+        String data_file = String.format("%s/%s", table_name, "data");
+        // 打开的句柄固定着文件头页，先关闭它
+        recordManager.ReleaseFile(data_file);
+        bufferPool.DeleteAllPages(data_file);
+        bufferPool.DeleteAllPages(FreeSpaceMap.FileName(data_file));
+        bufferPool.DeleteAllPages(ZoneMap.FileName(data_file));
+        indexManager.DropIndexes(table_name, metaManager.getTable(table_name).columns_list);
         recordManager.DeleteFile(table_name);
         metaManager.dropTable(table_name);
-        bufferPool.DeleteAllPages(table_name);
-        this.getBufferPool().FlushAllPages("");
+    }
+
+    /**
+     * Compacts a table whose pages were left sparse by deletes: live records
+     * at the end of the file are moved into free slots near the front, the
+     * emptied tail pages are truncated from the file, and the free page list
+     * is rebuilt. Every B+ tree index of the table is updated to the new RIDs.
+     * <p>
+     * Records are moved in batches of {@link #VACUUM_BATCH_PAGES} source pages.
+     * Each batch holds the file header latch only while it runs and is read
+     * through a ring buffer, so concurrent statements and the rest of the
+     * buffer pool are not starved; every batch is committed to the redo log.
+     *
+     * @param table_name the table to compact
+     * @throws DBException if the table does not exist or an I/O error occurs
+     */
+    public void vacuumTable(String table_name) throws DBException {
+        if (!isTableExists(table_name)) {
+            throw new DBException(ExceptionTypes.TableDoseNotExist(table_name));
+        }
+        TableMeta tableMeta = metaManager.getTable(table_name);
+        RecordFileHandle fileHandle = recordManager.OpenFile(table_name);
+        int pages = fileHandle.getFileHeader().getNumberOfPages();
+        BufferAccessStrategy strategy = BufferAccessStrategy.ForScan(bufferPool, pages,
+                fileHandle.getFileHeader().getPageSize());
+        RecordFileHandle.MoveListener listener = (from, to, record) -> indexManager.MoveEntries(tableMeta,
+                record.getReadOnlyData(), from, to);
+
+        int moved = 0;
+        int removed;
+        try {
+            fileHandle.RelinkFreePages();
+            int batch;
+            do {
+                batch = fileHandle.CompactPages(VACUUM_BATCH_PAGES, strategy, listener);
+                moved += batch;
+                bufferPool.Commit();
+            } while (batch > 0);
+            // 截断前做检查点，重做日志中不再残留被截掉的页面
+            bufferPool.Checkpoint();
+            removed = fileHandle.Truncate();
+            bufferPool.Commit();
+        } finally {
+            recordManager.CloseFile(fileHandle);
+        }
+        Logger.info("Vacuum table {}: moved {} records, removed {} pages", table_name, moved, removed);
+    }
+
+    /**
+     * Builds the B+ tree index on a column of an existing table, replacing the
+     * index file if there is one. The table is scanned once, the entries are
+     * sorted in memory and the tree is packed bottom-up at the current index
+     * fill factor instead of inserting row by row.
+     *
+     * @param table_name  the table to index
+     * @param column_name the column whose values are the index keys
+     * @throws DBException if the table or the column does not exist or an I/O
+     *                     error occurs
+     */
+    public void createIndex(String table_name, String column_name) throws DBException {
+        if (!isTableExists(table_name)) {
+            throw new DBException(ExceptionTypes.TableDoseNotExist(table_name));
+        }
+        TableMeta tableMeta = metaManager.getTable(table_name);
+        ColumnMeta column = tableMeta.getColumnMeta(column_name);
+        if (column == null) {
+            throw new DBException(ExceptionTypes.ColumnDoseNotExist(column_name));
+        }
+        RecordFileHandle fileHandle = recordManager.OpenFile(table_name);
+        int entries;
+        try {
+            entries = indexManager.BuildIndex(tableMeta, column, fileHandle);
+        } finally {
+            recordManager.CloseFile(fileHandle);
+        }
+        bufferPool.Commit();
+        Logger.info("Built index on {}.{}: {} entries", table_name, column_name, entries);
+    }
+
+    /**
+     * Builds the indexes whose files are missing, e.g. for tables created
+     * before indexes were stored on disk or after an index file was lost.
+     * Called once at startup, before any statement runs.
+     *
+     * @throws DBException if an I/O error occurs
+     */
+    public void rebuildMissingIndexes() throws DBException {
+        for (String table : metaManager.getTableNames()) {
+            for (ColumnMeta column : metaManager.getTable(table).columns_list) {
+                if (indexManager.OpenIndex(table, column.name) == null) {
+                    createIndex(table, column.name);
+                }
+            }
+        }
     }
 
     /**
@@ -156,6 +297,22 @@ public class DBManager {
         }
     }
 
+    /**
+     * Selects whether a table's data file is read through a memory mapping
+     * instead of positional reads into buffer pool frames. Writes always go
+     * through the buffer pool.
+     *
+     * @param table_name the table to configure
+     * @param mapped     true to read the table through a memory mapping
+     * @throws DBException if the table does not exist
+     */
+    public void setMemoryMapped(String table_name, boolean mapped) throws DBException {
+        if (!isTableExists(table_name)) {
+            throw new DBException(ExceptionTypes.TableDoseNotExist(table_name));
+        }
+        diskManager.SetMemoryMapped(String.format("%s/%s", table_name, "data"), mapped);
+    }
+
     /**
      * Checks if a table exists in the database.
      *
@@ -168,15 +325,24 @@ public class DBManager {
 
     /**
      * Closes the database manager and performs cleanup operations.
-     * This method flushes all pages in the buffer pool, dumps disk manager
-     * metadata,
+     * This method checkpoints the buffer pool (writing back dirty pages and
+     * truncating the redo log), dumps disk manager metadata,
      * and saves meta manager state to JSON format.
      *
      * @throws DBException if an error occurs during the closing process
      */
     public void closeDBManager() throws DBException {
-        this.bufferPool.FlushAllPages(null);
+        // 先停止后台线程，避免检查点之后还有页面写入
+        if (this.bufferPool.getPageCleaner() != null) {
+            this.bufferPool.getPageCleaner().Shutdown();
+        }
+        if (this.bufferPool.getReadAhead() != null) {
+            this.bufferPool.getReadAhead().Shutdown();
+        }
+        this.recordManager.CloseIdleFiles();
+        this.bufferPool.Checkpoint();
         DiskManager.dump_disk_manager_meta(this.diskManager);
+        this.diskManager.CloseAllFiles();
         this.metaManager.saveToJson();
     }
 }
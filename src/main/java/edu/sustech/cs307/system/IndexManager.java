@@ -0,0 +1,382 @@
+package edu.sustech.cs307.system;
+
+import edu.sustech.cs307.BPlusTree.BPlusTreeBulkLoader;
+import edu.sustech.cs307.BPlusTree.DiskBPlusTree;
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.exception.ExceptionTypes;
+import edu.sustech.cs307.meta.ColumnMeta;
+import edu.sustech.cs307.meta.TableMeta;
+import edu.sustech.cs307.record.RID;
+import edu.sustech.cs307.record.RecordFileHandle;
+import edu.sustech.cs307.record.RecordPageCursor;
+import edu.sustech.cs307.storage.BufferAccessStrategy;
+import edu.sustech.cs307.storage.BufferPool;
+import edu.sustech.cs307.storage.DiskManager;
+import edu.sustech.cs307.value.Value;
+import edu.sustech.cs307.value.ValueType;
+import io.netty.buffer.ByteBuf;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 索引管理器，负责创建、打开和删除表的磁盘 B+ 树索引，并在记录变化时维护索引项。
+ *
+ * <p>
+ * 每个索引是表目录下的一个文件，索引键是一列的值，索引项指向记录的 RID。打开的索引在管理器中缓存，
+ * 所有会话共享同一个 {@link DiskBPlusTree} 实例。
+ * </p>
+ *
+ * <p>
+ * 为已有数据的表建立索引（CREATE INDEX、启动时补建缺失的索引文件）时不逐行插入，而是扫描表、排序后自底向上批量构建，
+ * 见 {@link #BuildIndex}。
+ * </p>
+ */
+public class IndexManager {
+    // 批量构建索引时节点的默认填充百分比，留出的空位使之后的插入不会立即引起分裂
+    public static final int DEFAULT_FILL_PERCENT = 90;
+
+    private final DiskManager diskManager;
+    private final BufferPool bufferPool;
+    // 打开的索引，按索引文件名索引；受 this 保护
+    private final Map<String, DiskBPlusTree> openedIndexes = new HashMap<>();
+    private volatile int fillPercent = DEFAULT_FILL_PERCENT;
+
+    public IndexManager(DiskManager diskManager, BufferPool bufferPool) {
+        this.diskManager = diskManager;
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * @return 表 table 在列 column 上的索引文件名
+     */
+    public static String IndexFile(String table, String column) {
+        return String.format("%s/%s.idx", table, column);
+    }
+
+    /**
+     * 为表的一列创建一个空索引。
+     *
+     * @param table  表名
+     * @param column 列的元数据
+     * @throws DBException 如果创建文件时发生错误
+     */
+    public void CreateIndex(String table, ColumnMeta column) throws DBException {
+        DiskBPlusTree.Create(diskManager, IndexFile(table, column.name), column.type, column.len);
+    }
+
+    /**
+     * 打开表在一列上的索引。
+     *
+     * @param table  表名
+     * @param column 列名
+     * @return 索引；该列没有索引文件时（例如建立索引文件之前创建的表）返回 null
+     * @throws DBException 如果读取索引文件头时发生错误
+     */
+    public synchronized DiskBPlusTree OpenIndex(String table, String column) throws DBException {
+        String filename = IndexFile(table, column);
+        DiskBPlusTree tree = openedIndexes.get(filename);
+        if (tree == null) {
+            if (diskManager.GetPageCount(filename) == 0) {
+                return null;
+            }
+            tree = new DiskBPlusTree(diskManager, bufferPool, filename);
+            openedIndexes.put(filename, tree);
+        }
+        return tree;
+    }
+
+    /**
+     * @return 批量构建索引时节点的填充百分比
+     */
+    public int GetFillPercent() {
+        return fillPercent;
+    }
+
+    /**
+     * 设置之后批量构建索引时节点的填充百分比，已经建好的索引不受影响。
+     *
+     * @param percent 填充百分比，在 [1, 100] 之间
+     * @throws DBException 如果百分比超出范围
+     */
+    public void SetFillPercent(int percent) throws DBException {
+        if (percent < 1 || percent > 100) {
+            throw new DBException(ExceptionTypes.InvalidParameter("index_fill_factor",
+                    String.format("%d is not in [1, 100]", percent)));
+        }
+        fillPercent = percent;
+    }
+
+    /**
+     * 扫描表，为一列重新建立索引：取出所有记录的 (键, RID)，在内存中排序后用 {@link BPlusTreeBulkLoader}
+     * 按当前的填充百分比自底向上构建。该列已有的索引文件被丢弃。构建期间表不能有并发的修改。
+     *
+     * @param tableMeta  表的元数据
+     * @param column     要建立索引的列
+     * @param fileHandle 表的记录文件句柄
+     * @return 索引项数
+     * @throws DBException 如果读写页面或文件时发生错误
+     */
+    public synchronized int BuildIndex(TableMeta tableMeta, ColumnMeta column, RecordFileHandle fileHandle)
+            throws DBException {
+        String filename = IndexFile(tableMeta.tableName, column.name);
+        if (diskManager.GetPageCount(filename) != 0 || diskManager.IsFileExists(filename)) {
+            // 与删除表一样先做检查点，重做日志中不再残留旧索引的页面
+            bufferPool.Checkpoint();
+            openedIndexes.remove(filename);
+            bufferPool.DeleteAllPages(filename);
+            diskManager.DeleteFile(filename);
+        }
+
+        Entries entries = new Entries(column.type);
+        int pages = fileHandle.getFileHeader().getNumberOfPages();
+        BufferAccessStrategy strategy = BufferAccessStrategy.ForScan(bufferPool, pages,
+                fileHandle.getFileHeader().getPageSize());
+        RecordPageCursor cursor = new RecordPageCursor(fileHandle, strategy);
+        try {
+            while (cursor.Next()) {
+                entries.add(KeyOf(column, cursor.GetRecord().getReadOnlyData()), cursor.GetRID());
+            }
+        } finally {
+            cursor.Close();
+        }
+
+        DiskBPlusTree.Create(diskManager, filename, column.type, column.len);
+        BPlusTreeBulkLoader loader = null;
+        try {
+            DiskBPlusTree tree = new DiskBPlusTree(diskManager, bufferPool, filename);
+            loader = tree.bulkLoader(fillPercent / 100.0);
+            for (int i : entries.sorted()) {
+                loader.add(entries.key(i), entries.rid(i));
+            }
+            loader.finish();
+            openedIndexes.put(filename, tree);
+        } catch (DBException | RuntimeException e) {
+            // 不留下只构建了一部分的索引：释放构建中的节点，丢弃已写入的页面并删除索引文件
+            if (loader != null) {
+                loader.abort();
+            }
+            bufferPool.DeleteAllPages(filename);
+            diskManager.DeleteFile(filename);
+            throw e;
+        }
+        return entries.size;
+    }
+
+    /**
+     * 删除表在各列上的索引：先丢弃缓冲池中的索引页面，再删除索引文件。
+     *
+     * @param table   表名
+     * @param columns 表的所有列
+     * @throws DBException 如果删除文件时发生错误
+     */
+    public synchronized void DropIndexes(String table, List<ColumnMeta> columns) throws DBException {
+        for (ColumnMeta column : columns) {
+            String filename = IndexFile(table, column.name);
+            openedIndexes.remove(filename);
+            bufferPool.DeleteAllPages(filename);
+            diskManager.DeleteFile(filename);
+        }
+    }
+
+    /**
+     * 从记录中取出一列的值作为索引键。
+     *
+     * @param column 列的元数据
+     * @param record 记录的数据
+     * @return 索引键
+     */
+    public static Value KeyOf(ColumnMeta column, ByteBuf record) {
+        return switch (column.type) {
+            case INTEGER -> new Value(record.getLong(column.offset));
+            case FLOAT -> new Value(record.getDouble(column.offset));
+            default -> {
+                byte[] bytes = new byte[column.len];
+                record.getBytes(column.offset, bytes);
+                yield Value.FromByte(bytes, column.type);
+            }
+        };
+    }
+
+    /**
+     * 为新插入的记录在表的所有索引中插入索引项。
+     *
+     * @param tableMeta 表的元数据
+     * @param record    记录的数据
+     * @param rid       记录的 RID
+     * @throws DBException 如果读写索引页面时发生错误
+     */
+    public void InsertEntries(TableMeta tableMeta, ByteBuf record, RID rid) throws DBException {
+        for (ColumnMeta column : tableMeta.columns_list) {
+            DiskBPlusTree tree = OpenIndex(tableMeta.tableName, column.name);
+            if (tree != null) {
+                tree.insert(KeyOf(column, record), rid);
+            }
+        }
+    }
+
+    /**
+     * 删除记录前，从表的所有索引中删除它的索引项。
+     *
+     * @param tableMeta 表的元数据
+     * @param record    记录的数据
+     * @param rid       记录的 RID
+     * @throws DBException 如果读写索引页面时发生错误
+     */
+    public void DeleteEntries(TableMeta tableMeta, ByteBuf record, RID rid) throws DBException {
+        for (ColumnMeta column : tableMeta.columns_list) {
+            DiskBPlusTree tree = OpenIndex(tableMeta.tableName, column.name);
+            if (tree != null) {
+                tree.delete(KeyOf(column, record), rid);
+            }
+        }
+    }
+
+    /**
+     * 记录从 from 移动到 to 后，让表的所有索引项指向新的位置。
+     *
+     * @param tableMeta 表的元数据
+     * @param record    记录的数据
+     * @param from      记录原来的 RID
+     * @param to        记录新的 RID
+     * @throws DBException 如果读写索引页面时发生错误
+     */
+    public void MoveEntries(TableMeta tableMeta, ByteBuf record, RID from, RID to) throws DBException {
+        for (ColumnMeta column : tableMeta.columns_list) {
+            DiskBPlusTree tree = OpenIndex(tableMeta.tableName, column.name);
+            if (tree != null) {
+                tree.replaceRid(KeyOf(column, record), from, to);
+            }
+        }
+    }
+
+    /**
+     * 记录被原地更新时，只修改值发生变化的列上的索引项。必须在更新记录之前调用，
+     * 因为 oldRecord 可能直接引用数据页。
+     *
+     * @param tableMeta 表的元数据
+     * @param oldRecord 更新前的记录数据
+     * @param newRecord 更新后的记录数据
+     * @param rid       记录的 RID
+     * @throws DBException 如果读写索引页面时发生错误
+     */
+    public void UpdateEntries(TableMeta tableMeta, ByteBuf oldRecord, ByteBuf newRecord, RID rid)
+            throws DBException {
+        for (ColumnMeta column : tableMeta.columns_list) {
+            Value oldKey = KeyOf(column, oldRecord);
+            Value newKey = KeyOf(column, newRecord);
+            if (oldKey.equals(newKey)) {
+                continue;
+            }
+            DiskBPlusTree tree = OpenIndex(tableMeta.tableName, column.name);
+            if (tree != null) {
+                tree.delete(oldKey, rid);
+                tree.insert(newKey, rid);
+            }
+        }
+    }
+
+    /**
+     * 批量构建时从表中取出的索引项。INTEGER 和 FLOAT 键以 long 存放，RID 合成一个 long，
+     * 排序只移动项的序号，不为每一项分配对象。
+     */
+    private static final class Entries {
+        private final ValueType type;
+        // INTEGER 键或 FLOAT 键的位模式
+        private long[] numbers;
+        // CHAR 键
+        private String[] strings;
+        // 页号在高 32 位、槽号在低 32 位，两者都非负，按 long 比较即按 RID 比较
+        private long[] rids = new long[1024];
+        private int size = 0;
+
+        Entries(ValueType type) {
+            this.type = type;
+            if (type == ValueType.CHAR) {
+                strings = new String[rids.length];
+            } else {
+                numbers = new long[rids.length];
+            }
+        }
+
+        void add(Value key, RID rid) {
+            if (size == rids.length) {
+                rids = Arrays.copyOf(rids, size * 2);
+                if (strings != null) {
+                    strings = Arrays.copyOf(strings, size * 2);
+                } else {
+                    numbers = Arrays.copyOf(numbers, size * 2);
+                }
+            }
+            switch (type) {
+                case INTEGER -> numbers[size] = (long) key.value;
+                case FLOAT -> numbers[size] = Double.doubleToRawLongBits((double) key.value);
+                default -> strings[size] = (String) key.value;
+            }
+            rids[size] = (long) rid.pageNum << 32 | rid.slotNum;
+            size++;
+        }
+
+        Value key(int i) {
+            return switch (type) {
+                case INTEGER -> new Value(numbers[i]);
+                case FLOAT -> new Value(Double.longBitsToDouble(numbers[i]));
+                default -> new Value(strings[i]);
+            };
+        }
+
+        RID rid(int i) {
+            return new RID((int) (rids[i] >>> 32), (int) rids[i]);
+        }
+
+        /**
+         * 按 (键, RID) 比较第 i 项和第 j 项，与 {@link Value#compareTo} 的顺序一致。
+         */
+        private int compare(int i, int j) {
+            int result = switch (type) {
+                case INTEGER -> Long.compare(numbers[i], numbers[j]);
+                case FLOAT -> Double.compare(Double.longBitsToDouble(numbers[i]), Double.longBitsToDouble(numbers[j]));
+                default -> strings[i].compareTo(strings[j]);
+            };
+            return result != 0 ? result : Long.compare(rids[i], rids[j]);
+        }
+
+        /**
+         * 自底向上归并排序。相邻两段已经有序时直接复制，按该列顺序插入的表（例如自增的主键）只需线性时间。
+         *
+         * @return 按 (键, RID) 升序排列的项的序号
+         */
+        int[] sorted() {
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            int[] buffer = new int[size];
+            for (int width = 1; width < size; width *= 2) {
+                for (int low = 0; low < size; low += 2 * width) {
+                    int mid = Math.min(low + width, size);
+                    int high = Math.min(low + 2 * width, size);
+                    if (mid == high || compare(order[mid - 1], order[mid]) <= 0) {
+                        System.arraycopy(order, low, buffer, low, high - low);
+                        continue;
+                    }
+                    int i = low;
+                    int j = mid;
+                    for (int k = low; k < high; k++) {
+                        if (j >= high || i < mid && compare(order[i], order[j]) <= 0) {
+                            buffer[k] = order[i++];
+                        } else {
+                            buffer[k] = order[j++];
+                        }
+                    }
+                }
+                int[] swap = order;
+                order = buffer;
+                buffer = swap;
+            }
+            return order;
+        }
+    }
+}
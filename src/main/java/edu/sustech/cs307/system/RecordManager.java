@@ -2,13 +2,23 @@ package edu.sustech.cs307.system;
 
 import edu.sustech.cs307.exception.DBException;
 import edu.sustech.cs307.exception.ExceptionTypes;
+import edu.sustech.cs307.record.FreeSpaceMap;
 import edu.sustech.cs307.record.RecordFileHandle;
 import edu.sustech.cs307.record.RecordFileHeader;
 import edu.sustech.cs307.record.RecordPageHeader;
+import edu.sustech.cs307.record.ZoneMap;
 import edu.sustech.cs307.storage.BufferPool;
 import edu.sustech.cs307.storage.DiskManager;
 import edu.sustech.cs307.storage.Page;
 import edu.sustech.cs307.storage.PagePosition;
+import io.netty.buffer.Unpooled;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 记录管理器类，负责管理数据库记录的创建、删除和文件操作。
@@ -19,6 +29,26 @@ public class RecordManager {
     private final DiskManager diskManager;
     private final BufferPool bufferPool;
     private static final int MAX_RECORD_SIZE = 4000;
+    // 已经向 DiskManager 登记过页大小的数据文件
+    private final Set<String> registeredFiles = ConcurrentHashMap.newKeySet();
+    // 最多保留的空闲句柄数，超出时按最久未使用的顺序关闭
+    private static final int MAX_IDLE_FILES = 16;
+    // 打开的记录文件，按数据文件名索引，按访问顺序排列；受 this 保护
+    private final LinkedHashMap<String, OpenedFile> openedFiles = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 一个打开的记录文件：所有使用者共享同一个句柄，文件头页在句柄打开期间一直固定在缓冲池中，
+     * 句柄中的文件头直接引用该页面。
+     */
+    private static final class OpenedFile {
+        final RecordFileHandle handle;
+        // 尚未关闭的 OpenFile 调用数，为 0 时句柄空闲
+        int references = 0;
+
+        OpenedFile(RecordFileHandle handle) {
+            this.handle = handle;
+        }
+    }
 
     public RecordManager(DiskManager diskManager, BufferPool bufferPool) {
         this.diskManager = diskManager;
@@ -33,21 +63,49 @@ public class RecordManager {
      * @throws DBException 如果记录大小无效或文件创建失败
      */
     public void CreateFile(String filename, int record_size) throws DBException {
-        if (record_size <= 0 || record_size > MAX_RECORD_SIZE) {
+        CreateFile(filename, record_size, Page.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * 创建一个使用指定页大小的新文件。页大小记录在文件头中，之后打开文件时由文件头决定。
+     * 页面越大，单页能容纳的记录越多、允许的记录越长，但每次读写的数据量也越大。
+     *
+     * @param filename    文件名
+     * @param record_size 记录大小，必须大于0且不超过页大小减去页头等开销
+     * @param page_size   页大小，必须是 4KB 到 64KB 之间的 2 的幂
+     * @throws DBException 如果页大小或记录大小无效，或文件创建失败
+     */
+    public void CreateFile(String filename, int record_size, int page_size) throws DBException {
+        if (!Page.IsValidPageSize(page_size)) {
+            throw new DBException(ExceptionTypes.InvalidParameter("page_size",
+                    String.format("%d is not a power of two in [%d, %d]", page_size,
+                            Page.DEFAULT_PAGE_SIZE, Page.MAX_PAGE_SIZE)));
+        }
+        // 与默认页大小保留同样的开销
+        int max_record_size = page_size - (Page.DEFAULT_PAGE_SIZE - MAX_RECORD_SIZE);
+        if (record_size <= 0 || record_size > max_record_size) {
             throw new DBException(ExceptionTypes.InvalidTableWidth(record_size));
         }
         diskManager.CreateFile(filename);
-        Page page = new Page();
-        diskManager.ReadPage(page, filename, 0, Page.DEFAULT_PAGE_SIZE);
+        diskManager.SetPageSize(filename, page_size);
+        int extent_pages = DiskManager.DefaultExtentPages(page_size);
+        diskManager.SetExtentPages(filename, extent_pages);
+        registeredFiles.add(filename);
+        Page page = new Page(page_size);
+        diskManager.ReadPage(page, filename, 0, page_size);
         RecordFileHeader recordFileHeader = new RecordFileHeader(page.data);
         recordFileHeader.setRecordSize(record_size);
         recordFileHeader.setNumberOfPages(0);
         recordFileHeader.setFirstFreePage(RecordPageHeader.NO_NEXT_FREE_PAGE);
         recordFileHeader.setNumberOfRecordsPrePage(
-                (8 * (Page.DEFAULT_PAGE_SIZE - RecordPageHeader.SIZE) / (1 + record_size * 8)));
+                (8 * (page_size - RecordPageHeader.SIZE) / (1 + record_size * 8)));
         recordFileHeader.setBitMapSize((recordFileHeader.getNumberOfRecordsPrePage() + 7) / 8);
+        recordFileHeader.setPageSize(page_size);
+        recordFileHeader.setExtentPages(extent_pages);
+        recordFileHeader.setReservedPages(1);
         page.dirty = true;
         diskManager.FlushPage(page);
+        new FreeSpaceMap(diskManager, bufferPool, filename).Create();
     }
 
     /**
@@ -57,30 +115,176 @@ public class RecordManager {
      * @throws DBException 如果删除文件过程中发生错误
      */
     public void DeleteFile(String filename) throws DBException {
+        ReleaseFile(filename);
         diskManager.DeleteFile(filename);
+        diskManager.DeleteFile(FreeSpaceMap.FileName(filename));
+        diskManager.DeleteFile(ZoneMap.FileName(filename));
+        // filename 可能是表的目录
+        registeredFiles.removeIf(file -> file.equals(filename) || file.startsWith(filename + "/"));
     }
 
     /**
      * 打开指定名称的记录文件，并返回对应的记录文件句柄。
      *
+     * <p>
+     * 同一个表的句柄只创建一次，之后的调用返回同一个句柄并增加引用计数，每次调用都必须对应一次 {@link #CloseFile}。
+     * 引用计数降为 0 的句柄仍然保留，重复执行的语句和嵌套循环连接的重新扫描不必再次打开文件；
+     * 空闲句柄超过 {@value #MAX_IDLE_FILES} 个时关闭最久未使用的句柄，解除其文件头页的固定。
+     * </p>
+     *
      * @param table_name 要打开的记录文件的名称
      * @return 返回与指定记录文件关联的 RecordFileHandle
      * @throws DBException 如果在打开文件过程中发生错误
      */
-    public RecordFileHandle OpenFile(String table_name) throws DBException {
+    public synchronized RecordFileHandle OpenFile(String table_name) throws DBException {
         String data_file = String.format("%s/%s", table_name, "data");
-        Page page = bufferPool.FetchPage(new PagePosition(data_file, 0));
-        RecordFileHeader recordFileHeader = new RecordFileHeader(page.data);
-        return new RecordFileHandle(diskManager, bufferPool, data_file, recordFileHeader);
+        OpenedFile opened = openedFiles.get(data_file);
+        if (opened == null) {
+            register_file(data_file);
+            Page page = bufferPool.FetchPage(new PagePosition(data_file, 0));
+            if (page == null) {
+                throw new RuntimeException(String.format("%s: unable to fetch the file header", data_file));
+            }
+            RecordFileHeader recordFileHeader = new RecordFileHeader(page.data);
+            opened = new OpenedFile(new RecordFileHandle(diskManager, bufferPool, data_file, recordFileHeader));
+            openedFiles.put(data_file, opened);
+            if (!new FreeSpaceMap(diskManager, bufferPool, data_file).Exists()) {
+                opened.handle.RebuildFreeSpaceMap();
+            }
+        }
+        opened.references++;
+        return opened.handle;
+    }
+
+    /**
+     * 读取记录文件头中记录的数据页数，供优化器选择扫描的访问策略。
+     *
+     * @param table_name 表名
+     * @return 表的数据页数（不含文件头页）
+     * @throws DBException 如果读取文件头时发生错误
+     */
+    public int GetNumberOfPages(String table_name) throws DBException {
+        String data_file = String.format("%s/%s", table_name, "data");
+        register_file(data_file);
+        PagePosition position = new PagePosition(data_file, 0);
+        Page page = bufferPool.FetchPage(position);
+        if (page == null) {
+            throw new RuntimeException(String.format("%s: unable to fetch the file header", data_file));
+        }
+        try {
+            return new RecordFileHeader(page.data).getNumberOfPages();
+        } finally {
+            bufferPool.unpin_page(position, false);
+        }
+    }
+
+    /**
+     * 读取表的数据文件的页大小。
+     *
+     * @param table_name 表名
+     * @return 页大小
+     * @throws DBException 如果读取文件头时发生错误
+     */
+    public int GetPageSize(String table_name) throws DBException {
+        String data_file = String.format("%s/%s", table_name, "data");
+        register_file(data_file);
+        return diskManager.GetPageSize(data_file);
     }
 
     /**
-     * 关闭指定的记录文件，并将所有页面刷新到磁盘。
+     * 关闭一次 {@link #OpenFile} 打开的句柄。句柄在最后一次关闭后仍可能被缓存，调用者之后不能再使用它。
+     * 修改的持久化由语句提交（{@link BufferPool#Commit()}）负责，关闭句柄不写回页面。
      *
      * @param recordFileHandle 要关闭的记录文件句柄
      * @throws DBException 如果在关闭文件时发生数据库异常
      */
-    public void CloseFile(RecordFileHandle recordFileHandle) throws DBException {
-        bufferPool.FlushAllPages(recordFileHandle.getFilename());
+    public synchronized void CloseFile(RecordFileHandle recordFileHandle) throws DBException {
+        OpenedFile opened = openedFiles.get(recordFileHandle.getFilename());
+        if (opened == null || opened.handle != recordFileHandle || opened.references == 0) {
+            // 句柄已随表被删除
+            return;
+        }
+        opened.references--;
+        if (opened.references == 0) {
+            close_idle_files(MAX_IDLE_FILES);
+        }
+    }
+
+    /**
+     * 关闭文件 filename 或目录 filename 下所有文件的空闲句柄并解除文件头页的固定。
+     * 删除表之前调用，使缓冲池能够丢弃该表的所有页面。句柄仍在使用时文件头页不能解除固定，
+     * 此时不关闭任何句柄并抛出异常。
+     *
+     * @param filename 数据文件名或表名
+     * @throws DBException      如果解除固定时发生错误
+     * @throws RuntimeException 如果还有句柄没有被 {@link #CloseFile} 关闭
+     */
+    public synchronized void ReleaseFile(String filename) throws DBException {
+        for (Map.Entry<String, OpenedFile> entry : openedFiles.entrySet()) {
+            String data_file = entry.getKey();
+            if ((data_file.equals(filename) || data_file.startsWith(filename + "/"))
+                    && entry.getValue().references > 0) {
+                throw new RuntimeException(String.format("%s: the file is still in use", data_file));
+            }
+        }
+        Iterator<Map.Entry<String, OpenedFile>> it = openedFiles.entrySet().iterator();
+        while (it.hasNext()) {
+            String data_file = it.next().getKey();
+            if (data_file.equals(filename) || data_file.startsWith(filename + "/")) {
+                it.remove();
+                bufferPool.unpin_page(new PagePosition(data_file, 0), false);
+            }
+        }
+    }
+
+    /**
+     * 关闭所有空闲的句柄，关闭数据库之前调用。
+     *
+     * @throws DBException 如果解除固定时发生错误
+     */
+    public synchronized void CloseIdleFiles() throws DBException {
+        close_idle_files(0);
+    }
+
+    /**
+     * 按最久未使用的顺序关闭空闲句柄，直到空闲句柄不超过 max_idle 个。调用者必须持有 this 的锁。
+     */
+    private void close_idle_files(int max_idle) throws DBException {
+        int idle = 0;
+        for (OpenedFile opened : openedFiles.values()) {
+            if (opened.references == 0) {
+                idle++;
+            }
+        }
+        Iterator<Map.Entry<String, OpenedFile>> it = openedFiles.entrySet().iterator();
+        while (idle > max_idle && it.hasNext()) {
+            Map.Entry<String, OpenedFile> entry = it.next();
+            if (entry.getValue().references == 0) {
+                it.remove();
+                bufferPool.unpin_page(new PagePosition(entry.getKey(), 0), false);
+                idle--;
+            }
+        }
+    }
+
+    /**
+     * 缓冲池按页大小装入页面，因此在第一次通过缓冲池访问数据文件之前，
+     * 直接从磁盘读取文件头中的页大小与区大小并登记到 DiskManager。
+     *
+     * @param data_file 数据文件名
+     * @throws DBException 如果读取文件头时发生错误
+     */
+    private void register_file(String data_file) throws DBException {
+        if (registeredFiles.contains(data_file)) {
+            return;
+        }
+        byte[] header = new byte[RecordFileHeader.SIZE];
+        diskManager.ReadPages(data_file, 0, ByteBuffer.wrap(header));
+        RecordFileHeader recordFileHeader = new RecordFileHeader(Unpooled.wrappedBuffer(header));
+        diskManager.SetPageSize(data_file, recordFileHeader.getPageSize());
+        if (recordFileHeader.getExtentPages() > 0) {
+            diskManager.SetExtentPages(data_file, recordFileHeader.getExtentPages());
+        }
+        registeredFiles.add(data_file);
     }
 }
@@ -21,6 +21,11 @@ public class JoinTuple extends Tuple {
         this.tupleSchema = tabCol;
     }
 
+    @Override
+    public Tuple materialize() {
+        return new JoinTuple(leftTuple.materialize(), rightTuple.materialize(), tupleSchema);
+    }
+
     /**
      * 获取指定记录中对应列的值。
      * 首先尝试从左侧元组中获取值，如果左侧值为 null，则从右侧元组中获取值。
@@ -20,6 +20,11 @@ public class ProjectTuple extends Tuple {
         this.inputTuple = inputTuple;
     }
 
+    @Override
+    public Tuple materialize() {
+        return new ProjectTuple(inputTuple.materialize(), schema);
+    }
+
     /**
      * 根据给定的记录和列信息，从输入元组中获取对应的值。
      * 如果指定的列在投影列表中，则返回该列的值；否则返回 null。
@@ -82,6 +82,18 @@ public class TableTuple extends Tuple {
         return values.toArray(new Value[0]);
     }
 
+    @Override
+    public TableTuple materialize() {
+        if (record == null) {
+            return this;
+        }
+        return new TableTuple(tableName, tableMeta, new Record(record), rid);
+    }
+
+    public Record getRecord() {
+        return this.record;
+    }
+
     public RID getRID() {
         return this.rid;
     }
@@ -24,6 +24,16 @@ public abstract class Tuple {
 
     public abstract Value[] getValues() throws DBException;
 
+    /**
+     * 返回一个不依赖缓冲池页面的元组。顺序扫描返回的元组直接引用页面帧中的记录，
+     * 扫描前进到下一页后失效；需要在子算子前进之后继续保留元组的算子（排序、分组、子查询）应保存该方法的结果。
+     *
+     * @return 可以长期保留的元组，不引用页面时返回自身
+     */
+    public Tuple materialize() {
+        return this;
+    }
+
     public boolean eval_expr(Expression expr) throws DBException {
         return evaluateCondition(this, expr);
     }
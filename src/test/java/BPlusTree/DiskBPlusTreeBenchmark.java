@@ -0,0 +1,123 @@
+package BPlusTree;
+
+import edu.sustech.cs307.BPlusTree.DiskBPlusTree;
+import edu.sustech.cs307.record.RID;
+import edu.sustech.cs307.storage.BufferPool;
+import edu.sustech.cs307.storage.DiskManager;
+import edu.sustech.cs307.value.Value;
+import edu.sustech.cs307.value.ValueType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 比较逐层加锁与整棵树一把读写锁两种方式下，磁盘 B+ 树在多线程混合读写时的吞吐量。不是单元测试，不会被 surefire 执行。
+ *
+ * <p>
+ * 运行方式：{@code mvn -q test-compile} 后执行
+ * {@code java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) BPlusTree.DiskBPlusTreeBenchmark [keys] [write_percent]}
+ * </p>
+ *
+ * <p>
+ * 索引预先装入 keys 个键，缓冲池能容纳整个索引，因此比较的是加锁方式本身的开销和可扩展性。
+ * 每个操作以 write_percent 的概率插入一个新键，否则查询一个随机的已有键。
+ * </p>
+ */
+public class DiskBPlusTreeBenchmark {
+    private static final String FILE = "bench.idx";
+    private static final int OPS_PER_THREAD = 200000;
+
+    public static void main(String[] args) throws Exception {
+        int keys = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int write_percent = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d keys, %d%% inserts, %d ops per thread, %d cores%n", keys, write_percent, OPS_PER_THREAD,
+                cores);
+        // 第一轮只用于预热 JIT，不输出
+        measure(keys, 1, write_percent, false);
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            for (boolean treeLock : new boolean[]{true, false}) {
+                double throughput = measure(keys, threads, write_percent, treeLock);
+                System.out.printf("%-14s %2d threads %10.0f ops/s%n", treeLock ? "tree lock" : "latch crabbing",
+                        threads, throughput);
+            }
+        }
+    }
+
+    /**
+     * 新建并预先装入一个索引，在其上运行一轮混合负载。
+     *
+     * @return 每秒完成的操作数
+     */
+    private static double measure(int keys, int threads, int write_percent, boolean treeLock) throws Exception {
+        Path dir = Files.createTempDirectory("btree-bench");
+        DiskManager diskManager = new DiskManager(dir.toString(), new ConcurrentHashMap<>());
+        BufferPool bufferPool = new BufferPool(keys / 100 + 1024, diskManager);
+        DiskBPlusTree.Create(diskManager, FILE, ValueType.INTEGER, 8);
+        DiskBPlusTree tree = new DiskBPlusTree(diskManager, bufferPool, FILE);
+        // 偶数键预先装入，插入的都是奇数键
+        for (int i = 0; i < keys; i++) {
+            tree.insert(new Value(2L * i), new RID(i / 100 + 1, i % 100));
+        }
+        long elapsed = run(tree, threads, keys, write_percent, treeLock ? new ReentrantReadWriteLock() : null);
+        diskManager.DeleteFile(FILE);
+        diskManager.CloseAllFiles();
+        Files.deleteIfExists(dir);
+        return (double) threads * OPS_PER_THREAD * 1e9 / elapsed;
+    }
+
+    /**
+     * @param lock 不为 null 时每个操作都先获取它，查询共享、插入独占，模拟整棵树一把锁的做法
+     * @return 所有线程完成所用的纳秒数
+     */
+    private static long run(DiskBPlusTree tree, int threads, int keys, int write_percent,
+            ReentrantReadWriteLock lock) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicLong found = new AtomicLong();
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    long key = 2L * random.nextInt(keys);
+                    boolean write = random.nextInt(100) < write_percent;
+                    if (lock != null) {
+                        (write ? lock.writeLock() : lock.readLock()).lock();
+                    }
+                    try {
+                        if (write) {
+                            tree.insert(new Value(key + 1), new RID((int) seed + 1, i));
+                        } else {
+                            found.addAndGet(tree.search(new Value(key)).size());
+                        }
+                    } finally {
+                        if (lock != null) {
+                            (write ? lock.writeLock() : lock.readLock()).unlock();
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        if (found.get() == 0) {
+            throw new IllegalStateException();
+        }
+        return elapsed;
+    }
+}
@@ -0,0 +1,137 @@
+package BPlusTree;
+
+import edu.sustech.cs307.BPlusTree.BPlusTreeCursor;
+import edu.sustech.cs307.BPlusTree.DiskBPlusTree;
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.record.RID;
+import edu.sustech.cs307.storage.BufferPool;
+import edu.sustech.cs307.storage.DiskManager;
+import edu.sustech.cs307.value.Value;
+import edu.sustech.cs307.value.ValueType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiskBPlusTreeConcurrencyTest {
+    private static final String INDEX_FILE = "test_index.idx";
+    private static final int THREADS = 8;
+    private static final int KEYS_PER_THREAD = 4000;
+
+    private BufferPool bufferPool;
+    private DiskBPlusTree tree;
+
+    @BeforeEach
+    void setUp(@TempDir Path tempDir) throws DBException {
+        DiskManager diskManager = new DiskManager(tempDir.toString(), new ConcurrentHashMap<>());
+        // 缓冲池放不下整个索引，下降和分裂与页面替换并发进行
+        bufferPool = new BufferPool(128, diskManager);
+        DiskBPlusTree.Create(diskManager, INDEX_FILE, ValueType.INTEGER, 8);
+        tree = new DiskBPlusTree(diskManager, bufferPool, INDEX_FILE);
+    }
+
+    /**
+     * 第 t 个线程的第 i 个键。各线程的键交错排列，所有线程同时在相同的叶子上插入并引起分裂。
+     */
+    private static long keyOf(int t, int i) {
+        return (long) i * THREADS + t;
+    }
+
+    @Test
+    @DisplayName("多线程交错插入并查询自己插入的键，同时有游标并发扫描")
+    void concurrentInsertAndSearch() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 2);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            writers.add(executor.submit(() -> {
+                Random random = new Random(thread);
+                for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                    long key = keyOf(thread, i);
+                    assertThat(tree.insert(new Value(key), new RID(thread + 1, i))).isTrue();
+                    // 自己插入过的键一定能查到
+                    long probe = keyOf(thread, random.nextInt(i + 1));
+                    assertThat(tree.search(new Value(probe))).hasSize(1);
+                }
+                return null;
+            }));
+        }
+        List<Future<?>> scanners = new ArrayList<>();
+        for (int s = 0; s < 2; s++) {
+            boolean forward = s == 0;
+            scanners.add(executor.submit(() -> {
+                while (writing.get()) {
+                    // 并发扫描看到的键始终有序且不重复
+                    BPlusTreeCursor cursor = tree.cursor(null, null, forward);
+                    long previous = forward ? Long.MIN_VALUE : Long.MAX_VALUE;
+                    while (cursor.next()) {
+                        long key = (long) cursor.getKey().value;
+                        assertThat(forward ? key > previous : key < previous).isTrue();
+                        previous = key;
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : writers) {
+            future.get(120, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        for (Future<?> future : scanners) {
+            future.get(120, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(tree.validate()).isTrue();
+        assertThat(tree.rangeSearch(null, null)).hasSize(THREADS * KEYS_PER_THREAD);
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < KEYS_PER_THREAD; i += 97) {
+                assertThat(tree.search(new Value(keyOf(t, i)))).hasSize(1);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("多线程并发插入和删除，最终只剩未删除的项")
+    void concurrentInsertAndDelete() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                    tree.insert(new Value(keyOf(thread, i)), new RID(thread + 1, i));
+                    // 删除较早插入的一半键，删除与其他线程的插入和分裂交错进行
+                    if (i % 2 == 1) {
+                        long key = keyOf(thread, i / 2 * 2);
+                        assertThat(tree.delete(new Value(key), new RID(thread + 1, i / 2 * 2))).isTrue();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(120, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(tree.validate()).isTrue();
+        List<RID> rids = tree.rangeSearch(null, null);
+        assertThat(rids).hasSize(THREADS * KEYS_PER_THREAD / 2);
+        assertThat(rids).allMatch(rid -> rid.slotNum % 2 == 1);
+    }
+}
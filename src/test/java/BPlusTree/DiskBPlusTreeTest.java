@@ -0,0 +1,368 @@
+package BPlusTree;
+
+import edu.sustech.cs307.BPlusTree.BPlusTreeBulkLoader;
+import edu.sustech.cs307.BPlusTree.BPlusTreeCursor;
+import edu.sustech.cs307.BPlusTree.DiskBPlusTree;
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.record.RID;
+import edu.sustech.cs307.storage.BufferPool;
+import edu.sustech.cs307.storage.DiskManager;
+import edu.sustech.cs307.value.Value;
+import edu.sustech.cs307.value.ValueType;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+class DiskBPlusTreeTest {
+
+    static final String INDEX_FILE = "test_index.idx";
+    static final int COUNT = 5000;
+
+    Path tempDir;
+    DiskManager diskManager;
+    BufferPool bufferPool;
+    DiskBPlusTree tree;
+
+    @BeforeEach
+    void setup() throws DBException, IOException {
+        tempDir = Files.createTempDirectory("test-" + UUID.randomUUID());
+        diskManager = new DiskManager(tempDir.toString(), new HashMap<>());
+        // 缓冲池远小于索引，节点会被反复换出和读回
+        bufferPool = new BufferPool(8, diskManager);
+        DiskBPlusTree.Create(diskManager, INDEX_FILE, ValueType.INTEGER, 8);
+        tree = new DiskBPlusTree(diskManager, bufferPool, INDEX_FILE);
+    }
+
+    /**
+     * 以随机顺序插入 0 到 COUNT - 1，键 k 的 RID 为 (k / 100 + 1, k % 100)。
+     */
+    void insertShuffled() throws DBException {
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < COUNT; i++) {
+            keys.add(i);
+        }
+        Collections.shuffle(keys, new Random(42));
+        for (int key : keys) {
+            assertThat(tree.insert(new Value((long) key), ridOf(key))).isTrue();
+        }
+    }
+
+    static RID ridOf(int key) {
+        return new RID(key / 100 + 1, key % 100);
+    }
+
+    @Nested
+    @DisplayName("插入与查询")
+    class InsertAndSearchTests {
+        @Test
+        @DisplayName("大量插入后结构正确且每个键都能找到")
+        void insertManyKeys() throws DBException {
+            insertShuffled();
+
+            assertThat(tree.validate()).isTrue();
+            for (int key = 0; key < COUNT; key += 7) {
+                assertThat(tree.search(new Value((long) key)))
+                    .usingRecursiveFieldByFieldElementComparator().containsExactly(ridOf(key));
+            }
+            assertThat(tree.search(new Value((long) COUNT))).isEmpty();
+        }
+
+        @Test
+        @DisplayName("重复的键按 RID 排序返回，重复插入同一项被忽略")
+        void duplicateKeys() throws DBException {
+            for (int slot = 9; slot >= 0; slot--) {
+                tree.insert(new Value(7L), new RID(1, slot));
+            }
+            assertThat(tree.insert(new Value(7L), new RID(1, 3))).isFalse();
+
+            List<RID> rids = tree.search(new Value(7L));
+            assertThat(rids).hasSize(10);
+            for (int slot = 0; slot < 10; slot++) {
+                assertThat(rids.get(slot)).usingRecursiveComparison().isEqualTo(new RID(1, slot));
+            }
+        }
+
+        @Test
+        @DisplayName("范围查询包含两端，null 表示不设边界")
+        void rangeSearch() throws DBException {
+            insertShuffled();
+
+            List<RID> rids = tree.rangeSearch(new Value(1000L), new Value(1999L));
+            assertThat(rids).hasSize(1000);
+            assertThat(rids.get(0)).usingRecursiveComparison().isEqualTo(ridOf(1000));
+            assertThat(rids.get(999)).usingRecursiveComparison().isEqualTo(ridOf(1999));
+            assertThat(tree.rangeSearch(null, new Value(9L))).hasSize(10);
+            assertThat(tree.rangeSearch(new Value((long) COUNT - 10), null)).hasSize(10);
+        }
+
+        @Test
+        @DisplayName("FLOAT 键按数值排序，内部节点分裂后结构仍然正确")
+        void floatKeys() throws DBException {
+            String filename = "float_index.idx";
+            DiskBPlusTree.Create(diskManager, filename, ValueType.FLOAT, 8);
+            DiskBPlusTree tree = new DiskBPlusTree(diskManager, bufferPool, filename);
+            // 足够多的叶子，使根节点之下的内部节点也发生分裂
+            int count = 60000;
+            List<Integer> keys = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                keys.add(i);
+            }
+            Collections.shuffle(keys, new Random(7));
+            for (int key : keys) {
+                tree.insert(new Value((key - count / 2) * 0.5), new RID(key + 1, 0));
+            }
+
+            assertThat(tree.validate()).isTrue();
+            List<RID> rids = tree.rangeSearch(new Value(-1.0), new Value(1.0));
+            assertThat(rids).hasSize(5);
+            assertThat(rids.get(0)).usingRecursiveComparison().isEqualTo(new RID(count / 2 - 2 + 1, 0));
+            assertThat(tree.search(new Value(-0.5)))
+                    .usingRecursiveFieldByFieldElementComparator().containsExactly(new RID(count / 2 - 1 + 1, 0));
+            assertThat(tree.rangeSearch(null, null)).hasSize(count);
+        }
+
+        @Test
+        @DisplayName("键的类型不匹配时抛出异常")
+        void wrongKeyType() {
+            assertThatThrownBy(() -> tree.insert(new Value("abc"), new RID(1, 0)))
+                    .isInstanceOf(DBException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("删除与持久化")
+    class DeleteAndPersistenceTests {
+        @Test
+        @DisplayName("删除后不再返回该项，其余项不受影响")
+        void deleteKeys() throws DBException {
+            insertShuffled();
+
+            for (int key = 0; key < COUNT; key += 2) {
+                assertThat(tree.delete(new Value((long) key), ridOf(key))).isTrue();
+            }
+            assertThat(tree.delete(new Value(0L), ridOf(0))).isFalse();
+
+            assertThat(tree.validate()).isTrue();
+            List<RID> rids = tree.rangeSearch(null, null);
+            assertThat(rids).hasSize(COUNT / 2);
+            assertThat(rids.get(0)).usingRecursiveComparison().isEqualTo(ridOf(1));
+        }
+
+        @Test
+        @DisplayName("replaceRid 让索引项指向新的 RID")
+        void replaceRid() throws DBException {
+            insertShuffled();
+
+            assertThat(tree.replaceRid(new Value(123L), ridOf(123), new RID(99, 0))).isTrue();
+            assertThat(tree.search(new Value(123L)))
+                    .usingRecursiveFieldByFieldElementComparator().containsExactly(new RID(99, 0));
+        }
+
+        @Test
+        @DisplayName("写回磁盘后重新打开，索引内容不变")
+        void reopenFromDisk() throws DBException {
+            insertShuffled();
+            bufferPool.FlushAllPages(INDEX_FILE);
+
+            BufferPool reopened = new BufferPool(8, diskManager);
+            DiskBPlusTree tree = new DiskBPlusTree(diskManager, reopened, INDEX_FILE);
+
+            assertThat(tree.getKeyType()).isEqualTo(ValueType.INTEGER);
+            assertThat(tree.validate()).isTrue();
+            assertThat(tree.rangeSearch(null, null)).hasSize(COUNT);
+            assertThat(tree.search(new Value(4321L)))
+                    .usingRecursiveFieldByFieldElementComparator().containsExactly(ridOf(4321));
+        }
+    }
+
+    @Nested
+    @DisplayName("游标")
+    class CursorTests {
+        /**
+         * 取出游标剩余的所有键。
+         */
+        List<Long> drain(BPlusTreeCursor cursor) throws DBException {
+            List<Long> keys = new ArrayList<>();
+            while (cursor.next()) {
+                keys.add((long) cursor.getKey().value);
+            }
+            return keys;
+        }
+
+        @Test
+        @DisplayName("正向和反向遍历范围，两端包含在内")
+        void forwardAndBackward() throws DBException {
+            insertShuffled();
+
+            List<Long> forward = drain(tree.cursor(new Value(100L), new Value(599L), true));
+            List<Long> backward = drain(tree.cursor(new Value(100L), new Value(599L), false));
+
+            assertThat(forward).hasSize(500).isSorted();
+            assertThat(forward.get(0)).isEqualTo(100L);
+            Collections.reverse(backward);
+            assertThat(backward).isEqualTo(forward);
+            assertThat(drain(tree.cursor(null, null, false))).hasSize(COUNT);
+        }
+
+        @Test
+        @DisplayName("seek 重新定位，并限制在游标的范围内")
+        void seek() throws DBException {
+            insertShuffled();
+            BPlusTreeCursor cursor = tree.cursor(new Value(1000L), new Value(2000L), true);
+
+            cursor.seek(new Value(1500L));
+            assertThat(cursor.next()).isTrue();
+            assertThat(cursor.getKey().value).isEqualTo(1500L);
+            cursor.seek(new Value(10L));
+            assertThat(cursor.next()).isTrue();
+            assertThat(cursor.getKey().value).isEqualTo(1000L);
+
+            BPlusTreeCursor backward = tree.cursor(null, null, false);
+            backward.seek(new Value(2500L));
+            assertThat(drain(backward)).hasSize(2501).startsWith(2500L, 2499L);
+        }
+
+        @Test
+        @DisplayName("中途插入导致叶子分裂后继续遍历，不重复也不遗漏原有的项")
+        void continueAfterSplits() throws DBException {
+            insertShuffled();
+            BPlusTreeCursor cursor = tree.cursor(null, null, true);
+            List<String> entries = new ArrayList<>();
+            for (int i = 0; i < 1000 && cursor.next(); i++) {
+                entries.add(cursor.getKey().value + " " + cursor.getRID());
+            }
+            // 在已经读过和尚未读到的叶子中插入同样的键，新项的 RID 较小，排在原有的项之前，使这些叶子分裂
+            for (int key = 0; key < COUNT; key += 3) {
+                tree.insert(new Value((long) key), new RID(0, key));
+            }
+            while (cursor.next()) {
+                entries.add(cursor.getKey().value + " " + cursor.getRID());
+            }
+
+            assertThat(entries).doesNotHaveDuplicates();
+            // 新插入的项可能被看到也可能被跳过，原有的项一个不少
+            assertThat(entries.stream().filter(entry -> !entry.contains("pageNum=0,"))).hasSize(COUNT);
+        }
+
+        @Test
+        @DisplayName("resume 从之前保存的项之后继续")
+        void resume() throws DBException {
+            for (int slot = 0; slot < 10; slot++) {
+                tree.insert(new Value(5L), new RID(1, slot));
+                tree.insert(new Value(6L), new RID(1, slot));
+            }
+            BPlusTreeCursor cursor = tree.cursor(null, null, true);
+            for (int i = 0; i < 4; i++) {
+                cursor.next();
+            }
+            Value key = cursor.getKey();
+            RID rid = cursor.getRID();
+
+            BPlusTreeCursor resumed = tree.cursor(null, null, true);
+            resumed.resume(key, rid);
+            assertThat(resumed.next()).isTrue();
+            assertThat(resumed.getRID()).usingRecursiveComparison().isEqualTo(new RID(1, 4));
+            assertThat(drain(resumed)).hasSize(15);
+        }
+    }
+
+    @Nested
+    @DisplayName("批量构建")
+    class BulkLoadTests {
+        /**
+         * 按顺序批量加入 0 到 count - 1，键 k 的 RID 为 ridOf(k)。
+         */
+        void bulkLoad(int count, double fillFactor) throws DBException {
+            BPlusTreeBulkLoader loader = tree.bulkLoader(fillFactor);
+            for (int key = 0; key < count; key++) {
+                loader.add(new Value((long) key), ridOf(key));
+            }
+            assertThat(loader.finish()).isEqualTo(count);
+        }
+
+        @Test
+        @DisplayName("批量构建多层的树后结构正确，查询、插入和删除照常进行")
+        void bulkLoadThenModify() throws DBException {
+            // 足够多的项，使内部节点也被填满并产生第三层
+            int count = 60000;
+            bulkLoad(count, 0.7);
+
+            assertThat(tree.validate()).isTrue();
+            assertThat(tree.rangeSearch(null, null)).hasSize(count);
+            assertThat(tree.search(new Value(12345L)))
+                    .usingRecursiveFieldByFieldElementComparator().containsExactly(ridOf(12345));
+            assertThat(tree.rangeSearch(new Value(100L), new Value(199L))).hasSize(100);
+
+            for (int key = 0; key < count; key += 5) {
+                assertThat(tree.insert(new Value((long) key), new RID(0, key))).isTrue();
+                assertThat(tree.delete(new Value((long) key + 1), ridOf(key + 1))).isTrue();
+            }
+            assertThat(tree.validate()).isTrue();
+            assertThat(tree.rangeSearch(null, null)).hasSize(count);
+        }
+
+        @Test
+        @DisplayName("填充因子越小，同样的项占用的页面越多")
+        void fillFactor() throws DBException {
+            bulkLoad(COUNT, 1.0);
+            int full = diskManager.GetPageCount(INDEX_FILE);
+
+            String filename = "sparse_index.idx";
+            DiskBPlusTree.Create(diskManager, filename, ValueType.INTEGER, 8);
+            DiskBPlusTree sparse = new DiskBPlusTree(diskManager, bufferPool, filename);
+            BPlusTreeBulkLoader loader = sparse.bulkLoader(0.5);
+            for (int key = 0; key < COUNT; key++) {
+                loader.add(new Value((long) key), ridOf(key));
+            }
+            loader.finish();
+
+            assertThat(sparse.validate()).isTrue();
+            assertThat(sparse.rangeSearch(null, null)).hasSize(COUNT);
+            assertThat(diskManager.GetPageCount(filename)).isGreaterThan(full);
+        }
+
+        @Test
+        @DisplayName("空的输入得到空树，乱序的输入和非空的树被拒绝")
+        void invalidInput() throws DBException {
+            tree.bulkLoader(0.9).finish();
+            assertThat(tree.rangeSearch(null, null)).isEmpty();
+
+            BPlusTreeBulkLoader loader = tree.bulkLoader(0.9);
+            loader.add(new Value(2L), new RID(1, 0));
+            assertThatThrownBy(() -> loader.add(new Value(1L), new RID(1, 1)))
+                    .isInstanceOf(RuntimeException.class);
+            assertThatThrownBy(() -> loader.add(new Value(2L), new RID(1, 0)))
+                    .isInstanceOf(RuntimeException.class);
+            loader.finish();
+
+            assertThatThrownBy(() -> tree.bulkLoader(0.9)).isInstanceOf(RuntimeException.class);
+            assertThatThrownBy(() -> tree.bulkLoader(0)).isInstanceOf(DBException.class);
+        }
+
+        @Test
+        @DisplayName("放弃构建后树仍然为空，构建中固定的页面被释放")
+        void abort() throws DBException {
+            BPlusTreeBulkLoader loader = tree.bulkLoader(0.7);
+            for (int key = 0; key < 60000; key++) {
+                loader.add(new Value((long) key), ridOf(key));
+            }
+            loader.abort();
+            assertThat(tree.rangeSearch(null, null)).isEmpty();
+
+            // 缓冲池只有 8 个帧，未释放的页面会使再次构建三层的树时无帧可用
+            bulkLoad(60000, 0.7);
+            assertThat(tree.validate()).isTrue();
+            assertThat(tree.rangeSearch(null, null)).hasSize(60000);
+        }
+    }
+}
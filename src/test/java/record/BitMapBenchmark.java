@@ -0,0 +1,105 @@
+package record;
+
+import edu.sustech.cs307.record.BitMap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.util.Random;
+
+/**
+ * 比较逐位查找与按 64 位字查找遍历一页中所有有效槽位的开销。不是单元测试，不会被 surefire 执行。
+ *
+ * <p>
+ * 运行方式：{@code mvn -q test-compile} 后执行
+ * {@code java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) record.BitMapBenchmark [slots]}
+ * </p>
+ *
+ * <p>
+ * 位图大小对应一个数据页的槽位数，稀疏页面（大量删除之后）中逐位查找要检查每个空槽位，按字查找一次跳过 64 个。
+ * </p>
+ */
+public class BitMapBenchmark {
+    private static final int PAGES = 4096;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int slots = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        System.out.printf("%d bitmaps of %d slots%n", PAGES, slots);
+        for (double density : new double[]{0.01, 0.1, 0.5, 0.99}) {
+            ByteBuf[] bitmaps = bitmaps(slots, density);
+            // 第一轮预热 JIT
+            long expected = scan_bitwise(bitmaps, slots);
+            if (scan_words(bitmaps, slots) != expected || scan_array(bitmaps, slots) != expected) {
+                throw new IllegalStateException("scans disagree");
+            }
+            for (String mode : new String[]{"bitwise", "nextBit", "setBits"}) {
+                long best = Long.MAX_VALUE;
+                for (int round = 0; round < ROUNDS; round++) {
+                    long start = System.nanoTime();
+                    long checksum = switch (mode) {
+                        case "bitwise" -> scan_bitwise(bitmaps, slots);
+                        case "nextBit" -> scan_words(bitmaps, slots);
+                        default -> scan_array(bitmaps, slots);
+                    };
+                    best = Math.min(best, System.nanoTime() - start);
+                    if (checksum != expected) {
+                        throw new IllegalStateException();
+                    }
+                }
+                System.out.printf("density %.2f %-8s %8.0f ns/page%n", density, mode, (double) best / PAGES);
+            }
+            for (ByteBuf bm : bitmaps) {
+                bm.release();
+            }
+        }
+    }
+
+    private static ByteBuf[] bitmaps(int slots, double density) {
+        Random random = new Random(307);
+        int bytes = (slots + 7) / 8;
+        ByteBuf[] bitmaps = new ByteBuf[PAGES];
+        for (int p = 0; p < PAGES; p++) {
+            bitmaps[p] = Unpooled.directBuffer(bytes, bytes);
+            BitMap.init(bitmaps[p]);
+            for (int i = 0; i < slots; i++) {
+                if (random.nextDouble() < density) {
+                    BitMap.set(bitmaps[p], i);
+                }
+            }
+        }
+        return bitmaps;
+    }
+
+    // 原来的实现：逐个槽位调用 isSet
+    private static long scan_bitwise(ByteBuf[] bitmaps, int slots) {
+        long checksum = 0;
+        for (ByteBuf bm : bitmaps) {
+            for (int i = 0; i < slots; i++) {
+                if (BitMap.isSet(bm, i)) {
+                    checksum += i;
+                }
+            }
+        }
+        return checksum;
+    }
+
+    private static long scan_words(ByteBuf[] bitmaps, int slots) {
+        long checksum = 0;
+        for (ByteBuf bm : bitmaps) {
+            for (int i = BitMap.firstBit(true, bm, slots); i < slots; i = BitMap.nextBit(true, bm, slots, i)) {
+                checksum += i;
+            }
+        }
+        return checksum;
+    }
+
+    private static long scan_array(ByteBuf[] bitmaps, int slots) {
+        long checksum = 0;
+        for (ByteBuf bm : bitmaps) {
+            for (int i : BitMap.setBits(bm, slots)) {
+                checksum += i;
+            }
+        }
+        return checksum;
+    }
+}
@@ -5,7 +5,10 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 import static org.assertj.core.api.Assertions.*;
 
 class BitMapTest {
@@ -80,6 +83,42 @@ class BitMapTest {
         assertThat(BitMap.firstBit(false, bm, 16 * 8)).isEqualTo(0);
     }
 
+    @Test
+    @DisplayName("跨字查找与逐位检查一致")
+    public void testWordScanMatchesBitScan() {
+        Random random = new Random(307);
+        // 容量不是 8 字节的整数倍时，最后一个字只有部分字节
+        for (int bytes : new int[]{1, 4, 13, 16, 128}) {
+            for (double density : new double[]{0.0, 0.05, 0.5, 1.0}) {
+                ByteBuf bm = Unpooled.buffer(bytes, bytes);
+                BitMap.init(bm);
+                int maxN = bytes * 8 - 3;
+                List<Integer> expected = new ArrayList<>();
+                for (int i = 0; i < maxN; i++) {
+                    if (random.nextDouble() < density) {
+                        BitMap.set(bm, i);
+                        expected.add(i);
+                    }
+                }
+                assertThat(BitMap.setBits(bm, maxN)).containsExactly(expected.stream().mapToInt(i -> i).toArray());
+                assertThat(BitMap.count(bm, maxN)).isEqualTo(expected.size());
+                for (int curr = -1; curr < maxN; curr++) {
+                    int nextSet = maxN;
+                    int nextClear = maxN;
+                    for (int i = maxN - 1; i > curr; i--) {
+                        if (BitMap.isSet(bm, i)) {
+                            nextSet = i;
+                        } else {
+                            nextClear = i;
+                        }
+                    }
+                    assertThat(BitMap.nextBit(true, bm, maxN, curr)).isEqualTo(nextSet);
+                    assertThat(BitMap.nextBit(false, bm, maxN, curr)).isEqualTo(nextClear);
+                }
+            }
+        }
+    }
+
     @Test
     @DisplayName("边界测试")
     public void testBoundary() {
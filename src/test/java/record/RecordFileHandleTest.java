@@ -1,11 +1,14 @@
 package record;
 
 import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.meta.ColumnMeta;
 import edu.sustech.cs307.record.*;
 import edu.sustech.cs307.storage.BufferPool;
 import edu.sustech.cs307.storage.DiskManager;
 import edu.sustech.cs307.storage.Page;
 import edu.sustech.cs307.storage.PagePosition;
+import edu.sustech.cs307.value.Value;
+import edu.sustech.cs307.value.ValueType;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import org.junit.jupiter.api.*;
@@ -16,8 +19,11 @@ import java.nio.file.Files;
 import java.util.UUID;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -132,6 +138,193 @@ class RecordFileHandleTest {
             RID rid2 = fileHandle.InsertRecord(Unpooled.buffer(128));
             assertThat(rid2.pageNum).isEqualTo(rid1.pageNum);
         }
+
+        @Test
+        @DisplayName("删除插入交替进行时复用空出的槽位，文件不再增长")
+        void churnKeepsFileSizeBounded() throws DBException {
+            int recordsPerPage = fileHandle.getFileHeader().getNumberOfRecordsPrePage();
+            List<RID> rids = new ArrayList<>();
+            for (int i = 0; i < 3 * recordsPerPage; i++) {
+                rids.add(fileHandle.InsertRecord(Unpooled.buffer(128)));
+            }
+            int pages = fileHandle.getFileHeader().getNumberOfPages();
+
+            Random random = new Random(307);
+            for (int i = 0; i < 500; i++) {
+                RID victim = rids.remove(random.nextInt(rids.size()));
+                fileHandle.DeleteRecord(victim);
+                RID rid = fileHandle.InsertRecord(Unpooled.buffer(128));
+                assertThat(fileHandle.IsRecord(rid)).isTrue();
+                rids.add(rid);
+            }
+            assertThat(fileHandle.getFileHeader().getNumberOfPages()).isEqualTo(pages);
+        }
+
+        @Test
+        @DisplayName("空闲空间映射记录页面的填充程度")
+        void freeSpaceMapTracksFillLevel() throws DBException {
+            int recordsPerPage = fileHandle.getFileHeader().getNumberOfRecordsPrePage();
+            List<RID> rids = new ArrayList<>();
+            for (int i = 0; i < recordsPerPage + 1; i++) {
+                rids.add(fileHandle.InsertRecord(Unpooled.buffer(128)));
+            }
+            FreeSpaceMap freeSpaceMap = new FreeSpaceMap(diskManager, bufferPool, TEST_FILENAME);
+            assertThat(freeSpaceMap.GetFillLevel(1)).isEqualTo(FreeSpaceMap.FULL);
+            assertThat(freeSpaceMap.GetFillLevel(2)).isBetween(1, FreeSpaceMap.FULL - 1);
+
+            fileHandle.DeleteRecord(rids.get(recordsPerPage));
+            assertThat(fileHandle.IsPageEmpty(2)).isTrue();
+            assertThat(fileHandle.IsPageEmpty(1)).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("按页游标测试")
+    class CursorTests {
+        @Test
+        @DisplayName("游标按顺序返回所有有效记录并解除页面固定")
+        void cursorVisitsLiveRecords() throws DBException {
+            int recordsPerPage = fileHandle.getFileHeader().getNumberOfRecordsPrePage();
+            List<RID> rids = new ArrayList<>();
+            for (int i = 0; i < 3 * recordsPerPage; i++) {
+                rids.add(fileHandle.InsertRecord(Unpooled.buffer(128).writeInt(i).writerIndex(128)));
+            }
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < rids.size(); i++) {
+                // 第二页全部删除，其余页面隔一条删一条
+                if (i / recordsPerPage == 1 || i % 2 == 1) {
+                    fileHandle.DeleteRecord(rids.get(i));
+                } else {
+                    expected.add(i);
+                }
+            }
+
+            RecordPageCursor cursor = new RecordPageCursor(fileHandle, null);
+            List<Integer> seen = new ArrayList<>();
+            while (cursor.Next()) {
+                edu.sustech.cs307.record.Record record = cursor.GetRecord();
+                int id = record.getReadOnlyData().getInt(0);
+                RID rid = cursor.GetRID();
+                assertThat(rid.pageNum).isEqualTo(rids.get(id).pageNum);
+                assertThat(rid.slotNum).isEqualTo(rids.get(id).slotNum);
+                seen.add(id);
+            }
+            assertThat(cursor.Next()).isFalse();
+            cursor.Close();
+            assertThat(seen).isEqualTo(expected);
+
+            for (int pageId = 1; pageId <= 3; pageId++) {
+                PagePosition position = new PagePosition(TEST_FILENAME, pageId * Page.DEFAULT_PAGE_SIZE);
+                Page page = bufferPool.FetchPage(position);
+                assertThat(page.pin_count).isEqualTo(1);
+                bufferPool.unpin_page(position, false);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("区间映射测试")
+    class ZoneMapTests {
+        private List<Integer> scan(List<ZoneMap.Predicate> predicates, int skippedPages) throws DBException {
+            RecordPageCursor cursor = new RecordPageCursor(fileHandle, null, predicates);
+            List<Integer> seen = new ArrayList<>();
+            while (cursor.Next()) {
+                seen.add(cursor.GetRecord().getReadOnlyData().getInt(4));
+            }
+            cursor.Close();
+            assertThat(cursor.GetSkippedPages()).isEqualTo(skippedPages);
+            return seen;
+        }
+
+        private ByteBuf record(long id, String name) {
+            ByteBuf buf = Unpooled.buffer(128);
+            buf.writeLong(id).writeBytes(new Value(name).ToByte());
+            return buf.writerIndex(128);
+        }
+
+        @Test
+        @DisplayName("跳过区间不满足条件的页面，更新后区间扩大")
+        void skipPagesOutsideRange() throws DBException {
+            new ZoneMap(diskManager, bufferPool, TEST_FILENAME).Create(List.of(
+                    new ColumnMeta("t", "id", ValueType.INTEGER, 8, 0),
+                    new ColumnMeta("t", "name", ValueType.CHAR, 64, 8)));
+            int recordsPerPage = fileHandle.getFileHeader().getNumberOfRecordsPrePage();
+            List<RID> rids = new ArrayList<>();
+            for (int i = 0; i < 3 * recordsPerPage; i++) {
+                rids.add(fileHandle.InsertRecord(record(i, String.format("n%03d", i))));
+            }
+
+            ZoneMap.Predicate lastPage = new ZoneMap.Predicate(ValueType.INTEGER, 0, ZoneMap.Comparison.GE,
+                    new Value((long) 2 * recordsPerPage));
+            assertThat(scan(List.of(lastPage), 2)).hasSize(recordsPerPage).allMatch(id -> id >= 2 * recordsPerPage);
+            assertThat(scan(List.of(new ZoneMap.Predicate(ValueType.INTEGER, 0, ZoneMap.Comparison.LT,
+                    new Value(0L))), 3)).isEmpty();
+            assertThat(scan(List.of(new ZoneMap.Predicate(ValueType.CHAR, 8, ZoneMap.Comparison.EQ,
+                    new Value("n005"))), 2)).contains(5).hasSize(recordsPerPage);
+            // 区间映射中没有的列不参与裁剪
+            assertThat(scan(List.of(new ZoneMap.Predicate(ValueType.FLOAT, 0, ZoneMap.Comparison.LT,
+                    new Value(0.0))), 0)).hasSize(3 * recordsPerPage);
+
+            fileHandle.UpdateRecord(rids.get(0), record(1000, "n000"));
+            assertThat(scan(List.of(lastPage), 1)).hasSize(2 * recordsPerPage).contains(1000);
+
+            // 页面变空后区间被清除，重新插入的记录从空区间开始
+            for (int i = 2 * recordsPerPage; i < 3 * recordsPerPage; i++) {
+                fileHandle.DeleteRecord(rids.get(i));
+            }
+            fileHandle.InsertRecord(record(-1, "n999"));
+            assertThat(scan(List.of(new ZoneMap.Predicate(ValueType.INTEGER, 0, ZoneMap.Comparison.LT,
+                    new Value(0L))), 2)).containsExactly(-1);
+        }
+    }
+
+    @Nested
+    @DisplayName("文件压缩测试")
+    class CompactionTests {
+        @Test
+        @DisplayName("大量删除后压缩记录并截断文件")
+        void compactAfterMassDelete() throws DBException {
+            int recordsPerPage = fileHandle.getFileHeader().getNumberOfRecordsPrePage();
+            Map<Integer, RID> live = new HashMap<>();
+            List<RID> rids = new ArrayList<>();
+            for (int i = 0; i < 5 * recordsPerPage; i++) {
+                rids.add(fileHandle.InsertRecord(Unpooled.buffer(128).writeInt(i).writerIndex(128)));
+            }
+            // 每页都留下少量记录
+            for (int i = 0; i < rids.size(); i++) {
+                if (i % 5 == 0) {
+                    live.put(i, rids.get(i));
+                } else {
+                    fileHandle.DeleteRecord(rids.get(i));
+                }
+            }
+            int pages = fileHandle.getFileHeader().getNumberOfPages();
+
+            fileHandle.RelinkFreePages();
+            RecordFileHandle.MoveListener listener = (from, to, record) -> {
+                RID old = live.put(record.getReadOnlyData().getInt(0), to);
+                assertThat(old.pageNum).isEqualTo(from.pageNum);
+                assertThat(old.slotNum).isEqualTo(from.slotNum);
+            };
+            int moved = 0;
+            int batch;
+            while ((batch = fileHandle.CompactPages(1, null, listener)) > 0) {
+                moved += batch;
+            }
+            int removed = fileHandle.Truncate();
+
+            assertThat(moved).isPositive();
+            assertThat(fileHandle.getFileHeader().getNumberOfPages()).isEqualTo(1);
+            assertThat(removed).isEqualTo(pages - 1);
+            assertThat(diskManager.GetPageCount(TEST_FILENAME)).isEqualTo(2);
+            for (Map.Entry<Integer, RID> entry : live.entrySet()) {
+                assertThat(fileHandle.GetRecord(entry.getValue()).getReadOnlyData().getInt(0)).isEqualTo(entry.getKey());
+            }
+
+            // 截断后插入从空闲页链表中的空位开始，再分配新页面
+            fileHandle.InsertRecord(Unpooled.buffer(128));
+            assertThat(fileHandle.getFileHeader().getNumberOfPages()).isEqualTo(2);
+        }
     }
 
     @Nested
@@ -0,0 +1,113 @@
+package storage;
+
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.storage.BufferAccessStrategy;
+import edu.sustech.cs307.storage.BufferPool;
+import edu.sustech.cs307.storage.DiskManager;
+import edu.sustech.cs307.storage.Page;
+import edu.sustech.cs307.storage.PagePosition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BufferAccessStrategyTest {
+    private static final String HOT_FILE = "hot.db";
+    private static final String SCAN_FILE = "scan.db";
+    private static final int POOL_SIZE = 64;
+    private static final int SCAN_PAGES = 200;
+
+    @TempDir
+    Path tempDir;
+    private DiskManager diskManager;
+    private BufferPool bufferPool;
+
+    @BeforeEach
+    void setUp() throws DBException {
+        diskManager = new DiskManager(tempDir.toString(), new HashMap<>());
+        bufferPool = new BufferPool(POOL_SIZE, diskManager);
+        diskManager.CreateFile(HOT_FILE);
+        diskManager.CreateFile(SCAN_FILE);
+        // 每个页面的第一个字节写入其页号
+        for (int i = 0; i < SCAN_PAGES; i++) {
+            Page page = new Page();
+            page.position = new PagePosition(SCAN_FILE, diskManager.AllocatePage(SCAN_FILE) * Page.DEFAULT_PAGE_SIZE);
+            page.data.setByte(0, page.getPageID());
+            diskManager.WritePage(page);
+        }
+    }
+
+    /**
+     * 用热点页面占满缓冲池中除环以外的所有帧。
+     */
+    private List<PagePosition> load_hot_pages(int count) throws DBException {
+        List<PagePosition> hot = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Page page = bufferPool.NewPage(HOT_FILE);
+            hot.add(new PagePosition(page.position.filename, page.position.offset));
+            bufferPool.unpin_page(page.position, false);
+        }
+        return hot;
+    }
+
+    @Test
+    @DisplayName("小表不使用环形缓冲区，环最多占缓冲池的八分之一")
+    void strategyChosenByTableSize() {
+        assertThat(BufferAccessStrategy.ForScan(bufferPool, POOL_SIZE / 4)).isNull();
+        BufferAccessStrategy strategy = BufferAccessStrategy.ForScan(bufferPool, SCAN_PAGES);
+        assertThat(strategy).isNotNull();
+        assertThat(strategy.size()).isEqualTo(POOL_SIZE / 8);
+    }
+
+    @Test
+    @DisplayName("大表扫描循环复用环中的帧，不挤出热点页面")
+    void scanDoesNotEvictHotPages() throws DBException {
+        BufferAccessStrategy strategy = BufferAccessStrategy.ForScan(bufferPool, SCAN_PAGES);
+        List<PagePosition> hot = load_hot_pages(POOL_SIZE - strategy.size());
+
+        for (int i = 1; i < SCAN_PAGES; i++) {
+            PagePosition position = new PagePosition(SCAN_FILE, i * Page.DEFAULT_PAGE_SIZE);
+            Page page = bufferPool.FetchPage(position, strategy);
+            assertThat(page.data.getByte(0)).isEqualTo((byte) i);
+            bufferPool.unpin_page(position, false);
+        }
+
+        assertThat(bufferPool.getFrameCount()).isEqualTo(POOL_SIZE);
+        for (PagePosition position : hot) {
+            // 只有仍在缓冲池中的页面才能被标记为脏页
+            assertThat(bufferPool.MarkPageDirty(position)).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("批量写入回收环中的脏页前先写回磁盘")
+    void bulkWriteFlushesReclaimedPages() throws DBException {
+        BufferAccessStrategy strategy = BufferAccessStrategy.ForBulkWrite(bufferPool, SCAN_PAGES);
+        List<PagePosition> hot = load_hot_pages(POOL_SIZE - strategy.size());
+        List<PagePosition> written = new ArrayList<>();
+        for (int i = 0; i < 4 * strategy.size(); i++) {
+            Page page = bufferPool.NewPage(HOT_FILE, strategy);
+            page.data.setByte(0, i + 1);
+            written.add(new PagePosition(page.position.filename, page.position.offset));
+            bufferPool.unpin_page(page.position, true);
+        }
+
+        assertThat(bufferPool.getFrameCount()).isEqualTo(POOL_SIZE);
+        for (PagePosition position : hot) {
+            assertThat(bufferPool.MarkPageDirty(position)).isTrue();
+        }
+        // 前三圈写入的页面都已被环回收并写回
+        for (int i = 0; i < 3 * strategy.size(); i++) {
+            Page page = new Page();
+            diskManager.ReadPage(page, HOT_FILE, written.get(i).offset, Page.DEFAULT_PAGE_SIZE);
+            assertThat(page.data.getByte(0)).isEqualTo((byte) (i + 1));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package storage;
+
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.storage.BufferPool;
+import edu.sustech.cs307.storage.DiskManager;
+import edu.sustech.cs307.storage.Page;
+import edu.sustech.cs307.storage.PagePosition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BufferPoolConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int PAGES_PER_FILE = 16;
+    private static final int ITERATIONS = 2000;
+
+    private DiskManager diskManager;
+    private BufferPool bufferPool;
+
+    @BeforeEach
+    void setUp(@TempDir Path tempDir) throws DBException {
+        Map<String, Integer> filePages = new ConcurrentHashMap<>();
+        diskManager = new DiskManager(tempDir.toString(), filePages);
+        // 缓冲池远小于所有线程的工作集，迫使并发的替换与写回
+        bufferPool = new BufferPool(THREADS * 2, diskManager);
+        for (int t = 0; t < THREADS; t++) {
+            String file = "file" + t;
+            diskManager.CreateFile(file);
+            for (int i = 0; i < PAGES_PER_FILE; i++) {
+                Page page = bufferPool.NewPage(file);
+                bufferPool.unpin_page(page.position, true);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("多线程并发读写不同文件的页面，数据与固定计数保持一致")
+    void concurrentFetchModifyUnpin() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<int[]>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            String file = "file" + t;
+            long seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                int[] counters = new int[PAGES_PER_FILE];
+                for (int i = 0; i < ITERATIONS; i++) {
+                    int pageNo = random.nextInt(PAGES_PER_FILE);
+                    PagePosition position = new PagePosition(file, pageNo * Page.DEFAULT_PAGE_SIZE);
+                    Page page = bufferPool.FetchPage(position);
+                    page.WLatch();
+                    try {
+                        assertThat(page.position).isEqualTo(position);
+                        int value = page.data.getInt(0);
+                        assertThat(value).isEqualTo(counters[pageNo]);
+                        page.data.setInt(0, value + 1);
+                    } finally {
+                        page.WUnlatch();
+                    }
+                    counters[pageNo]++;
+                    bufferPool.unpin_page(position, true);
+                }
+                return counters;
+            }));
+        }
+        List<int[]> results = new ArrayList<>();
+        for (Future<int[]> future : futures) {
+            results.add(future.get(60, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        bufferPool.FlushAllPages(null);
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < PAGES_PER_FILE; i++) {
+                Page page = new Page();
+                diskManager.ReadPage(page, "file" + t, i * Page.DEFAULT_PAGE_SIZE, Page.DEFAULT_PAGE_SIZE);
+                assertThat(page.data.getInt(0)).isEqualTo(results.get(t)[i]);
+
+                // 所有线程都已释放页面，固定计数应回到 0
+                Page cached = bufferPool.FetchPage(new PagePosition("file" + t, i * Page.DEFAULT_PAGE_SIZE));
+                assertThat(cached.pin_count).isEqualTo(1);
+                bufferPool.unpin_page(cached.position, false);
+            }
+        }
+    }
+}
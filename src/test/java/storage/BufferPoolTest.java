@@ -3,6 +3,7 @@ package storage;
 import edu.sustech.cs307.exception.DBException;
 import edu.sustech.cs307.storage.BufferPool;
 import edu.sustech.cs307.storage.DiskManager;
+import edu.sustech.cs307.storage.LRUReplacer;
 import edu.sustech.cs307.storage.Page;
 import edu.sustech.cs307.storage.PagePosition;
 import org.junit.jupiter.api.BeforeEach;
@@ -193,9 +194,10 @@ class BufferPoolTest {
         PagePosition targetPos = new PagePosition("test.db", 0);
         Page dirtyPage = bufferPool.FetchPage(targetPos);
         for(int i = 0;i < Page.DEFAULT_PAGE_SIZE;i ++) {
-            dirtyPage.data.array()[i] = (byte) ((byte) i % 128);
+            dirtyPage.data.setByte(i, (byte) ((byte) i % 128));
         }
-        byte[] data = Arrays.copyOf(dirtyPage.data.array(), Page.DEFAULT_PAGE_SIZE);
+        byte[] data = new byte[Page.DEFAULT_PAGE_SIZE];
+        dirtyPage.data.getBytes(0, data);
         BufferPool.MarkPageDirty(dirtyPage);
         bufferPool.unpin_page(targetPos, true);
 
@@ -232,4 +234,285 @@ class BufferPoolTest {
         assertThat(page2).isNotNull();
         assertThat(page1.position.filename).isNotEqualTo(page2.position.filename);
     }
+
+    @Test
+    @DisplayName("缓冲池的帧位于堆外内存且互不重叠")
+    void testFramesAreOffHeap() throws DBException {
+        Page page1 = bufferPool.FetchPage(new PagePosition("test.db", 0));
+        Page page2 = bufferPool.FetchPage(new PagePosition("test.db", 4096));
+        assertThat(page1.data.isDirect()).isTrue();
+        assertThat(page1.data.capacity()).isEqualTo(Page.DEFAULT_PAGE_SIZE);
+
+        page1.data.setByte(Page.DEFAULT_PAGE_SIZE - 1, 1);
+        page2.data.setByte(0, 2);
+        assertThat(page1.data.getByte(Page.DEFAULT_PAGE_SIZE - 1)).isEqualTo((byte) 1);
+        assertThat(page2.data.getByte(0)).isEqualTo((byte) 2);
+    }
+
+    @Test
+    @DisplayName("帧按需创建，缩小上限时驱逐未固定页面并写回脏页")
+    void testLazyAndResizablePool(@TempDir Path dir) throws DBException {
+        DiskManager dm = new DiskManager(dir.toString(), new HashMap<>());
+        BufferPool pool = new BufferPool(4, 8, dm, null, new LRUReplacer(8));
+        dm.CreateFile("resize.db");
+        assertThat(pool.getFrameCount()).isZero();
+
+        Page pinned = pool.NewPage("resize.db");
+        PagePosition[] positions = new PagePosition[3];
+        for (int i = 0; i < 3; i++) {
+            Page page = pool.NewPage("resize.db");
+            page.data.setByte(0, i + 1);
+            positions[i] = new PagePosition(page.position.filename, page.position.offset);
+            pool.unpin_page(page.position, true);
+        }
+        assertThat(pool.getFrameCount()).isEqualTo(4);
+
+        // 被固定的页面不能驱逐，其余页面写回后回收
+        assertThat(pool.SetPoolSize(1)).isEqualTo(1);
+        assertThat(pool.FetchPage(positions[0])).isNull();
+        Page onDisk = new Page();
+        dm.ReadPage(onDisk, "resize.db", positions[2].offset, Page.DEFAULT_PAGE_SIZE);
+        assertThat(onDisk.data.getByte(0)).isEqualTo((byte) 3);
+
+        // 扩大后可以重新装入页面
+        pool.SetPoolSize(8);
+        Page page = pool.FetchPage(positions[2]);
+        assertThat(page.data.getByte(0)).isEqualTo((byte) 3);
+        assertThat(pool.getFrameCount()).isEqualTo(2);
+        pool.unpin_page(page.position, false);
+        pool.unpin_page(pinned.position, false);
+
+        assertThatThrownBy(() -> pool.SetPoolSize(9)).isInstanceOf(DBException.class);
+    }
+
+    @Test
+    @DisplayName("刷新只写出脏页，写出后脏页列表为空")
+    void testFlushAllPagesWritesOnlyDirtyPages(@TempDir Path dir) throws DBException {
+        DiskManager dm = new DiskManager(dir.toString(), new HashMap<>());
+        BufferPool pool = new BufferPool(16, dm);
+        dm.CreateFile("flush.db");
+        PagePosition[] positions = new PagePosition[8];
+        for (int i = 0; i < positions.length; i++) {
+            Page page = pool.NewPage("flush.db");
+            positions[i] = new PagePosition(page.position.filename, page.position.offset);
+            pool.unpin_page(page.position, false);
+        }
+        // 修改所有页面，但只把 1、2、3、6 号标记为脏页，其中 1-3 连续
+        for (int i = 0; i < positions.length; i++) {
+            Page page = pool.FetchPage(positions[i]);
+            page.data.setByte(0, i + 1);
+            pool.unpin_page(positions[i], i == 1 || i == 2 || i == 3 || i == 6);
+        }
+        assertThat(pool.getDirtyPageCount()).isEqualTo(4);
+
+        pool.FlushAllPages("flush.db");
+        assertThat(pool.getDirtyPageCount()).isZero();
+        for (int i = 0; i < positions.length; i++) {
+            Page onDisk = new Page();
+            dm.ReadPage(onDisk, "flush.db", positions[i].offset, Page.DEFAULT_PAGE_SIZE);
+            boolean dirty = i == 1 || i == 2 || i == 3 || i == 6;
+            assertThat(onDisk.data.getByte(0)).isEqualTo(dirty ? (byte) (i + 1) : (byte) 0);
+        }
+    }
+
+    @Test
+    @DisplayName("删除文件的页面只丢弃该文件的页面，脏页不写回")
+    void testDeleteAllPagesDiscardsOnlyThatFile(@TempDir Path dir) throws DBException {
+        DiskManager dm = new DiskManager(dir.toString(), new HashMap<>());
+        BufferPool pool = new BufferPool(16, dm);
+        dm.CreateFile("t/data");
+        dm.CreateFile("other.db");
+        Page pinned = pool.NewPage("t/data");
+        PagePosition dirty = null;
+        for (int i = 0; i < 3; i++) {
+            Page page = pool.NewPage("t/data");
+            page.data.setByte(0, 42);
+            dirty = new PagePosition(page.position.filename, page.position.offset);
+            pool.unpin_page(page.position, true);
+            Page other = pool.NewPage("other.db");
+            pool.unpin_page(other.position, false);
+        }
+        assertThat(pool.getResidentPageCount("t/data")).isEqualTo(4);
+
+        pool.DeleteAllPages("t/data");
+        // 仍被固定的页面留在缓冲池中，直到持有者取消固定
+        assertThat(pool.getResidentPageCount("t/data")).isEqualTo(1);
+        assertThat(pool.getResidentPageCount("other.db")).isEqualTo(3);
+        assertThat(pool.getDirtyPageCount()).isZero();
+        // 被丢弃的脏页重新从磁盘读取
+        Page reloaded = pool.FetchPage(dirty);
+        assertThat(reloaded.data.getByte(0)).isEqualTo((byte) 0);
+        pool.unpin_page(dirty, false);
+
+        // 持有者的取消固定作用于原来的帧，不会被标记为脏页，帧随即被回收
+        pinned.data.setByte(0, 7);
+        assertThat(pool.unpin_page(pinned.position, true)).isTrue();
+        assertThat(pool.getDirtyPageCount()).isZero();
+        assertThat(pool.IsResident(pinned.position)).isFalse();
+        pool.FlushAllPages("");
+        Page onDisk = new Page();
+        dm.ReadPage(onDisk, "t/data", pinned.position.offset, Page.DEFAULT_PAGE_SIZE);
+        assertThat(onDisk.data.getByte(0)).isEqualTo((byte) 0);
+    }
+
+    @Test
+    @DisplayName("删除文件时被固定的页面在取消固定后回到空闲列表，帧不会泄漏")
+    void testDeleteAllPagesReclaimsPinnedFrames(@TempDir Path dir) throws DBException {
+        DiskManager dm = new DiskManager(dir.toString(), new HashMap<>());
+        BufferPool pool = new BufferPool(2, dm);
+        dm.CreateFile("t/data");
+        dm.CreateFile("other.db");
+        Page first = pool.NewPage("t/data");
+        Page second = pool.NewPage("t/data");
+
+        pool.DeleteAllPages("t/data");
+        pool.unpin_page(first.position, false);
+        pool.unpin_page(second.position, false);
+
+        // 两个帧都可以再次使用
+        Page a = pool.NewPage("other.db");
+        Page b = pool.NewPage("other.db");
+        assertThat(a).isNotNull();
+        assertThat(b).isNotNull();
+        assertThat(pool.getFrameCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("重新分配的页面替换缓冲池中残留的旧页面")
+    void testNewPageReplacesStalePage(@TempDir Path dir) throws DBException {
+        DiskManager dm = new DiskManager(dir.toString(), new HashMap<>());
+        BufferPool pool = new BufferPool(16, dm);
+        dm.CreateFile("t/data");
+        // 截断之前装入的页面（例如预读的页面）留在缓冲池中
+        Page stale = pool.NewPage("t/data");
+        stale.data.setByte(0, 42);
+        PagePosition position = new PagePosition(stale.position.filename, stale.position.offset);
+        pool.unpin_page(position, false);
+        dm.TruncateFile("t/data", stale.getPageID());
+
+        Page page = pool.NewPage("t/data");
+        assertThat(page.position).isEqualTo(position);
+        assertThat(page.data.getByte(0)).isEqualTo((byte) 0);
+        assertThat(pool.getResidentPageCount("t/data")).isEqualTo(1);
+        pool.unpin_page(position, false);
+
+        // 仍被固定的旧页面不能被替换
+        pool.FetchPage(position);
+        dm.TruncateFile("t/data", stale.getPageID());
+        assertThatThrownBy(() -> pool.NewPage("t/data")).isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("still pinned");
+        assertThat(pool.getResidentPageCount("t/data")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("同名文件的页面位置相等，修改文件名后不再相等")
+    void testPagePositionUsesInternedFileIds() {
+        PagePosition a = new PagePosition(new String("t/data"), 4096);
+        PagePosition b = new PagePosition(new String("t/data"), 4096);
+        assertThat(a).isEqualTo(b);
+        assertThat(a.hashCode()).isEqualTo(b.hashCode());
+        assertThat(a.getFileId()).isEqualTo(b.getFileId());
+
+        b.filename = "u/data";
+        assertThat(a).isNotEqualTo(b);
+        assertThat(a.getFileId()).isNotEqualTo(b.getFileId());
+    }
+
+    @Test
+    @DisplayName("内存映射的文件只读访问不占用帧，缓冲池中的修改优先")
+    void testFetchPageForReadUsesMapping(@TempDir Path dir) throws DBException {
+        DiskManager dm = new DiskManager(dir.toString(), new HashMap<>());
+        BufferPool pool = new BufferPool(8, dm);
+        dm.CreateFile("mapped.db");
+        PagePosition[] positions = new PagePosition[4];
+        for (int i = 0; i < positions.length; i++) {
+            Page page = pool.NewPage("mapped.db");
+            page.data.setByte(0, i + 1);
+            positions[i] = new PagePosition(page.position.filename, page.position.offset);
+            pool.unpin_page(page.position, true);
+        }
+        pool.FlushAllPages("mapped.db");
+        pool.DeleteAllPages("mapped.db");
+        dm.SetMemoryMapped("mapped.db", true);
+
+        Page page = pool.FetchPageForRead(positions[0], null);
+        assertThat(page.data.getByte(0)).isEqualTo((byte) 1);
+        assertThat(pool.getResidentPageCount("mapped.db")).isZero();
+        assertThat(pool.unpin_page(page, false)).isFalse();
+
+        // 修改通过缓冲池进行，尚未写回时读取看到缓冲池中的页面
+        Page writable = pool.FetchPage(positions[1]);
+        writable.data.setByte(0, 42);
+        pool.unpin_page(positions[1], true);
+        Page read = pool.FetchPageForRead(positions[1], null);
+        assertThat(read).isSameAs(writable);
+        assertThat(read.data.getByte(0)).isEqualTo((byte) 42);
+        pool.unpin_page(positions[1], false);
+    }
+
+    @Test
+    @DisplayName("归还内存映射中的页面不影响缓冲池中同一位置被其他调用者固定的页面")
+    void testUnpinMappedPageKeepsPoolPin(@TempDir Path dir) throws DBException {
+        DiskManager dm = new DiskManager(dir.toString(), new HashMap<>());
+        BufferPool pool = new BufferPool(8, dm);
+        dm.CreateFile("mapped.db");
+        Page created = pool.NewPage("mapped.db");
+        PagePosition position = new PagePosition(created.position.filename, created.position.offset);
+        pool.unpin_page(position, true);
+        pool.FlushAllPages("mapped.db");
+        pool.DeleteAllPages("mapped.db");
+        dm.SetMemoryMapped("mapped.db", true);
+
+        Page mapped = pool.FetchPageForRead(position, null);
+        assertThat(mapped.mapped).isTrue();
+        // 另一个调用者随后把同一页面装入缓冲池并固定
+        Page pinned = pool.FetchPage(position);
+        assertThat(pool.unpin_page(mapped, false)).isFalse();
+        assertThat(pinned.pin_count).isEqualTo(1);
+        assertThat(pool.unpin_page(pinned, false)).isTrue();
+        assertThat(pinned.pin_count).isZero();
+    }
+
+    @Test
+    @DisplayName("不同页大小的文件共用缓冲池，帧数上限以默认页大小计")
+    void testMixedPageSizes(@TempDir Path dir) throws DBException {
+        DiskManager dm = new DiskManager(dir.toString(), new HashMap<>());
+        BufferPool pool = new BufferPool(8, dm);
+        dm.CreateFile("small.db");
+        dm.CreateFile("large.db");
+        dm.SetPageSize("large.db", 16 * 1024);
+
+        for (int i = 0; i < 8; i++) {
+            Page page = pool.NewPage("small.db");
+            pool.unpin_page(page.position, false);
+        }
+        assertThat(pool.getFrameCount()).isEqualTo(8);
+
+        // 16KB 的页占 4 个单位，需要替换 4 个小页面的帧
+        Page large = pool.NewPage("large.db");
+        assertThat(large.size()).isEqualTo(16 * 1024);
+        assertThat(large.position.offset % (16 * 1024)).isZero();
+        large.data.setInt(16 * 1024 - 4, 307);
+        PagePosition largePosition = new PagePosition(large.position.filename, large.position.offset);
+        pool.unpin_page(large.position, true);
+        assertThat(pool.getResidentPageCount("small.db")).isEqualTo(4);
+        assertThat(pool.getFrameCount()).isEqualTo(5);
+
+        Page second = pool.NewPage("large.db");
+        pool.unpin_page(second.position, false);
+        assertThat(pool.getResidentPageCount("small.db")).isZero();
+        assertThat(pool.getResidentPageCount("large.db")).isEqualTo(2);
+
+        // 装回小页面时大帧被回收
+        Page small = pool.FetchPage(new PagePosition("small.db", 0));
+        assertThat(small.size()).isEqualTo(Page.DEFAULT_PAGE_SIZE);
+        pool.unpin_page(small.position, false);
+        assertThat(pool.getResidentPageCount("large.db")).isEqualTo(1);
+
+        // 被替换的大页面写回后能完整读回
+        pool.DeleteAllPages("large.db");
+        Page reread = pool.FetchPage(largePosition);
+        assertThat(reread.data.getInt(16 * 1024 - 4)).isEqualTo(307);
+        pool.unpin_page(reread.position, false);
+    }
 }
@@ -7,11 +7,17 @@ import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -146,4 +152,204 @@ class DiskManagerTest {
                 .hasSize(PAGE_SIZE * 2)
                 .containsExactly(largeData);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("删除文件后重新创建应读取到新内容")
+    void deleteFileClosesCachedHandle() throws Exception {
+        diskManager.CreateFile(TEST_FILE);
+        Page page = new Page();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page.data.array()[i] = (byte) 7;
+        }
+        page.position.filename = TEST_FILE;
+        page.position.offset = 0;
+        diskManager.FlushPage(page);
+
+        // 读取一次，使句柄进入缓存
+        Page cached = new Page();
+        diskManager.ReadPage(cached, TEST_FILE, 0, PAGE_SIZE);
+        assertThat(cached.data.array()).containsExactly(page.data.array());
+
+        diskManager.DeleteFile(TEST_FILE);
+        assertThat(tempDir.resolve(TEST_FILE)).doesNotExist();
+
+        diskManager.CreateFile(TEST_FILE);
+        Page fresh = new Page();
+        diskManager.ReadPage(fresh, TEST_FILE, 0, PAGE_SIZE);
+        assertThat(fresh.data.array()).containsOnly((byte) 0);
+    }
+
+    @Test
+    @DisplayName("读取不存在的文件应抛出异常")
+    void readNonExistentFile() {
+        Page page = new Page();
+        assertThrows(DBException.class, () -> diskManager.ReadPage(page, NON_EXISTENT_FILE, 0, PAGE_SIZE));
+        assertThat(tempDir.resolve(NON_EXISTENT_FILE)).doesNotExist();
+    }
+
+    @Test
+    @DisplayName("聚集写把多个缓冲区写入连续的页面")
+    void writePagesGathers() throws Exception {
+        diskManager.CreateFile(TEST_FILE);
+        ByteBuffer[] buffers = new ByteBuffer[3];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(PAGE_SIZE);
+            buffers[i].put(0, (byte) (i + 1));
+        }
+        diskManager.WritePages(TEST_FILE, PAGE_SIZE, buffers);
+
+        assertThat(diskManager.GetFileSize(TEST_FILE)).isEqualTo(4L * PAGE_SIZE);
+        for (int i = 0; i < buffers.length; i++) {
+            Page page = new Page();
+            diskManager.ReadPage(page, TEST_FILE, (i + 1) * PAGE_SIZE, PAGE_SIZE);
+            assertThat(page.data.getByte(0)).isEqualTo((byte) (i + 1));
+        }
+    }
+
+    @Test
+    @DisplayName("内存映射读取的页面与文件内容一致，文件增长后重新映射")
+    void mapPageFollowsFileGrowth() throws Exception {
+        diskManager.CreateFile(TEST_FILE);
+        diskManager.SetMemoryMapped(TEST_FILE, true);
+        Page page = new Page();
+        page.position.filename = TEST_FILE;
+        page.position.offset = 0;
+        page.data.setByte(0, 7);
+        diskManager.WritePage(page);
+
+        ByteBuffer mapped = diskManager.MapPage(TEST_FILE, 0);
+        assertThat(mapped.isReadOnly()).isTrue();
+        assertThat(mapped.get(0)).isEqualTo((byte) 7);
+        // 超出文件末尾的页面无法映射
+        assertThat(diskManager.MapPage(TEST_FILE, PAGE_SIZE)).isNull();
+
+        page.position.offset = PAGE_SIZE;
+        page.data.setByte(0, 8);
+        diskManager.WritePage(page);
+        assertThat(diskManager.MapPage(TEST_FILE, PAGE_SIZE).get(0)).isEqualTo((byte) 8);
+        // 映射与定位写共享页缓存
+        page.position.offset = 0;
+        page.data.setByte(0, 9);
+        diskManager.WritePage(page);
+        assertThat(mapped.get(0)).isEqualTo((byte) 9);
+
+        diskManager.SetMemoryMapped(TEST_FILE, false);
+        assertThat(diskManager.MapPage(TEST_FILE, 0)).isNull();
+    }
+
+    @Test
+    @DisplayName("仍有映射中的页面未归还时推迟物理截断")
+    void truncateWaitsForMappedPages() throws Exception {
+        diskManager.CreateFile(TEST_FILE);
+        diskManager.SetMemoryMapped(TEST_FILE, true);
+        Page page = new Page();
+        page.position.filename = TEST_FILE;
+        for (int i = 0; i < 2; i++) {
+            diskManager.AllocatePage(TEST_FILE);
+            page.position.offset = i * PAGE_SIZE;
+            page.data.setByte(0, i + 1);
+            diskManager.WritePage(page);
+        }
+        long size = diskManager.GetFileSize(TEST_FILE);
+
+        ByteBuffer mapped = diskManager.MapPage(TEST_FILE, PAGE_SIZE);
+        diskManager.TruncateFile(TEST_FILE, 1);
+        assertThat(diskManager.GetPageCount(TEST_FILE)).isEqualTo(1);
+        assertThat(diskManager.GetFileSize(TEST_FILE)).isEqualTo(size);
+        // 已借出的页面仍然可以访问
+        assertThat(mapped.get(0)).isEqualTo((byte) 2);
+        assertThat(diskManager.MapPage(TEST_FILE, PAGE_SIZE)).isNotNull();
+        diskManager.ReleaseMappedPage(TEST_FILE);
+        assertThat(diskManager.GetFileSize(TEST_FILE)).isEqualTo(size);
+
+        diskManager.ReleaseMappedPage(TEST_FILE);
+        assertThat(diskManager.GetFileSize(TEST_FILE)).isEqualTo(PAGE_SIZE);
+        assertThat(diskManager.MapPage(TEST_FILE, PAGE_SIZE)).isNull();
+    }
+
+    @Test
+    @DisplayName("分配页面时按区扩展文件，不覆盖已写入的页面")
+    void allocatePageGrowsByExtent() throws Exception {
+        diskManager.CreateFile(TEST_FILE);
+        diskManager.SetExtentPages(TEST_FILE, 16);
+
+        assertThat(diskManager.AllocatePage(TEST_FILE)).isEqualTo(1);
+        // 第一个区从 MIN_EXTENT_PAGES 页开始
+        assertThat(diskManager.GetReservedPages(TEST_FILE)).isEqualTo(1 + DiskManager.MIN_EXTENT_PAGES);
+        assertThat(diskManager.GetFileSize(TEST_FILE)).isEqualTo((1L + DiskManager.MIN_EXTENT_PAGES) * PAGE_SIZE);
+
+        Page page = new Page();
+        page.position.filename = TEST_FILE;
+        page.position.offset = PAGE_SIZE;
+        page.data.setInt(0, 307);
+        diskManager.WritePage(page);
+        for (int i = 2; i <= DiskManager.MIN_EXTENT_PAGES; i++) {
+            diskManager.AllocatePage(TEST_FILE);
+        }
+        assertThat(diskManager.GetReservedPages(TEST_FILE)).isEqualTo(1 + DiskManager.MIN_EXTENT_PAGES);
+
+        // 之后每次扩展为当前页数，不超过区大小
+        diskManager.AllocatePage(TEST_FILE);
+        assertThat(diskManager.GetReservedPages(TEST_FILE)).isEqualTo(1 + DiskManager.MIN_EXTENT_PAGES + 9);
+        diskManager.ReservePages(TEST_FILE, 40);
+        assertThat(diskManager.GetReservedPages(TEST_FILE)).isEqualTo(18 + 32);
+        assertThat(diskManager.GetFileSize(TEST_FILE)).isEqualTo(50L * PAGE_SIZE);
+
+        Page read = new Page();
+        diskManager.ReadPage(read, TEST_FILE, PAGE_SIZE, PAGE_SIZE);
+        assertThat(read.data.getInt(0)).isEqualTo(307);
+    }
+
+    @Test
+    @DisplayName("关闭文件或其他线程被中断不影响正在进行的读写")
+    void closeFileDuringConcurrentIO() throws Exception {
+        diskManager.CreateFile(TEST_FILE);
+        diskManager.AllocatePage(TEST_FILE);
+        Page page = new Page();
+        page.position.filename = TEST_FILE;
+        page.position.offset = 0;
+        page.data.setInt(0, 307);
+        diskManager.WritePage(page);
+
+        AtomicBoolean stop = new AtomicBoolean(false);
+        AtomicLong reads = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread reader = new Thread(() -> {
+                Page read = new Page();
+                try {
+                    while (!stop.get()) {
+                        diskManager.ReadPage(read, TEST_FILE, 0, PAGE_SIZE);
+                        assertThat(read.data.getInt(0)).isEqualTo(307);
+                        reads.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        for (int i = 0; reads.get() < 100000 && failure.get() == null; i++) {
+            diskManager.CloseFile(TEST_FILE);
+            if (i % 1000 == 0) {
+                // 被中断的线程在读取时关闭共享的通道
+                Thread interrupted = new Thread(() -> {
+                    Thread.currentThread().interrupt();
+                    try {
+                        diskManager.ReadPage(new Page(), TEST_FILE, 0, PAGE_SIZE);
+                    } catch (DBException ignored) {
+                    }
+                });
+                interrupted.start();
+                interrupted.join();
+            }
+        }
+        stop.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertThat(failure.get()).isNull();
+    }
+}
@@ -0,0 +1,222 @@
+package storage;
+
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.record.RID;
+import edu.sustech.cs307.record.RecordFileHandle;
+import edu.sustech.cs307.storage.BufferPool;
+import edu.sustech.cs307.storage.DiskManager;
+import edu.sustech.cs307.storage.LogManager;
+import edu.sustech.cs307.storage.Page;
+import edu.sustech.cs307.storage.PagePosition;
+import edu.sustech.cs307.system.RecordManager;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogManagerTest {
+    private static final String TEST_FILE = "test.db";
+
+    @TempDir
+    Path tempDir;
+    private Map<String, Integer> filePages;
+    private DiskManager diskManager;
+    private LogManager logManager;
+    private BufferPool bufferPool;
+
+    @BeforeEach
+    void setUp() throws DBException {
+        filePages = new HashMap<>();
+        diskManager = new DiskManager(tempDir.toString(), filePages);
+        logManager = new LogManager(tempDir.toString());
+        bufferPool = new BufferPool(4, diskManager, logManager);
+        diskManager.CreateFile(TEST_FILE);
+    }
+
+    private Page writePage(byte value) throws DBException {
+        Page page = bufferPool.NewPage(TEST_FILE);
+        page.data.setByte(0, value);
+        page.data.setByte(Page.DEFAULT_PAGE_SIZE - 1, value);
+        bufferPool.unpin_page(page.position, true);
+        return page;
+    }
+
+    private Page readFromDisk(DiskManager dm, int offset) throws DBException {
+        Page page = new Page();
+        dm.ReadPage(page, TEST_FILE, offset, Page.DEFAULT_PAGE_SIZE);
+        return page;
+    }
+
+    @Test
+    @DisplayName("提交后脏页延迟写回，日志重放可恢复数据")
+    void commitThenRecover() throws Exception {
+        Page page = writePage((byte) 42);
+        bufferPool.Commit();
+
+        // 提交只写日志，数据页仍然是新分配时的全零内容
+        assertThat(page.dirty).isTrue();
+        assertThat(readFromDisk(diskManager, page.position.offset).data.getByte(0)).isEqualTo((byte) 0);
+        assertThat(Files.size(tempDir.resolve(LogManager.LOG_FILE))).isGreaterThan(Page.DEFAULT_PAGE_SIZE);
+
+        // 模拟崩溃：丢弃缓冲池，用新的管理器重放日志
+        DiskManager recovered = new DiskManager(tempDir.toString(), new HashMap<>());
+        new LogManager(tempDir.toString()).Recover(recovered);
+
+        Page onDisk = readFromDisk(recovered, page.position.offset);
+        assertThat(onDisk.data.getByte(0)).isEqualTo((byte) 42);
+        assertThat(onDisk.data.getByte(Page.DEFAULT_PAGE_SIZE - 1)).isEqualTo((byte) 42);
+        assertThat(recovered.filePages.get(TEST_FILE)).isEqualTo(page.getPageID() + 1);
+        assertThat(Files.size(tempDir.resolve(LogManager.LOG_FILE))).isZero();
+    }
+
+    @Test
+    @DisplayName("最后一次提交之后的记录不会被重放")
+    void uncommittedTailIsIgnored() throws Exception {
+        Page committed = writePage((byte) 1);
+        bufferPool.Commit();
+
+        Page uncommitted = writePage((byte) 2);
+        logManager.AppendPage(uncommitted);
+        logManager.Flush(uncommitted.lsn);
+
+        DiskManager recovered = new DiskManager(tempDir.toString(), new HashMap<>());
+        new LogManager(tempDir.toString()).Recover(recovered);
+
+        assertThat(readFromDisk(recovered, committed.position.offset).data.getByte(0)).isEqualTo((byte) 1);
+        assertThat(readFromDisk(recovered, uncommitted.position.offset).data.getByte(0)).isEqualTo((byte) 0);
+    }
+
+    @Test
+    @DisplayName("被替换的脏页在写回前先写入日志")
+    void evictionLogsBeforeWrite() throws DBException {
+        Page page = writePage((byte) 7);
+        PagePosition position = new PagePosition(page.position.filename, page.position.offset);
+        long before = logManager.getFlushedLsn();
+
+        // 填满缓冲池，迫使第一页被替换
+        for (int i = 0; i < 4; i++) {
+            Page other = bufferPool.NewPage(TEST_FILE);
+            bufferPool.unpin_page(other.position, false);
+        }
+
+        assertThat(logManager.getFlushedLsn()).isGreaterThan(before);
+        assertThat(readFromDisk(diskManager, position.offset).data.getByte(0)).isEqualTo((byte) 7);
+    }
+
+    @Test
+    @DisplayName("检查点写回脏页并截断日志")
+    void checkpointTruncatesLog() throws Exception {
+        Page page = writePage((byte) 9);
+        bufferPool.Commit();
+        bufferPool.Checkpoint();
+
+        assertThat(page.dirty).isFalse();
+        assertThat(readFromDisk(diskManager, page.position.offset).data.getByte(0)).isEqualTo((byte) 9);
+        assertThat(Files.size(tempDir.resolve(LogManager.LOG_FILE))).isZero();
+    }
+
+    @Test
+    @DisplayName("截断只丢弃检查点开始之前的记录")
+    void truncateKeepsLaterRecords() throws Exception {
+        Page before = writePage((byte) 3);
+        bufferPool.Commit();
+        long lsn = logManager.getAppendLsn();
+
+        // 检查点开始之后追加的记录：一条已写出，一条仍在日志缓冲中
+        Page flushed = writePage((byte) 4);
+        logManager.AppendPage(flushed);
+        logManager.Flush(flushed.lsn);
+        Page buffered = writePage((byte) 5);
+        logManager.AppendPage(buffered);
+
+        logManager.Truncate(lsn);
+        assertThat(Files.size(tempDir.resolve(LogManager.LOG_FILE))).isEqualTo(flushed.lsn - lsn);
+        logManager.Commit();
+
+        DiskManager recovered = new DiskManager(tempDir.toString(), new HashMap<>());
+        new LogManager(tempDir.toString()).Recover(recovered);
+
+        // 检查点之前的记录被丢弃，调用者负责已经写回它们
+        assertThat(readFromDisk(recovered, before.position.offset).data.getByte(0)).isEqualTo((byte) 0);
+        assertThat(readFromDisk(recovered, flushed.position.offset).data.getByte(0)).isEqualTo((byte) 4);
+        assertThat(readFromDisk(recovered, buffered.position.offset).data.getByte(0)).isEqualTo((byte) 5);
+    }
+
+    @Test
+    @DisplayName("提交之前被写回的页面在恢复时被撤销")
+    void stolenPagesAreUndone() throws Exception {
+        Page committed = writePage((byte) 1);
+        PagePosition position = new PagePosition(committed.position.filename, committed.position.offset);
+        bufferPool.Commit();
+        bufferPool.Checkpoint();
+
+        // 未提交的语句修改已提交的页面并新建一个页面，二者都被替换写回数据文件
+        Page page = bufferPool.FetchPage(position);
+        page.data.setByte(0, (byte) 2);
+        bufferPool.unpin_page(position, true);
+        int created = writePage((byte) 3).position.offset;
+        for (int i = 0; i < 4; i++) {
+            Page other = bufferPool.NewPage(TEST_FILE);
+            bufferPool.unpin_page(other.position, false);
+        }
+        assertThat(readFromDisk(diskManager, position.offset).data.getByte(0)).isEqualTo((byte) 2);
+        assertThat(readFromDisk(diskManager, created).data.getByte(0)).isEqualTo((byte) 3);
+
+        DiskManager recovered = new DiskManager(tempDir.toString(), new HashMap<>());
+        new LogManager(tempDir.toString()).Recover(recovered);
+
+        assertThat(readFromDisk(recovered, position.offset).data.getByte(0)).isEqualTo((byte) 1);
+        assertThat(readFromDisk(recovered, created).data.getByte(0)).isEqualTo((byte) 0);
+    }
+
+    @Test
+    @DisplayName("检查点之后崩溃，恢复后新分配的页面不覆盖已提交的记录")
+    void checkpointPersistsPageCounts() throws Exception {
+        RecordManager recordManager = new RecordManager(diskManager, bufferPool);
+        recordManager.CreateFile("t/data", 100);
+        // 上一次正常退出时保存的元数据，此时表还没有数据页
+        DiskManager.dump_disk_manager_meta(diskManager);
+        RecordFileHandle handle = recordManager.OpenFile("t");
+        List<RID> rids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            rids.add(handle.InsertRecord(row(i)));
+        }
+        bufferPool.Commit();
+        bufferPool.Checkpoint();
+        // 检查点之后只修改第一个数据页，日志中没有之后的数据页
+        handle.DeleteRecord(rids.remove(0));
+        bufferPool.Commit();
+
+        // 模拟崩溃：只有元文件和日志可用
+        DiskManager recovered = new DiskManager(tempDir.toString(),
+                new HashMap<>(DiskManager.read_disk_manager_meta(tempDir.toString())));
+        LogManager recoveredLog = new LogManager(tempDir.toString());
+        recoveredLog.Recover(recovered);
+        BufferPool recoveredPool = new BufferPool(16, recovered, recoveredLog);
+        RecordFileHandle reopened = new RecordManager(recovered, recoveredPool).OpenFile("t");
+        for (int i = 100; i < 200; i++) {
+            rids.add(reopened.InsertRecord(row(i)));
+        }
+        recoveredPool.Commit();
+
+        assertThat(rids).doesNotHaveDuplicates();
+        for (int i = 0; i < rids.size(); i++) {
+            assertThat(reopened.GetRecord(rids.get(i)).GetColumnValue(0, 4).getInt(0)).isEqualTo(i + 1);
+        }
+    }
+
+    private static ByteBuf row(int value) {
+        return Unpooled.buffer(100).writeInt(value).writeZero(96);
+    }
+}
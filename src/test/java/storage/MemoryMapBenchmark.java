@@ -0,0 +1,90 @@
+package storage;
+
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.storage.BufferPool;
+import edu.sustech.cs307.storage.DiskManager;
+import edu.sustech.cs307.storage.Page;
+import edu.sustech.cs307.storage.PagePosition;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * 比较定位读与内存映射两种读取方式的只读访问吞吐量。不是单元测试，不会被 surefire 执行。
+ *
+ * <p>
+ * 运行方式：{@code mvn -q test-compile} 后执行
+ * {@code java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) storage.MemoryMapBenchmark [pages] [pool_size]}
+ * </p>
+ *
+ * <p>
+ * 文件在页缓存中（预热后），因此比较的是每次访问的软件开销：定位读需要一次系统调用并把页面复制到帧中，
+ * 缓冲池放不下文件时还要替换页面；内存映射直接返回映射中的视图。
+ * </p>
+ */
+public class MemoryMapBenchmark {
+    private static final String FILE = "bench.db";
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException, DBException {
+        int pages = args.length > 0 ? Integer.parseInt(args[0]) : 16384;
+        int pool_size = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+        Path dir = Files.createTempDirectory("mmap-bench");
+        DiskManager diskManager = new DiskManager(dir.toString(), new HashMap<>());
+        diskManager.CreateFile(FILE);
+        Page page = new Page();
+        for (int i = 0; i < pages; i++) {
+            page.position = new PagePosition(FILE, diskManager.AllocatePage(FILE) * Page.DEFAULT_PAGE_SIZE);
+            page.data.setInt(0, i);
+            diskManager.WritePage(page);
+        }
+        diskManager.SyncFile(FILE);
+
+        int[] sequential = new int[pages];
+        int[] random = new int[pages];
+        Random rng = new Random(307);
+        for (int i = 0; i < pages; i++) {
+            sequential[i] = i;
+            random[i] = rng.nextInt(pages);
+        }
+
+        System.out.printf("%d pages (%d MB), buffer pool %d pages%n", pages,
+                (long) pages * Page.DEFAULT_PAGE_SIZE >> 20, pool_size);
+        for (String order : new String[]{"sequential", "random"}) {
+            int[] accesses = order.equals("sequential") ? sequential : random;
+            for (boolean mapped : new boolean[]{false, true}) {
+                diskManager.SetMemoryMapped(FILE, mapped);
+                BufferPool bufferPool = new BufferPool(pool_size, diskManager);
+                // 第一轮预热页缓存与 JIT
+                run(bufferPool, accesses);
+                long best = Long.MAX_VALUE;
+                for (int round = 0; round < ROUNDS; round++) {
+                    long start = System.nanoTime();
+                    run(bufferPool, accesses);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                System.out.printf("%-10s %-5s %8.0f ns/page %10.0f pages/s%n", order, mapped ? "mmap" : "pread",
+                        (double) best / pages, pages * 1e9 / best);
+            }
+        }
+        diskManager.DeleteFile(FILE);
+        diskManager.CloseAllFiles();
+        Files.deleteIfExists(dir);
+    }
+
+    private static void run(BufferPool bufferPool, int[] accesses) throws DBException {
+        long checksum = 0;
+        for (int page_no : accesses) {
+            PagePosition position = new PagePosition(FILE, page_no * Page.DEFAULT_PAGE_SIZE);
+            Page page = bufferPool.FetchPageForRead(position, null);
+            checksum += page.data.getInt(0);
+            bufferPool.unpin_page(page, false);
+        }
+        if (checksum < 0) {
+            throw new IllegalStateException();
+        }
+    }
+}
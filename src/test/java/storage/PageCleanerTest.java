@@ -0,0 +1,92 @@
+package storage;
+
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.storage.BufferPool;
+import edu.sustech.cs307.storage.DiskManager;
+import edu.sustech.cs307.storage.Page;
+import edu.sustech.cs307.storage.PagePosition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PageCleanerTest {
+    private static final String TEST_FILE = "test.db";
+    private static final int POOL_SIZE = 32;
+
+    @TempDir
+    Path tempDir;
+    private DiskManager diskManager;
+    private BufferPool bufferPool;
+    private final List<PagePosition> dirtyPages = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws DBException {
+        diskManager = new DiskManager(tempDir.toString(), new HashMap<>());
+        bufferPool = new BufferPool(POOL_SIZE, diskManager);
+        diskManager.CreateFile(TEST_FILE);
+        // 填满缓冲池，每个页面都是未固定的脏页
+        for (int i = 0; i < POOL_SIZE; i++) {
+            Page page = bufferPool.NewPage(TEST_FILE);
+            page.data.setByte(0, i + 1);
+            dirtyPages.add(new PagePosition(page.position.filename, page.position.offset));
+            bufferPool.unpin_page(page.position, true);
+        }
+    }
+
+    private byte readFromDisk(PagePosition position) throws DBException {
+        Page page = new Page();
+        diskManager.ReadPage(page, position.filename, position.offset, Page.DEFAULT_PAGE_SIZE);
+        return page.data.getByte(0);
+    }
+
+    @Test
+    @DisplayName("后台写回替换器尾部的脏页，之后的替换不再同步写盘")
+    void cleanPagesAheadOfEviction() throws DBException {
+        assertThat(bufferPool.CleanPages(8, 100)).isEqualTo(8);
+        assertThat(bufferPool.getCleanerWrites()).isEqualTo(8);
+        // LRU 尾部就是最早取消固定的页面
+        for (int i = 0; i < 8; i++) {
+            assertThat(readFromDisk(dirtyPages.get(i))).isEqualTo((byte) (i + 1));
+        }
+        assertThat(readFromDisk(dirtyPages.get(8))).isEqualTo((byte) 0);
+
+        for (int i = 0; i < 8; i++) {
+            Page page = bufferPool.NewPage(TEST_FILE);
+            bufferPool.unpin_page(page.position, false);
+        }
+        assertThat(bufferPool.getForegroundWrites()).isZero();
+
+        // 尾部已经干净时不需要再写回
+        assertThat(bufferPool.CleanPages(0, 100)).isZero();
+    }
+
+    @Test
+    @DisplayName("单轮写回数量受限，固定的页面不会被写回")
+    void cleanPagesRespectsLimitAndPins() throws DBException {
+        Page pinned = bufferPool.FetchPage(dirtyPages.get(0));
+        assertThat(bufferPool.CleanPages(POOL_SIZE, 3)).isEqualTo(3);
+        assertThat(pinned.dirty).isTrue();
+        assertThat(readFromDisk(dirtyPages.get(0))).isEqualTo((byte) 0);
+        bufferPool.unpin_page(pinned.position, false);
+    }
+
+    @Test
+    @DisplayName("后台线程持续写回脏页")
+    void backgroundThreadCleansPages() throws Exception {
+        bufferPool.StartPageCleaner();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (bufferPool.getCleanerWrites() < 16 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        bufferPool.getPageCleaner().Shutdown();
+        assertThat(bufferPool.getCleanerWrites()).isGreaterThanOrEqualTo(16);
+    }
+}
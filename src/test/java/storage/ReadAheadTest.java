@@ -0,0 +1,112 @@
+package storage;
+
+import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.storage.BufferPool;
+import edu.sustech.cs307.storage.DiskManager;
+import edu.sustech.cs307.storage.Page;
+import edu.sustech.cs307.storage.PagePosition;
+import edu.sustech.cs307.storage.ReadAhead;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadAheadTest {
+    private static final String TEST_FILE = "scan.db";
+    private static final int PAGES = 64;
+
+    @TempDir
+    Path tempDir;
+    private DiskManager diskManager;
+
+    @BeforeEach
+    void setUp() throws DBException {
+        diskManager = new DiskManager(tempDir.toString(), new HashMap<>());
+        diskManager.CreateFile(TEST_FILE);
+        // 每个页面的第一个字节写入其页号
+        for (int i = 0; i < PAGES; i++) {
+            Page page = new Page();
+            page.position = new PagePosition(TEST_FILE, diskManager.AllocatePage(TEST_FILE) * Page.DEFAULT_PAGE_SIZE);
+            page.data.setByte(0, page.getPageID());
+            diskManager.WritePage(page);
+        }
+    }
+
+    private static PagePosition position(int page_no) {
+        return new PagePosition(TEST_FILE, page_no * Page.DEFAULT_PAGE_SIZE);
+    }
+
+    @Test
+    @DisplayName("顺序访问触发预读，预读的页面内容正确且未被固定")
+    void sequentialAccessPrefetches() throws DBException {
+        BufferPool bufferPool = new BufferPool(128, diskManager);
+        bufferPool.EnableReadAhead();
+        for (int i = 1; i <= 3; i++) {
+            bufferPool.FetchPage(position(i));
+            bufferPool.unpin_page(position(i), false);
+        }
+        ReadAhead readAhead = bufferPool.getReadAhead();
+        readAhead.Shutdown();
+
+        assertThat(readAhead.getPrefetchedPages()).isGreaterThan(0);
+        int cached = bufferPool.getFrameCount();
+        assertThat(cached).isGreaterThan(3);
+        for (int i = 4; i < cached + 1; i++) {
+            Page page = bufferPool.FetchPage(position(i));
+            assertThat(page.data.getByte(0)).isEqualTo((byte) i);
+            assertThat(page.pin_count).isEqualTo(1);
+            bufferPool.unpin_page(position(i), false);
+        }
+        // 命中预读的页面不需要新的帧
+        assertThat(bufferPool.getFrameCount()).isEqualTo(cached);
+    }
+
+    @Test
+    @DisplayName("随机访问不触发预读")
+    void randomAccessDoesNotPrefetch() throws DBException {
+        BufferPool bufferPool = new BufferPool(128, diskManager);
+        bufferPool.EnableReadAhead();
+        for (int page_no : new int[]{5, 40, 12, 33, 7, 60}) {
+            bufferPool.FetchPage(position(page_no));
+            bufferPool.unpin_page(position(page_no), false);
+        }
+        bufferPool.getReadAhead().Shutdown();
+
+        assertThat(bufferPool.getReadAhead().getPrefetchedPages()).isZero();
+        assertThat(bufferPool.getFrameCount()).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("删除文件的页面之后，之前提交的预读不再装入页面")
+    void deleteInvalidatesPrefetches() throws DBException {
+        BufferPool bufferPool = new BufferPool(128, diskManager);
+        bufferPool.EnableReadAhead();
+        for (int i = 1; i <= 3; i++) {
+            bufferPool.FetchPage(position(i));
+            bufferPool.unpin_page(position(i), false);
+        }
+        bufferPool.DeleteAllPages(TEST_FILE);
+        bufferPool.getReadAhead().Shutdown();
+
+        assertThat(bufferPool.getResidentPageCount(TEST_FILE)).isZero();
+    }
+
+    @Test
+    @DisplayName("预读跳过已缓存的脏页，不会用磁盘上的旧内容覆盖")
+    void prefetchSkipsCachedPages() throws DBException {
+        BufferPool bufferPool = new BufferPool(128, diskManager);
+        Page dirty = bufferPool.FetchPage(position(10));
+        dirty.data.setByte(0, 99);
+        bufferPool.unpin_page(position(10), true);
+
+        assertThat(bufferPool.PrefetchPages(TEST_FILE, 8, 8)).isEqualTo(7);
+        Page page = bufferPool.FetchPage(position(10));
+        assertThat(page.data.getByte(0)).isEqualTo((byte) 99);
+        bufferPool.unpin_page(position(10), false);
+    }
+}
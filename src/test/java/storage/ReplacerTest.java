@@ -0,0 +1,237 @@
+package storage;
+
+import edu.sustech.cs307.storage.PagePosition;
+import edu.sustech.cs307.storage.Replacer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ReplacerTest {
+    private static final int CAPACITY = 5;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"lru", "clock", "lru-k", "arc"})
+    @DisplayName("所有页面被固定时无法驱逐")
+    void testAllPinnedNoVictim(String policy) {
+        Replacer replacer = Replacer.Create(policy, CAPACITY);
+        for (int i = 0; i < CAPACITY; i++) {
+            replacer.Pin(i);
+        }
+        assertThat(replacer.Victim()).isEqualTo(-1);
+        assertThat(replacer.size()).isEqualTo(CAPACITY);
+
+        replacer.Unpin(3);
+        assertThat(replacer.Victim()).isEqualTo(3);
+        assertThat(replacer.size()).isEqualTo(CAPACITY - 1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"lru", "clock", "lru-k", "arc"})
+    @DisplayName("满时固定新帧应失败，重新固定已跟踪的帧应成功")
+    void testPinWhenFull(String policy) {
+        Replacer replacer = Replacer.Create(policy, CAPACITY);
+        for (int i = 0; i < CAPACITY; i++) {
+            replacer.Pin(i);
+            replacer.Unpin(i);
+        }
+        // 已在替换器中的帧可以再次固定
+        replacer.Pin(2);
+        assertThat(replacer.size()).isEqualTo(CAPACITY);
+
+        Replacer full = Replacer.Create(policy, CAPACITY);
+        for (int i = 0; i < CAPACITY; i++) {
+            full.Pin(i);
+        }
+        full.Remove(4);
+        full.Pin(4);
+        assertThatThrownBy(() -> full.Pin(CAPACITY))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("REPLACER IS FULL");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"lru", "clock", "lru-k", "arc"})
+    @DisplayName("被驱逐或移除的帧不能再取消固定")
+    void testUnpinUnknownFrame(String policy) {
+        Replacer replacer = Replacer.Create(policy, CAPACITY);
+        replacer.Pin(1);
+        replacer.Unpin(1);
+        assertThat(replacer.Victim()).isEqualTo(1);
+        assertThatThrownBy(() -> replacer.Unpin(1))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("UNPIN PAGE NOT FOUND");
+
+        replacer.Pin(2);
+        replacer.Remove(2);
+        assertThat(replacer.size()).isZero();
+        assertThat(replacer.Victim()).isEqualTo(-1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"lru", "clock", "lru-k", "arc"})
+    @DisplayName("可驱逐的帧最终都会被驱逐且只驱逐一次")
+    void testVictimDrainsAllFrames(String policy) {
+        int capacity = 1000;
+        Replacer replacer = Replacer.Create(policy, capacity);
+        Random random = new Random(307);
+        for (int i = 0; i < capacity; i++) {
+            replacer.Pin(i);
+            if (random.nextBoolean()) {
+                replacer.Unpin(i);
+                replacer.Pin(i);
+            }
+            replacer.Unpin(i);
+        }
+        boolean[] seen = new boolean[capacity];
+        for (int i = 0; i < capacity; i++) {
+            int victim = replacer.Victim();
+            assertThat(victim).isBetween(0, capacity - 1);
+            assertThat(seen[victim]).isFalse();
+            seen[victim] = true;
+        }
+        assertThat(replacer.Victim()).isEqualTo(-1);
+        assertThat(replacer.size()).isZero();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"lru", "clock", "lru-k", "arc"})
+    @DisplayName("候选帧只包含可替换的帧，第一个候选就是下一个被替换的帧，且不改变替换器状态")
+    void testCandidatesMatchVictims(String policy) {
+        Replacer replacer = Replacer.Create(policy, CAPACITY);
+        for (int i = 0; i < CAPACITY; i++) {
+            replacer.Pin(i);
+            if (i != 2) {
+                replacer.Unpin(i);
+            }
+        }
+        int[] candidates = replacer.Candidates(CAPACITY);
+        assertThat(candidates).hasSize(CAPACITY - 1).doesNotContain(2).doesNotHaveDuplicates();
+        assertThat(replacer.Candidates(2)).hasSize(2);
+        assertThat(replacer.size()).isEqualTo(CAPACITY);
+        assertThat(replacer.Victim()).isEqualTo(candidates[0]);
+    }
+
+    @Test
+    @DisplayName("LRU-K 优先驱逐只访问过一次的帧")
+    void testLRUKPrefersSingleAccess() {
+        Replacer replacer = Replacer.Create("lru-k", CAPACITY);
+        replacer.Pin(0);
+        replacer.Unpin(0);
+        replacer.Pin(0);
+        replacer.Unpin(0);
+        replacer.Pin(1);
+        replacer.Unpin(1);
+        assertThat(replacer.Victim()).isEqualTo(1);
+        assertThat(replacer.Victim()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("CLOCK 拒绝超出范围的帧号")
+    void testClockFrameOutOfRange() {
+        Replacer replacer = Replacer.Create("clock", CAPACITY);
+        assertThatThrownBy(() -> replacer.Pin(CAPACITY))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("OUT OF RANGE");
+        assertThatThrownBy(() -> replacer.Pin(-1))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("OUT OF RANGE");
+        assertThat(replacer.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("CLOCK 给被引用的帧第二次机会")
+    void testClockSecondChance() {
+        Replacer replacer = Replacer.Create("clock", 3);
+        for (int i = 0; i < 3; i++) {
+            replacer.Pin(i);
+            replacer.Unpin(i);
+        }
+        // 第一轮清除所有引用位，替换 0
+        assertThat(replacer.Victim()).isEqualTo(0);
+        // 1 再次被访问，获得第二次机会
+        replacer.Pin(1);
+        replacer.Unpin(1);
+        assertThat(replacer.Victim()).isEqualTo(2);
+        assertThat(replacer.Victim()).isEqualTo(1);
+    }
+
+    /**
+     * 用替换器驱动一个简化的缓冲池，返回给定访问序列的命中率。
+     */
+    private static double hitRatio(String policy, int capacity, int[] trace) {
+        Replacer replacer = Replacer.Create(policy, capacity);
+        Map<Integer, Integer> pageToFrame = new HashMap<>();
+        Map<Integer, Integer> frameToPage = new HashMap<>();
+        ArrayDeque<Integer> free = new ArrayDeque<>();
+        for (int i = 0; i < capacity; i++) {
+            free.add(i);
+        }
+        int hits = 0;
+        for (int pageNo : trace) {
+            Integer frame = pageToFrame.get(pageNo);
+            if (frame != null) {
+                hits++;
+            } else {
+                frame = free.isEmpty() ? replacer.Victim() : free.poll();
+                Integer old = frameToPage.remove(frame);
+                if (old != null) {
+                    pageToFrame.remove(old);
+                }
+                pageToFrame.put(pageNo, frame);
+                frameToPage.put(frame, pageNo);
+                replacer.Load(frame, new PagePosition("trace", pageNo * 4096));
+            }
+            replacer.Pin(frame);
+            replacer.Unpin(frame);
+        }
+        return (double) hits / trace.length;
+    }
+
+    /**
+     * 扫描加点查负载：热点集合占缓冲池的一半，被反复随机访问；期间穿插多次比缓冲池大得多的全表扫描。
+     */
+    private static int[] scanPlusPointLookupTrace(int capacity, Random random) {
+        int hotPages = capacity / 2;
+        int scanPages = capacity * 4;
+        int rounds = 20;
+        int lookupsPerRound = capacity * 2;
+        int[] trace = new int[rounds * (lookupsPerRound + scanPages)];
+        int pos = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < lookupsPerRound; i++) {
+                trace[pos++] = random.nextInt(hotPages);
+            }
+            // 扫描页面与热点页面不重叠
+            for (int i = 0; i < scanPages; i++) {
+                trace[pos++] = hotPages + i;
+            }
+        }
+        return trace;
+    }
+
+    @Test
+    @DisplayName("扫描加点查负载下各替换策略的命中率对比")
+    void testTraceDrivenHitRatioComparison() {
+        int capacity = 256;
+        int[] trace = scanPlusPointLookupTrace(capacity, new Random(2025));
+        Map<String, Double> ratios = new LinkedHashMap<>();
+        for (String policy : new String[]{"lru", "clock", "lru-k", "arc"}) {
+            ratios.put(policy, hitRatio(policy, capacity, trace));
+        }
+        ratios.forEach((policy, ratio) -> System.out.printf("%-6s hit ratio: %.4f%n", policy, ratio));
+
+        // 扫描会冲掉 LRU/CLOCK 中的热点页面，而 LRU-K 与 ARC 能够抵抗扫描
+        assertThat(ratios.get("lru-k")).isGreaterThan(ratios.get("lru"));
+        assertThat(ratios.get("arc")).isGreaterThan(ratios.get("lru"));
+        assertThat(ratios.get("clock")).isGreaterThanOrEqualTo(ratios.get("lru") * 0.9);
+    }
+}
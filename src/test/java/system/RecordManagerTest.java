@@ -1,13 +1,17 @@
 package system;
 
 import edu.sustech.cs307.exception.DBException;
+import edu.sustech.cs307.record.RID;
 import edu.sustech.cs307.record.RecordFileHandle;
 import edu.sustech.cs307.record.RecordFileHeader;
 import edu.sustech.cs307.record.RecordPageHeader;
 import edu.sustech.cs307.storage.BufferPool;
 import edu.sustech.cs307.storage.DiskManager;
 import edu.sustech.cs307.storage.Page;
+import edu.sustech.cs307.storage.PagePosition;
 import edu.sustech.cs307.system.RecordManager;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Order;
@@ -73,6 +77,50 @@ public class RecordManagerTest {
                 .hasMessageContaining("INVALID_TABLE_WIDTH");
     }
 
+    @Test
+    @DisplayName("页大小记录在文件头中，重新打开文件后按该页大小读写")
+    void testCreateFileWithPageSize() throws DBException {
+        int pageSize = 16 * 1024;
+        int recordSize = 8000;
+        recordManager.CreateFile("big/data", recordSize, pageSize);
+        RecordFileHandle handle = recordManager.OpenFile("big");
+        assertThat(handle.getFileHeader().getPageSize()).isEqualTo(pageSize);
+        assertThat(handle.getFileHeader().getNumberOfRecordsPrePage()).isEqualTo(2);
+
+        RID[] rids = new RID[5];
+        for (int i = 0; i < rids.length; i++) {
+            ByteBuf buf = Unpooled.buffer(recordSize);
+            buf.writeInt(i).writeZero(recordSize - 4);
+            rids[i] = handle.InsertRecord(buf);
+        }
+        assertThat(rids[4].pageNum).isEqualTo(3);
+        bufferPool.FlushAllPages(null);
+        // 文件按区预分配，文件头记录已预分配的页面数
+        assertThat(handle.getFileHeader().getReservedPages()).isGreaterThanOrEqualTo(4);
+        assertThat(diskManager.GetFileSize("big/data"))
+                .isEqualTo((long) handle.getFileHeader().getReservedPages() * pageSize);
+
+        // 新的 DiskManager 不知道页大小，由 RecordManager 从文件头读出
+        DiskManager reopened = new DiskManager(tempDir.toString(), diskManager.filePages);
+        BufferPool pool = new BufferPool(10, reopened);
+        RecordFileHandle handle2 = new RecordManager(reopened, pool).OpenFile("big");
+        for (int i = 0; i < rids.length; i++) {
+            assertThat(handle2.GetRecord(rids[i]).GetColumnValue(0, 4).getInt(0)).isEqualTo(i);
+        }
+        assertThat(reopened.GetPageSize("big/data")).isEqualTo(pageSize);
+    }
+
+    @Test
+    @DisplayName("页大小必须是 4KB 到 64KB 之间的 2 的幂")
+    void testCreateFileWithInvalidPageSize() {
+        assertThatThrownBy(() -> recordManager.CreateFile("bad/data", 100, 6000))
+                .isInstanceOf(DBException.class)
+                .hasMessageContaining("page_size");
+        assertThatThrownBy(() -> recordManager.CreateFile("bad/data", 5000, Page.DEFAULT_PAGE_SIZE))
+                .isInstanceOf(DBException.class)
+                .hasMessageContaining("INVALID_TABLE_WIDTH");
+    }
+
     @Test
     @DisplayName("测试文件删除")
     @Order(5)
@@ -113,4 +161,50 @@ public class RecordManagerTest {
         recordManager.CloseFile(recordFileHandle);
 
     }
+
+    @Test
+    @DisplayName("同一个表共享一个句柄，文件头页只固定一次")
+    void testOpenFileIsShared() throws DBException {
+        recordManager.CreateFile("shared/data", 100);
+        RecordFileHandle first = recordManager.OpenFile("shared");
+        RecordFileHandle second = recordManager.OpenFile("shared");
+        assertThat(second).isSameAs(first);
+        assertThat(header_pins("shared/data")).isEqualTo(1);
+
+        recordManager.CloseFile(first);
+        recordManager.CloseFile(second);
+        // 空闲的句柄被缓存，重新打开时不再读取文件头
+        assertThat(recordManager.OpenFile("shared")).isSameAs(first);
+        recordManager.CloseFile(first);
+        assertThat(header_pins("shared/data")).isEqualTo(1);
+
+        recordManager.CloseIdleFiles();
+        assertThat(header_pins("shared/data")).isEqualTo(0);
+        RecordFileHandle reopened = recordManager.OpenFile("shared");
+        assertThat(reopened).isNotSameAs(first);
+        recordManager.CloseFile(reopened);
+    }
+
+    @Test
+    @DisplayName("句柄仍在使用时不能释放文件，文件头页保持固定")
+    void testReleaseFileInUse() throws DBException {
+        recordManager.CreateFile("used/data", 100);
+        RecordFileHandle handle = recordManager.OpenFile("used");
+
+        assertThatThrownBy(() -> recordManager.ReleaseFile("used")).isInstanceOf(RuntimeException.class);
+        assertThat(header_pins("used/data")).isEqualTo(1);
+        assertThat(recordManager.GetNumberOfPages("used")).isEqualTo(handle.getFileHeader().getNumberOfPages());
+
+        recordManager.CloseFile(handle);
+        recordManager.ReleaseFile("used");
+        assertThat(header_pins("used/data")).isEqualTo(0);
+    }
+
+    private int header_pins(String data_file) throws DBException {
+        PagePosition position = new PagePosition(data_file, 0);
+        Page page = bufferPool.FetchPage(position);
+        int pins = page.pin_count - 1;
+        bufferPool.unpin_page(position, false);
+        return pins;
+    }
 }